@@ -0,0 +1,32 @@
+#!/usr/bin/env bash
+# 生成 mysqldump 风格的示例 SQL 文件，输出到标准输出，供各基准测试脚本使用
+# 每张表由常见的公共字段与少量各表特有的字段组成，并带有 mysqldump 的注释语句与少量数据
+#
+# 用法：
+#   scripts/generate-dump.sh [表数量] > dump.sql
+set -euo pipefail
+
+awk -v n="${1:-2000}" -v q="'" 'BEGIN {
+  for (t = 1; t <= n; t++) {
+    printf "DROP TABLE IF EXISTS `t%d`;\n", t
+    print "/*!40101 SET @saved_cs_client     = @@character_set_client */;"
+    printf "CREATE TABLE `t%d` (\n", t
+    print "  `id` bigint NOT NULL AUTO_INCREMENT,"
+    print "  `tenant_id` bigint NOT NULL DEFAULT " q "0" q ","
+    print "  `name` varchar(64) NOT NULL DEFAULT " q q " COMMENT " q "名称" q ","
+    print "  `status` tinyint NOT NULL DEFAULT " q "0" q " COMMENT " q "状态" q ","
+    printf "  `c%d` varchar(%d) DEFAULT NULL,\n", t % 50, 16 + t % 7 * 16
+    print "  `created_at` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,"
+    print "  `updated_at` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,"
+    print "  PRIMARY KEY (`id`),"
+    print "  KEY `idx_tenant_id` (`tenant_id`),"
+    print "  KEY `idx_name` (`name`)"
+    printf ") ENGINE=InnoDB AUTO_INCREMENT=%d DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci ROW_FORMAT=DYNAMIC;\n", t
+    print "/*!40101 SET character_set_client = @saved_cs_client */;"
+    printf "INSERT INTO `t%d` VALUES ", t
+    for (r = 1; r <= 20; r++) {
+      printf "%s(%d,1," q "name;%d" q ",0,NULL," q "2026-10-19 00:00:00" q "," q "2026-10-19 00:00:00" q ")", r == 1 ? "" : ",", r, r
+    }
+    print ";"
+  }
+}'
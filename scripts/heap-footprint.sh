@@ -0,0 +1,36 @@
+#!/usr/bin/env bash
+# 比较两个版本的表结构模型常驻堆内存
+# 生成一个包含若干张表的 mysqldump 风格 SQL 文件，分别用指定的基准版本与当前工作区的代码，
+# 以该文件初始化若干个库（模拟多个结构相近的目标库），输出折合每张表的常驻字节数
+#
+# 用法：
+#   scripts/heap-footprint.sh [表数量] [库数量] [基准版本]
+#   默认 2000 张表、20 个库，基准版本为 HEAD~1
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+TABLES="${1:-2000}"
+COPIES="${2:-20}"
+BASE="${3:-HEAD~1}"
+WORK="$(mktemp -d)"
+trap 'git -C "$ROOT" worktree remove --force "$WORK/base" >/dev/null 2>&1 || true; rm -rf "$WORK"' EXIT
+
+"$ROOT/scripts/generate-dump.sh" "$TABLES" >"$WORK/dump.sql"
+
+cd "$ROOT"
+mvn -q -B compile
+mvn -q -B dependency:build-classpath -Dmdep.outputFile="$WORK/cp.txt"
+git worktree add --detach "$WORK/base" "$BASE" >/dev/null 2>&1
+mvn -q -B -f "$WORK/base/pom.xml" compile
+
+run() {
+  local name="$1" classes="$2"
+  mkdir -p "$WORK/$name"
+  javac -encoding UTF-8 -nowarn -cp "$classes" -d "$WORK/$name" "$ROOT/scripts/heap-footprint/HeapFootprint.java"
+  printf '%-8s ' "$name"
+  java -XX:+UseSerialGC -Xmx4g -cp "$WORK/$name:$classes:$(cat "$WORK/cp.txt")" HeapFootprint "$WORK/dump.sql" "$COPIES" \
+    2>/dev/null | tail -n 1
+}
+
+run before "$WORK/base/target/classes"
+run after "$ROOT/target/classes"
@@ -0,0 +1,50 @@
+import com.github.inspalgo.core.Database;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 以同一个 SQL 文件初始化若干个库，模拟多个结构相近的目标库，输出常驻堆内存折合每张表的字节数
+ * <p>
+ * 用法：java -cp classes:依赖 HeapFootprint dump.sql 库数量
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 20:20 UTC+08:00
+ */
+public class HeapFootprint {
+    public static void main(String[] args) throws InterruptedException {
+        String sqlFile = args[0];
+        int copies = Integer.parseInt(args[1]);
+
+        // 先初始化一次并丢弃，使类加载、日志初始化等一次性开销不计入结果
+        new Database().setDbName("warmup").setSqlFilePath(Paths.get(sqlFile)).init();
+        long before = usedHeap();
+
+        List<Database> databases = new ArrayList<>(copies);
+        int tables = 0;
+        for (int i = 0; i < copies; i++) {
+            Database database = new Database().setDbName("db" + i).setSqlFilePath(Paths.get(sqlFile));
+            database.init();
+            tables += database.getTableMap().size();
+            databases.add(database);
+        }
+        long after = usedHeap();
+
+        System.out.printf("databases=%d tables=%d retained=%dKB bytes/table=%d%n",
+            databases.size(), tables, (after - before) / 1024, tables == 0 ? 0 : (after - before) / tables);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,36 @@
+#!/usr/bin/env bash
+# 比较两个版本解析 SQL 文件中 CREATE TABLE 的吞吐量
+# 用 scripts/generate-dump.sh 生成示例文件，分别以基准版本与当前工作区的代码反复初始化，
+# 输出每秒解析的 MB 数与表数（取中位数）
+#
+# 用法：
+#   scripts/parse-benchmark.sh [表数量] [测量次数] [基准版本]
+#   默认 20000 张表、测量 10 次，基准版本为 HEAD~1
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+TABLES="${1:-20000}"
+RUNS="${2:-10}"
+BASE="${3:-HEAD~1}"
+WORK="$(mktemp -d)"
+trap 'git -C "$ROOT" worktree remove --force "$WORK/base" >/dev/null 2>&1 || true; rm -rf "$WORK"' EXIT
+
+"$ROOT/scripts/generate-dump.sh" "$TABLES" >"$WORK/dump.sql"
+
+cd "$ROOT"
+mvn -q -B compile
+mvn -q -B dependency:build-classpath -Dmdep.outputFile="$WORK/cp.txt"
+git worktree add --detach "$WORK/base" "$BASE" >/dev/null 2>&1
+mvn -q -B -f "$WORK/base/pom.xml" compile
+
+run() {
+  local name="$1" classes="$2"
+  mkdir -p "$WORK/$name"
+  javac -encoding UTF-8 -nowarn -cp "$classes" -d "$WORK/$name" "$ROOT/scripts/parse-benchmark/ParseThroughput.java"
+  printf '%-8s ' "$name"
+  java -Xmx2g -cp "$WORK/$name:$classes:$(cat "$WORK/cp.txt")" ParseThroughput "$WORK/dump.sql" 5 "$RUNS" \
+    2>/dev/null | tail -n 1
+}
+
+run before "$WORK/base/target/classes"
+run after "$ROOT/target/classes"
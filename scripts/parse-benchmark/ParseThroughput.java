@@ -0,0 +1,49 @@
+import com.github.inspalgo.core.Database;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * 反复以同一个 SQL 文件初始化库，输出解析吞吐量的中位数与每张表分配的内存
+ * <p>
+ * 用法：java -cp classes:依赖 ParseThroughput dump.sql 预热次数 测量次数
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 21:00 UTC+08:00
+ */
+public class ParseThroughput {
+    public static void main(String[] args) throws Exception {
+        Path sqlFile = Paths.get(args[0]);
+        int warmup = Integer.parseInt(args[1]);
+        int iterations = Integer.parseInt(args[2]);
+        long bytes = Files.size(sqlFile);
+
+        for (int i = 0; i < warmup; i++) {
+            parse(sqlFile);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long[] nanos = new long[iterations];
+        int tables = 0;
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            tables = parse(sqlFile);
+            nanos[i] = System.nanoTime() - start;
+        }
+        allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+        Arrays.sort(nanos);
+        double seconds = nanos[iterations / 2] / 1e9;
+        System.out.printf("tables=%d MB/s=%.1f tables/s=%.0f allocated/table=%dB%n",
+            tables, bytes / 1048576.0 / seconds, tables / seconds, allocated / iterations / Math.max(tables, 1));
+    }
+
+    private static int parse(Path sqlFile) {
+        Database database = new Database().setDbName("bench").setSqlFilePath(sqlFile);
+        database.init();
+        return database.getTableMap().size();
+    }
+}
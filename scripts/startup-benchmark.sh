@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# 比较普通 jar、AppCDS 与 native-image 的启动耗时
+# 每种方式以预览模式同步 scripts/startup 下的示例 SQL 文件若干次，
+# 输出从进程启动到第一次访问数据库（统计文件中的 time_to_first_query）与整个进程耗时的中位数
+#
+# 用法：
+#   mvn -B package -Pappcds      # 生成 target/mysql-schema-sync.jar 与 target/mysql-schema-sync.jsa
+#   mvn -B package -Pnative      # 需要 GraalVM，生成 target/mysql-schema-sync 可执行文件
+#   scripts/startup-benchmark.sh [次数]
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+RUNS="${1:-10}"
+JAR="$ROOT/target/mysql-schema-sync.jar"
+JSA="$ROOT/target/mysql-schema-sync.jsa"
+NATIVE="$ROOT/target/mysql-schema-sync"
+ARGS=(-p -s "$ROOT/scripts/startup/source.sql" -t "$ROOT/scripts/startup/target.sql")
+
+median() {
+  sort -n | awk '{a[NR]=$1} END {if (NR == 0) print "-"; else if (NR % 2) print a[(NR + 1) / 2]; else print (a[NR / 2] + a[NR / 2 + 1]) / 2}'
+}
+
+bench() {
+  local name="$1"
+  shift
+  local first=() wall=()
+  for ((i = 0; i < RUNS; i++)); do
+    local start end metrics
+    metrics="$(mktemp)"
+    start=$(date +%s%N)
+    "$@" "${ARGS[@]}" --metrics-file "$metrics" >/dev/null 2>&1
+    end=$(date +%s%N)
+    first+=("$(awk '$1 == "mysql_schema_sync_time_to_first_query_seconds" {printf "%d\n", $2 * 1000}' "$metrics")")
+    rm -f "$metrics"
+    wall+=($(((end - start) / 1000000)))
+  done
+  printf '%-8s time-to-first-query(ms)=%-6s wall(ms)=%s\n' "$name" \
+    "$(printf '%s\n' "${first[@]}" | grep -v '^$' | median)" "$(printf '%s\n' "${wall[@]}" | median)"
+}
+
+if [[ ! -f "$JAR" ]]; then
+  echo "未找到 $JAR，请先执行 mvn package" >&2
+  exit 1
+fi
+
+bench jar java -jar "$JAR"
+if [[ -f "$JSA" ]]; then
+  bench appcds java -XX:SharedArchiveFile="$JSA" -jar "$JAR"
+else
+  echo "appcds   跳过：未找到 $JSA，请使用 -Pappcds 打包"
+fi
+if [[ -x "$NATIVE" ]]; then
+  bench native "$NATIVE"
+else
+  echo "native   跳过：未找到 $NATIVE，请使用 -Pnative 打包"
+fi
@@ -0,0 +1,9 @@
+CREATE TABLE `t1` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `age` int DEFAULT 0,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+CREATE TABLE `t3` (
+  `id` int NOT NULL,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -12,7 +12,8 @@ public class Main {
 
     public static void main(String[] args) {
         AnsiConsole.systemInstall();
-        new CommandLine(new Arguments()).execute(args);
+        int exitCode = new CommandLine(new Arguments()).execute(args);
         AnsiConsole.systemUninstall();
+        System.exit(exitCode);
     }
 }
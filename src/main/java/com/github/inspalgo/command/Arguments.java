@@ -3,6 +3,7 @@ package com.github.inspalgo.command;
 import com.github.inspalgo.core.ConnectMetaData;
 import com.github.inspalgo.logic.Dispatcher;
 import com.github.inspalgo.logic.TargetMetaData;
+import com.github.inspalgo.logic.WatchDaemon;
 import com.github.inspalgo.util.Log;
 
 import java.nio.file.Files;
@@ -12,6 +13,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 
 import static picocli.CommandLine.ArgGroup;
 import static picocli.CommandLine.Command;
@@ -19,18 +21,20 @@ import static picocli.CommandLine.IVersionProvider;
 import static picocli.CommandLine.Option;
 
 /**
+ * 命令行参数解析，执行结果以退出码返回，由调用方决定是否退出进程
+ *
  * @author InspAlgo
  * @date 2021/1/13 15:03 UTC+08:00
  */
 @Command(name = "MySQL Schema Sync", versionProvider = Arguments.VersionProvider.class)
-public class Arguments implements Runnable {
+public class Arguments implements Callable<Integer> {
     @Option(names = {"-v", "--version"}, versionHelp = true, description = "显示版本号并退出")
     private boolean versionRequested;
 
     @Option(names = {"-h", "--help"}, usageHelp = true, description = "显示帮助信息")
     boolean usageHelpRequested;
 
-    @Option(names = {"-s", "--source"}, description = "指定源：1.在线方式 -s mysql#username:password@host:port/database_name, 2.SQL文件方式  -s sql_filepath")
+    @Option(names = {"-s", "--source"}, description = "指定源：1.在线方式 -s mysql#username:password@host:port/database_name, 2.SQL文件方式  -s sql_filepath，可以是 gzip 或 zstd 压缩的文件, 3.目录方式  -s dump_directory，mydumper 或 MySQL Shell 导出的每表一个结构文件的目录")
     private String source;
 
     @ArgGroup(exclusive = false, multiplicity = "0..*")
@@ -42,15 +46,149 @@ public class Arguments implements Runnable {
     @Option(names = {"-r", "--recreate-table-on-error"}, description = "在同步表结构失败时重新创建表")
     private boolean recreateTableOnError;
 
+    @Option(names = {"--rebuild-copy"}, description = "修改项多的表在预计更快时改为建新表、按主键分批复制数据并改名替换，复制期间对原表的写入会丢失，只应在无写入时使用")
+    private boolean rebuildCopy;
+
+    @Option(names = {"--apply-threads"}, description = "按外键依赖将要执行的表分组，没有外键关联的分组用多个连接并行执行，--apply-threads n，默认 1")
+    private int applyThreads = 1;
+
+    @Option(names = {"--foreign-key-checks"}, description = "执行 DDL 时保持外键检查开启，按外键依赖的拓扑顺序执行，存在循环依赖的分组临时关闭检查")
+    private boolean foreignKeyChecks;
+
+    @Option(names = {"--rehearse"}, description = "执行前在目标服务器的临时库中按当前表结构建出受影响的空表，用 n 个连接并行演练全部 DDL，有语句失败时该目标不执行任何 DDL，需要 CREATE、DROP 库的权限，--rehearse n")
+    private int rehearsalThreads;
+
+    @Option(names = {"--metrics-file"}, description = "运行结束时将各阶段耗时与计数以 Prometheus 文本格式写入指定文件，--metrics-file filepath")
+    private String metricsFilepath;
+
+    @Option(names = {"--jfr"}, description = "运行期间开启 JFR 录制并在结束时写入指定文件，--jfr filepath")
+    private String jfrFilepath;
+
+    @Option(names = {"--ddl-report"}, description = "将每条执行的 DDL 的耗时与表数据量按耗时倒序以 JSON 格式写入指定文件，--ddl-report filepath")
+    private String ddlReportFilepath;
+
+    @Option(names = {"--journal"}, description = "将执行成功的语句、完成的表与目标追加写入执行日志文件，--journal filepath")
+    private String journalFilepath;
+
+    @Option(names = {"--resume"}, description = "按 --journal 指定的执行日志续跑，跳过结构未变化的已完成目标与表")
+    private boolean resume;
+
+    @Option(names = {"--init-timeout"}, description = "源与每个目标读取结构的期限，超时时中止其连接，--init-timeout seconds，默认不限制")
+    private long initTimeoutSeconds;
+
+    @Option(names = {"--sync-timeout"}, description = "每个目标比对、执行与输出 DDL 的期限，超时时中止其连接，--sync-timeout seconds，默认不限制")
+    private long syncTimeoutSeconds;
+
+    @Option(names = {"--straggler-retries"}, description = "其余目标完成后，重新连接并重试超时目标的轮数，--straggler-retries n，默认 0")
+    private int stragglerRetries;
+
+    @Option(names = {"--max-connections-per-host"}, description = "同一台服务器（host:port）上源与各目标共用的最大并发连接数，超出时排队等待，各服务器的目标轮流开始，--max-connections-per-host n，默认不限制")
+    private int maxConnectionsPerHost;
+
+    @Option(names = {"--max-ddl-per-host"}, description = "同一台服务器（host:port）上同时执行的最大 DDL 数，--max-ddl-per-host n，默认不限制")
+    private int maxDdlPerHost;
+
+    @Option(names = {"--adaptive-concurrency"}, description = "按 DDL 耗时、失败与锁等待超时自动调整同时同步的目标数（加性增、乘性减），从 1 开始，不超过指定值，--adaptive-concurrency n")
+    private int adaptiveConcurrency;
+
+    @Option(names = {"--max-threads-running"}, description = "配合 --adaptive-concurrency，目标完成后探测其服务器的 Threads_running，超过指定值时减少并发，--max-threads-running n")
+    private long maxThreadsRunning;
+
+    @Option(names = {"--max-replica-lag"}, description = "从库读取结构时允许的最大复制延迟，超过时改用下一个从库或主库，--max-replica-lag seconds，默认 5")
+    private long maxReplicaLagSeconds = 5;
+
+    @Option(names = {"--coordinator"}, description = "分布式模式的协调者：读取一次源结构，将快照与各目标发布到共享目录并等待 worker 完成，--coordinator directory")
+    private String coordinatorDirectory;
+
+    @Option(names = {"--worker"}, description = "分布式模式的 worker：从共享目录领取目标并同步，全部目标完成后退出，不需要 -s；共享目录中不含密码，-t 只用于提供目标密码，未列出的目标使用环境变量 MYSQL_SCHEMA_SYNC_PASSWORD，--worker directory")
+    private String workerDirectory;
+
+    @Option(names = {"--lease-timeout"}, description = "分布式模式下 worker 超过指定秒数没有心跳时，其领取的目标由其他进程回收重做，--lease-timeout seconds，默认 60")
+    private long leaseTimeoutSeconds = 60;
+
+    @Option(names = {"--coordinator-timeout"}, description = "分布式模式下协调者超过指定秒数既没有 worker 心跳也没有新的结果时放弃等待并返回失败，--coordinator-timeout seconds，默认 600")
+    private long coordinatorTimeoutSeconds = 600;
+
+    @Option(names = {"--watch"}, description = "常驻监听模式，每隔指定秒数检查源与目标结构变化并同步，--watch seconds")
+    private long watchIntervalSeconds;
+
+    @Option(names = {"--control-port"}, description = "监听模式下在 127.0.0.1 上开启 HTTP 控制端口（GET /status，POST /sync），--control-port port")
+    private int controlPort;
+
+    @Option(names = {"--binlog"}, description = "监听模式下通过源库 binlog 捕获 DDL 变更，只重新读取受影响的表，需要 REPLICATION SLAVE 权限")
+    private boolean binlog;
+
     @Override
-    public void run() {
+    public Integer call() {
         try {
-            new Dispatcher().setSource(getSource()).setTargetList(getTargetList())
-                            .setPreview(preview).setRecreateTableOnError(recreateTableOnError)
-                            .schemaSync();
+            Dispatcher dispatcher = new Dispatcher().setSource(getSource()).setTargetList(getTargetList())
+                                                    .setPreview(preview).setRecreateTableOnError(recreateTableOnError)
+                                                    .setRebuildCopy(rebuildCopy)
+                                                    .setApplyThreads(applyThreads)
+                                                    .setForeignKeyChecks(foreignKeyChecks)
+                                                    .setRehearsalThreads(rehearsalThreads)
+                                                    .setMetricsFilePath(getMetricsFilePath())
+                                                    .setJfrFilePath(getWritablePath(jfrFilepath, "JFR 录制文件"))
+                                                    .setDdlReportFilePath(getWritablePath(ddlReportFilepath, "慢 DDL 报告"))
+                                                    .setJournalFilePath(getWritablePath(journalFilepath, "执行日志"))
+                                                    .setResume(resume)
+                                                    .setInitTimeoutSeconds(initTimeoutSeconds)
+                                                    .setSyncTimeoutSeconds(syncTimeoutSeconds)
+                                                    .setStragglerRetries(stragglerRetries)
+                                                    .setMaxConnectionsPerHost(maxConnectionsPerHost)
+                                                    .setMaxDdlPerHost(maxDdlPerHost)
+                                                    .setAdaptiveConcurrency(adaptiveConcurrency)
+                                                    .setMaxThreadsRunning(maxThreadsRunning)
+                                                    .setMaxReplicaLagSeconds(maxReplicaLagSeconds)
+                                                    .setLeaseTimeoutSeconds(leaseTimeoutSeconds)
+                                                    .setCoordinatorTimeoutSeconds(coordinatorTimeoutSeconds);
+            if (applyThreads < 1) {
+                throw new IllegalArgumentException("--apply-threads 必须大于 0");
+            }
+            if (rehearsalThreads < 0) {
+                throw new IllegalArgumentException("--rehearse 不能小于 0");
+            }
+            if (stragglerRetries < 0) {
+                throw new IllegalArgumentException("--straggler-retries 不能小于 0");
+            }
+            if (maxThreadsRunning > 0 && adaptiveConcurrency <= 0) {
+                throw new IllegalArgumentException("--max-threads-running 需要同时指定 --adaptive-concurrency");
+            }
+            if (resume && journalFilepath == null) {
+                throw new IllegalArgumentException("--resume 需要同时指定 --journal");
+            }
+            if (coordinatorDirectory != null && workerDirectory != null) {
+                throw new IllegalArgumentException("--coordinator 与 --worker 不能同时指定");
+            }
+            if (leaseTimeoutSeconds < 3) {
+                throw new IllegalArgumentException("--lease-timeout 不能小于 3 秒");
+            }
+            if (coordinatorTimeoutSeconds < 1) {
+                throw new IllegalArgumentException("--coordinator-timeout 必须大于 0");
+            }
+            if (workerDirectory != null) {
+                if (source != null) {
+                    throw new IllegalArgumentException("--worker 从共享目录读取源结构，不能指定 -s");
+                }
+                dispatcher.work(Paths.get(workerDirectory));
+            } else if (coordinatorDirectory != null) {
+                dispatcher.coordinate(Paths.get(coordinatorDirectory));
+            } else if (watchIntervalSeconds > 0) {
+                new WatchDaemon(dispatcher, watchIntervalSeconds, controlPort, binlog).run();
+            } else {
+                dispatcher.schemaSync();
+            }
+            return 0;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Log.COMMON.error(e.getMessage());
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.COMMON.error("", e);
+            return -1;
         } catch (Exception e) {
             Log.COMMON.error("", e);
-            System.exit(-1);
+            return -1;
         }
     }
 
@@ -68,10 +206,12 @@ public class Arguments implements Runnable {
     }
 
     private static class Target {
-        @Option(names = {"-t", "--target"}, description = "指定目标：1.在线方式 -t mysql#username:password@host:port/database_name, 2.SQL文件方式  -t sql_filepath")
+        @Option(names = {"-t", "--target"}, description = "指定目标：1.在线方式 -t mysql#username:password@host:port/database_name, 2.SQL文件方式  -t sql_filepath，可以是 gzip 或 zstd 压缩的文件, 3.目录方式  -t dump_directory，mydumper 或 MySQL Shell 导出的每表一个结构文件的目录")
         private String target;
-        @Option(names = {"-o", "--output"}, description = "输出执行的差异DDL到指定文件中，-o filepath")
+        @Option(names = {"-o", "--output"}, description = "输出执行的差异DDL到指定文件中，-o filepath，文件名以 .gz 或 .zst 结尾时压缩输出")
         private String outputFilepath;
+        @Option(names = {"--replica"}, description = "从指定的从库读取在线目标的结构，DDL 仍在主库上执行，执行前在主库上重新读取受影响的表，--replica host:port[,host:port...]，使用与主库相同的账号与库名")
+        private String replicas;
 
         @Override
         public String toString() {
@@ -83,12 +223,23 @@ public class Arguments implements Runnable {
         Object sourceMetaData = Optional.ofNullable((Object) parseUri(source))
                                         .orElseGet(() -> parseFilepath(source, FileLimitType.READ));
         if (source != null && sourceMetaData == null) {
-            Log.COMMON.error("源数据库资源标识格式错误: [{}]", source);
-            System.exit(-1);
+            throw new IllegalArgumentException("源数据库资源标识格式错误: [" + source + "]");
         }
         return sourceMetaData;
     }
 
+    private Path getMetricsFilePath() {
+        return getWritablePath(metricsFilepath, "统计文件");
+    }
+
+    private Path getWritablePath(String filepath, String what) {
+        Path path = parseFilepath(filepath, FileLimitType.WRITE);
+        if (filepath != null && path == null) {
+            throw new IllegalArgumentException(what + "输出路径错误: [" + filepath + "]");
+        }
+        return path;
+    }
+
     private List<TargetMetaData> getTargetList() {
         List<Target> connectTargetList = Optional.ofNullable(targets).orElse(new ArrayList<>());
         List<TargetMetaData> targetList = new ArrayList<>(connectTargetList.size());
@@ -97,20 +248,40 @@ public class Arguments implements Runnable {
             Object target = Optional.ofNullable((Object) parseUri(t.target))
                                     .orElseGet(() -> parseFilepath(t.target, FileLimitType.READ));
             if (target == null) {
-                Log.COMMON.error("目标数据库资源标识格式错误: [{}]", t);
-                System.exit(-1);
+                throw new IllegalArgumentException("目标数据库资源标识格式错误: [" + t + "]");
             }
             Path outputPath = parseFilepath(t.outputFilepath, FileLimitType.WRITE);
             if (t.outputFilepath != null && outputPath == null) {
-                Log.COMMON.error("目标数据库输出路径错误: [{}]", t);
-                System.exit(-1);
+                throw new IllegalArgumentException("目标数据库输出路径错误: [" + t + "]");
             }
-            targetList.add(new TargetMetaData(target, outputPath));
+            targetList.add(new TargetMetaData(target, outputPath).setReplicas(parseReplicas(t, target)));
         }
 
         return targetList;
     }
 
+    /**
+     * @return 以逗号分隔的从库 host:port 列表
+     */
+    private static List<String> parseReplicas(Target t, Object target) {
+        if (t.replicas == null || t.replicas.trim().isEmpty()) {
+            return null;
+        }
+        if (!(target instanceof ConnectMetaData)) {
+            throw new IllegalArgumentException("--replica 只能用于在线目标: [" + t + "]");
+        }
+        List<String> replicas = new ArrayList<>();
+        for (String replica : t.replicas.split(",")) {
+            replica = replica.trim();
+            int colon = replica.lastIndexOf(':');
+            if (colon <= 0 || colon == replica.length() - 1) {
+                throw new IllegalArgumentException("从库地址格式错误: [" + replica + "]");
+            }
+            replicas.add(replica);
+        }
+        return replicas;
+    }
+
     /**
      * 解析 mysql#username:password@host:port/database_name 形式的标识
      *
@@ -0,0 +1,431 @@
+package com.github.inspalgo.core;
+
+import com.github.inspalgo.util.Log;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 基于 binlog 的 DDL 变更捕获：从记录的位点开始读取源库的 binlog 事件，
+ * 从 Query 事件中的 DDL 语句解析出受影响的表名
+ * <p>
+ * 通过 SHOW BINLOG EVENTS 读取事件，需要 REPLICATION SLAVE 权限，不需要额外的复制协议依赖。
+ * 该语句无法在服务端按事件类型过滤，行变更事件同样会被逐条返回，读取的开销与两次读取之间源库的写入量成正比。
+ * 积压超过 {@link #setMaxPollBytes} 时不再逐条读取，直接跳到末尾并要求整库重新读取，
+ * 每次读取的开销不超过该上限与一次整库读取结构之和
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 15:00 UTC+08:00
+ */
+public class BinlogDdlWatcher {
+    /**
+     * 表示需要整库重新读取，例如 DROP/CREATE DATABASE
+     */
+    public static final String ALL_TABLES = "*";
+
+    private static final int EVENT_BATCH = 1000;
+    private static final long DEFAULT_MAX_POLL_BYTES = 64L << 20;
+
+    private final Database database;
+    private String logFile;
+    private long position;
+    private long maxPollBytes = DEFAULT_MAX_POLL_BYTES;
+
+    public BinlogDdlWatcher(Database database) {
+        this.database = database;
+    }
+
+    /**
+     * @param maxPollBytes 每次读取的 binlog 积压上限（字节），超过时整库重新读取，默认 64MiB
+     */
+    public BinlogDdlWatcher setMaxPollBytes(long maxPollBytes) {
+        this.maxPollBytes = maxPollBytes;
+        return this;
+    }
+
+    public String getLogFile() {
+        return logFile;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * 记录当前 binlog 位点，应在读取源库结构之前调用，避免遗漏两者之间的变更
+     *
+     * @return 是否成功，binlog 未开启或权限不足时返回 false
+     */
+    public boolean start() {
+        try (Connection connection = database.getConnection();
+             Statement statement = connection.createStatement()) {
+            ResultSet resultSet;
+            try {
+                resultSet = statement.executeQuery("SHOW BINARY LOG STATUS");
+            } catch (SQLException e) {
+                // MySQL 8.4 之前的版本
+                resultSet = statement.executeQuery("SHOW MASTER STATUS");
+            }
+            try {
+                if (!resultSet.next()) {
+                    Log.COMMON.error("`{}` 未开启 binlog", database.getDbName());
+                    return false;
+                }
+                logFile = resultSet.getString(1);
+                position = resultSet.getLong(2);
+            } finally {
+                resultSet.close();
+            }
+            Log.COMMON.info("`{}` binlog 起始位点 {}:{}", database.getDbName(), logFile, position);
+            return true;
+        } catch (SQLException e) {
+            Log.COMMON.error("`{}` 读取 binlog 位点失败", database.getDbName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 读取上次位点之后的全部事件，积压超过上限时跳到末尾
+     *
+     * @return 受影响的表名，包含 {@link #ALL_TABLES} 时表示需要整库重新读取
+     * @throws SQLException 读取失败
+     */
+    public Set<String> poll() throws SQLException {
+        Set<String> tables = new LinkedHashSet<>();
+        try (Connection connection = database.getConnection();
+             Statement statement = connection.createStatement()) {
+            if (skipBacklog(statement)) {
+                tables.add(ALL_TABLES);
+                return tables;
+            }
+            while (true) {
+                int events = readEvents(statement, tables);
+                if (events >= EVENT_BATCH) {
+                    continue;
+                }
+                String nextFile = nextLogFile(statement);
+                if (nextFile == null) {
+                    break;
+                }
+                logFile = nextFile;
+                position = 4;
+            }
+        }
+        return tables;
+    }
+
+    private int readEvents(Statement statement, Set<String> tables) throws SQLException {
+        int events = 0;
+        String query = "SHOW BINLOG EVENTS IN '" + logFile + "' FROM " + position + " LIMIT " + EVENT_BATCH;
+        try (ResultSet resultSet = statement.executeQuery(query)) {
+            while (resultSet.next()) {
+                events++;
+                position = resultSet.getLong("End_log_pos");
+                if ("Query".equalsIgnoreCase(resultSet.getString("Event_type"))) {
+                    tables.addAll(affectedTables(resultSet.getString("Info"), database.getDbName()));
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * 按 SHOW BINARY LOGS 中的文件大小计算上次位点之后的积压，超过上限时将位点移到最后一个文件的末尾
+     *
+     * @return 是否跳过了积压
+     */
+    private boolean skipBacklog(Statement statement) throws SQLException {
+        long backlog = 0;
+        boolean found = false;
+        String lastFile = null;
+        long lastSize = 0;
+        try (ResultSet resultSet = statement.executeQuery("SHOW BINARY LOGS")) {
+            while (resultSet.next()) {
+                lastFile = resultSet.getString(1);
+                lastSize = resultSet.getLong(2);
+                if (found) {
+                    backlog += lastSize;
+                } else if (lastFile.equals(logFile)) {
+                    found = true;
+                    backlog += Math.max(0, lastSize - position);
+                }
+            }
+        }
+        if (lastFile == null || (found && backlog <= maxPollBytes)) {
+            return false;
+        }
+        // 记录的文件已被清理时同样无法逐条读取
+        Log.COMMON.warn("`{}` binlog 自 {}:{} 起积压 {} 字节，超过上限 {} 字节，跳到 {}:{} 并整库重新读取",
+            database.getDbName(), logFile, position, found ? backlog : "未知", maxPollBytes, lastFile, lastSize);
+        logFile = lastFile;
+        position = lastSize;
+        return true;
+    }
+
+    /**
+     * @return 当前文件之后的下一个 binlog 文件，没有时返回 null
+     */
+    private String nextLogFile(Statement statement) throws SQLException {
+        boolean found = false;
+        try (ResultSet resultSet = statement.executeQuery("SHOW BINARY LOGS")) {
+            while (resultSet.next()) {
+                String name = resultSet.getString(1);
+                if (found) {
+                    return name;
+                }
+                found = name.equals(logFile);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 解析 Query 事件中的 DDL，得到指定库中受影响的表名
+     *
+     * @param info   事件内容，形如 {@code use `db`; ALTER TABLE ...}
+     * @param schema 关注的库名
+     * @return 受影响的表名，非 DDL 或与该库无关时为空
+     */
+    static List<String> affectedTables(String info, String schema) {
+        List<String> result = new ArrayList<>(2);
+        if (info == null) {
+            return result;
+        }
+        String defaultSchema = null;
+        String sql = info.trim();
+        if (sql.regionMatches(true, 0, "use ", 0, 4)) {
+            int semicolon = sql.indexOf(';');
+            if (semicolon == -1) {
+                return result;
+            }
+            defaultSchema = unquote(sql.substring(4, semicolon).trim());
+            sql = sql.substring(semicolon + 1).trim();
+        }
+
+        Tokens tokens = new Tokens(sql);
+        String first = tokens.keyword();
+        if ("CREATE".equals(first) || "ALTER".equals(first) || "DROP".equals(first)) {
+            String object = tokens.skipModifiers();
+            if ("TABLE".equals(object)) {
+                tokens.skipIfExists();
+                do {
+                    addTable(result, tokens.name(), defaultSchema, schema);
+                } while ("DROP".equals(first) && tokens.comma());
+                if ("ALTER".equals(first)) {
+                    addTable(result, tokens.renameTarget(), defaultSchema, schema);
+                }
+            } else if ("INDEX".equals(object)) {
+                tokens.name();
+                while (!tokens.end() && !"ON".equals(tokens.keyword())) {
+                    // 跳过 USING BTREE 等
+                }
+                addTable(result, tokens.name(), defaultSchema, schema);
+            } else if (("DATABASE".equals(object) || "SCHEMA".equals(object)) && !"ALTER".equals(first)) {
+                tokens.skipIfExists();
+                if (schema.equals(tokens.name())) {
+                    result.add(ALL_TABLES);
+                }
+            }
+        } else if ("RENAME".equals(first) && "TABLE".equals(tokens.keyword())) {
+            do {
+                addTable(result, tokens.name(), defaultSchema, schema);
+                tokens.keyword();
+                addTable(result, tokens.name(), defaultSchema, schema);
+            } while (tokens.comma());
+        }
+        return result;
+    }
+
+    private static void addTable(List<String> result, String qualifiedName, String defaultSchema, String schema) {
+        if (qualifiedName == null) {
+            return;
+        }
+        int dot = qualifiedName.indexOf('.');
+        String tableSchema = dot == -1 ? defaultSchema : qualifiedName.substring(0, dot);
+        String table = dot == -1 ? qualifiedName : qualifiedName.substring(dot + 1);
+        if (schema.equals(tableSchema)) {
+            result.add(table);
+        }
+    }
+
+    private static String unquote(String name) {
+        if (name.length() >= 2 && name.charAt(0) == '`' && name.charAt(name.length() - 1) == '`') {
+            return name.substring(1, name.length() - 1).replace("``", "`");
+        }
+        return name;
+    }
+
+    /**
+     * 极简的 DDL 词法扫描，只识别关键字、（可带库名的）标识符与逗号
+     */
+    private static class Tokens {
+        private final String sql;
+        private int pos = 0;
+
+        Tokens(String sql) {
+            this.sql = sql;
+        }
+
+        boolean end() {
+            skipBlank();
+            return pos >= sql.length();
+        }
+
+        String keyword() {
+            skipBlank();
+            int start = pos;
+            while (pos < sql.length() && (Character.isLetterOrDigit(sql.charAt(pos)) || sql.charAt(pos) == '_')) {
+                pos++;
+            }
+            if (start == pos && pos < sql.length()) {
+                pos++;
+            }
+            return sql.substring(start, pos).toUpperCase(Locale.ROOT);
+        }
+
+        /**
+         * 跳过 TEMPORARY、UNIQUE、ONLINE 等修饰词，返回对象类型关键字
+         */
+        String skipModifiers() {
+            String word = keyword();
+            while ("TEMPORARY".equals(word) || "UNIQUE".equals(word) || "FULLTEXT".equals(word)
+                || "SPATIAL".equals(word) || "ONLINE".equals(word) || "OFFLINE".equals(word)
+                || "IGNORE".equals(word)) {
+                word = keyword();
+            }
+            return word;
+        }
+
+        /**
+         * 在 ALTER TABLE 的剩余部分中查找 RENAME [TO|AS] new_name
+         *
+         * @return 新表名，没有改名时返回 null
+         */
+        String renameTarget() {
+            while (!end()) {
+                if (sql.charAt(pos) == '`' || sql.charAt(pos) == '\'') {
+                    skipQuoted(sql.charAt(pos));
+                    continue;
+                }
+                if (!"RENAME".equals(keyword())) {
+                    continue;
+                }
+                int mark = pos;
+                String word = keyword();
+                if ("COLUMN".equals(word) || "INDEX".equals(word) || "KEY".equals(word)) {
+                    continue;
+                }
+                if (!"TO".equals(word) && !"AS".equals(word)) {
+                    pos = mark;
+                }
+                return name();
+            }
+            return null;
+        }
+
+        private void skipQuoted(char quote) {
+            pos++;
+            while (pos < sql.length()) {
+                char c = sql.charAt(pos++);
+                if (c == '\\' && quote == '\'') {
+                    pos++;
+                } else if (c == quote) {
+                    if (pos < sql.length() && sql.charAt(pos) == quote) {
+                        pos++;
+                        continue;
+                    }
+                    return;
+                }
+            }
+        }
+
+        void skipIfExists() {
+            int mark = pos;
+            if (!"IF".equals(keyword())) {
+                pos = mark;
+                return;
+            }
+            String word = keyword();
+            if ("NOT".equals(word)) {
+                keyword();
+            }
+        }
+
+        boolean comma() {
+            skipBlank();
+            if (pos < sql.length() && sql.charAt(pos) == ',') {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return 标识符，库名限定时为 schema.table
+         */
+        String name() {
+            String first = identifier();
+            if (first == null) {
+                return null;
+            }
+            skipBlank();
+            if (pos < sql.length() && sql.charAt(pos) == '.') {
+                pos++;
+                String second = identifier();
+                return second == null ? first : first + "." + second;
+            }
+            return first;
+        }
+
+        private String identifier() {
+            skipBlank();
+            if (pos >= sql.length()) {
+                return null;
+            }
+            if (sql.charAt(pos) == '`') {
+                StringBuilder sb = new StringBuilder();
+                pos++;
+                while (pos < sql.length()) {
+                    char c = sql.charAt(pos++);
+                    if (c == '`') {
+                        if (pos < sql.length() && sql.charAt(pos) == '`') {
+                            sb.append('`');
+                            pos++;
+                            continue;
+                        }
+                        break;
+                    }
+                    sb.append(c);
+                }
+                return sb.toString();
+            }
+            int start = pos;
+            while (pos < sql.length() && (Character.isLetterOrDigit(sql.charAt(pos)) || sql.charAt(pos) == '_'
+                || sql.charAt(pos) == '$')) {
+                pos++;
+            }
+            return start == pos ? null : sql.substring(start, pos);
+        }
+
+        private void skipBlank() {
+            while (pos < sql.length()) {
+                char c = sql.charAt(pos);
+                if (Character.isWhitespace(c)) {
+                    pos++;
+                } else if (c == '/' && pos + 1 < sql.length() && sql.charAt(pos + 1) == '*') {
+                    int close = sql.indexOf("*/", pos + 2);
+                    pos = close == -1 ? sql.length() : close + 2;
+                } else {
+                    break;
+                }
+            }
+        }
+    }
+}
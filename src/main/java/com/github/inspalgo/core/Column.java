@@ -1,54 +1,254 @@
 package com.github.inspalgo.core;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.UnaryOperator;
 
 /**
+ * 字段定义。创建时由 ddl 解析出类型、长度、是否可空、默认值、字符集、排序规则等属性，此后不再修改，
+ * 比较时按规范化后的属性进行，仅写法不同的定义视为相同
+ * <p>
+ * 字段的位置由其在表中的顺序决定，不属于字段本身，因此 ddl 相同的字段可以在多张表之间共享，见 {@link #of}
+ *
  * @author InspAlgo
  * @date 2021/1/7 19:53 UTC+08:00
  */
-public class Column implements Comparable<Column> {
-    private String columnName;
-    private Integer ordinalPosition;
-    private String ddl;
+public class Column {
+    private final String columnName;
+    private final String ddl;
 
-    public Column() {
+    private final String dataType;
+    private final String length;
+    private final boolean unsigned;
+    private final boolean zerofill;
+    private final boolean nullable;
+    private final String defaultValue;
+    private final String charset;
+    private final String collation;
+    private final String extra;
+    private final String comment;
+
+    /**
+     * 各字符集的默认排序规则，utf8mb4 随服务器版本变化，见 {@link #defaultCollation}
+     */
+    private static final Map<String, String> DEFAULT_COLLATIONS = new HashMap<>();
+
+    static {
+        for (String collation : Arrays.asList("utf8mb3_general_ci", "latin1_swedish_ci", "ascii_general_ci",
+            "gbk_chinese_ci", "gb2312_chinese_ci", "gb18030_chinese_ci", "big5_chinese_ci", "utf16_general_ci",
+            "utf16le_general_ci", "utf32_general_ci", "ucs2_general_ci", "latin2_general_ci", "cp1251_general_ci",
+            "sjis_japanese_ci", "ujis_japanese_ci", "euckr_korean_ci", "cp932_japanese_ci", "eucjpms_japanese_ci")) {
+            DEFAULT_COLLATIONS.put(collation.substring(0, collation.indexOf('_')), collation);
+        }
+        DEFAULT_COLLATIONS.put("binary", "binary");
+    }
+
+    /**
+     * MySQL 8.0 起 utf8mb4 的默认排序规则由 utf8mb4_general_ci 改为 utf8mb4_0900_ai_ci
+     */
+    private static final int UTF8MB4_0900_VERSION = 80000;
+
+    /**
+     * 解析 ddl 得到字段，需要共享的字段通过 {@link #of} 取得
+     *
+     * @param columnName 字段名
+     * @param ddl        字段定义，以反引号包裹的字段名开头
+     */
+    Column(String columnName, String ddl) {
+        this(columnName, ddl, UnaryOperator.identity());
+    }
+
+    /**
+     * @param intern 对解析出的字符串属性取值的处理，共享的字段以此将取值放入驻留池
+     */
+    Column(String columnName, String ddl, UnaryOperator<String> intern) {
+        this.columnName = columnName;
+        this.ddl = ddl;
+        ColumnParser.Attributes attributes = ColumnParser.parse(ddl);
+        this.dataType = intern.apply(attributes.dataType);
+        this.length = intern.apply(attributes.length);
+        this.unsigned = attributes.unsigned;
+        this.zerofill = attributes.zerofill;
+        this.nullable = attributes.nullable;
+        this.defaultValue = intern.apply(attributes.defaultValue);
+        this.charset = intern.apply(attributes.charset);
+        this.collation = intern.apply(attributes.collation);
+        this.extra = intern.apply(attributes.extra);
+        this.comment = attributes.comment;
+    }
+
+    /**
+     * 取得共享的字段定义，ddl 相同的字段在所有表、所有库之间为同一个对象，不能再修改
+     *
+     * @param columnName 字段名
+     * @param ddl        字段定义
+     * @return 字段
+     */
+    public static Column of(String columnName, String ddl) {
+        return SchemaInterner.column(columnName, ddl);
     }
 
     public String getColumnName() {
         return columnName;
     }
 
-    public Column setColumnName(String columnName) {
-        this.columnName = columnName;
-        return this;
+    public String getDdl() {
+        return ddl;
     }
 
-    public Integer getOrdinalPosition() {
-        return ordinalPosition;
+    public String getDataType() {
+        return dataType;
     }
 
-    public Column setOrdinalPosition(Integer ordinalPosition) {
-        this.ordinalPosition = ordinalPosition;
-        return this;
+    /**
+     * @return 规范化后括号内的长度、精度或枚举值，如 20、10,2，没有时为 null
+     */
+    public String getLength() {
+        return length;
     }
 
-    public Column setOrdinalPosition(String ordinalPosition) {
-        this.ordinalPosition = Integer.valueOf(ordinalPosition);
-        return this;
+    public boolean isUnsigned() {
+        return unsigned;
     }
 
-    public String getDdl() {
-        return ddl;
+    public boolean isZerofill() {
+        return zerofill;
     }
 
-    public Column setDdl(String ddl) {
-        this.ddl = ddl;
-        return this;
+    public boolean isNullable() {
+        return nullable;
     }
 
-    @Override
-    public int compareTo(Column o) {
-        return ordinalPosition - o.ordinalPosition;
+    /**
+     * @return 规范化后的默认值，没有默认值或默认值为 NULL 时为 null；字符串字面量以单引号开头
+     */
+    public String getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * @return 显式指定的字符集，未指定（即使用表的默认字符集）时为 null
+     */
+    public String getCharset() {
+        return charset;
+    }
+
+    /**
+     * @return 显式指定的排序规则，未指定时为 null
+     */
+    public String getCollation() {
+        return collation;
+    }
+
+    /**
+     * @return AUTO_INCREMENT、ON UPDATE、生成列表达式等其余属性，按字典序以空格连接
+     */
+    public String getExtra() {
+        return extra;
+    }
+
+    public String getComment() {
+        return comment;
+    }
+
+    /**
+     * 字符集与排序规则只对字符串类型有意义
+     */
+    private boolean hasCharset() {
+        if (dataType == null) {
+            return false;
+        }
+        switch (dataType) {
+            case "char":
+            case "varchar":
+            case "tinytext":
+            case "text":
+            case "mediumtext":
+            case "longtext":
+            case "enum":
+            case "set":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 按规范化后的属性比较两个字段定义是否相同。字符型字段比较实际生效的字符集与排序规则：
+     * 未显式指定时依次取所在表的默认值、字符集在目标服务器版本下的默认排序规则
+     *
+     * @param other               另一个字段
+     * @param tableCharset        本字段所在表的默认字符集
+     * @param tableCollation      本字段所在表的默认排序规则，未指定时为 null
+     * @param otherTableCharset   另一个字段所在表的默认字符集
+     * @param otherTableCollation 另一个字段所在表的默认排序规则，未指定时为 null
+     * @param serverVersion       执行 DDL 的服务器版本，形如 80033，未知时为 0，按 8.0 处理
+     * @return 定义是否相同
+     */
+    public boolean sameDefinition(Column other, String tableCharset, String tableCollation, String otherTableCharset,
+                                  String otherTableCollation, int serverVersion) {
+        if (other == null) {
+            return false;
+        }
+        if (!Objects.equals(dataType, other.dataType) || !Objects.equals(length, other.length)
+            || unsigned != other.unsigned || zerofill != other.zerofill || nullable != other.nullable
+            || !Objects.equals(defaultValue, other.defaultValue) || !Objects.equals(extra, other.extra)
+            || !Objects.equals(comment == null ? "" : comment, other.comment == null ? "" : other.comment)) {
+            return false;
+        }
+        if (!hasCharset()) {
+            return true;
+        }
+        String effectiveCharset = effectiveCharset(tableCharset, tableCollation);
+        if (!Objects.equals(effectiveCharset, other.effectiveCharset(otherTableCharset, otherTableCollation))) {
+            return false;
+        }
+        return Objects.equals(effectiveCollation(effectiveCharset, tableCollation, serverVersion),
+            other.effectiveCollation(effectiveCharset, otherTableCollation, serverVersion));
+    }
+
+    private String effectiveCharset(String tableCharset, String tableCollation) {
+        if (charset != null) {
+            return charset;
+        }
+        if (tableCharset != null) {
+            return ColumnParser.normalizeCharset(tableCharset);
+        }
+        return tableCollation == null ? null : charsetOf(ColumnParser.normalizeCharset(tableCollation));
+    }
+
+    /**
+     * 字段写了排序规则时使用该排序规则；只写了字符集时使用字符集的默认排序规则；都未写时沿用表的排序规则
+     */
+    private String effectiveCollation(String effectiveCharset, String tableCollation, int serverVersion) {
+        if (collation != null) {
+            return collation;
+        }
+        if (charset == null && tableCollation != null) {
+            return ColumnParser.normalizeCharset(tableCollation);
+        }
+        return effectiveCharset == null ? null : defaultCollation(effectiveCharset, serverVersion);
+    }
+
+    /**
+     * @param charset       规范化后的字符集
+     * @param serverVersion 服务器版本，形如 80033，未知时为 0，按 8.0 处理
+     * @return 字符集在该版本下的默认排序规则
+     */
+    static String defaultCollation(String charset, int serverVersion) {
+        if ("utf8mb4".equals(charset)) {
+            return serverVersion > 0 && serverVersion < UTF8MB4_0900_VERSION
+                ? "utf8mb4_general_ci" : "utf8mb4_0900_ai_ci";
+        }
+        String collation = DEFAULT_COLLATIONS.get(charset);
+        return collation != null ? collation : charset + "_general_ci";
+    }
+
+    private static String charsetOf(String collation) {
+        int underscore = collation.indexOf('_');
+        return underscore == -1 ? collation : collation.substring(0, underscore);
     }
 
     @Override
@@ -60,7 +260,10 @@ public class Column implements Comparable<Column> {
             return false;
         }
         Column column = (Column) o;
-        return Objects.equals(ddl, column.ddl);
+        if (dataType == null || column.dataType == null) {
+            return Objects.equals(ddl, column.ddl);
+        }
+        return Objects.equals(columnName, column.columnName) && sameDefinition(column, null, null, null, null, 0);
     }
 
     @Override
@@ -72,7 +275,6 @@ public class Column implements Comparable<Column> {
     public String toString() {
         return "Column{" +
             "columnName='" + columnName + '\'' +
-            ", ordinalPosition=" + ordinalPosition +
             ", ddl='" + ddl + '\'' +
             '}';
     }
@@ -0,0 +1,562 @@
+package com.github.inspalgo.core;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 将 CREATE TABLE 中的单个字段定义解析为 {@link Column} 的各个属性，并做规范化，
+ * 使 SHOW CREATE TABLE 与 mysqldump 之间、不同 MySQL 版本之间仅写法不同的定义解析结果相同
+ * <ul>
+ *     <li>整数类型去掉显示宽度（ZEROFILL 与 tinyint(1) 除外），类型别名统一，如 integer → int</li>
+ *     <li>数值类型的默认值去掉引号并按数值规范化，如 '0.00' → 0</li>
+ *     <li>DEFAULT NULL 与不写默认值相同，NOW() 等同于 CURRENT_TIMESTAMP</li>
+ *     <li>utf8 统一为 utf8mb3，字符集与排序规则统一小写</li>
+ * </ul>
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 16:40 UTC+08:00
+ */
+class ColumnParser {
+    private final String ddl;
+    private int pos = 0;
+
+    /**
+     * 解析并规范化后的字段属性，取值含义见 {@link Column} 的同名方法
+     */
+    static final class Attributes {
+        /**
+         * ddl 为 null 时的属性
+         */
+        static final Attributes EMPTY = new Attributes(null, null, false, false, true, null, null, null, "", null);
+
+        final String dataType;
+        final String length;
+        final boolean unsigned;
+        final boolean zerofill;
+        final boolean nullable;
+        final String defaultValue;
+        final String charset;
+        final String collation;
+        final String extra;
+        final String comment;
+
+        private Attributes(String dataType, String length, boolean unsigned, boolean zerofill, boolean nullable,
+                           String defaultValue, String charset, String collation, String extra, String comment) {
+            this.dataType = dataType;
+            this.length = length;
+            this.unsigned = unsigned;
+            this.zerofill = zerofill;
+            this.nullable = nullable;
+            this.defaultValue = defaultValue;
+            this.charset = charset;
+            this.collation = collation;
+            this.extra = extra;
+            this.comment = comment;
+        }
+    }
+
+    private ColumnParser(String ddl) {
+        this.ddl = ddl;
+    }
+
+    /**
+     * @param ddl 字段定义，以反引号包裹的字段名开头，为 null 时返回 {@link Attributes#EMPTY}
+     * @return 解析出的属性
+     */
+    static Attributes parse(String ddl) {
+        return ddl == null ? Attributes.EMPTY : new ColumnParser(ddl).parse();
+    }
+
+    private Attributes parse() {
+        // 字段名已由调用方解析
+        next();
+        String type = lower(next());
+        String length = null;
+        if (peekGroup()) {
+            length = group();
+        }
+        boolean unsigned = false;
+        boolean zerofill = false;
+        boolean nullable = true;
+        String defaultValue = null;
+        String charset = null;
+        String collation = null;
+        String comment = null;
+        List<String> extra = new ArrayList<>(2);
+
+        if ("double".equals(type) && "PRECISION".equals(upper(peek()))) {
+            next();
+        }
+
+        String token;
+        while ((token = next()) != null) {
+            String word = upper(token);
+            switch (word) {
+                case "UNSIGNED":
+                    unsigned = true;
+                    break;
+                case "SIGNED":
+                    break;
+                case "ZEROFILL":
+                    zerofill = true;
+                    unsigned = true;
+                    break;
+                case "CHARACTER":
+                    next();
+                    charset = next();
+                    break;
+                case "CHARSET":
+                    charset = next();
+                    break;
+                case "COLLATE":
+                    collation = next();
+                    break;
+                case "NOT":
+                    next();
+                    nullable = false;
+                    break;
+                case "NULL":
+                    nullable = true;
+                    break;
+                case "DEFAULT":
+                    defaultValue = value();
+                    break;
+                case "COMMENT":
+                    comment = unquote(next());
+                    break;
+                case "ON":
+                    next();
+                    extra.add("ON UPDATE " + normalizeFunction(value()));
+                    break;
+                case "GENERATED":
+                    next();
+                    break;
+                case "AS":
+                    extra.add("AS " + normalizeExpression(group()));
+                    break;
+                case "VIRTUAL":
+                case "STORED":
+                case "INVISIBLE":
+                case "AUTO_INCREMENT":
+                case "UNIQUE":
+                case "PRIMARY":
+                    extra.add(word);
+                    break;
+                case "KEY":
+                case "VISIBLE":
+                    break;
+                case "SRID":
+                case "COLUMN_FORMAT":
+                case "STORAGE":
+                    extra.add(word + " " + upper(next()));
+                    break;
+                default:
+                    extra.add(token.startsWith("(") ? normalizeExpression(token) : word);
+            }
+        }
+
+        if (("bool".equals(type) || "boolean".equals(type)) && length == null) {
+            // BOOL 即 tinyint(1)
+            length = "(1)";
+        }
+        type = normalizeType(type);
+        length = normalizeLength(type, length, zerofill);
+        if (charset != null) {
+            charset = normalizeCharset(charset);
+        }
+        if (collation != null) {
+            collation = normalizeCharset(lower(collation));
+            if (charset == null) {
+                int underscore = collation.indexOf('_');
+                charset = underscore == -1 ? collation : collation.substring(0, underscore);
+            }
+        }
+        if (defaultValue != null) {
+            defaultValue = normalizeDefault(type, defaultValue);
+        }
+        Collections.sort(extra);
+
+        return new Attributes(type, length, unsigned, zerofill, nullable, defaultValue, charset, collation,
+            String.join(" ", extra), comment);
+    }
+
+    private static String normalizeType(String type) {
+        switch (type) {
+            case "integer":
+            case "int4":
+                return "int";
+            case "int1":
+                return "tinyint";
+            case "int2":
+                return "smallint";
+            case "int3":
+            case "middleint":
+                return "mediumint";
+            case "int8":
+                return "bigint";
+            case "bool":
+            case "boolean":
+                return "tinyint";
+            case "dec":
+            case "numeric":
+            case "fixed":
+                return "decimal";
+            case "real":
+                return "double";
+            default:
+                return type;
+        }
+    }
+
+    private static String normalizeLength(String type, String length, boolean zerofill) {
+        if (length != null) {
+            length = length.substring(1, length.length() - 1);
+            if (!"enum".equals(type) && !"set".equals(type)) {
+                length = length.replace(" ", "");
+            } else {
+                length = normalizeExpression(length);
+            }
+        }
+        switch (type) {
+            case "tinyint":
+                // tinyint(1) 会被 Connector/J 等驱动当作布尔值，宽度有实际意义
+                return zerofill || "1".equals(length) ? length : null;
+            case "smallint":
+            case "mediumint":
+            case "int":
+            case "bigint":
+                return zerofill ? length : null;
+            case "year":
+                return null;
+            case "decimal":
+                if (length == null) {
+                    return "10,0";
+                }
+                return length.indexOf(',') == -1 ? length + ",0" : length;
+            case "char":
+            case "binary":
+            case "bit":
+                return length == null ? "1" : length;
+            case "datetime":
+            case "timestamp":
+            case "time":
+                return "0".equals(length) ? null : length;
+            default:
+                return length;
+        }
+    }
+
+    private static boolean isNumeric(String type) {
+        switch (type) {
+            case "tinyint":
+            case "smallint":
+            case "mediumint":
+            case "int":
+            case "bigint":
+            case "decimal":
+            case "float":
+            case "double":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static String normalizeCharset(String charset) {
+        charset = lower(charset);
+        if ("utf8".equals(charset)) {
+            return "utf8mb3";
+        }
+        if (charset.startsWith("utf8_")) {
+            return "utf8mb3_" + charset.substring(5);
+        }
+        return charset;
+    }
+
+    /**
+     * @return 规范化后的默认值，DEFAULT NULL 返回 null；字符串字面量以单引号开头，与函数、表达式区分
+     */
+    private static String normalizeDefault(String type, String value) {
+        String upperValue = upper(value);
+        if ("NULL".equals(upperValue)) {
+            return null;
+        }
+        if (value.startsWith("'") || value.startsWith("\"")) {
+            String literal = unquote(value);
+            if (isNumeric(type)) {
+                String number = normalizeNumber(literal);
+                if (number != null) {
+                    return number;
+                }
+            }
+            return "'" + literal;
+        }
+        if (isNumeric(type)) {
+            if ("TRUE".equals(upperValue)) {
+                return "1";
+            } else if ("FALSE".equals(upperValue)) {
+                return "0";
+            }
+            String number = normalizeNumber(value);
+            if (number != null) {
+                return number;
+            }
+        }
+        if (value.startsWith("(")) {
+            return normalizeExpression(value);
+        }
+        return normalizeFunction(value);
+    }
+
+    private static String normalizeNumber(String value) {
+        try {
+            BigDecimal number = new BigDecimal(value.trim());
+            if (number.signum() == 0) {
+                return "0";
+            }
+            return number.stripTrailingZeros().toPlainString();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * CURRENT_TIMESTAMP 的各种同义写法统一为 CURRENT_TIMESTAMP 或 CURRENT_TIMESTAMP(n)
+     */
+    private static String normalizeFunction(String value) {
+        String function = upper(value).replace(" ", "");
+        String precision = "";
+        int paren = function.indexOf('(');
+        if (paren != -1) {
+            precision = function.substring(paren + 1, function.length() - 1);
+            function = function.substring(0, paren);
+        }
+        switch (function) {
+            case "CURRENT_TIMESTAMP":
+            case "NOW":
+            case "LOCALTIME":
+            case "LOCALTIMESTAMP":
+                return precision.isEmpty() || "0".equals(precision)
+                    ? "CURRENT_TIMESTAMP" : "CURRENT_TIMESTAMP(" + precision + ")";
+            default:
+                return upper(value);
+        }
+    }
+
+    /**
+     * 表达式与枚举值只去掉多余空白与标识符引号，不改变字符串字面量的内容
+     */
+    private static String normalizeExpression(String expression) {
+        StringBuilder sb = new StringBuilder(expression.length());
+        boolean space = false;
+        for (int i = 0, size = expression.length(); i < size; i++) {
+            char c = expression.charAt(i);
+            if (c == '\'' || c == '"') {
+                int end = skipQuoted(expression, i);
+                if (space && sb.length() > 0 && isWordChar(sb.charAt(sb.length() - 1))) {
+                    sb.append(' ');
+                }
+                space = false;
+                sb.append(expression, i, end);
+                i = end - 1;
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+            } else if (c == '`') {
+                // 去掉标识符引号
+            } else {
+                if (space && sb.length() > 0 && isWordChar(sb.charAt(sb.length() - 1)) && isWordChar(c)) {
+                    sb.append(' ');
+                }
+                space = false;
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    /**
+     * @return 引号字符串结束位置之后的下标
+     */
+    private static int skipQuoted(String s, int start) {
+        char quote = s.charAt(start);
+        int i = start + 1;
+        while (i < s.length()) {
+            char c = s.charAt(i++);
+            if (c == '\\') {
+                i++;
+            } else if (c == quote) {
+                if (i < s.length() && s.charAt(i) == quote) {
+                    i++;
+                    continue;
+                }
+                break;
+            }
+        }
+        return Math.min(i, s.length());
+    }
+
+    private static String unquote(String value) {
+        if (value == null || value.length() < 2) {
+            return value;
+        }
+        char quote = value.charAt(0);
+        if ((quote != '\'' && quote != '"') || value.charAt(value.length() - 1) != quote) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 1, end = value.length() - 1; i < end; i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < end) {
+                char escaped = value.charAt(++i);
+                switch (escaped) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case '0':
+                        sb.append('\0');
+                        break;
+                    default:
+                        sb.append(escaped);
+                }
+            } else if (c == quote && i + 1 < end && value.charAt(i + 1) == quote) {
+                sb.append(quote);
+                i++;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String lower(String s) {
+        return s == null ? null : s.toLowerCase(Locale.ROOT);
+    }
+
+    private static String upper(String s) {
+        return s == null ? null : s.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * 读取默认值：字面量、带符号的数字、带括号的表达式，或可带括号参数的函数名
+     */
+    private String value() {
+        String token = next();
+        if (token == null) {
+            return null;
+        }
+        if ("-".equals(token) || "+".equals(token)) {
+            String number = next();
+            return "-".equals(token) && number != null ? "-" + number : number;
+        }
+        if (!token.startsWith("(") && !token.startsWith("'") && peekGroup()) {
+            return token + group();
+        }
+        return token;
+    }
+
+    private boolean peekGroup() {
+        skipBlank();
+        return pos < ddl.length() && ddl.charAt(pos) == '(';
+    }
+
+    private String peek() {
+        int mark = pos;
+        String token = next();
+        pos = mark;
+        return token;
+    }
+
+    /**
+     * 读取一个括号分组（含括号），正确跳过其中的字符串
+     */
+    private String group() {
+        skipBlank();
+        if (pos >= ddl.length() || ddl.charAt(pos) != '(') {
+            return null;
+        }
+        int start = pos;
+        int depth = 0;
+        while (pos < ddl.length()) {
+            char c = ddl.charAt(pos);
+            if (c == '\'' || c == '"') {
+                pos = skipQuoted(ddl, pos);
+                continue;
+            }
+            pos++;
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                break;
+            }
+        }
+        return ddl.substring(start, pos);
+    }
+
+    /**
+     * @return 下一个词、引号字符串、括号分组或单个符号，结束时返回 null
+     */
+    private String next() {
+        skipBlank();
+        if (pos >= ddl.length()) {
+            return null;
+        }
+        char c = ddl.charAt(pos);
+        if (c == '(') {
+            return group();
+        }
+        int start = pos;
+        if (c == '\'' || c == '"' || c == '`') {
+            pos = skipQuoted(ddl, pos);
+            return ddl.substring(start, pos);
+        }
+        if (!isWordChar(c) && c != '.') {
+            pos++;
+            return ddl.substring(start, pos);
+        }
+        while (pos < ddl.length() && (isWordChar(ddl.charAt(pos)) || ddl.charAt(pos) == '.')) {
+            pos++;
+        }
+        // b'0101'、x'ff'、_utf8mb4'abc' 这类带前缀的字面量
+        if (pos < ddl.length() && ddl.charAt(pos) == '\'') {
+            pos = skipQuoted(ddl, pos);
+        }
+        return ddl.substring(start, pos);
+    }
+
+    /**
+     * 跳过空白、普通注释与版本注释的标记，版本注释 {@code /*!80023 INVISIBLE *}{@code /} 中的内容照常解析
+     */
+    private void skipBlank() {
+        while (pos < ddl.length()) {
+            char c = ddl.charAt(pos);
+            if (Character.isWhitespace(c) || c == ',') {
+                pos++;
+            } else if (ddl.startsWith("/*!", pos)) {
+                pos += 3;
+                while (pos < ddl.length() && Character.isDigit(ddl.charAt(pos))) {
+                    pos++;
+                }
+            } else if (ddl.startsWith("/*", pos)) {
+                int close = ddl.indexOf("*/", pos + 2);
+                pos = close == -1 ? ddl.length() : close + 2;
+            } else if (ddl.startsWith("*/", pos)) {
+                pos += 2;
+            } else {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.inspalgo.core;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * JDBC 连接来源，嵌入调用时可替换为调用方自己的连接池
+ * <p>
+ * 返回的连接在使用完毕后会被 close；同步过程中会修改 autocommit 与 FOREIGN_KEY_CHECKS，
+ * close 之前会恢复为默认值，可以安全地归还到连接池
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 15:40 UTC+08:00
+ */
+@FunctionalInterface
+public interface ConnectionProvider {
+    /**
+     * 每次直接通过 {@link DriverManager} 新建连接
+     */
+    ConnectionProvider DRIVER_MANAGER = DriverManager::getConnection;
+
+    /**
+     * 获取连接
+     *
+     * @param jdbcUrl  目标库的 JDBC URL
+     * @param username 用户名
+     * @param password 密码
+     * @return JDBC 连接
+     * @throws SQLException 获取连接失败
+     */
+    Connection getConnection(String jdbcUrl, String username, String password) throws SQLException;
+}
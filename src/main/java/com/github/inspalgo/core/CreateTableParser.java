@@ -0,0 +1,794 @@
+package com.github.inspalgo.core;
+
+import com.github.inspalgo.util.FlightRecorder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * CREATE TABLE 语句解析，SHOW CREATE TABLE 的结果与 SQL 文件中的语句共用
+ * <p>
+ * 直接在 UTF-8 字节上顺序扫描一遍：需要识别的引号、括号、逗号、注释都是 ASCII，
+ * 而多字节字符的各字节都不在 ASCII 范围内，只有每一项最终的定义字符串才解码。
+ * 不依赖换行与缩进，字段、索引、约束按括号内顶层的逗号切分，每一项中连续的空白与注释压缩为一个空格，
+ * 引号、反引号内的内容原样保留；连续的普通字符整段复制，除定义字符串外不产生中间对象
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 20:40 UTC+08:00
+ */
+class CreateTableParser {
+    /**
+     * 接收 SQL 文件中解析出的表
+     */
+    interface TableHandler {
+        /**
+         * @param table  解析出的表
+         * @param parsed false-格式异常，表中只有部分内容
+         */
+        void accept(Table table, boolean parsed);
+    }
+
+    /**
+     * 语句在缓冲区内不完整，需要读入更多内容后重新解析
+     */
+    private static final int INCOMPLETE = -1;
+    private static final byte[] CREATE_TABLE = "CREATETABLE".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * 切分语句时需要关注的字符：引号、分号与注释的开头
+     */
+    private static final boolean[] SPECIAL = new boolean[128];
+    /**
+     * 定义中可以整段复制的字符，除上述字符外还排除空白、括号与逗号
+     */
+    private static final boolean[] PLAIN = new boolean[128];
+
+    static {
+        for (char c : "'\"`;#-/*".toCharArray()) {
+            SPECIAL[c] = true;
+        }
+        for (byte c = 0; c >= 0; c++) {
+            PLAIN[c] = !SPECIAL[c] && !isSpace(c) && c != '(' && c != ')' && c != ',';
+        }
+    }
+
+    private final byte[] sql;
+    private final int end;
+    /**
+     * true-end 之后没有更多内容；false-end 只是读取缓冲区的末尾
+     */
+    private final boolean last;
+    private int pos;
+    /**
+     * 语句开头在缓冲区末尾被截断
+     */
+    private boolean truncated = false;
+    /**
+     * 语句是否完整解析
+     */
+    private boolean parsed = false;
+    /**
+     * 当前项规范化后的字节，各项之间复用
+     */
+    private byte[] item = new byte[128];
+    private int itemLength = 0;
+
+    private CreateTableParser(byte[] sql, int from, int end, boolean last) {
+        this.sql = sql;
+        this.pos = from;
+        this.end = end;
+        this.last = last;
+    }
+
+    /**
+     * 解析 CREATE TABLE 语句并填充表结构
+     *
+     * @param sql   语句，末尾的分号可有可无
+     * @param table 要填充的表
+     * @return false-不是 CREATE TABLE 语句或格式异常
+     */
+    static boolean parse(String sql, Table table) {
+        byte[] bytes = sql.getBytes(StandardCharsets.UTF_8);
+        CreateTableParser parser = new CreateTableParser(bytes, 0, bytes.length, true);
+        if (!parser.parseHead()) {
+            return false;
+        }
+        parser.parseBody(table);
+        return parser.parsed;
+    }
+
+    /**
+     * 解析 CREATE TABLE [IF NOT EXISTS] [`库名`.]`表名`，表名放入 item
+     */
+    private boolean parseHead() {
+        if (!word("CREATE") || !word("TABLE")) {
+            return false;
+        }
+        if (word("IF") && (!word("NOT") || !word("EXISTS"))) {
+            return false;
+        }
+        skipSpace();
+        readName();
+        if (pos < end && sql[pos] == '.') {
+            pos++;
+            readName();
+        }
+        return itemLength > 0;
+    }
+
+    /**
+     * 解析表名之后的部分
+     *
+     * @return 语句结束之后的位置，语句不完整时返回 {@link #INCOMPLETE}
+     */
+    private int parseBody(Table table) {
+        table.setName(itemString(0));
+        if (!skipSpace() || pos >= end) {
+            return last ? pos : INCOMPLETE;
+        }
+        if (sql[pos] != '(') {
+            return pos;
+        }
+        pos++;
+        byte terminator;
+        do {
+            terminator = readItem();
+            if (terminator == 0) {
+                return last ? pos : INCOMPLETE;
+            }
+            if (itemLength > 0) {
+                handleItem(table);
+            }
+        } while (terminator == ',');
+        if (terminator != ')') {
+            return pos;
+        }
+        if (!parseOptions(table)) {
+            return INCOMPLETE;
+        }
+        parsed = true;
+        return pos;
+    }
+
+    /**
+     * 读取一个可能被反引号包裹的名称，去除引号后放入 item
+     */
+    private void readName() {
+        itemLength = 0;
+        if (pos < end && sql[pos] == '`') {
+            for (pos++; pos < end; pos++) {
+                byte b = sql[pos];
+                if (b == '`') {
+                    if (pos + 1 >= end) {
+                        break;
+                    }
+                    if (sql[pos + 1] != '`') {
+                        pos++;
+                        return;
+                    }
+                    pos++;
+                }
+                append(b);
+            }
+            // 名称不完整
+            pos = end;
+            truncated = !last;
+            itemLength = 0;
+            return;
+        }
+        int start = pos;
+        while (pos < end && isWordByte(sql[pos])) {
+            pos++;
+        }
+        truncated = pos >= end && !last;
+        append(sql, start, pos - start);
+    }
+
+    /**
+     * 读取字段定义部分中的一项，规范化后放入 item
+     *
+     * @return 结束该项的字符：逗号或右括号，语句不完整时为 0
+     */
+    private byte readItem() {
+        itemLength = 0;
+        int depth = 0;
+        boolean space = false;
+        while (pos < end) {
+            byte b = sql[pos];
+            if (isSpace(b)) {
+                pos++;
+                space = itemLength > 0;
+                continue;
+            }
+            if (isCommentStart(b)) {
+                if (!skipComment()) {
+                    return 0;
+                }
+                space = itemLength > 0;
+                continue;
+            }
+            if (depth == 0 && (b == ',' || b == ')')) {
+                pos++;
+                return b;
+            }
+            if (space) {
+                append((byte) ' ');
+                space = false;
+            }
+            if (b == '\'' || b == '"' || b == '`') {
+                if (!copyQuoted(b)) {
+                    return 0;
+                }
+            } else if (b == '(' || b == ')') {
+                depth += b == '(' ? 1 : -1;
+                append(b);
+                pos++;
+            } else {
+                // 连续的普通字符整段复制，普通字符之间的单个空格无需规范化，一并复制
+                int start = pos;
+                for (pos++; pos < end; pos++) {
+                    byte next = sql[pos];
+                    if (isPlain(next) || (next == ' ' && pos + 1 < end && isPlain(sql[pos + 1]))) {
+                        continue;
+                    }
+                    break;
+                }
+                append(sql, start, pos - start);
+            }
+        }
+        return 0;
+    }
+
+    private void handleItem(Table table) {
+        String ddl = itemString(0);
+        if (item[0] == '`') {
+            table.addColumn(Column.of(columnName(), ddl));
+        } else if (startsWith("PRIMARY KEY")) {
+            table.setPrimaryKey(index(ddl));
+        } else if (startsWith("CONSTRAINT")) {
+            // CHECK 约束不参与同步
+            ForeignKey foreignKey = ForeignKey.parse(ddl);
+            if (foreignKey != null) {
+                table.addForeignKey(foreignKey);
+            }
+        } else if (startsWith("KEY") || startsWith("INDEX") || startsWith("UNIQUE") || startsWith("FULLTEXT")
+            || startsWith("SPATIAL")) {
+            table.addIndex(index(ddl));
+        }
+    }
+
+    /**
+     * 因为 BTREE 是默认索引类型，所以不含 USING 的索引默认为使用 BTREE
+     */
+    private static String index(String ddl) {
+        return ddl.contains("USING") ? ddl : ddl + " USING BTREE";
+    }
+
+    /**
+     * @return item 开头被反引号包裹的字段名
+     */
+    private String columnName() {
+        int close = 1;
+        boolean escaped = false;
+        for (; close < itemLength; close++) {
+            if (item[close] == '`') {
+                if (close + 1 < itemLength && item[close + 1] == '`') {
+                    escaped = true;
+                    close++;
+                    continue;
+                }
+                break;
+            }
+        }
+        String name = new String(item, 1, close - 1, StandardCharsets.UTF_8);
+        return escaped ? name.replace("``", "`") : name;
+    }
+
+    /**
+     * 解析右括号之后的表属性，如 ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='...'，到分号为止
+     *
+     * @return false-语句不完整
+     */
+    private boolean parseOptions(Table table) {
+        while (true) {
+            if (!skipSpace()) {
+                return false;
+            }
+            if (pos < end && sql[pos] == ',') {
+                pos++;
+                if (!skipSpace()) {
+                    return false;
+                }
+            }
+            if (pos >= end) {
+                return last;
+            }
+            if (sql[pos] == ';') {
+                pos++;
+                return true;
+            }
+            // 属性名可能由多个单词组成，如 DEFAULT CHARSET
+            itemLength = 0;
+            while (pos < end && isWordByte(sql[pos])) {
+                if (itemLength > 0) {
+                    append((byte) ' ');
+                }
+                int start = pos;
+                while (pos < end && isWordByte(sql[pos])) {
+                    pos++;
+                }
+                append(sql, start, pos - start);
+                if (!skipSpace()) {
+                    return false;
+                }
+            }
+            if (pos >= end) {
+                return last;
+            }
+            if (itemLength == 0 || sql[pos] != '=') {
+                // 分区定义等其余内容不参与同步
+                return skipStatement();
+            }
+            pos++;
+            if (!skipSpace()) {
+                return false;
+            }
+            int keyLength = itemLength;
+            if (pos < end && (sql[pos] == '\'' || sql[pos] == '"')) {
+                if (!copyQuoted(sql[pos])) {
+                    return false;
+                }
+            } else {
+                int start = pos;
+                while (pos < end && !isSpace(sql[pos]) && sql[pos] != ';' && sql[pos] != ',') {
+                    pos++;
+                }
+                if (pos >= end && !last) {
+                    return false;
+                }
+                append(sql, start, pos - start);
+            }
+            handleOption(table, keyLength);
+        }
+    }
+
+    /**
+     * @param keyLength item 中属性名的长度，其后是属性值
+     */
+    private void handleOption(Table table, int keyLength) {
+        if (contains("ENGINE", keyLength)) {
+            table.setEngine(itemString(keyLength));
+        } else if (contains("AUTO_INCREMENT", keyLength)) {
+            table.setAutoIncrement(itemString(keyLength));
+        } else if (contains("ROW_FORMAT", keyLength)) {
+            table.setRowFormat(itemString(keyLength));
+        } else if (contains("CHARSET", keyLength) || contains("CHARACTER SET", keyLength)) {
+            table.setCharset(itemString(keyLength));
+        } else {
+            table.addAttribute(new String(item, 0, keyLength, StandardCharsets.UTF_8) + "=" + itemString(keyLength));
+        }
+    }
+
+    /**
+     * 跳过引号与注释之外第一个分号之前的内容
+     *
+     * @return false-语句不完整
+     */
+    private boolean skipStatement() {
+        while (pos < end) {
+            byte b = sql[pos];
+            if (b == ';') {
+                pos++;
+                return true;
+            }
+            if (b == '\'' || b == '"' || b == '`') {
+                itemLength = 0;
+                if (!copyQuoted(b)) {
+                    return false;
+                }
+            } else if (isCommentStart(b)) {
+                if (!skipComment()) {
+                    return false;
+                }
+            } else {
+                pos++;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * 原样复制引号内的内容（含引号），支持反斜杠转义与连续两个引号的转义
+     *
+     * @return false-引号在缓冲区末尾之前未闭合
+     */
+    private boolean copyQuoted(byte quote) {
+        int start = pos;
+        for (pos++; pos < end; pos++) {
+            byte b = sql[pos];
+            if (b == '\\' && quote != '`') {
+                pos++;
+            } else if (b == quote) {
+                if (pos + 1 < end && sql[pos + 1] == quote) {
+                    pos++;
+                } else if (pos + 1 < end || last) {
+                    pos++;
+                    append(sql, start, pos - start);
+                    return true;
+                } else {
+                    // 无法确定是否为连续两个引号
+                    break;
+                }
+            }
+        }
+        pos = Math.min(pos, end);
+        if (last) {
+            append(sql, start, pos - start);
+        }
+        return last;
+    }
+
+    /**
+     * @return false-注释在缓冲区末尾之前未结束
+     */
+    private boolean skipSpace() {
+        while (pos < end) {
+            byte b = sql[pos];
+            if (isSpace(b)) {
+                pos++;
+            } else if (isCommentStart(b)) {
+                if (!skipComment()) {
+                    return false;
+                }
+            } else {
+                return true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 当前位置是否为 -- 、# 或 /* 注释的开头
+     */
+    private boolean isCommentStart(byte b) {
+        if (b == '#') {
+            return true;
+        }
+        if ((b != '-' && b != '/') || pos + 1 >= end) {
+            return false;
+        }
+        byte next = sql[pos + 1];
+        return (b == '-' && next == '-' && (pos + 2 >= end || isSpace(sql[pos + 2]))) || (b == '/' && next == '*');
+    }
+
+    /**
+     * @return false-注释在缓冲区末尾之前未结束
+     */
+    private boolean skipComment() {
+        if (sql[pos] == '/') {
+            for (pos += 2; pos + 1 < end; pos++) {
+                if (sql[pos] == '*' && sql[pos + 1] == '/') {
+                    pos += 2;
+                    return true;
+                }
+            }
+            pos = end;
+            return last;
+        }
+        while (pos < end && sql[pos] != '\n') {
+            pos++;
+        }
+        return pos < end || last;
+    }
+
+    /**
+     * 跳过空白后读取指定的关键字（不区分大小写）
+     */
+    private boolean word(String keyword) {
+        skipSpace();
+        int length = keyword.length();
+        if (pos + length >= end && !last) {
+            // 无法确定关键字之后是否还有字符
+            truncated = true;
+            return false;
+        }
+        if (pos + length > end) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (upper(sql[pos + i]) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        if (pos + length < end && isWordByte(sql[pos + length])) {
+            return false;
+        }
+        pos += length;
+        return true;
+    }
+
+    private boolean startsWith(String prefix) {
+        int length = prefix.length();
+        if (itemLength < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (upper(item[i]) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return item 的前 length 个字节中是否含有 keyword
+     */
+    private boolean contains(String keyword, int length) {
+        int size = keyword.length();
+        for (int i = 0; i <= length - size; i++) {
+            int k = 0;
+            while (k < size && item[i + k] == keyword.charAt(k)) {
+                k++;
+            }
+            if (k == size) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void append(byte b) {
+        if (itemLength == item.length) {
+            item = Arrays.copyOf(item, itemLength * 2);
+        }
+        item[itemLength++] = b;
+    }
+
+    private void append(byte[] src, int from, int count) {
+        if (itemLength + count > item.length) {
+            item = Arrays.copyOf(item, Math.max(item.length * 2, itemLength + count));
+        }
+        System.arraycopy(src, from, item, itemLength, count);
+        itemLength += count;
+    }
+
+    private String itemString(int from) {
+        return new String(item, from, itemLength - from, StandardCharsets.UTF_8);
+    }
+
+    private static int upper(byte b) {
+        return b >= 'a' && b <= 'z' ? b - ('a' - 'A') : b;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+    }
+
+    /**
+     * 多字节字符的各字节均为负数，视为普通字符
+     */
+    private static boolean isPlain(byte b) {
+        return b < 0 || PLAIN[b];
+    }
+
+    private static boolean isWordByte(byte b) {
+        return b < 0 || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_'
+            || b == '$';
+    }
+
+    /**
+     * 从 SQL 文件中逐条解析 CREATE TABLE 语句，其余语句（包括数据）只扫描，不解码也不复制。
+     * 分号只在引号与注释之外才视为语句结束
+     *
+     * @param in       UTF-8 编码的 SQL 文件
+     * @param database 库名，用于 JFR 事件
+     * @param handler  接收每张表
+     * @throws IOException 读取失败
+     */
+    static void forEachCreateTable(InputStream in, String database, TableHandler handler) throws IOException {
+        new StatementScanner(in, database, handler).scan();
+    }
+
+    /**
+     * 按语句切分 SQL 文件的状态机，普通字符、引号内与注释内的字节各自在紧凑的循环中跳过。
+     * 识别出 CREATE TABLE 后直接在读取缓冲区上解析，语句跨越缓冲区末尾时将其移到缓冲区开头、读入更多内容后重新解析
+     */
+    private static class StatementScanner {
+        private static final int CODE = 0;
+        private static final int QUOTE = 1;
+        private static final int LINE_COMMENT = 2;
+        private static final int BLOCK_COMMENT = 3;
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final InputStream in;
+        private final String database;
+        private final TableHandler handler;
+        private byte[] buffer;
+        private int length = 0;
+        private boolean eof = false;
+
+        StatementScanner(InputStream in, String database, TableHandler handler) throws IOException {
+            this.in = in;
+            this.database = database;
+            this.handler = handler;
+            // 每表一个文件的导出目录中文件都很小，已知剩余大小时按其分配
+            int available = in.available();
+            this.buffer = new byte[available > 0 ? Math.min(BUFFER_SIZE, available + 1) : BUFFER_SIZE];
+        }
+
+        void scan() throws IOException {
+            int state = CODE;
+            byte quote = 0;
+            byte prev = 0;
+            // 语句开头已匹配的 CREATETABLE 字符数，-1 表示已确定不是 CREATE TABLE
+            int head = 0;
+            // head > 0 时为当前语句开头的位置
+            int start = 0;
+            int i = 0;
+            while (true) {
+                if (i >= length) {
+                    if (eof) {
+                        return;
+                    }
+                    // 保留尚未确定的语句开头，引号内的反斜杠转义可能使 i 越过缓冲区末尾
+                    int keep = head > 0 ? start : length;
+                    i -= keep;
+                    start -= keep;
+                    fill(keep);
+                    continue;
+                }
+                if (state == QUOTE) {
+                    for (; i < length; i++) {
+                        byte b = buffer[i];
+                        if (b == quote) {
+                            state = CODE;
+                            i++;
+                            break;
+                        }
+                        if (b == '\\' && quote != '`') {
+                            i++;
+                        }
+                    }
+                    prev = 0;
+                    continue;
+                }
+                if (state == LINE_COMMENT) {
+                    for (; i < length; i++) {
+                        if (buffer[i] == '\n') {
+                            state = CODE;
+                            i++;
+                            break;
+                        }
+                    }
+                    prev = 0;
+                    continue;
+                }
+                if (state == BLOCK_COMMENT) {
+                    for (; i < length; i++) {
+                        byte b = buffer[i];
+                        if (b == '/' && prev == '*') {
+                            state = CODE;
+                            i++;
+                            prev = 0;
+                            break;
+                        }
+                        prev = b;
+                    }
+                    continue;
+                }
+
+                if (head < 0) {
+                    int from = i;
+                    i = skipPlain(buffer, i, length);
+                    if (i == length) {
+                        continue;
+                    }
+                    if (i > from) {
+                        prev = 0;
+                    }
+                }
+                byte b = buffer[i++];
+                if (b >= 0 && SPECIAL[b]) {
+                    if (b == '\'' || b == '"' || b == '`') {
+                        state = QUOTE;
+                        quote = b;
+                        head = -1;
+                    } else if (b == '#' || (b == '-' && prev == '-')) {
+                        state = LINE_COMMENT;
+                    } else if (b == '*' && prev == '/') {
+                        state = BLOCK_COMMENT;
+                        b = 0;
+                    } else if (b == ';') {
+                        head = 0;
+                    }
+                    prev = b;
+                    continue;
+                }
+                prev = b;
+                if (head < 0 || isSpace(b)) {
+                    continue;
+                }
+                // 语句开头的非空白字符决定是否为 CREATE TABLE
+                if (head == 0) {
+                    start = i - 1;
+                }
+                if (upper(b) != CREATE_TABLE[head]) {
+                    head = -1;
+                    continue;
+                }
+                if (++head < CREATE_TABLE.length) {
+                    continue;
+                }
+                int next = parseTable(start);
+                if (next == INCOMPLETE) {
+                    // 语句已移到缓冲区开头
+                    i = 0;
+                    head = 0;
+                    continue;
+                }
+                i = Math.max(next, i);
+                head = buffer[i - 1] == ';' ? 0 : -1;
+                prev = 0;
+            }
+        }
+
+        /**
+         * 解析从 start 开始的 CREATE TABLE 语句，语句不完整时将其移到缓冲区开头并读入更多内容
+         *
+         * @return 语句之后的位置，或 {@link #INCOMPLETE}
+         */
+        private int parseTable(int start) throws IOException {
+            CreateTableParser parser = new CreateTableParser(buffer, start, length, eof);
+            boolean head = parser.parseHead();
+            if (parser.truncated) {
+                fill(start);
+                return INCOMPLETE;
+            }
+            if (!head) {
+                // CREATE TABLESPACE 等
+                return parser.pos;
+            }
+            FlightRecorder.Span span = FlightRecorder.parseDump(database, parser.itemString(0));
+            Table table = new Table();
+            int next = parser.parseBody(table);
+            if (next == INCOMPLETE) {
+                // 未提交的事件不会被记录
+                fill(start);
+                return INCOMPLETE;
+            }
+            handler.accept(table, parser.parsed);
+            span.bytes(next - start).commit();
+            return next;
+        }
+
+        /**
+         * 丢弃 keep 之前的内容，其余内容移到缓冲区开头后读入更多内容，缓冲区已满时扩大一倍
+         */
+        private void fill(int keep) throws IOException {
+            int remaining = length - keep;
+            if (remaining == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            } else if (keep > 0 && remaining > 0) {
+                System.arraycopy(buffer, keep, buffer, 0, remaining);
+            }
+            length = remaining;
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                eof = true;
+            } else {
+                length += read;
+            }
+        }
+
+        private static int skipPlain(byte[] buffer, int from, int to) {
+            for (int i = from; i < to; i++) {
+                byte b = buffer[i];
+                if (b >= 0 && SPECIAL[b]) {
+                    return i;
+                }
+            }
+            return to;
+        }
+    }
+}
@@ -1,34 +1,74 @@
 package com.github.inspalgo.core;
 
+import com.github.inspalgo.util.DdlFileWriter;
+import com.github.inspalgo.util.DumpInputStream;
+import com.github.inspalgo.util.FlightRecorder;
 import com.github.inspalgo.util.Log;
+import com.github.inspalgo.util.StartupTimer;
+import com.github.inspalgo.util.StatsConnection;
+import com.github.inspalgo.util.SyncJournal;
+import com.github.inspalgo.util.SyncStats;
+import com.github.inspalgo.util.SyncStats.Phase;
 import com.github.inspalgo.util.TableThreadPoolExecutor;
+import com.mysql.cj.MysqlConnection;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.sql.BatchUpdateException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author InspAlgo
  * @date 2021/1/11 15:44 UTC+08:00
  */
 public class Database {
+    /**
+     * 结构摘要按 information_schema 中的字段、索引与表属性分别求 CRC32 之和
+     */
+    private static final String COLUMN_DIGEST = "CRC32(CONCAT_WS('|',TABLE_NAME,COLUMN_NAME,ORDINAL_POSITION," +
+        "COLUMN_TYPE,IS_NULLABLE,COALESCE(COLUMN_DEFAULT,'NULL'),COALESCE(COLLATION_NAME,''),EXTRA,COLUMN_COMMENT))";
+    private static final String INDEX_DIGEST = "CRC32(CONCAT_WS('|',TABLE_NAME,INDEX_NAME,SEQ_IN_INDEX," +
+        "COLUMN_NAME,NON_UNIQUE,COALESCE(SUB_PART,''),INDEX_TYPE))";
+    /**
+     * 建删表数量达到该值时改为多语句包发送
+     */
+    private static final int PIPELINE_THRESHOLD = 8;
+    /**
+     * 每个多语句包最多的语句数与字节数，字节数远小于 max_allowed_packet 的默认值
+     */
+    private static final int PIPELINE_STATEMENTS = 100;
+    private static final int PIPELINE_BYTES = 1 << 20;
+    /**
+     * 多语句包中记录当前语句序号的会话变量
+     */
+    private static final String PIPELINE_STEP = "@mysql_schema_sync_step";
+    private static final String TABLE_DIGEST = "CRC32(CONCAT_WS('|',TABLE_NAME,ENGINE,COALESCE(TABLE_COLLATION,'')," +
+        "COALESCE(ROW_FORMAT,''),CREATE_OPTIONS,TABLE_COMMENT))";
+
     private String dbName;
     private String username;
     private String password;
@@ -37,15 +77,71 @@ public class Database {
     private String jdbcUrl;
     private Path sqlFilePath;
     private Path outputDdlFilepath;
+    private DdlFileWriter ddlFileWriter;
 
     private HashMap<String, Table> tableMap = new HashMap<>(128);
 
-    private HashMap<String, String> addTablesDdlMap = new HashMap<>(2);
-    private HashMap<String, String> deleteTablesDdlMap = new HashMap<>(2);
-    private ConcurrentHashMap<String, List<String>> syncSchemaDdlMap = new ConcurrentHashMap<>(2);
+    /**
+     * 以下均按表名排序，保证执行与输出顺序确定。建表语句引用源表的建表语句，
+     * 删表与修改语句只记录表名，预览或执行到该表时再生成，执行计划不再随语句数量占用内存
+     */
+    private TreeMap<String, String> addTablesDdlMap = new TreeMap<>();
+    private TreeSet<String> deleteTableNames = new TreeSet<>();
+    private ConcurrentSkipListSet<String> syncSchemaTableNames = new ConcurrentSkipListSet<>();
+    /**
+     * 生成修改语句时比对的源库
+     */
+    private Database syncSchemaSource;
+
+    private final SyncStats stats = new SyncStats();
+    private int serverVersion = 0;
+    /**
+     * 要修改的表的预计执行耗时，生成 DDL 时估算
+     */
+    private final ConcurrentHashMap<String, Long> syncSchemaCostMap = new ConcurrentHashMap<>();
+    /**
+     * 要修改的表选择 ALTER 还是重建复制的依据，用于预览
+     */
+    private final ConcurrentHashMap<String, String> syncSchemaDecisionMap = new ConcurrentHashMap<>();
+    /**
+     * 选择了重建复制的表
+     */
+    private final ConcurrentHashMap<String, RebuildPlan> rebuildPlanMap = new ConcurrentHashMap<>();
+    private boolean rebuildCopy = false;
+    /**
+     * 含有触发器的表，开启重建复制时读取，未读取时为 null
+     */
+    private Set<String> triggerTables;
+    private SyncJournal journal;
+    private int applyThreads = 1;
+    private boolean foreignKeyChecks = false;
+    private final List<DdlExecution> ddlExecutions = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    private ConnectionProvider connectionProvider = ConnectionProvider.DRIVER_MANAGER;
+    private volatile boolean cancelled = false;
+    /**
+     * 尚未关闭的连接及其所在服务器与连接 id，用于中止
+     */
+    private final Map<Connection, ServerSession> openConnections = new ConcurrentHashMap<>();
+    /**
+     * 中止时发送过 KILL QUERY 的连接，未中止过时为 null
+     */
+    private volatile KilledSessions killed = null;
+    private HostAdmission admission = null;
+    /**
+     * 用于读取结构的从库 host:port，按顺序选择第一个延迟在范围内的
+     */
+    private List<String> replicas = Collections.emptyList();
+    private long maxReplicaLagSeconds = 0;
+    /**
+     * 实际读取结构的从库，从主库读取时为 null
+     */
+    private String introspectedFrom = null;
 
     public Database setConnectMetaData(ConnectMetaData connectMetaData) {
         dbName = connectMetaData.getDatabase();
+        stats.setName(dbName);
+        stats.setEndpoint(connectMetaData.getHost() + ":" + connectMetaData.getPort());
         username = connectMetaData.getUsername();
         password = connectMetaData.getPassword();
         host = connectMetaData.getHost();
@@ -73,6 +169,7 @@ public class Database {
 
     public Database setDbName(String dbName) {
         this.dbName = dbName;
+        stats.setName(dbName);
         return this;
     }
 
@@ -151,6 +248,8 @@ public class Database {
         }
         this.sqlFilePath = sqlFilePath;
         dbName = sqlFilePath.getFileName().toString();
+        stats.setName(dbName);
+        stats.setEndpoint(sqlFilePath.toString());
         return this;
     }
 
@@ -159,466 +258,2036 @@ public class Database {
         return this;
     }
 
-    public void init() {
-        if (checkConnectMetaData()) {
-            initByOnline();
-        } else if (sqlFilePath != null) {
-            initBySqlFile();
-        } else {
-            throw new RuntimeException("数据库初始化异常");
-        }
+    public SyncStats getStats() {
+        return stats;
     }
 
-    public void initByOnline() {
-        try (Connection connection = DriverManager.getConnection(getJdbcUrl(), username, password)) {
-            String queryTables = "SELECT TABLE_NAME,ROW_FORMAT FROM information_schema.TABLES WHERE TABLE_SCHEMA = ?";
-            PreparedStatement preparedStatementTable = connection.prepareStatement(queryTables);
-            preparedStatementTable.setString(1, dbName);
-            ResultSet resultSetTable = preparedStatementTable.executeQuery();
-
-            while (resultSetTable.next()) {
-                Table table = new Table();
-
-                String tableName = resultSetTable.getString("TABLE_NAME");
-                table.setName(tableName);
-                String rowFormat = resultSetTable.getString("ROW_FORMAT");
-                if (rowFormat != null && !rowFormat.isEmpty()) {
-                    table.setRowFormat(rowFormat);
-                }
-                String createTable = "";
-
-                String queryCreateTable = "SHOW CREATE TABLE " + tableName;
-                PreparedStatement preparedStatementCreateTable = connection.prepareStatement(queryCreateTable);
-                ResultSet resultSetCreateTable = preparedStatementCreateTable.executeQuery();
-                while (resultSetCreateTable.next()) {
-                    createTable = resultSetCreateTable.getString(2);
-                }
-                preparedStatementCreateTable.close();
-                resultSetCreateTable.close();
-
-                String queryColumns = "SELECT COLUMN_NAME,ORDINAL_POSITION " +
-                    "FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?";
-                PreparedStatement preparedStatementColumn = connection.prepareStatement(queryColumns);
-                preparedStatementColumn.setString(1, dbName);
-                preparedStatementColumn.setString(2, tableName);
-                ResultSet resultSetColumn = preparedStatementColumn.executeQuery();
-
-                while (resultSetColumn.next()) {
-                    Column column = new Column();
-                    column.setColumnName(resultSetColumn.getString("COLUMN_NAME"))
-                          .setOrdinalPosition(resultSetColumn.getString("ORDINAL_POSITION"));
-                    table.addColumn(column);
-                }
-                preparedStatementColumn.close();
-                resultSetColumn.close();
-
-                String[] createTableLines = createTable.split("\n");
-                List<Column> columns = table.getColumns();
-                for (int i = 1, columnSize = columns.size(); i <= columnSize; i++) {
-                    columns.get(i - 1).setDdl(removeLastComma(createTableLines[i].trim()));
-                }
-                for (int i = columns.size() + 1, end = createTableLines.length - 1; i < end; i++) {
-                    String index = parseIndex(createTableLines[i].trim());
-                    if (index.startsWith("PRIMARY KEY")) {
-                        table.setPrimaryKey(index);
-                        continue;
-                    }
-                    table.addIndex(index);
-                }
-
-                parseAttributes(table, createTableLines[createTableLines.length - 1]);
-
-                if (table.selfCheck()) {
-                    tableMap.put(tableName, table);
-                } else {
-                    Log.COMMON.error("`{}`.`{}` 数据异常", dbName, tableName);
-                }
-            }
-        } catch (SQLException e) {
-            Log.COMMON.error("", e);
+    /**
+     * @return 本库已执行的每条 DDL 的耗时记录
+     */
+    public List<DdlExecution> getDdlExecutions() {
+        synchronized (ddlExecutions) {
+            return new ArrayList<>(ddlExecutions);
         }
     }
 
-    public void initBySqlFile() {
-        try (BufferedReader reader = Files.newBufferedReader(sqlFilePath, StandardCharsets.UTF_8)) {
-            String line;
-            Table table = null;
-            String tableName = null;
-            int columnOrdinalPosition = 1;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (table == null && line.startsWith("CREATE TABLE")) {
-                    tableName = line.substring(
-                        line.contains("`.`") ? line.indexOf("`.`") + 3 : line.indexOf('`') + 1,
-                        line.lastIndexOf('`')
-                    );
-                    table = new Table();
-                    table.setName(tableName);
-                } else if (table != null && line.startsWith("`")) {
-                    Column column = new Column()
-                        .setColumnName(line.substring(1, line.indexOf('`', 1)))
-                        .setOrdinalPosition(columnOrdinalPosition++)
-                        .setDdl(removeLastComma(line));
-                    table.addColumn(column);
-                } else if (table != null && line.startsWith("PRIMARY KEY")) {
-                    table.setPrimaryKey(parseIndex(line));
-                } else if (table != null && line.startsWith(")")) {
-                    parseAttributes(table, line);
-
-                    if (table.selfCheck()) {
-                        tableMap.put(tableName, table);
-                    } else {
-                        Log.COMMON.error("`{}`.`{}` 数据异常", dbName, tableName);
-                    }
-                    table = null;
-                    tableName = null;
-                    columnOrdinalPosition = 1;
-                } else if (table != null && (line.contains("KEY") || line.contains("INDEX"))) {
-                    table.addIndex(parseIndex(line));
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    /**
+     * @param rebuildCopy 是否允许在预计更快时以重建复制代替逐条 ALTER，复制期间原表的写入会丢失
+     */
+    public Database setRebuildCopy(boolean rebuildCopy) {
+        this.rebuildCopy = rebuildCopy;
+        return this;
     }
 
-    public void generateAddTablesDdlList(final List<Table> tables) {
-        if (tables == null || tables.size() <= 0) {
-            return;
-        }
-        if (addTablesDdlMap != null) {
-            addTablesDdlMap.clear();
-        }
-        addTablesDdlMap = new HashMap<>(tables.size());
-        tables.forEach(table -> addTablesDdlMap.put(table.getName(), table.getCreateTable()));
+    /**
+     * @param applyThreads 按外键依赖分组后并行执行 DDL 的连接数
+     */
+    public Database setApplyThreads(int applyThreads) {
+        this.applyThreads = Math.max(1, applyThreads);
+        return this;
     }
 
-    public void generateDeleteTablesDdlList(final List<String> tableNames) {
-        if (tableNames == null || tableNames.size() <= 0) {
-            return;
-        }
-        if (deleteTablesDdlMap != null) {
-            deleteTablesDdlMap.clear();
-        }
-        deleteTablesDdlMap = new HashMap<>(tableNames.size());
-        tableNames.forEach(tblName -> deleteTablesDdlMap.put(tblName, "DROP TABLE `" + tblName + "`"));
+    /**
+     * @param foreignKeyChecks 执行 DDL 时是否保持外键检查开启
+     */
+    public Database setForeignKeyChecks(boolean foreignKeyChecks) {
+        this.foreignKeyChecks = foreignKeyChecks;
+        return this;
     }
 
-    public void deleteAndAddTables() {
-        executeTask(connection -> {
-            Statement statement = connection.createStatement();
-            List<String> ddlList = new ArrayList<>(deleteTablesDdlMap.size() + addTablesDdlMap.size());
-            for (String tableName : deleteTablesDdlMap.keySet()) {
-                String ddl = deleteTablesDdlMap.get(tableName);
-                statement.addBatch(ddl);
-                ddlList.add(ddl);
-            }
-            for (String tableName : addTablesDdlMap.keySet()) {
-                String ddl = addTablesDdlMap.get(tableName);
-                statement.addBatch(ddl);
-                ddlList.add(ddl);
-            }
-            try {
-                statement.executeBatch();
-            } catch (BatchUpdateException e) {
-                handleBatchUpdateException(connection, e, ddlList);
-            }
-            statement.close();
-        });
+    /**
+     * @return 是否需要按外键依赖分组执行，而不是在一个关闭外键检查的连接上依次执行
+     */
+    public boolean isDependencyApply() {
+        return applyThreads > 1 || foreignKeyChecks;
     }
 
-    public void generateSyncSchemaDdlList(final Database sourceDb, final List<String> tableNames) {
-        if (tableNames == null || tableNames.size() <= 0) {
-            return;
-        }
-        if (syncSchemaDdlMap != null) {
-            syncSchemaDdlMap.clear();
-        }
-        syncSchemaDdlMap = new ConcurrentHashMap<>(tableNames.size());
-        ThreadPoolExecutor executor = TableThreadPoolExecutor.make(dbName, tableNames.size());
-        CountDownLatch countDownLatch = new CountDownLatch(tableNames.size());
-        for (String tableName : tableNames) {
-            final ConcurrentHashMap<String, List<String>> ddlMap = syncSchemaDdlMap;
-            executor.execute(() -> {
-                Table sourceTable = sourceDb.getTableByName(tableName);
-                Table targetTable = getTableByName(tableName);
-                List<String> ddl = SchemaSync.generateTableDdl(sourceTable, targetTable);
-                if (ddl.size() > 0) {
-                    ddlMap.put(tableName, ddl);
-                }
-                countDownLatch.countDown();
-            });
-        }
-        try {
-            countDownLatch.await();
-        } catch (InterruptedException e) {
-            Log.COMMON.error("", e);
-        }
-        executor.shutdownNow();
+    /**
+     * @param journal 记录执行成功的语句与完成的表，null 表示不记录
+     */
+    public Database setJournal(SyncJournal journal) {
+        this.journal = journal;
+        return this;
     }
 
-    public void syncSchema(Database sourceDb, boolean recreateTableOnError) {
-        if (syncSchemaDdlMap == null || syncSchemaDdlMap.size() == 0) {
-            return;
-        }
+    /**
+     * @return 在执行日志中标识本库的名称
+     */
+    public String getJournalKey() {
+        return stats.getEndpoint() + "/" + stats.getName();
+    }
 
-        executeTask(connection -> {
-            Statement statement = connection.createStatement();
-            for (String tableName : syncSchemaDdlMap.keySet()) {
-                List<String> ddlList = syncSchemaDdlMap.get(tableName);
-                try {
-                    for (String s : ddlList) {
-                        statement.addBatch(s);
-                    }
-                    statement.executeBatch();
-                    statement.clearBatch();
-                } catch (BatchUpdateException e) {
-                    handleBatchUpdateException(connection, e, ddlList);
-
-                    if (recreateTableOnError) {
-                        Log.COMMON.info("`{}`.`{}` Recreate Table Start.", dbName, tableName);
-
-                        Table sourceTable = sourceDb.getTableByName(tableName);
-                        List<String> createDdlList = new ArrayList<>(2);
-                        createDdlList.add(String.format("DROP TABLE IF EXISTS `%s`", tableName));
-                        createDdlList.add(sourceTable.getCreateTable());
-
-                        try {
-                            for (String s : createDdlList) {
-                                statement.addBatch(s);
-                            }
-
-                            statement.executeBatch();
-                            statement.clearBatch();
-
-                            Log.COMMON.info("`{}`.`{}` Recreate Table Succeed.", dbName, tableName);
-                        } catch (BatchUpdateException re) {
-                            handleBatchUpdateException(connection, re, createDdlList);
-                        }
-                    }
-                }
-            }
-            statement.close();
-        });
+    public Database setConnectionProvider(ConnectionProvider connectionProvider) {
+        this.connectionProvider = connectionProvider == null ? ConnectionProvider.DRIVER_MANAGER : connectionProvider;
+        return this;
     }
 
     /**
-     * 显示预览
+     * @param admission 按服务器限制并发连接与 DDL 的许可，null 表示不限制
      */
-    public void displayPreview() {
-        if (deleteTablesDdlMap != null) {
-            deleteTablesDdlMap.forEach((k, v) -> Log.PREVIEW.info(v));
-        }
-        if (addTablesDdlMap != null) {
-            addTablesDdlMap.forEach((k, v) -> Log.PREVIEW.info(v));
-        }
-        if (syncSchemaDdlMap != null) {
-            syncSchemaDdlMap.forEach((k, v) -> Log.PREVIEW.info(v.toString()));
-        }
+    public Database setAdmission(HostAdmission admission) {
+        this.admission = admission;
+        return this;
+    }
+
+    private String getEndpoint() {
+        return host + ":" + port;
     }
 
     /**
-     * 输出 DDL 文件
+     * 设置读取结构用的从库，DDL 仍在主库上执行
+     *
+     * @param replicas             从库的 host:port，使用与主库相同的账号与库名
+     * @param maxReplicaLagSeconds 从库允许的最大复制延迟，超过时改用下一个从库或主库
      */
-    public void outputDdlFile() {
-        if (outputDdlFilepath == null) {
-            return;
-        }
-        try (BufferedWriter writer = Files.newBufferedWriter(outputDdlFilepath,
-            StandardCharsets.UTF_8, StandardOpenOption.TRUNCATE_EXISTING)) {
-            for (String ddl : deleteTablesDdlMap.values()) {
-                writer.write(ddl);
-                writer.write(";\n");
-            }
-            for (String ddl : addTablesDdlMap.values()) {
-                writer.write(ddl);
-                writer.write(";\n");
-            }
-            for (List<String> ddlList : syncSchemaDdlMap.values()) {
-                for (String ddl : ddlList) {
-                    writer.write(ddl);
-                    writer.write(";\n");
-                }
-            }
-            writer.flush();
-        } catch (IOException e) {
-            Log.COMMON.error("`{}` 生成DDL输出文件失败.\n{}", dbName, e);
-        }
+    public Database setReplicas(List<String> replicas, long maxReplicaLagSeconds) {
+        this.replicas = replicas == null ? Collections.emptyList() : replicas;
+        this.maxReplicaLagSeconds = maxReplicaLagSeconds;
+        return this;
     }
 
     /**
-     * 销毁属性
+     * @return 结构是否读取自从库，是则执行 DDL 前需在主库上重新读取受影响的表
      */
-    public void destroyAllAttributes() {
-        try {
-            dbName = null;
-            username = null;
-            password = null;
-            host = null;
-            port = null;
-            jdbcUrl = null;
-            tableMap.clear();
-            tableMap = null;
-        } catch (Exception ignore) {
+    public boolean isIntrospectedFromReplica() {
+        return introspectedFrom != null;
+    }
 
+    /**
+     * @return 读取结构与执行 DDL 过程中出现的错误
+     */
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
         }
     }
 
-    @FunctionalInterface
-    private interface Task {
-        /**
-         * 数据库任务执行
-         *
-         * @param connection JDBC 的 {@link Connection} 实例
-         * @throws SQLException JDBC 执行时抛出的 SQL 异常
-         */
-        void run(Connection connection) throws SQLException;
+    private void addError(String message, Throwable e) {
+        errors.add(e == null ? message : message + ": " + (e.getMessage() == null ? e.toString() : e.getMessage()));
     }
 
     /**
-     * 数据库任务执行，将事物提交与回滚等公共操作提取出来，只需传入要执行的 Task 即可
-     *
-     * @param task 要执行的数据库任务
+     * 取消同步：正在执行的语句会执行完毕，之后的 DDL 均不再执行
      */
-    private void executeTask(Task task) {
-        if (!checkConnectMetaData()) {
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * 中止同步：在 {@link #cancel()} 的基础上，先通过另一个连接对当前打开的全部连接发送 KILL QUERY，
+     * 再在本地中止这些连接，阻塞在网络或元数据锁等待上的语句随之以异常返回。
+     * 只在本地中止连接时服务器上的语句会继续执行，重试前需通过 {@link #awaitKilledQueries} 确认已结束
+     */
+    public void abort() {
+        cancelled = true;
+        killQueries();
+        for (Connection connection : openConnections.keySet()) {
+            try {
+                connection.abort(Runnable::run);
+            } catch (SQLException | RuntimeException e) {
+                Log.COMMON.warn("`{}` 中止连接失败: {}", dbName, e.toString());
+            }
+        }
+    }
+
+    private void killQueries() {
+        if (host == null || openConnections.isEmpty()) {
             return;
         }
-        Connection connection = null;
-        try {
-            connection = DriverManager.getConnection(getJdbcUrl(), username, password);
-            connection.setAutoCommit(false);
-            connection.prepareStatement("SET FOREIGN_KEY_CHECKS = 0").execute();
-            task.run(connection);
-            connection.prepareStatement("SET FOREIGN_KEY_CHECKS = 1").execute();
-            connection.commit();
-        } catch (SQLException e) {
-            Log.COMMON.error("Execute Task Exception", e);
-            if (connection != null) {
-                try {
-                    connection.rollback();
-                } catch (SQLException ex) {
-                    Log.COMMON.error("Rollback Exception", ex);
-                }
-            }
-        } finally {
-            try {
-                if (connection != null) {
-                    connection.close();
+        KilledSessions sessions = new KilledSessions(dbName, username, password,
+            new ArrayList<>(openConnections.values()));
+        killed = sessions;
+        for (Map.Entry<String, List<Long>> entry : sessions.ids.entrySet()) {
+            try (Connection connection = sessions.connect(entry.getKey());
+                 Statement statement = connection.createStatement()) {
+                for (long id : entry.getValue()) {
+                    try {
+                        statement.execute("KILL QUERY " + id);
+                    } catch (SQLException e) {
+                        // 连接已结束
+                        Log.COMMON.debug("`{}` KILL QUERY {} 失败: {}", dbName, id, e.getMessage());
+                    }
                 }
-            } catch (SQLException e) {
-                Log.COMMON.error("Connection Close Exception", e);
+            } catch (SQLException | RuntimeException e) {
+                Log.COMMON.warn("`{}` 连接 {} 发送 KILL QUERY 失败: {}", dbName, entry.getKey(), e.toString());
             }
         }
     }
 
     /**
-     * 处理 Statement 批量执行异常
+     * 确认中止时发送过 KILL QUERY 的语句已在服务器上结束（被终止的 ALTER 需要回滚，可能还要执行一段时间），
+     * 未结束前重试同一目标会在元数据锁上等待或重复执行同一 DDL
      *
-     * @param connection JDBC 连接
-     * @param e          Statement 批量执行异常
-     * @param ddlList    Statement 批量执行的 DDL 语句
-     * @throws SQLException JDBC 执行异常
+     * @param timeoutNanos 最多等待的时间，0 表示只检查一次
+     * @return true 表示没有中止过、中止时没有打开的连接或语句都已结束；
+     * 无法取得连接 id、查询失败或等待超时时为 false
      */
-    private void handleBatchUpdateException(Connection connection, BatchUpdateException e, List<String> ddlList)
-        throws SQLException {
-        int[] updateCounts = e.getUpdateCounts();
-        for (int i = 0; i < updateCounts.length; i++) {
-            if (updateCounts[i] == Statement.EXECUTE_FAILED) {
-                Log.COMMON.error("`{}` Execute Failed: {}.", dbName, ddlList.get(i));
-            } else {
-                Log.COMMON.error("`{}` Execute Succeed: {}.", dbName, ddlList.get(i));
+    public boolean awaitKilledQueries(long timeoutNanos) throws InterruptedException {
+        KilledSessions sessions = killed;
+        if (sessions == null) {
+            return true;
+        }
+        if (sessions.unknown) {
+            Log.COMMON.warn("`{}` 无法取得连接在服务器上的 id，不能确认中止的语句已结束", sessions.dbName);
+            return false;
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (true) {
+            List<Long> running;
+            try {
+                running = sessions.running();
+            } catch (SQLException e) {
+                Log.COMMON.warn("`{}` 查询中止的语句是否结束失败: {}", sessions.dbName, e.getMessage());
+                return false;
+            }
+            if (running.isEmpty()) {
+                return true;
             }
+            if (System.nanoTime() - deadline >= 0) {
+                Log.COMMON.error("`{}` 连接 {} 上中止的语句仍在服务器上执行", sessions.dbName, running);
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(200);
         }
-        connection.rollback();
     }
 
-    private static String removeLastComma(String ddl) {
-        if (ddl.charAt(ddl.length() - 1) == ',') {
-            ddl = ddl.substring(0, ddl.length() - 1);
-        }
-        return ddl;
+    public boolean isCancelled() {
+        return cancelled;
     }
 
-    private static StringBuilder removeLastComma(StringBuilder ddl) {
-        if (ddl.charAt(ddl.length() - 1) == ',') {
-            ddl.deleteCharAt(ddl.length() - 1);
-        }
-        return ddl;
+    /**
+     * 按执行顺序返回当前生成的全部 DDL：先删除旧表，再创建新表，最后修改已有表
+     *
+     * @return DDL 列表
+     */
+    public List<String> getDdlPlan() {
+        List<String> plan = new ArrayList<>(deleteTableNames.size() + addTablesDdlMap.size()
+            + syncSchemaTableNames.size());
+        deleteTableNames.forEach(tableName -> plan.add(dropTableDdl(tableName)));
+        plan.addAll(addTablesDdlMap.values());
+        scheduleSyncTables().forEach(tableName -> plan.addAll(syncSchemaDdl(tableName)));
+        return plan;
     }
 
     /**
-     * 主键、索引解析
+     * 按预计耗时从短到长排列要修改的表，避免大表的长时间 DDL 阻塞其他表的快速修改
      *
-     * @param originDdl 主键、索引，CREATE TABLE 的字段属性到最后一行的中间部分
-     * @return 主键、索引
+     * @return 要修改的表名
      */
-    private static String parseIndex(String originDdl) {
-        StringBuilder sb = removeLastComma(new StringBuilder(originDdl));
+    public List<String> scheduleSyncTables() {
+        List<String> tableNames = new ArrayList<>(syncSchemaTableNames);
+        // 表名有序，耗时相同的表保持按表名的顺序
+        tableNames.sort(Comparator.comparingLong(this::getEstimatedNanos));
+        return tableNames;
+    }
 
-        // 因为 BTREE 是默认索引类型，所以不含 USING 的索引默认为使用 BTREE
-        if (sb.indexOf("USING") == -1) {
-            sb.append(" USING BTREE");
-        }
+    /**
+     * @param tableName 要修改的表名
+     * @return 该表全部 DDL 的预计耗时
+     */
+    public long getEstimatedNanos(String tableName) {
+        return syncSchemaCostMap.getOrDefault(tableName, 0L);
+    }
 
-        return sb.toString();
+    /**
+     * @return 全部 DDL 的预计耗时
+     */
+    public long getEstimatedNanos() {
+        DdlCostEstimator estimator = new DdlCostEstimator(serverVersion);
+        List<String> dropDdlList = new ArrayList<>(deleteTableNames.size());
+        deleteTableNames.forEach(tableName -> dropDdlList.add(dropTableDdl(tableName)));
+        long nanos = estimator.estimateNanos(null, dropDdlList)
+            + estimator.estimateNanos(null, new ArrayList<>(addTablesDdlMap.values()));
+        for (long tableNanos : syncSchemaCostMap.values()) {
+            nanos += tableNanos;
+        }
+        return nanos;
     }
 
     /**
-     * 表属性解析
+     * 建立带统计代理的 JDBC 连接，连接耗时与等待连接许可的时间计入 {@link Phase#CONNECT} 阶段
      *
-     * @param ddl 表属性，CREATE TABLE 的最后一行
-     * @return 表属性列表
-     */
-    private static void parseAttributes(Table table, String ddl) {
-        StringBuilder key = new StringBuilder(ddl.length() / 2);
-        StringBuilder value = new StringBuilder(ddl.length() / 2);
-        boolean skip = true;
-        for (int i = 0, size = ddl.length(); i < size; i++) {
-            char c = ddl.charAt(i);
-            if (skip && (c == ')' || c == ' ')) {
-                continue;
-            }
-            skip = false;
-            if (c == '=') {
-                while (key.charAt(key.length() - 1) == ' ') {
-                    key.deleteCharAt(key.length() - 1);
-                }
+     * @return JDBC 连接
+     * @throws SQLException 连接失败
+     */
+    Connection getConnection() throws SQLException {
+        return getConnection(false);
+    }
 
-                while (i + 1 < size && ddl.charAt(i + 1) == ' ') {
-                    i++;
-                }
-                for (int k = i + 1; k < size; k++) {
-                    c = ddl.charAt(k);
-                    if (c == ' ' || c == ';') {
-                        i = k;
-                        break;
-                    }
-                    value.append(c);
-                }
+    /**
+     * @param multiQueries 是否允许一次发送以分号分隔的多条语句
+     */
+    private Connection getConnection(boolean multiQueries) throws SQLException {
+        return getConnection(multiQueries, getEndpoint());
+    }
 
-                handleAttribute(table, key, value);
+    /**
+     * @param multiQueries 是否允许一次发送以分号分隔的多条语句
+     * @param endpoint     主库或从库的 host:port
+     */
+    private Connection getConnection(boolean multiQueries, String endpoint) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            String baseUrl = endpoint.equals(getEndpoint()) ? getJdbcUrl()
+                : String.format("jdbc:mysql://%s/%s?useUnicode=true", endpoint, dbName);
+            String url = multiQueries ? baseUrl + "&allowMultiQueries=true" : baseUrl;
+            if (admission == null) {
+                Connection connection = connectionProvider.getConnection(url, username, password);
+                stats.addRoundTrips(1);
+                openConnections.put(connection, new ServerSession(endpoint, connectionId(connection)));
+                return StatsConnection.wrap(connection, stats, () -> openConnections.remove(connection));
+            }
+            if (!admission.acquireConnection(endpoint, this::isCancelled)) {
+                throw new SQLException("`" + dbName + "` 等待连接许可时被中止");
+            }
+            Connection connection;
+            try {
+                connection = connectionProvider.getConnection(url, username, password);
+            } catch (SQLException | RuntimeException e) {
+                admission.releaseConnection(endpoint);
+                throw e;
+            }
+            stats.addRoundTrips(1);
+            openConnections.put(connection, new ServerSession(endpoint, connectionId(connection)));
+            return StatsConnection.wrap(connection, stats, () -> {
+                openConnections.remove(connection);
+                admission.releaseConnection(endpoint);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("`" + dbName + "` 等待连接许可时被中断", e);
+        } finally {
+            stats.addPhaseNanos(Phase.CONNECT, System.nanoTime() - start);
+        }
+    }
+
+    public void init() {
+        if (checkConnectMetaData()) {
+            initByOnline();
+        } else if (sqlFilePath != null) {
+            initBySqlFile();
+        } else {
+            throw new RuntimeException("数据库初始化异常");
+        }
+    }
+
+    public void initByOnline() {
+        try (Connection connection = getIntrospectionConnection()) {
+            long introspectStart = System.nanoTime();
+            serverVersion = DdlCostEstimator.parseServerVersion(connection.getMetaData().getDatabaseProductVersion());
+            String queryTables = "SELECT TABLE_NAME,ROW_FORMAT,DATA_LENGTH,INDEX_LENGTH,TABLE_ROWS " +
+                "FROM information_schema.TABLES WHERE TABLE_SCHEMA = ?";
+            PreparedStatement preparedStatementTable = connection.prepareStatement(queryTables);
+            preparedStatementTable.setString(1, dbName);
+            ResultSet resultSetTable = preparedStatementTable.executeQuery();
+            stats.addPhaseNanos(Phase.INTROSPECT, System.nanoTime() - introspectStart);
+
+            while (resultSetTable.next()) {
+                Table table = introspectTable(connection, resultSetTable);
+                if (table != null) {
+                    tableMap.put(table.getName(), table);
+                }
+            }
+            resultSetTable.close();
+            preparedStatementTable.close();
+            if (rebuildCopy) {
+                triggerTables = triggerTables(connection);
+            }
+        } catch (SQLException e) {
+            addError("`" + dbName + "` 读取结构失败", e);
+            Log.COMMON.error("", e);
+        }
+    }
+
+    /**
+     * @return 库内含有触发器的表名
+     */
+    private Set<String> triggerTables(Connection connection) throws SQLException {
+        Set<String> tableNames = new TreeSet<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+            "SELECT DISTINCT EVENT_OBJECT_TABLE FROM information_schema.TRIGGERS WHERE EVENT_OBJECT_SCHEMA = ?")) {
+            preparedStatement.setString(1, dbName);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    tableNames.add(resultSet.getString(1));
+                }
+            }
+        }
+        return tableNames;
+    }
+
+    /**
+     * 按顺序选择第一个复制延迟不超过限制的从库，都不满足时使用主库
+     *
+     * @return 读取结构用的连接
+     * @throws SQLException 连接主库失败
+     */
+    private Connection getIntrospectionConnection() throws SQLException {
+        introspectedFrom = null;
+        for (String replica : replicas) {
+            Connection connection = null;
+            try {
+                connection = getConnection(false, replica);
+                long lag = replicaLag(connection);
+                if (lag >= 0 && lag <= maxReplicaLagSeconds) {
+                    Log.COMMON.info("`{}` 从从库 {} 读取结构，复制延迟 {} 秒", dbName, replica, lag);
+                    introspectedFrom = replica;
+                    return connection;
+                }
+                Log.COMMON.warn("`{}` 从库 {} {}，不使用", dbName, replica,
+                    lag < 0 ? "未在复制" : "复制延迟 " + lag + " 秒");
+            } catch (SQLException e) {
+                Log.COMMON.warn("`{}` 连接从库 {} 失败: {}", dbName, replica, e.getMessage());
+            }
+            if (connection != null) {
+                connection.close();
+            }
+        }
+        if (!replicas.isEmpty()) {
+            Log.COMMON.warn("`{}` 没有可用的从库，从主库读取结构", dbName);
+        }
+        return getConnection();
+    }
+
+    /**
+     * @return 复制延迟秒数，不是从库或复制线程未运行时返回 -1
+     */
+    private static long replicaLag(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet;
+            try {
+                resultSet = statement.executeQuery("SHOW REPLICA STATUS");
+            } catch (SQLException e) {
+                // 8.0.22 之前的版本
+                resultSet = statement.executeQuery("SHOW SLAVE STATUS");
+            }
+            try {
+                if (!resultSet.next()) {
+                    return -1;
+                }
+                Object lag = null;
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    String label = metaData.getColumnLabel(i);
+                    if ("Seconds_Behind_Source".equalsIgnoreCase(label)
+                        || "Seconds_Behind_Master".equalsIgnoreCase(label)) {
+                        lag = resultSet.getObject(i);
+                        break;
+                    }
+                }
+                return lag == null ? -1 : Long.parseLong(lag.toString());
+            } finally {
+                resultSet.close();
+            }
+        }
+    }
+
+    /**
+     * @return 执行计划中要删除、创建或修改的表
+     */
+    public Set<String> getPlannedTableNames() {
+        Set<String> tableNames = new TreeSet<>(deleteTableNames);
+        tableNames.addAll(addTablesDdlMap.keySet());
+        tableNames.addAll(syncSchemaTableNames);
+        return tableNames;
+    }
+
+    /**
+     * 只重新读取指定的表，已不存在的表从内存中移除
+     *
+     * @param tableNames 要重新读取的表名
+     */
+    public void refreshTables(Collection<String> tableNames) {
+        if (tableNames == null || tableNames.isEmpty()) {
+            return;
+        }
+        try (Connection connection = getConnection()) {
+            String queryTable = "SELECT TABLE_NAME,ROW_FORMAT,DATA_LENGTH,INDEX_LENGTH,TABLE_ROWS " +
+                "FROM information_schema.TABLES WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ?";
+            PreparedStatement preparedStatementTable = connection.prepareStatement(queryTable);
+            for (String tableName : tableNames) {
+                preparedStatementTable.setString(1, dbName);
+                preparedStatementTable.setString(2, tableName);
+                Table table = null;
+                try (ResultSet resultSetTable = preparedStatementTable.executeQuery()) {
+                    if (resultSetTable.next()) {
+                        table = introspectTable(connection, resultSetTable);
+                    }
+                }
+                if (table != null) {
+                    tableMap.put(tableName, table);
+                } else {
+                    tableMap.remove(tableName);
+                }
+            }
+            preparedStatementTable.close();
+        } catch (SQLException e) {
+            addError("`" + dbName + "` 读取结构失败", e);
+            Log.COMMON.error("", e);
+        }
+    }
+
+    /**
+     * 读取并解析单张表的结构
+     *
+     * @param connection     JDBC 连接
+     * @param resultSetTable 定位在该表所在行的 information_schema.TABLES 查询结果
+     * @return 表结构，数据异常时返回 null
+     * @throws SQLException JDBC 执行异常
+     */
+    private Table introspectTable(Connection connection, ResultSet resultSetTable) throws SQLException {
+        long introspectStart = System.nanoTime();
+        Table table = new Table();
+
+        String tableName = resultSetTable.getString("TABLE_NAME");
+        table.setName(tableName);
+        String rowFormat = resultSetTable.getString("ROW_FORMAT");
+        if (rowFormat != null && !rowFormat.isEmpty()) {
+            table.setRowFormat(rowFormat);
+        }
+        table.setDataLength(resultSetTable.getLong("DATA_LENGTH"));
+        table.setIndexLength(resultSetTable.getLong("INDEX_LENGTH"));
+        table.setTableRows(resultSetTable.getLong("TABLE_ROWS"));
+        String createTable = "";
+        FlightRecorder.Span introspectSpan = FlightRecorder.introspectTable(dbName, tableName);
+
+        String queryCreateTable = "SHOW CREATE TABLE `" + tableName + "`";
+        PreparedStatement preparedStatementCreateTable = connection.prepareStatement(queryCreateTable);
+        ResultSet resultSetCreateTable = preparedStatementCreateTable.executeQuery();
+        while (resultSetCreateTable.next()) {
+            createTable = resultSetCreateTable.getString(2);
+        }
+        preparedStatementCreateTable.close();
+        resultSetCreateTable.close();
+
+        introspectSpan.bytes(createTable.length()).commit();
+
+        long parseStart = System.nanoTime();
+        stats.addPhaseNanos(Phase.INTROSPECT, parseStart - introspectStart);
+        CreateTableParser.parse(createTable, table);
+        stats.addPhaseNanos(Phase.PARSE, System.nanoTime() - parseStart);
+
+        if (table.selfCheck()) {
+            return table;
+        }
+        addError("`" + dbName + "`.`" + tableName + "` 数据异常", null);
+        Log.COMMON.error("`{}`.`{}` 数据异常", dbName, tableName);
+        return null;
+    }
+
+    public void initBySqlFile() {
+        long start = System.nanoTime();
+        StartupTimer.firstQuery();
+        try {
+            if (Files.isDirectory(sqlFilePath)) {
+                initBySchemaDirectory();
+            } else {
+                loadSqlFile(sqlFilePath, tableMap);
+            }
+        } finally {
+            stats.addPhaseNanos(Phase.PARSE, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * mydumper、MySQL Shell 导出的目录中每张表一个结构文件，按处理器数并行解析
+     */
+    private void initBySchemaDirectory() {
+        List<Path> files;
+        try {
+            files = SchemaDirectory.schemaFiles(sqlFilePath);
+        } catch (IOException e) {
+            addError("`" + dbName + "` 读取目录失败", e);
+            Log.COMMON.error("`{}` 读取目录失败", dbName, e);
+            return;
+        }
+        if (files.isEmpty()) {
+            Log.COMMON.warn("`{}` 目录中没有表结构文件", dbName);
+            return;
+        }
+        Map<String, Table> tables = new ConcurrentHashMap<>(files.size() * 2);
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), files.size());
+        ThreadPoolExecutor executor = TableThreadPoolExecutor.make(dbName + "-Load", threads, files.size());
+        CountDownLatch countDownLatch = new CountDownLatch(files.size());
+        for (Path file : files) {
+            executor.execute(() -> {
+                try {
+                    loadSqlFile(file, tables);
+                } finally {
+                    countDownLatch.countDown();
+                }
+            });
+        }
+        try {
+            countDownLatch.await();
+        } catch (InterruptedException e) {
+            Log.COMMON.error("", e);
+        }
+        executor.shutdownNow();
+        tableMap.putAll(tables);
+    }
+
+    /**
+     * @param file   SQL 文件，可以是 gzip 或 zstd 压缩的
+     * @param tables 解析出的表放入的位置
+     */
+    private void loadSqlFile(Path file, Map<String, Table> tables) {
+        try (InputStream in = DumpInputStream.open(file)) {
+            stats.addBytesRead(Files.size(file));
+            CreateTableParser.forEachCreateTable(in, dbName, (table, parsed) -> {
+                if (parsed && table.selfCheck()) {
+                    tables.put(table.getName(), table);
+                } else {
+                    addError("`" + dbName + "`.`" + table.getName() + "` 数据异常", null);
+                    Log.COMMON.error("`{}`.`{}` 数据异常", dbName, table.getName());
+                }
+            });
+        } catch (IOException e) {
+            addError("`" + dbName + "` 读取 SQL 文件 " + file.getFileName() + " 失败", e);
+            Log.COMMON.error("`{}` 读取 SQL 文件 {} 失败", dbName, file.getFileName(), e);
+        }
+    }
+
+    /**
+     * 将已读取的结构按表名顺序写成每表一条 CREATE TABLE 的 SQL 文件，可按 SQL 文件方式重新读取，
+     * 文件名以 .gz 或 .zst 结尾时压缩
+     *
+     * @param file 快照文件
+     * @throws IOException 写入失败
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        try (DdlFileWriter writer = DdlFileWriter.open(file)) {
+            for (String tableName : new TreeSet<>(tableMap.keySet())) {
+                Table table = tableMap.get(tableName);
+                writer.write(table.getAutoIncrement() == null ? table.getCreateTable()
+                    : table.getCreateTable() + " AUTO_INCREMENT=" + table.getAutoIncrement());
+            }
+        }
+    }
+
+    /**
+     * 读取服务器当前正在执行的线程数，作为服务器负载
+     *
+     * @return Threads_running，SQL 文件方式或读取失败时返回 -1
+     */
+    public long queryThreadsRunning() {
+        if (!checkConnectMetaData() || cancelled) {
+            return -1;
+        }
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SHOW GLOBAL STATUS LIKE 'Threads_running'")) {
+            return resultSet.next() ? resultSet.getLong(2) : -1;
+        } catch (SQLException e) {
+            Log.COMMON.warn("`{}` 读取 Threads_running 失败: {}", dbName, e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * 计算库结构摘要，用于低成本地判断结构是否变化。
+     * 在线方式只发一次查询，对 information_schema 中字段、索引与表属性分别求行数与 CRC32 之和；
+     * SQL 文件方式使用文件大小与修改时间
+     *
+     * @return 结构摘要，读取失败时返回 null
+     */
+    public String schemaDigest() {
+        if (checkConnectMetaData()) {
+            String query = "SELECT COUNT(*),COALESCE(SUM(" + COLUMN_DIGEST + "),0) " +
+                "FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = ? " +
+                "UNION ALL SELECT COUNT(*),COALESCE(SUM(" + INDEX_DIGEST + "),0) " +
+                "FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = ? " +
+                "UNION ALL SELECT COUNT(*),COALESCE(SUM(" + TABLE_DIGEST + "),0) " +
+                "FROM information_schema.TABLES WHERE TABLE_SCHEMA = ?";
+            try (Connection connection = getConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+                preparedStatement.setString(1, dbName);
+                preparedStatement.setString(2, dbName);
+                preparedStatement.setString(3, dbName);
+                StringBuilder digest = new StringBuilder(64);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        digest.append(resultSet.getLong(1)).append(':').append(resultSet.getLong(2)).append('/');
+                    }
+                }
+                return digest.toString();
+            } catch (SQLException e) {
+                Log.COMMON.error("`{}` 读取结构摘要失败", dbName, e);
+                return null;
+            }
+        } else if (sqlFilePath != null) {
+            try {
+                if (Files.isDirectory(sqlFilePath)) {
+                    return SchemaDirectory.digest(sqlFilePath);
+                }
+                return Files.size(sqlFilePath) + ":" + Files.getLastModifiedTime(sqlFilePath).toMillis();
+            } catch (IOException e) {
+                Log.COMMON.error("`{}` 读取结构摘要失败", dbName, e);
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按表计算结构摘要，一次查询得到
+     *
+     * @param connection JDBC 连接
+     * @param tableNames 只计算这些表，null 表示全部表
+     * @return 表名到结构摘要，不存在的表没有对应项
+     * @throws SQLException JDBC 执行异常
+     */
+    private Map<String, String> tableDigests(Connection connection, List<String> tableNames) throws SQLException {
+        String where = " WHERE TABLE_SCHEMA = ?" + (tableNames == null ? "" : " AND TABLE_NAME IN ("
+            + String.join(",", Collections.nCopies(tableNames.size(), "?")) + ")") + " GROUP BY TABLE_NAME";
+        String query = "SELECT 0,TABLE_NAME,COUNT(*),SUM(" + TABLE_DIGEST + ") FROM information_schema.TABLES" + where +
+            " UNION ALL SELECT 1,TABLE_NAME,COUNT(*),SUM(" + COLUMN_DIGEST + ") FROM information_schema.COLUMNS" + where +
+            " UNION ALL SELECT 2,TABLE_NAME,COUNT(*),SUM(" + INDEX_DIGEST + ") FROM information_schema.STATISTICS" + where;
+        Map<String, String[]> parts = new HashMap<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            int parameter = 1;
+            for (int i = 0; i < 3; i++) {
+                preparedStatement.setString(parameter++, dbName);
+                if (tableNames != null) {
+                    for (String tableName : tableNames) {
+                        preparedStatement.setString(parameter++, tableName);
+                    }
+                }
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    parts.computeIfAbsent(resultSet.getString(2), k -> new String[]{"", "", ""})
+                        [resultSet.getInt(1)] = resultSet.getLong(3) + ":" + resultSet.getLong(4);
+                }
+            }
+        }
+        Map<String, String> digests = new HashMap<>(parts.size() * 2);
+        parts.forEach((name, part) -> digests.put(name, String.join("/", part)));
+        return digests;
+    }
+
+    /**
+     * 读取当前各表的结构摘要，与执行日志中记录的完成时摘要比对
+     *
+     * @param journaledDigests 执行日志中已完成的表及其摘要
+     * @return 结构未变化、可以跳过的表
+     */
+    public List<String> confirmJournaledTables(Map<String, String> journaledDigests) {
+        List<String> confirmed = new ArrayList<>();
+        if (journaledDigests.isEmpty() || !checkConnectMetaData()) {
+            return confirmed;
+        }
+        try (Connection connection = getConnection()) {
+            Map<String, String> digests = tableDigests(connection, null);
+            journaledDigests.forEach((tableName, digest) -> {
+                if (digest.equals(digests.get(tableName))) {
+                    confirmed.add(tableName);
+                }
+            });
+        } catch (SQLException e) {
+            Log.COMMON.error("`{}` 读取表结构摘要失败", dbName, e);
+        }
+        return confirmed;
+    }
+
+    /**
+     * 表的 DDL 全部执行成功后记录到执行日志
+     */
+    private void journalTable(Connection connection, String tableName) {
+        journalTables(connection, Collections.singletonList(tableName));
+    }
+
+    private void journalTables(Connection connection, List<String> tableNames) {
+        if (journal == null || tableNames.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, String> digests = tableDigests(connection, tableNames);
+            for (String tableName : tableNames) {
+                journal.table(getJournalKey(), tableName, digests.getOrDefault(tableName, "-"));
+            }
+        } catch (SQLException e) {
+            Log.COMMON.error("`{}` 读取表结构摘要失败 {}", dbName, tableNames, e);
+        }
+    }
+
+    /**
+     * 清空上一次生成的 DDL，使同一个 Database 实例可以重复比对
+     */
+    public void resetDdlPlan() {
+        addTablesDdlMap.clear();
+        deleteTableNames.clear();
+        syncSchemaTableNames.clear();
+        syncSchemaCostMap.clear();
+        syncSchemaDecisionMap.clear();
+        rebuildPlanMap.clear();
+    }
+
+    public void generateAddTablesDdlList(final List<Table> tables) {
+        if (tables == null || tables.size() <= 0) {
+            return;
+        }
+        if (addTablesDdlMap != null) {
+            addTablesDdlMap.clear();
+        }
+        addTablesDdlMap = new TreeMap<>();
+        tables.forEach(table -> addTablesDdlMap.put(table.getName(), table.getCreateTable()));
+    }
+
+    public void generateDeleteTablesDdlList(final List<String> tableNames) {
+        if (tableNames == null || tableNames.size() <= 0) {
+            return;
+        }
+        if (deleteTableNames != null) {
+            deleteTableNames.clear();
+        }
+        deleteTableNames = new TreeSet<>(tableNames);
+    }
+
+    private static String dropTableDdl(String tableName) {
+        return "DROP TABLE `" + tableName + "`";
+    }
+
+    public void deleteAndAddTables() {
+        if (deleteTableNames.isEmpty() && addTablesDdlMap.isEmpty()) {
+            return;
+        }
+        if (deleteTableNames.size() + addTablesDdlMap.size() >= PIPELINE_THRESHOLD) {
+            List<String> tableNames = new ArrayList<>(deleteTableNames.size() + addTablesDdlMap.size());
+            List<String> ddlList = new ArrayList<>(deleteTableNames.size() + addTablesDdlMap.size());
+            deleteTableNames.forEach(tableName -> {
+                tableNames.add(tableName);
+                ddlList.add(dropTableDdl(tableName));
+            });
+            addTablesDdlMap.forEach((tableName, ddl) -> {
+                tableNames.add(tableName);
+                ddlList.add(ddl);
+            });
+            executeTask(true, connection -> executePipelined(connection, tableNames, ddlList));
+            return;
+        }
+        executeTask(connection -> {
+            Statement statement = connection.createStatement();
+            for (String tableName : deleteTableNames) {
+                if (cancelled) {
+                    break;
+                }
+                if (executeDdlList(connection, statement, tableName,
+                    Collections.singletonList(dropTableDdl(tableName)))) {
+                    journalTable(connection, tableName);
+                }
+            }
+            for (String tableName : addTablesDdlMap.keySet()) {
+                if (cancelled) {
+                    break;
+                }
+                if (executeDdlList(connection, statement, tableName,
+                    Collections.singletonList(addTablesDdlMap.get(tableName)))) {
+                    journalTable(connection, tableName);
+                }
+            }
+            statement.close();
+        });
+    }
+
+    public void generateSyncSchemaDdlList(final Database sourceDb, final List<String> tableNames) {
+        if (tableNames == null || tableNames.size() <= 0) {
+            return;
+        }
+        if (syncSchemaTableNames != null) {
+            syncSchemaTableNames.clear();
+        }
+        syncSchemaTableNames = new ConcurrentSkipListSet<>();
+        syncSchemaSource = sourceDb;
+        syncSchemaCostMap.clear();
+        syncSchemaDecisionMap.clear();
+        rebuildPlanMap.clear();
+        stats.addTablesDiffed(tableNames.size());
+        DdlCostEstimator estimator = new DdlCostEstimator(serverVersion);
+        ThreadPoolExecutor executor = TableThreadPoolExecutor.make(dbName, tableNames.size());
+        CountDownLatch countDownLatch = new CountDownLatch(tableNames.size());
+        for (String tableName : tableNames) {
+            final ConcurrentSkipListSet<String> plannedTableNames = syncSchemaTableNames;
+            executor.execute(() -> {
+                Table sourceTable = sourceDb.getTableByName(tableName);
+                Table targetTable = getTableByName(tableName);
+                FlightRecorder.Span span = FlightRecorder.generateTableDdl(dbName, tableName);
+                List<String> ddl = SchemaSync.generateTableDdl(sourceTable, targetTable, serverVersion);
+                span.statements(ddl.size()).commit();
+                if (ddl.size() > 0) {
+                    planTable(estimator, sourceTable, targetTable, ddl, plannedTableNames);
+                }
+                countDownLatch.countDown();
+            });
+        }
+        try {
+            countDownLatch.await();
+        } catch (InterruptedException e) {
+            Log.COMMON.error("", e);
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * 比较逐条 ALTER 与重建复制的预计耗时，选择更快的方式并记录依据
+     *
+     * @param estimator   耗时估算
+     * @param sourceTable 源表
+     * @param targetTable 目标表
+     * @param ddl         逐条 ALTER 的 DDL
+     * @param tableNames  要修改的表名写入的位置
+     */
+    private void planTable(DdlCostEstimator estimator, Table sourceTable, Table targetTable, List<String> ddl,
+                           Set<String> tableNames) {
+        String tableName = targetTable.getName();
+        long alterNanos = 0;
+        int rebuilds = 0;
+        for (String statement : ddl) {
+            DdlCostEstimator.Estimate estimate = estimator.estimate(targetTable, statement);
+            alterNanos += estimate.getNanos();
+            rebuilds += estimate.isRebuild() ? 1 : 0;
+        }
+        long rebuildNanos = estimator.estimateRebuildNanos(targetTable);
+        String costs = String.format("ALTER %d 条（重建表 %d 次）预计 %s，重建复制预计 %s", ddl.size(), rebuilds,
+            DdlCostEstimator.formatDuration(alterNanos), DdlCostEstimator.formatDuration(rebuildNanos));
+
+        String blocker = null;
+        RebuildPlan plan = null;
+        if (rebuildNanos < alterNanos) {
+            if (!rebuildCopy) {
+                blocker = "未开启 --rebuild-copy";
+            } else if ((blocker = rebuildBlocker(sourceTable, targetTable)) == null) {
+                plan = RebuildPlan.of(sourceTable, targetTable);
+                blocker = plan == null ? "表名过长或没有共有字段" : null;
+            }
+        }
+
+        if (plan == null) {
+            tableNames.add(tableName);
+            syncSchemaCostMap.put(tableName, alterNanos);
+            syncSchemaDecisionMap.put(tableName, costs + (blocker == null ? "" : "，但" + blocker) + "，选择 ALTER");
+            return;
+        }
+        tableNames.add(tableName);
+        rebuildPlanMap.put(tableName, plan);
+        syncSchemaCostMap.put(tableName, rebuildNanos);
+        syncSchemaDecisionMap.put(tableName, costs + "，选择重建复制，" + (plan.getChunkColumn() == null ? "整表一次复制"
+            : "按 `" + plan.getChunkColumn() + "` 每批 " + RebuildPlan.CHUNK_ROWS + " 行复制"));
+    }
+
+    /**
+     * 外键约束名在库内唯一且改名时引用会跟随旧表；触发器随改名留在旧表上，删除旧表时一并被删除。
+     * 这两类表不做重建复制
+     *
+     * @return 不能重建复制的原因，可以时返回 null
+     */
+    private String rebuildBlocker(Table sourceTable, Table targetTable) {
+        if (!sourceTable.getForeignKeys().isEmpty()) {
+            return "源表含有外键";
+        }
+        if (!targetTable.getForeignKeys().isEmpty()) {
+            return "表含有外键";
+        }
+        if (triggerTables == null) {
+            return "未读取表的触发器";
+        }
+        if (triggerTables.contains(targetTable.getName())) {
+            return "表含有触发器";
+        }
+        for (Table table : tableMap.values()) {
+            for (ForeignKey foreignKey : table.getForeignKeys()) {
+                if (foreignKey.getReferencedSchema() == null
+                    && foreignKey.getReferencedTable().equals(targetTable.getName())) {
+                    return "表被 `" + table.getName() + "` 的外键引用";
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 重新比对源表与目标表，生成该表的修改语句；选择了重建复制的表返回重建复制的语句
+     *
+     * @param tableName 要修改的表名
+     * @return 按执行顺序排列的 DDL
+     */
+    private List<String> syncSchemaDdl(String tableName) {
+        RebuildPlan plan = rebuildPlanMap.get(tableName);
+        if (plan != null) {
+            return plan.getDdlList();
+        }
+        return SchemaSync.generateTableDdl(syncSchemaSource.getTableByName(tableName), getTableByName(tableName),
+            serverVersion);
+    }
+
+    public void syncSchema(Database sourceDb, boolean recreateTableOnError) {
+        if (syncSchemaTableNames == null || syncSchemaTableNames.isEmpty()) {
+            return;
+        }
+
+        executeTask(connection -> {
+            Statement statement = connection.createStatement();
+            Log.COMMON.info("`{}` 修改 {} 张表，预计耗时 {}", dbName, syncSchemaTableNames.size(),
+                DdlCostEstimator.formatDuration(getEstimatedNanos()));
+            for (String tableName : scheduleSyncTables()) {
+                if (cancelled) {
+                    break;
+                }
+                syncTable(connection, statement, sourceDb, tableName, recreateTableOnError);
+            }
+            statement.close();
+        });
+    }
+
+    private void syncTable(Connection connection, Statement statement, Database sourceDb, String tableName,
+                           boolean recreateTableOnError) throws SQLException {
+        RebuildPlan plan = rebuildPlanMap.get(tableName);
+        boolean succeeded = plan != null ? executeRebuild(connection, statement, plan)
+            : executeDdlList(connection, statement, tableName, syncSchemaDdl(tableName));
+        if (succeeded) {
+            journalTable(connection, tableName);
+        } else if (cancelled) {
+            // 取消不是修改失败，剩余的 DDL 不再执行，也不重新创建表
+            Log.COMMON.info("`{}`.`{}` 同步已取消", dbName, tableName);
+        } else if (recreateTableOnError) {
+            Log.COMMON.info("`{}`.`{}` Recreate Table Start.", dbName, tableName);
+
+            Table sourceTable = sourceDb.getTableByName(tableName);
+            List<String> createDdlList = new ArrayList<>(2);
+            createDdlList.add(String.format("DROP TABLE IF EXISTS `%s`", tableName));
+            createDdlList.add(sourceTable.getCreateTable());
+
+            if (executeDdlList(connection, statement, tableName, createDdlList)) {
+                Log.COMMON.info("`{}`.`{}` Recreate Table Succeed.", dbName, tableName);
+                journalTable(connection, tableName);
+            }
+        }
+    }
+
+    /**
+     * 按外键依赖分组执行全部 DDL，代替 {@link #deleteAndAddTables()} 与 {@link #syncSchema(Database, boolean)}。
+     * 组内按拓扑顺序在同一个连接上执行，组之间最多 applyThreads 个连接并行，预计耗时长的组先开始
+     *
+     * @param sourceDb             源库
+     * @param recreateTableOnError 修改失败时是否重新创建表
+     */
+    public void applyByDependency(Database sourceDb, boolean recreateTableOnError) {
+        if (!checkConnectMetaData() || cancelled) {
+            return;
+        }
+        List<ForeignKeyGraph.Group> groups = dependencyGroups(sourceDb);
+        if (groups.isEmpty()) {
+            return;
+        }
+        groups.sort(Comparator.comparingLong(this::getGroupEstimatedNanos).reversed());
+        int threads = Math.min(applyThreads, groups.size());
+        Log.COMMON.info("`{}` 按外键依赖分为 {} 组，{} 个连接并行执行，外键检查{}", dbName, groups.size(), threads,
+            foreignKeyChecks ? "开启" : "关闭");
+
+        ThreadPoolExecutor executor = TableThreadPoolExecutor.make(dbName + "-Apply", threads, groups.size());
+        CountDownLatch countDownLatch = new CountDownLatch(groups.size());
+        for (ForeignKeyGraph.Group group : groups) {
+            executor.execute(() -> {
+                try {
+                    executeTask(connection -> applyGroup(connection, sourceDb, group, recreateTableOnError));
+                } finally {
+                    countDownLatch.countDown();
+                }
+            });
+        }
+        try {
+            countDownLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.COMMON.error("", e);
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return 要删除、创建、修改的表按外键依赖划分的分组
+     */
+    public List<ForeignKeyGraph.Group> dependencyGroups(Database sourceDb) {
+        LinkedHashMap<String, ForeignKeyGraph.Kind> units = new LinkedHashMap<>();
+        deleteTableNames.forEach(tableName -> units.put(tableName, ForeignKeyGraph.Kind.DROP));
+        addTablesDdlMap.keySet().forEach(tableName -> units.put(tableName, ForeignKeyGraph.Kind.CREATE));
+        scheduleSyncTables().forEach(tableName -> units.put(tableName, ForeignKeyGraph.Kind.ALTER));
+        return new ForeignKeyGraph(units, sourceDb, this).groups();
+    }
+
+    private long getGroupEstimatedNanos(ForeignKeyGraph.Group group) {
+        long nanos = 0;
+        for (String tableName : group.getTableNames()) {
+            nanos += getEstimatedNanos(tableName);
+        }
+        return nanos;
+    }
+
+    private void applyGroup(Connection connection, Database sourceDb, ForeignKeyGraph.Group group,
+                            boolean recreateTableOnError) throws SQLException {
+        Statement statement = connection.createStatement();
+        if (group.isCyclic() && foreignKeyChecks) {
+            // 只在该组所用的连接上关闭，其他组仍然开启
+            Log.COMMON.warn("`{}` 外键存在循环依赖，执行该组时关闭外键检查: {}", dbName, group);
+            statement.execute("SET FOREIGN_KEY_CHECKS = 0");
+        }
+        for (String tableName : group.getTableNames()) {
+            if (cancelled) {
+                break;
+            }
+            String ddl = deleteTableNames.contains(tableName) ? dropTableDdl(tableName)
+                : addTablesDdlMap.get(tableName);
+            if (ddl == null) {
+                syncTable(connection, statement, sourceDb, tableName, recreateTableOnError);
+            } else if (executeDdlList(connection, statement, tableName, Collections.singletonList(ddl))) {
+                journalTable(connection, tableName);
+            }
+        }
+        statement.close();
+    }
+
+    /**
+     * 在同一服务器的临时库中演练当前的 DDL 计划：先按目标库当前的表结构建出受影响的表及其外键两端的表的空表，
+     * 再按外键依赖分组用多个连接并行执行全部 DDL，外键检查与实际执行时一致。
+     * 空表上的 DDL 在数秒内即可完成，语法错误、类型不兼容、外键冲突等问题在真实的大表执行之前就能发现。
+     * 演练结束后删除临时库
+     *
+     * @param sourceDb             源库
+     * @param threads              并行演练的连接数
+     * @param recreateTableOnError 修改失败时是否重新创建表，此时只有重建也失败才算演练失败
+     * @return false 表示有语句演练失败，失败的语句已记入错误；无法建立临时库时跳过演练并返回 true
+     */
+    public boolean rehearse(Database sourceDb, int threads, boolean recreateTableOnError) {
+        if (!checkConnectMetaData() || cancelled) {
+            return true;
+        }
+        List<ForeignKeyGraph.Group> groups = dependencyGroups(sourceDb);
+        if (groups.isEmpty()) {
+            return true;
+        }
+        String scratch = String.format("_schema_sync_rehearsal_%016x", ThreadLocalRandom.current().nextLong());
+        long start = System.nanoTime();
+        try {
+            if (!createScratchSchema(scratch)) {
+                return true;
+            }
+            List<String> tableNames = rehearsalTableNames(sourceDb);
+            List<List<String>> chunks = new ArrayList<>();
+            for (int i = 0; i < tableNames.size(); i++) {
+                if (i < threads) {
+                    chunks.add(new ArrayList<>());
+                }
+                chunks.get(i % threads).add(tableNames.get(i));
+            }
+            List<String> copyErrors = Collections.synchronizedList(new ArrayList<>());
+            List<Runnable> copyTasks = new ArrayList<>(chunks.size());
+            for (List<String> chunk : chunks) {
+                copyTasks.add(() -> {
+                    try {
+                        executeInSchema(scratch, false, connection -> copyTables(connection, scratch, chunk));
+                    } catch (SQLException e) {
+                        copyErrors.add(e.getMessage() == null ? e.toString() : e.getMessage());
+                    }
+                });
+            }
+            executeInParallel(dbName + "-Rehearsal", threads, copyTasks);
+            if (!copyErrors.isEmpty() || cancelled) {
+                Log.COMMON.warn("`{}` 复制表结构到临时库失败，跳过演练: {}", dbName, copyErrors);
+                return true;
+            }
+
+            AtomicInteger failures = new AtomicInteger();
+            List<Runnable> groupTasks = new ArrayList<>(groups.size());
+            for (ForeignKeyGraph.Group group : groups) {
+                groupTasks.add(() -> {
+                    try {
+                        executeInSchema(scratch, foreignKeyChecks && !group.isCyclic(), connection ->
+                            failures.addAndGet(rehearseGroup(connection, sourceDb, group, recreateTableOnError)));
+                    } catch (SQLException e) {
+                        failures.incrementAndGet();
+                        stats.addFailures(1);
+                        addError("`" + dbName + "` 演练失败", e);
+                        Log.COMMON.error("`{}` Rehearsal Exception", dbName, e);
+                    }
+                });
+            }
+            executeInParallel(dbName + "-Rehearsal", threads, groupTasks);
+            Log.COMMON.info("`{}` 在临时库中演练 {} 组 DDL，{} 条失败，耗时 {}ms", dbName, groups.size(), failures.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return failures.get() == 0;
+        } finally {
+            dropScratchSchema(scratch);
+        }
+    }
+
+    /**
+     * @return 需要复制到临时库的目标表：要删除、修改的表，以及这些表与要创建的表通过外键关联的已有表
+     */
+    private List<String> rehearsalTableNames(Database sourceDb) {
+        Set<String> affected = new TreeSet<>(deleteTableNames);
+        affected.addAll(syncSchemaTableNames);
+        Set<String> tableNames = new TreeSet<>(affected);
+        List<Table> planned = new ArrayList<>();
+        for (String tableName : affected) {
+            planned.add(getTableByName(tableName));
+        }
+        for (String tableName : syncSchemaTableNames) {
+            planned.add(sourceDb.getTableByName(tableName));
+        }
+        for (String tableName : addTablesDdlMap.keySet()) {
+            planned.add(sourceDb.getTableByName(tableName));
+        }
+        for (Table table : planned) {
+            if (table == null) {
+                continue;
+            }
+            for (ForeignKey foreignKey : table.getForeignKeys()) {
+                if (foreignKey.getReferencedSchema() == null) {
+                    tableNames.add(foreignKey.getReferencedTable());
+                }
+            }
+        }
+        for (Table table : tableMap.values()) {
+            for (ForeignKey foreignKey : table.getForeignKeys()) {
+                if (foreignKey.getReferencedSchema() == null && affected.contains(foreignKey.getReferencedTable())) {
+                    tableNames.add(table.getName());
+                }
+            }
+        }
+        tableNames.retainAll(tableMap.keySet());
+        return new ArrayList<>(tableNames);
+    }
+
+    /**
+     * 临时库使用与目标库相同的默认字符集与排序规则，未指定字符集的建表语句与实际执行时一致
+     *
+     * @return 是否创建成功
+     */
+    private boolean createScratchSchema(String scratch) {
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("SELECT DEFAULT_CHARACTER_SET_NAME,"
+                 + " DEFAULT_COLLATION_NAME FROM information_schema.SCHEMATA WHERE SCHEMA_NAME = ?")) {
+            preparedStatement.setString(1, dbName);
+            String options = "";
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    options = " DEFAULT CHARACTER SET " + resultSet.getString(1) + " COLLATE " + resultSet.getString(2);
+                }
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE DATABASE `" + scratch + "`" + options);
+            }
+            return true;
+        } catch (SQLException e) {
+            Log.COMMON.warn("`{}` 无法创建临时库 `{}`，跳过演练: {}", dbName, scratch, e.getMessage());
+            return false;
+        }
+    }
+
+    private void dropScratchSchema(String scratch) {
+        try (Connection connection = getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS `" + scratch + "`");
+        } catch (SQLException e) {
+            Log.COMMON.error("`{}` 删除临时库 `{}` 失败，请手动删除: {}", dbName, scratch, e.getMessage());
+        }
+    }
+
+    /**
+     * 按目标库中当前的建表语句在临时库中建出空表
+     */
+    private void copyTables(Connection connection, String scratch, List<String> tableNames) throws SQLException {
+        Statement statement = connection.createStatement();
+        for (String tableName : tableNames) {
+            if (cancelled) {
+                break;
+            }
+            String createTable;
+            try (ResultSet resultSet = statement.executeQuery("SHOW CREATE TABLE `" + dbName + "`.`" + tableName
+                + "`")) {
+                if (!resultSet.next()) {
+                    continue;
+                }
+                createTable = resultSet.getString(2);
+            }
+            try {
+                statement.execute(createTable);
+            } catch (SQLException e) {
+                throw new SQLException("`" + scratch + "`.`" + tableName + "` " + e.getMessage(), e);
+            }
+        }
+        statement.close();
+    }
+
+    /**
+     * 在临时库中按顺序执行一组表的 DDL，某条失败后仍继续执行后续语句，与实际执行一致
+     *
+     * @return 失败的语句数
+     */
+    private int rehearseGroup(Connection connection, Database sourceDb, ForeignKeyGraph.Group group,
+                              boolean recreateTableOnError) throws SQLException {
+        Statement statement = connection.createStatement();
+        int failures = 0;
+        for (String tableName : group.getTableNames()) {
+            if (cancelled) {
+                break;
+            }
+            List<String> ddlList = deleteTableNames.contains(tableName)
+                ? Collections.singletonList(dropTableDdl(tableName))
+                : addTablesDdlMap.containsKey(tableName) ? Collections.singletonList(addTablesDdlMap.get(tableName))
+                : syncSchemaDdl(tableName);
+            Map<String, SQLException> tableFailures = rehearseDdlList(statement, ddlList);
+            if (!tableFailures.isEmpty() && recreateTableOnError && syncSchemaTableNames.contains(tableName)) {
+                Table sourceTable = sourceDb.getTableByName(tableName);
+                List<String> createDdlList = new ArrayList<>(2);
+                createDdlList.add(String.format("DROP TABLE IF EXISTS `%s`", tableName));
+                createDdlList.add(sourceTable.getCreateTable());
+                if (rehearseDdlList(statement, createDdlList).isEmpty()) {
+                    Log.COMMON.warn("`{}`.`{}` 演练中修改失败，执行时将重新创建该表: {}", dbName, tableName,
+                        tableFailures.keySet());
+                    continue;
+                }
+            }
+            for (Map.Entry<String, SQLException> failure : tableFailures.entrySet()) {
+                String error = failure.getValue().getMessage() == null ? failure.getValue().toString()
+                    : failure.getValue().getMessage();
+                addError("`" + dbName + "`.`" + tableName + "` 演练失败 " + failure.getKey(), failure.getValue());
+                Log.COMMON.error("`{}` Rehearsal Failed: {}. {}", dbName, failure.getKey(), error);
+            }
+            stats.addFailures(tableFailures.size());
+            failures += tableFailures.size();
+        }
+        statement.close();
+        return failures;
+    }
+
+    /**
+     * @return 失败的语句及其异常
+     */
+    private Map<String, SQLException> rehearseDdlList(Statement statement, List<String> ddlList) {
+        Map<String, SQLException> failures = new LinkedHashMap<>();
+        for (String ddl : ddlList) {
+            if (cancelled) {
+                break;
+            }
+            try {
+                statement.execute(ddl);
+            } catch (SQLException e) {
+                failures.put(ddl, e);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * 在指定库中执行任务，结束后恢复连接的当前库与外键检查
+     *
+     * @param schema           执行任务时的当前库
+     * @param foreignKeyChecks 执行任务时是否开启外键检查
+     */
+    private void executeInSchema(String schema, boolean foreignKeyChecks, Task task) throws SQLException {
+        try (Connection connection = getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("USE `" + schema + "`");
+            statement.execute("SET FOREIGN_KEY_CHECKS = " + (foreignKeyChecks ? 1 : 0));
+            try {
+                task.run(connection);
+            } finally {
+                // 连接可能来自调用方的连接池，归还前恢复会话状态
+                statement.execute("USE `" + dbName + "`");
+                statement.execute("SET FOREIGN_KEY_CHECKS = 1");
+            }
+        }
+    }
+
+    /**
+     * 用最多 threads 个线程执行全部任务，等待全部结束
+     */
+    private static void executeInParallel(String name, int threads, List<Runnable> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        ThreadPoolExecutor executor = TableThreadPoolExecutor.make(name, Math.min(threads, tasks.size()),
+            tasks.size());
+        CountDownLatch countDownLatch = new CountDownLatch(tasks.size());
+        for (Runnable task : tasks) {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    countDownLatch.countDown();
+                }
+            });
+        }
+        try {
+            countDownLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.COMMON.error("", e);
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * 预览按外键依赖的执行分组，只列出包含多张表的分组
+     *
+     * @param sourceDb 源库
+     */
+    public void displayDependencyPreview(Database sourceDb) {
+        List<ForeignKeyGraph.Group> groups = dependencyGroups(sourceDb);
+        for (ForeignKeyGraph.Group group : groups) {
+            if (group.getTableNames().size() > 1) {
+                Log.PREVIEW.info("-- 外键依赖: {}", group);
+            }
+        }
+        Log.PREVIEW.info("-- `{}` 按外键依赖分为 {} 组，{} 个连接并行执行", dbName, groups.size(),
+            Math.min(applyThreads, Math.max(1, groups.size())));
+    }
+
+    /**
+     * 显示预览
+     */
+    public void displayPreview() {
+        if (deleteTableNames != null) {
+            deleteTableNames.forEach(tableName -> {
+                String ddl = dropTableDdl(tableName);
+                Log.PREVIEW.info(ddl);
+                appendDdlOutput(ddl);
+            });
+        }
+        if (addTablesDdlMap != null) {
+            addTablesDdlMap.forEach((k, v) -> {
+                Log.PREVIEW.info(v);
+                appendDdlOutput(v);
+            });
+        }
+        if (syncSchemaTableNames != null) {
+            for (String tableName : scheduleSyncTables()) {
+                List<String> ddlList = syncSchemaDdl(tableName);
+                Log.PREVIEW.info("-- `{}` {}", tableName, syncSchemaDecisionMap.get(tableName));
+                Log.PREVIEW.info(ddlList.toString());
+                ddlList.forEach(this::appendDdlOutput);
+            }
+        }
+        Log.PREVIEW.info("-- `{}` 预计总耗时 {}", dbName, DdlCostEstimator.formatDuration(getEstimatedNanos()));
+    }
+
+    /**
+     * 打开 DDL 输出文件，之后预览或执行的每条 DDL 按顺序流式写入
+     */
+    public void openDdlOutput() {
+        if (outputDdlFilepath == null || ddlFileWriter != null) {
+            return;
+        }
+        try {
+            ddlFileWriter = DdlFileWriter.open(outputDdlFilepath);
+        } catch (IOException e) {
+            Log.COMMON.error("`{}` 生成DDL输出文件失败.\n{}", dbName, e);
+        }
+    }
+
+    private void appendDdlOutput(String ddl) {
+        if (ddlFileWriter == null) {
+            return;
+        }
+        try {
+            ddlFileWriter.write(ddl);
+        } catch (IOException e) {
+            Log.COMMON.error("`{}` 生成DDL输出文件失败.\n{}", dbName, e);
+            closeQuietly();
+        }
+    }
 
-                key.delete(0, key.length());
-                value.delete(0, value.length());
-                skip = true;
-                continue;
+    private void closeQuietly() {
+        try {
+            ddlFileWriter.close();
+        } catch (IOException ignore) {
+
+        }
+        ddlFileWriter = null;
+    }
+
+    /**
+     * 结束 DDL 文件输出，写出剩余数据并 fsync
+     */
+    public void outputDdlFile() {
+        if (ddlFileWriter == null) {
+            return;
+        }
+        try {
+            ddlFileWriter.close();
+        } catch (IOException e) {
+            Log.COMMON.error("`{}` 生成DDL输出文件失败.\n{}", dbName, e);
+        }
+        ddlFileWriter = null;
+    }
+
+    /**
+     * 销毁属性
+     */
+    /**
+     * @return 连接在服务器上的 id，驱动不是 Connector/J 或无法解包时为 -1
+     */
+    private static long connectionId(Connection connection) {
+        try {
+            if (connection.isWrapperFor(MysqlConnection.class)) {
+                return connection.unwrap(MysqlConnection.class).getId();
             }
-            key.append(c);
+        } catch (SQLException | RuntimeException ignore) {
+            // 连接池等不支持解包
         }
+        return -1;
     }
 
-    private static void handleAttribute(Table table, StringBuilder key, StringBuilder value) {
-        if (key.indexOf("ENGINE") != -1) {
-            table.setEngine(value.toString());
-        } else if (key.indexOf("AUTO_INCREMENT") != -1) {
-            table.setAutoIncrement(value.toString());
-        } else if (key.indexOf("ROW_FORMAT") != -1) {
-            table.setRowFormat(value.toString());
-        } else if (key.indexOf("DEFAULT CHARSET") != -1 || key.indexOf("CHARACTER SET") != -1) {
-            table.setCharset(value.toString());
-        } else {
-            table.addAttribute(key.append("=").append(value).toString());
+    /**
+     * 连接所在的服务器 host:port 与连接 id
+     */
+    private static final class ServerSession {
+        private final String endpoint;
+        private final long id;
+
+        ServerSession(String endpoint, long id) {
+            this.endpoint = endpoint;
+            this.id = id;
+        }
+    }
+
+    /**
+     * 中止时发送过 KILL QUERY 的连接，保存连接信息，库的属性清除后仍能确认语句是否结束
+     */
+    private final class KilledSessions {
+        private final String dbName;
+        private final String username;
+        private final String password;
+        private final Map<String, List<Long>> ids = new LinkedHashMap<>();
+        private final boolean unknown;
+
+        KilledSessions(String dbName, String username, String password, List<ServerSession> sessions) {
+            this.dbName = dbName;
+            this.username = username;
+            this.password = password;
+            boolean unknown = false;
+            for (ServerSession session : sessions) {
+                if (session.id < 0) {
+                    unknown = true;
+                } else {
+                    ids.computeIfAbsent(session.endpoint, key -> new ArrayList<>()).add(session.id);
+                }
+            }
+            this.unknown = unknown;
+        }
+
+        /**
+         * 不经过连接许可，也不计入 openConnections，中止时不会被一并中止
+         */
+        Connection connect(String endpoint) throws SQLException {
+            return connectionProvider.getConnection(
+                String.format("jdbc:mysql://%s/%s?useUnicode=true", endpoint, dbName), username, password);
+        }
+
+        /**
+         * @return 仍在执行语句的连接 id
+         */
+        List<Long> running() throws SQLException {
+            List<Long> running = new ArrayList<>();
+            for (Map.Entry<String, List<Long>> entry : ids.entrySet()) {
+                StringBuilder sql = new StringBuilder(
+                    "SELECT ID FROM information_schema.PROCESSLIST WHERE COMMAND = 'Query' AND ID IN (");
+                for (int i = 0; i < entry.getValue().size(); i++) {
+                    sql.append(i == 0 ? "?" : ",?");
+                }
+                try (Connection connection = connect(entry.getKey());
+                     PreparedStatement statement = connection.prepareStatement(sql.append(')').toString())) {
+                    for (int i = 0; i < entry.getValue().size(); i++) {
+                        statement.setLong(i + 1, entry.getValue().get(i));
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            running.add(resultSet.getLong(1));
+                        }
+                    }
+                }
+            }
+            return running;
+        }
+    }
+
+    public void destroyAllAttributes() {
+        try {
+            dbName = null;
+            username = null;
+            password = null;
+            host = null;
+            port = null;
+            jdbcUrl = null;
+            tableMap.clear();
+            tableMap = null;
+        } catch (Exception ignore) {
+
+        }
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        /**
+         * 数据库任务执行
+         *
+         * @param connection JDBC 的 {@link Connection} 实例
+         * @throws SQLException JDBC 执行时抛出的 SQL 异常
+         */
+        void run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * 数据库任务执行，将事物提交与回滚等公共操作提取出来，只需传入要执行的 Task 即可
+     *
+     * @param task 要执行的数据库任务
+     */
+    private void executeTask(Task task) {
+        executeTask(false, task);
+    }
+
+    /**
+     * @param multiQueries 是否使用允许多语句包的连接
+     * @param task         要执行的数据库任务
+     */
+    private void executeTask(boolean multiQueries, Task task) {
+        if (!checkConnectMetaData() || cancelled) {
+            return;
+        }
+        Connection connection = null;
+        try {
+            connection = getConnection(multiQueries);
+            connection.setAutoCommit(false);
+            connection.prepareStatement("SET FOREIGN_KEY_CHECKS = " + (foreignKeyChecks ? 1 : 0)).execute();
+            task.run(connection);
+            connection.commit();
+        } catch (SQLException e) {
+            stats.addFailures(1);
+            addError("`" + dbName + "` 执行任务失败", e);
+            Log.COMMON.error("Execute Task Exception", e);
+            if (connection != null) {
+                try {
+                    connection.rollback();
+                } catch (SQLException ex) {
+                    Log.COMMON.error("Rollback Exception", ex);
+                }
+            }
+        } finally {
+            if (connection != null) {
+                // 连接可能来自调用方的连接池，归还前恢复会话状态
+                try {
+                    connection.prepareStatement("SET FOREIGN_KEY_CHECKS = 1").execute();
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    Log.COMMON.error("Connection Reset Exception", e);
+                }
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    Log.COMMON.error("Connection Close Exception", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 逐条执行同一张表的 DDL 并记录每条语句的耗时。
+     * 某条语句失败后仍继续执行后续语句，与 Connector/J 的 executeBatch 行为保持一致
+     *
+     * @param connection JDBC 连接
+     * @param statement  执行用的 Statement
+     * @param tableName  DDL 所属表名
+     * @param ddlList    要执行的 DDL 语句
+     * @return true-全部执行成功；false-存在失败的语句
+     * @throws SQLException JDBC 执行异常
+     */
+    private boolean executeDdlList(Connection connection, Statement statement, String tableName,
+                                   List<String> ddlList) throws SQLException {
+        Table table = getTableByName(tableName);
+        long dataLength = table == null ? 0 : table.getDataLength();
+        long tableRows = table == null ? 0 : table.getTableRows();
+        String[] errors = new String[ddlList.size()];
+        boolean allSucceeded = true;
+        for (int i = 0, size = ddlList.size(); i < size; i++) {
+            if (cancelled) {
+                return false;
+            }
+            String ddl = ddlList.get(i);
+            appendDdlOutput(ddl);
+            FlightRecorder.Span span = FlightRecorder.executeDdl(dbName, tableName, ddl);
+            long start = 0;
+            long duration = 0;
+            try {
+                acquireDdlPermit();
+                start = System.nanoTime();
+                try {
+                    statement.execute(ddl);
+                } finally {
+                    duration = System.nanoTime() - start;
+                    releaseDdlPermit();
+                }
+                stats.addStatementsExecuted(1);
+                span.success(true);
+                if (journal != null) {
+                    journal.statement(getJournalKey(), tableName, ddl);
+                }
+            } catch (SQLException e) {
+                errors[i] = e.getMessage() == null ? e.toString() : e.getMessage();
+                addError("`" + dbName + "`.`" + tableName + "` " + ddl, e);
+                allSucceeded = false;
+                stats.addFailures(1);
+            }
+            span.commit();
+            ddlExecutions.add(new DdlExecution(stats.getName(), stats.getEndpoint(), tableName, ddl, duration,
+                errors[i], dataLength, tableRows));
+        }
+        if (!allSucceeded) {
+            handleExecuteFailure(connection, ddlList, errors);
+        }
+        return allSucceeded;
+    }
+
+    /**
+     * 等待服务器的 DDL 许可，等待时间单独计入统计，不计入语句的耗时。成功后须调用 {@link #releaseDdlPermit()}
+     */
+    private void acquireDdlPermit() throws SQLException {
+        if (admission == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            if (!admission.acquireDdl(getEndpoint(), this::isCancelled)) {
+                throw new SQLException("`" + dbName + "` 等待 DDL 许可时被中止");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("`" + dbName + "` 等待 DDL 许可时被中断", e);
+        } finally {
+            stats.addDdlPermitWaitNanos(System.nanoTime() - start);
+        }
+    }
+
+    private void releaseDdlPermit() {
+        if (admission != null) {
+            admission.releaseDdl(getEndpoint());
+        }
+    }
+
+    /**
+     * 将建删表语句按多语句包发送，每个包只有一次网络往返。
+     * MySQL 在包内某条语句失败时停止执行后续语句，失败的语句记为失败，其后的语句放入下一个包重新发送
+     *
+     * @param connection 允许多语句包的 JDBC 连接
+     * @param tableNames 与 ddlList 一一对应的表名
+     * @param ddlList    DROP TABLE 或 CREATE TABLE 语句
+     * @throws SQLException JDBC 执行异常
+     */
+    private void executePipelined(Connection connection, List<String> tableNames, List<String> ddlList)
+        throws SQLException {
+        Statement statement = connection.createStatement();
+        int from = 0;
+        while (from < ddlList.size() && !cancelled) {
+            int to = from;
+            int bytes = 0;
+            while (to < ddlList.size() && to - from < PIPELINE_STATEMENTS
+                && (to == from || bytes + ddlList.get(to).length() < PIPELINE_BYTES)) {
+                bytes += ddlList.get(to).length() + 1;
+                to++;
+            }
+            from += executePacket(connection, statement, tableNames.subList(from, to), ddlList.subList(from, to));
+        }
+        statement.close();
+    }
+
+    /**
+     * 发送一个多语句包，每条语句之前先将其序号写入会话变量 {@value #PIPELINE_STEP}。
+     * MySQL 在包内某条语句失败时停止执行后续语句，失败后查询该变量即得到失败的是第几条，
+     * 不依赖驱动是否逐个返回结果（Connector/J 在 execute 中就读取全部结果，任一语句失败都由 execute 抛出）。
+     * 包内各语句的耗时无法分别测量，整个包作为一条执行记录计入慢 DDL 报告；JFR 事件按取到各结果的时间逐条提交
+     *
+     * @return 已处理的语句数，包括失败的那一条
+     */
+    private int executePacket(Connection connection, Statement statement, List<String> tableNames,
+                              List<String> ddlList) throws SQLException {
+        int size = ddlList.size();
+        StringBuilder packet = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            packet.append(i == 0 ? "" : ";\n").append("SET ").append(PIPELINE_STEP).append(" = ").append(i)
+                  .append(";\n").append(ddlList.get(i));
+        }
+        FlightRecorder.Span[] spans = new FlightRecorder.Span[size];
+        spans[0] = FlightRecorder.executeDdl(dbName, tableNames.get(0), ddlList.get(0));
+        // 已取到结果的语句数，每条语句之前还有一条 SET 的结果
+        int results = 0;
+        long duration = 0;
+        SQLException failure = null;
+        boolean sent = false;
+        try {
+            acquireDdlPermit();
+            sent = true;
+        } catch (SQLException e) {
+            failure = e;
+        }
+        if (sent) {
+            // 包内后续语句在取结果时才执行完，取完全部结果后才释放许可
+            long start = System.nanoTime();
+            try {
+                statement.execute(packet.toString());
+                int resultSets = 0;
+                do {
+                    if (++resultSets % 2 == 0) {
+                        spans[results].success(true).commit();
+                        results++;
+                        if (results < size) {
+                            spans[results] = FlightRecorder.executeDdl(dbName, tableNames.get(results),
+                                ddlList.get(results));
+                        }
+                    }
+                } while (results < size && (statement.getMoreResults() || statement.getUpdateCount() != -1));
+                if (results < size) {
+                    failure = new SQLException("多语句包只返回了 " + results + "/" + size + " 条语句的结果");
+                }
+            } catch (SQLException e) {
+                failure = e;
+            } finally {
+                duration = System.nanoTime() - start;
+                releaseDdlPermit();
+            }
+        }
+        int succeeded = size;
+        int processed = size;
+        String error = null;
+        if (failure != null) {
+            error = failure.getMessage() == null ? failure.toString() : failure.getMessage();
+            int step = sent ? failedStep(statement) : -1;
+            if (!sent) {
+                // 未取得许可，包没有发送，全部语句记为失败
+                succeeded = 0;
+            } else if (step >= results && step < size) {
+                succeeded = step;
+                processed = step + 1;
+            } else {
+                // 无法得知失败的是第几条，已取到结果之后的语句都记为失败
+                succeeded = results;
+                error = "多语句包在第 " + (results + 1) + " 条及之后的语句中失败，无法确定各语句是否生效: " + error;
+            }
+        }
+
+        long dataLength = 0;
+        long tableRows = 0;
+        for (int i = 0; i < processed; i++) {
+            String tableName = tableNames.get(i);
+            String ddl = ddlList.get(i);
+            Table table = getTableByName(tableName);
+            if (table != null) {
+                dataLength += table.getDataLength();
+                tableRows += table.getTableRows();
+            }
+            appendDdlOutput(ddl);
+            if (i >= results) {
+                FlightRecorder.Span span = spans[i] != null ? spans[i]
+                    : FlightRecorder.executeDdl(dbName, tableName, ddl);
+                span.success(i < succeeded).commit();
+            }
+            if (i < succeeded) {
+                stats.addStatementsExecuted(1);
+                if (journal != null) {
+                    journal.statement(getJournalKey(), tableName, ddl);
+                }
+            } else {
+                stats.addFailures(1);
+                addError("`" + dbName + "`.`" + tableName + "` " + ddl, failure);
+                Log.COMMON.error("`{}` Execute Failed: {}. {}", dbName, ddl, error);
+            }
+        }
+        ddlExecutions.add(new DdlExecution(stats.getName(), stats.getEndpoint(),
+            String.join("`,`", tableNames.subList(0, processed)), String.join("; ", ddlList.subList(0, processed)),
+            duration, error, dataLength, tableRows));
+        stats.addRoundTripsSaved(processed - 1);
+        journalTables(connection, tableNames.subList(0, succeeded));
+        return processed;
+    }
+
+    /**
+     * @return 多语句包失败时正在执行的语句序号，连接已不可用等无法查询时为 -1
+     */
+    private int failedStep(Statement statement) {
+        try (ResultSet resultSet = statement.executeQuery("SELECT " + PIPELINE_STEP)) {
+            if (resultSet.next()) {
+                long step = resultSet.getLong(1);
+                return resultSet.wasNull() ? -1 : (int) step;
+            }
+        } catch (SQLException e) {
+            Log.COMMON.warn("`{}` 查询多语句包失败的位置失败: {}", dbName, e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * 执行重建复制。改名替换之前失败或被取消时原表未受影响，返回失败，新表总会被删除；
+     * 只有删除旧表失败时原表已被替换，此时保留旧表并视为成功
+     *
+     * @param connection JDBC 连接
+     * @param statement  执行用的 Statement
+     * @param plan       重建复制方案
+     * @return 是否成功
+     * @throws SQLException JDBC 执行异常
+     */
+    private boolean executeRebuild(Connection connection, Statement statement, RebuildPlan plan)
+        throws SQLException {
+        String tableName = plan.getTableName();
+        Log.COMMON.info("`{}`.`{}` Rebuild Table Start.", dbName, tableName);
+        // 改名替换之后新表已成为原表
+        boolean swapped = false;
+        try {
+            for (String ddl : plan.getDdlList()) {
+                boolean succeeded = ddl.equals(plan.getCopySql()) ? executeCopy(connection, statement, plan)
+                    : executeDdlList(connection, statement, tableName, Collections.singletonList(ddl));
+                if (succeeded) {
+                    swapped |= ddl.equals(plan.getSwapSql());
+                    continue;
+                }
+                if (ddl.equals(plan.getDropSql())) {
+                    Log.COMMON.error("`{}`.`{}` 已替换为新表，旧表{}，请手动删除", dbName, tableName,
+                        cancelled ? "因同步取消未删除" : "删除失败");
+                    return true;
+                }
+                return false;
+            }
+        } finally {
+            if (!swapped) {
+                dropShadowTable(statement, plan);
+            }
+        }
+        Log.COMMON.info("`{}`.`{}` Rebuild Table Succeed.", dbName, tableName);
+        return true;
+    }
+
+    /**
+     * 删除重建复制未完成时留下的新表。取消后同样执行，不受取消标记影响
+     */
+    private void dropShadowTable(Statement statement, RebuildPlan plan) {
+        String cleanupSql = plan.getCleanupSql();
+        try {
+            statement.execute(cleanupSql);
+        } catch (SQLException e) {
+            addError("`" + dbName + "`.`" + plan.getTableName() + "` " + cleanupSql, e);
+            Log.COMMON.error("`{}` 删除新表失败，请手动执行: {}. {}", dbName, cleanupSql,
+                e.getMessage() == null ? e.toString() : e.getMessage());
+        }
+    }
+
+    /**
+     * 将原表数据复制到新表。有单列主键时按主键顺序分批复制，每批单独提交，避免长事务
+     *
+     * @return 是否成功
+     */
+    private boolean executeCopy(Connection connection, Statement statement, RebuildPlan plan)
+        throws SQLException {
+        String tableName = plan.getTableName();
+        String copySql = plan.getCopySql();
+        Table table = getTableByName(tableName);
+        appendDdlOutput(copySql);
+        FlightRecorder.Span span = FlightRecorder.executeDdl(dbName, tableName, copySql);
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            long rows = plan.getChunkColumn() == null ? statement.executeUpdate(copySql)
+                : copyInChunks(connection, plan);
+            connection.commit();
+            stats.addStatementsExecuted(1);
+            span.success(true);
+            if (journal != null) {
+                journal.statement(getJournalKey(), tableName, copySql);
+            }
+            Log.COMMON.info("`{}`.`{}` 复制 {} 行", dbName, tableName, rows);
+        } catch (SQLException e) {
+            error = e.getMessage() == null ? e.toString() : e.getMessage();
+            if (cancelled) {
+                Log.COMMON.info("`{}`.`{}` 同步已取消，停止复制", dbName, tableName);
+            } else {
+                addError("`" + dbName + "`.`" + tableName + "` " + copySql, e);
+                stats.addFailures(1);
+                Log.COMMON.error("`{}` Execute Failed: {}. {}", dbName, copySql, error);
+            }
+            connection.rollback();
+        }
+        long duration = System.nanoTime() - start;
+        span.commit();
+        ddlExecutions.add(new DdlExecution(stats.getName(), stats.getEndpoint(), tableName, copySql, duration, error,
+            table == null ? 0 : table.getDataLength(), table == null ? 0 : table.getTableRows()));
+        return error == null;
+    }
+
+    /**
+     * 按主键分批：先查出本批最后一行的主键值，再复制上一批之后到该值为止的行
+     *
+     * @return 复制的行数
+     */
+    private long copyInChunks(Connection connection, RebuildPlan plan) throws SQLException {
+        String column = "`" + plan.getChunkColumn() + "`";
+        String from = " FROM `" + plan.getTableName() + "`";
+        String order = " ORDER BY " + column + " LIMIT 1 OFFSET " + (RebuildPlan.CHUNK_ROWS - 1);
+        long rows = 0;
+        Object lower = null;
+        while (true) {
+            if (cancelled) {
+                throw new SQLException("同步已取消");
+            }
+            Object upper;
+            try (PreparedStatement bound = connection.prepareStatement("SELECT " + column + from
+                + (lower == null ? "" : " WHERE " + column + " > ?") + order)) {
+                if (lower != null) {
+                    bound.setObject(1, lower);
+                }
+                try (ResultSet resultSet = bound.executeQuery()) {
+                    upper = resultSet.next() ? resultSet.getObject(1) : null;
+                }
+            }
+
+            List<String> conditions = new ArrayList<>(2);
+            if (lower != null) {
+                conditions.add(column + " > ?");
+            }
+            if (upper != null) {
+                conditions.add(column + " <= ?");
+            }
+            String copySql = plan.getCopySql()
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions));
+            try (PreparedStatement copy = connection.prepareStatement(copySql)) {
+                int parameter = 1;
+                if (lower != null) {
+                    copy.setObject(parameter++, lower);
+                }
+                if (upper != null) {
+                    copy.setObject(parameter, upper);
+                }
+                rows += copy.executeUpdate();
+            }
+            connection.commit();
+            if (upper == null) {
+                return rows;
+            }
+            lower = upper;
+        }
+    }
+
+    /**
+     * 处理 DDL 执行失败，逐条输出执行结果
+     *
+     * @param connection JDBC 连接
+     * @param ddlList    执行的 DDL 语句
+     * @param errors     与 ddlList 一一对应的错误信息，null 表示执行成功
+     * @throws SQLException JDBC 执行异常
+     */
+    private void handleExecuteFailure(Connection connection, List<String> ddlList, String[] errors)
+        throws SQLException {
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] != null) {
+                Log.COMMON.error("`{}` Execute Failed: {}. {}", dbName, ddlList.get(i), errors[i]);
+            } else {
+                Log.COMMON.error("`{}` Execute Succeed: {}.", dbName, ddlList.get(i));
+            }
         }
+        connection.rollback();
     }
 }
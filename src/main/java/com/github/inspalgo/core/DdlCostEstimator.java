@@ -0,0 +1,334 @@
+package com.github.inspalgo.core;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按语句类型、InnoDB Online DDL 算法与表的数据量估算 DDL 的执行耗时，用于安排执行顺序与预览
+ * <p>
+ * 吞吐量为 SSD 上 InnoDB 的经验值，只用于比较语句之间的相对快慢，不作为精确的耗时承诺
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 17:10 UTC+08:00
+ */
+public class DdlCostEstimator {
+    /**
+     * 只修改数据字典的语句：取元数据锁与更新数据字典的固定开销
+     */
+    private static final long METADATA_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    /**
+     * 建表、删表的固定开销
+     */
+    private static final long TABLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    /**
+     * 原地建二级索引：扫描聚簇索引并排序
+     */
+    private static final long INDEX_BUILD_BYTES_PER_SECOND = 80L << 20;
+    /**
+     * 原地重建表
+     */
+    private static final long INPLACE_REBUILD_BYTES_PER_SECOND = 40L << 20;
+    /**
+     * 复制表：逐行复制并重建全部索引，期间阻塞写入
+     */
+    private static final long COPY_BYTES_PER_SECOND = 20L << 20;
+
+    /**
+     * MySQL 8.0.29 起任意位置增删字段都支持 INSTANT
+     */
+    private static final int INSTANT_ADD_DROP_COLUMN_VERSION = 80029;
+
+    private final int serverVersion;
+
+    public enum Algorithm {
+        /**
+         * 只修改数据字典
+         */
+        INSTANT,
+        /**
+         * 原地执行，不阻塞读写
+         */
+        INPLACE,
+        /**
+         * 复制整张表
+         */
+        COPY,
+        /**
+         * 建表、删表等非 ALTER 语句
+         */
+        NONE,
+    }
+
+    public static class Estimate {
+        private final Algorithm algorithm;
+        private final boolean rebuild;
+        private final long nanos;
+
+        Estimate(Algorithm algorithm, boolean rebuild, long nanos) {
+            this.algorithm = algorithm;
+            this.rebuild = rebuild;
+            this.nanos = nanos;
+        }
+
+        public Algorithm getAlgorithm() {
+            return algorithm;
+        }
+
+        /**
+         * @return 是否需要重建表
+         */
+        public boolean isRebuild() {
+            return rebuild;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return algorithm + (rebuild ? " rebuild " : " ") + formatDuration(nanos);
+        }
+    }
+
+    /**
+     * @param serverVersion 目标库版本，形如 80033，未知时为 0
+     */
+    public DdlCostEstimator(int serverVersion) {
+        this.serverVersion = serverVersion;
+    }
+
+    /**
+     * 估算单张表一组 DDL 的总耗时
+     *
+     * @param table   执行前的目标表，不存在时为 null
+     * @param ddlList DDL 语句
+     * @return 预计耗时
+     */
+    public long estimateNanos(Table table, List<String> ddlList) {
+        long nanos = 0;
+        for (String ddl : ddlList) {
+            nanos += estimate(table, ddl).getNanos();
+        }
+        return nanos;
+    }
+
+    /**
+     * 估算以重建复制代替 ALTER 的耗时：建新表、逐行复制数据并维护全部索引、改名替换与删除旧表
+     *
+     * @param table 执行前的目标表
+     * @return 预计耗时
+     */
+    public long estimateRebuildNanos(Table table) {
+        long bytes = table == null ? 0 : table.getDataLength() + table.getIndexLength();
+        return 2 * TABLE_NANOS + METADATA_NANOS + transferNanos(bytes, COPY_BYTES_PER_SECOND);
+    }
+
+    /**
+     * 估算单条 DDL 的算法与耗时
+     *
+     * @param table 执行前的目标表，不存在时为 null
+     * @param ddl   DDL 语句
+     * @return 估算结果
+     */
+    public Estimate estimate(Table table, String ddl) {
+        String statement = ddl.trim();
+        String upper = statement.toUpperCase(Locale.ROOT);
+        if (!upper.startsWith("ALTER TABLE")) {
+            return new Estimate(Algorithm.NONE, false, TABLE_NANOS);
+        }
+        long bytes = table == null ? 0 : table.getDataLength() + table.getIndexLength();
+        long dataBytes = table == null ? 0 : table.getDataLength();
+
+        Algorithm algorithm;
+        boolean rebuild;
+        String clause = upper.substring(upper.indexOf('`', upper.indexOf('`') + 1) + 1).trim();
+        if (clause.startsWith("CONVERT TO CHARACTER SET")) {
+            algorithm = Algorithm.COPY;
+            rebuild = true;
+        } else if (clause.startsWith("ADD COLUMN") || clause.startsWith("DROP COLUMN")) {
+            boolean instant = serverVersion >= INSTANT_ADD_DROP_COLUMN_VERSION;
+            algorithm = instant ? Algorithm.INSTANT : Algorithm.INPLACE;
+            rebuild = !instant;
+        } else if (clause.startsWith("MODIFY COLUMN")) {
+            String definition = statement.substring(upper.indexOf("MODIFY COLUMN") + "MODIFY COLUMN".length());
+            return estimateModifyColumn(table, definition.trim(), bytes, upper);
+        } else if (clause.startsWith("DROP PRIMARY KEY")) {
+            // 只删除主键需要复制表，同时添加新主键可以原地重建
+            boolean addPrimary = clause.contains("ADD PRIMARY KEY");
+            algorithm = addPrimary ? Algorithm.INPLACE : Algorithm.COPY;
+            rebuild = true;
+        } else if (clause.startsWith("ADD PRIMARY KEY")) {
+            algorithm = Algorithm.INPLACE;
+            rebuild = true;
+        } else if (clause.startsWith("ADD CONSTRAINT") && clause.contains("FOREIGN KEY")) {
+            // FOREIGN_KEY_CHECKS=0 时原地添加且不校验已有数据，开启检查时需要复制表
+            return withAlgorithmClause(upper, new Estimate(Algorithm.INPLACE, false, METADATA_NANOS), bytes);
+        } else if (clause.startsWith("ADD FULLTEXT") || clause.startsWith("ADD SPATIAL")) {
+            algorithm = Algorithm.INPLACE;
+            rebuild = true;
+        } else if (clause.startsWith("ADD ")) {
+            // 添加二级索引不重建表，但需要扫描整张表
+            return withAlgorithmClause(upper, new Estimate(Algorithm.INPLACE, false,
+                METADATA_NANOS + transferNanos(dataBytes, INDEX_BUILD_BYTES_PER_SECOND)), bytes);
+        } else if (clause.startsWith("DROP KEY") || clause.startsWith("DROP INDEX")
+            || clause.startsWith("DROP FOREIGN KEY") || clause.startsWith("RENAME")) {
+            algorithm = Algorithm.INPLACE;
+            rebuild = false;
+        } else if (clause.contains("ENGINE=")) {
+            algorithm = Algorithm.COPY;
+            rebuild = true;
+        } else if (clause.contains("ROW_FORMAT=") || clause.contains("KEY_BLOCK_SIZE=")
+            || clause.contains("COLLATE=")) {
+            algorithm = Algorithm.INPLACE;
+            rebuild = true;
+        } else {
+            // COMMENT=、AUTO_INCREMENT= 等表属性
+            algorithm = Algorithm.INSTANT;
+            rebuild = false;
+        }
+        return withAlgorithmClause(upper, new Estimate(algorithm, rebuild, cost(algorithm, rebuild, bytes)), bytes);
+    }
+
+    /**
+     * 比较修改前后的字段定义：类型变化需要复制表，可空性或位置变化需要原地重建，
+     * 只改默认值或注释时只修改数据字典
+     */
+    private Estimate estimateModifyColumn(Table table, String definition, long bytes, String upper) {
+        String upperDefinition = definition.toUpperCase(Locale.ROOT);
+        int position = upperDefinition.lastIndexOf(" AFTER `");
+        if (position == -1 && upperDefinition.endsWith(" FIRST")) {
+            position = definition.length() - 6;
+        }
+        String columnDdl = position == -1 ? definition : definition.substring(0, position).trim();
+        String columnName = columnDdl.substring(1, Math.max(1, columnDdl.indexOf('`', 1)));
+        Column current = table == null ? null : table.getColumnByName(columnName);
+        Column wanted = new Column(columnName, columnDdl);
+
+        Algorithm algorithm;
+        boolean rebuild;
+        if (current == null || current.getDataType() == null) {
+            algorithm = Algorithm.COPY;
+            rebuild = true;
+        } else if (!wanted.getDataType().equals(current.getDataType()) || wanted.isUnsigned() != current.isUnsigned()
+            || !Objects.equals(wanted.getCharset(), current.getCharset())) {
+            algorithm = Algorithm.COPY;
+            rebuild = true;
+        } else if (!Objects.equals(wanted.getLength(), current.getLength())) {
+            // 加长 varchar 且长度字节数不变时可原地完成，其余长度变化需要复制表
+            boolean varcharGrowth = "varchar".equals(wanted.getDataType()) && lengthOf(wanted) >= lengthOf(current)
+                && (lengthOf(wanted) * 4 < 256) == (lengthOf(current) * 4 < 256);
+            algorithm = varcharGrowth ? Algorithm.INPLACE : Algorithm.COPY;
+            rebuild = !varcharGrowth;
+        } else if (wanted.isNullable() != current.isNullable() || moved(table, current, definition, position)) {
+            algorithm = Algorithm.INPLACE;
+            rebuild = true;
+        } else {
+            algorithm = Algorithm.INSTANT;
+            rebuild = false;
+        }
+        return withAlgorithmClause(upper, new Estimate(algorithm, rebuild, cost(algorithm, rebuild, bytes)), bytes);
+    }
+
+    /**
+     * @return FIRST / AFTER 指定的位置是否与字段当前位置不同
+     */
+    private static boolean moved(Table table, Column current, String definition, int position) {
+        if (position == -1) {
+            return false;
+        }
+        List<String> columnNames = table.getAllColumnNames();
+        int index = columnNames.indexOf(current.getColumnName());
+        String clause = definition.substring(position).trim();
+        if (clause.toUpperCase(Locale.ROOT).startsWith("FIRST")) {
+            return index != 0;
+        }
+        String after = clause.substring(clause.indexOf('`') + 1, clause.lastIndexOf('`'));
+        return index <= 0 || !columnNames.get(index - 1).equals(after);
+    }
+
+    private static int lengthOf(Column column) {
+        try {
+            return Integer.parseInt(column.getLength());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 语句中显式指定了 ALGORITHM 时以其为准
+     */
+    private static Estimate withAlgorithmClause(String upper, Estimate estimate, long bytes) {
+        int index = upper.indexOf("ALGORITHM");
+        if (index == -1) {
+            return estimate;
+        }
+        String rest = upper.substring(index + 9).replace(" ", "").replace("=", "");
+        Algorithm algorithm = estimate.getAlgorithm();
+        if (rest.startsWith("COPY")) {
+            algorithm = Algorithm.COPY;
+        } else if (rest.startsWith("INSTANT")) {
+            algorithm = Algorithm.INSTANT;
+        } else if (rest.startsWith("INPLACE") && algorithm == Algorithm.INSTANT) {
+            algorithm = Algorithm.INPLACE;
+        }
+        if (algorithm == estimate.getAlgorithm()) {
+            return estimate;
+        }
+        boolean rebuild = algorithm == Algorithm.COPY || estimate.isRebuild();
+        return new Estimate(algorithm, rebuild, cost(algorithm, rebuild, bytes));
+    }
+
+    private static long cost(Algorithm algorithm, boolean rebuild, long bytes) {
+        switch (algorithm) {
+            case COPY:
+                return METADATA_NANOS + transferNanos(bytes, COPY_BYTES_PER_SECOND);
+            case INPLACE:
+                return METADATA_NANOS + (rebuild ? transferNanos(bytes, INPLACE_REBUILD_BYTES_PER_SECOND) : 0);
+            case NONE:
+                return TABLE_NANOS;
+            default:
+                return METADATA_NANOS;
+        }
+    }
+
+    private static long transferNanos(long bytes, long bytesPerSecond) {
+        return (long) (bytes / (double) bytesPerSecond * 1e9);
+    }
+
+    /**
+     * @param serverVersion SELECT VERSION() 的结果，如 8.0.33-log
+     * @return 形如 80033 的版本号，无法解析时为 0
+     */
+    public static int parseServerVersion(String serverVersion) {
+        if (serverVersion == null) {
+            return 0;
+        }
+        String[] parts = serverVersion.split("[^0-9]+", 4);
+        try {
+            return Integer.parseInt(parts[0]) * 10000 + Integer.parseInt(parts[1]) * 100 + Integer.parseInt(parts[2]);
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return 便于阅读的耗时，如 350ms、12.3s、1h05m
+     */
+    public static String formatDuration(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (millis < 1000) {
+            return millis + "ms";
+        }
+        if (millis < 60_000) {
+            return String.format(Locale.ROOT, "%.1fs", millis / 1000.0);
+        }
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(millis);
+        if (minutes < 60) {
+            return String.format(Locale.ROOT, "%dm%02ds", minutes, TimeUnit.MILLISECONDS.toSeconds(millis) % 60);
+        }
+        return String.format(Locale.ROOT, "%dh%02dm", minutes / 60, minutes % 60);
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.inspalgo.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单条 DDL 或一个多语句包的执行记录，附带执行前目标表的数据量，用于慢 DDL 报告。
+ * 多语句包内各语句的耗时无法分别测量，表名与语句按包内顺序拼接
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 12:30 UTC+08:00
+ */
+public class DdlExecution {
+    private final String database;
+    private final String endpoint;
+    private final String table;
+    private final String ddl;
+    private final long durationNanos;
+    private final boolean success;
+    private final String error;
+    private final long dataLength;
+    private final long tableRows;
+
+    public DdlExecution(String database, String endpoint, String table, String ddl, long durationNanos,
+                        String error, long dataLength, long tableRows) {
+        this.database = database;
+        this.endpoint = endpoint;
+        this.table = table;
+        this.ddl = ddl;
+        this.durationNanos = durationNanos;
+        this.success = error == null;
+        this.error = error;
+        this.dataLength = dataLength;
+        this.tableRows = tableRows;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getDdl() {
+        return ddl;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public long getDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getDataLength() {
+        return dataLength;
+    }
+
+    public long getTableRows() {
+        return tableRows;
+    }
+
+    /**
+     * 按执行前表数据量估算的重建吞吐，耗时为 0 时返回 0
+     *
+     * @return 每秒重建字节数
+     */
+    public long getBytesPerSecond() {
+        if (durationNanos <= 0) {
+            return 0;
+        }
+        return (long) (dataLength / (durationNanos / 1e9));
+    }
+
+    @Override
+    public String toString() {
+        return "DdlExecution{" +
+            "database='" + database + '\'' +
+            ", table='" + table + '\'' +
+            ", durationMillis=" + getDurationMillis() +
+            ", success=" + success +
+            ", dataLength=" + dataLength +
+            ", tableRows=" + tableRows +
+            ", ddl='" + ddl + '\'' +
+            '}';
+    }
+}
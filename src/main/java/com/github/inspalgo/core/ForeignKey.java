@@ -0,0 +1,99 @@
+package com.github.inspalgo.core;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * 外键约束，解析自 SHOW CREATE TABLE 或 mysqldump 中的 CONSTRAINT 行，如
+ * {@code CONSTRAINT `fk_order_user` FOREIGN KEY (`user_id`) REFERENCES `user` (`id`) ON DELETE CASCADE}
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 19:20 UTC+08:00
+ */
+public class ForeignKey {
+    private final String name;
+    private final String referencedSchema;
+    private final String referencedTable;
+    private final String ddl;
+
+    private ForeignKey(String name, String referencedSchema, String referencedTable, String ddl) {
+        this.name = name;
+        this.referencedSchema = referencedSchema;
+        this.referencedTable = referencedTable;
+        this.ddl = ddl;
+    }
+
+    /**
+     * @param line CREATE TABLE 中的一行，末尾逗号已去除
+     * @return 外键，不是外键约束时返回 null
+     */
+    static ForeignKey parse(String line) {
+        String upper = line.toUpperCase(Locale.ROOT);
+        int foreignKey = upper.indexOf("FOREIGN KEY");
+        int references = upper.indexOf(" REFERENCES ", foreignKey);
+        if (!upper.startsWith("CONSTRAINT") || foreignKey == -1 || references == -1) {
+            return null;
+        }
+        String name = unquote(line.substring("CONSTRAINT".length(), foreignKey).trim());
+
+        String target = line.substring(references + " REFERENCES ".length());
+        target = target.substring(0, target.indexOf('(')).trim();
+        String schema = null;
+        int dot = target.indexOf("`.`");
+        if (dot != -1) {
+            schema = unquote(target.substring(0, dot + 1));
+            target = target.substring(dot + 2);
+        }
+        return new ForeignKey(name, schema, SchemaInterner.intern(unquote(target)), SchemaInterner.intern(line.trim()));
+    }
+
+    private static String unquote(String name) {
+        if (name.length() >= 2 && name.charAt(0) == '`' && name.charAt(name.length() - 1) == '`') {
+            return name.substring(1, name.length() - 1).replace("``", "`");
+        }
+        return name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 被引用表所在的库，与本表同库时为 null
+     */
+    public String getReferencedSchema() {
+        return referencedSchema;
+    }
+
+    public String getReferencedTable() {
+        return referencedTable;
+    }
+
+    /**
+     * @return 用于 ALTER TABLE ADD 与 CREATE TABLE 的约束定义
+     */
+    public String getDdl() {
+        return ddl;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return ddl.equals(((ForeignKey) o).ddl);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ddl);
+    }
+
+    @Override
+    public String toString() {
+        return ddl;
+    }
+}
@@ -0,0 +1,193 @@
+package com.github.inspalgo.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 按外键为要删除、创建、修改的表建立依赖图，划分出可以并行执行的分组
+ * <ul>
+ *     <li>创建或修改的表引用的父表若也要创建或修改，父表先执行</li>
+ *     <li>删除的表或修改中要删除的外键所引用的父表，在子表删除外键之后再执行</li>
+ * </ul>
+ * 通过外键相连的表属于同一分组，组内按拓扑顺序在同一个连接上依次执行；没有外键关联的分组之间可以并行。
+ * 存在循环依赖的分组无法排出拓扑顺序，按原顺序执行并标记为 cyclic
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 19:40 UTC+08:00
+ */
+public class ForeignKeyGraph {
+    public enum Kind {
+        /**
+         * 删除表
+         */
+        DROP,
+        /**
+         * 创建表
+         */
+        CREATE,
+        /**
+         * 修改表
+         */
+        ALTER,
+    }
+
+    public static class Group {
+        private final List<String> tableNames;
+        private final boolean cyclic;
+
+        Group(List<String> tableNames, boolean cyclic) {
+            this.tableNames = tableNames;
+            this.cyclic = cyclic;
+        }
+
+        /**
+         * @return 按执行顺序排列的表名
+         */
+        public List<String> getTableNames() {
+            return tableNames;
+        }
+
+        /**
+         * @return 是否存在循环依赖，此时需要临时关闭外键检查
+         */
+        public boolean isCyclic() {
+            return cyclic;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (String tableName : tableNames) {
+                sb.append(sb.length() == 0 ? "`" : " -> `").append(tableName).append('`');
+            }
+            return cyclic ? sb.append(" (循环依赖)").toString() : sb.toString();
+        }
+    }
+
+    private final Map<String, Kind> units;
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final Map<String, Set<String>> successors = new HashMap<>();
+    private final Map<String, Integer> inDegrees = new HashMap<>();
+    private final Map<String, String> parents = new HashMap<>();
+
+    /**
+     * @param units  要执行的表及其操作，迭代顺序即没有依赖约束时的执行顺序
+     * @param source 源库结构
+     * @param target 目标库结构
+     */
+    public ForeignKeyGraph(LinkedHashMap<String, Kind> units, Database source, Database target) {
+        this.units = units;
+        for (String tableName : units.keySet()) {
+            positions.put(tableName, positions.size());
+            successors.put(tableName, new HashSet<>());
+            inDegrees.put(tableName, 0);
+            parents.put(tableName, tableName);
+        }
+        units.forEach((tableName, kind) -> {
+            Table sourceTable = source.getTableByName(tableName);
+            Table targetTable = target.getTableByName(tableName);
+            if (kind != Kind.DROP && sourceTable != null) {
+                for (ForeignKey foreignKey : sourceTable.getForeignKeys()) {
+                    String parent = referencedTable(foreignKey);
+                    if (parent != null && units.get(parent) != Kind.DROP) {
+                        addEdge(parent, tableName);
+                    }
+                }
+            }
+            if (kind != Kind.CREATE && targetTable != null) {
+                for (ForeignKey foreignKey : targetTable.getForeignKeys()) {
+                    boolean kept = kind == Kind.ALTER && sourceTable != null
+                        && sourceTable.getForeignKeys().contains(foreignKey);
+                    String parent = referencedTable(foreignKey);
+                    if (parent != null && !kept) {
+                        addEdge(tableName, parent);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return 同库中且也要执行的被引用表，否则为 null
+     */
+    private String referencedTable(ForeignKey foreignKey) {
+        String parent = foreignKey.getReferencedTable();
+        return foreignKey.getReferencedSchema() == null && units.containsKey(parent) ? parent : null;
+    }
+
+    private void addEdge(String before, String after) {
+        if (before.equals(after) || !successors.get(before).add(after)) {
+            return;
+        }
+        inDegrees.merge(after, 1, Integer::sum);
+        parents.put(find(before), find(after));
+    }
+
+    private String find(String tableName) {
+        String parent = parents.get(tableName);
+        if (parent.equals(tableName)) {
+            return tableName;
+        }
+        String root = find(parent);
+        parents.put(tableName, root);
+        return root;
+    }
+
+    /**
+     * @return 分组，按组内第一张表的原顺序排列
+     */
+    public List<Group> groups() {
+        Map<String, List<String>> members = new LinkedHashMap<>();
+        for (String tableName : units.keySet()) {
+            members.computeIfAbsent(find(tableName), k -> new ArrayList<>()).add(tableName);
+        }
+        List<Group> groups = new ArrayList<>(members.size());
+        for (List<String> tableNames : members.values()) {
+            groups.add(sort(tableNames));
+        }
+        return groups;
+    }
+
+    /**
+     * Kahn 拓扑排序，可同时执行的表按原顺序优先
+     */
+    private Group sort(List<String> tableNames) {
+        if (tableNames.size() == 1) {
+            return new Group(tableNames, false);
+        }
+        Map<String, Integer> degrees = new HashMap<>();
+        PriorityQueue<String> ready = new PriorityQueue<>(Comparator.comparingInt(positions::get));
+        for (String tableName : tableNames) {
+            degrees.put(tableName, inDegrees.get(tableName));
+            if (inDegrees.get(tableName) == 0) {
+                ready.add(tableName);
+            }
+        }
+        List<String> ordered = new ArrayList<>(tableNames.size());
+        while (!ready.isEmpty()) {
+            String tableName = ready.poll();
+            ordered.add(tableName);
+            for (String next : successors.get(tableName)) {
+                if (degrees.merge(next, -1, Integer::sum) == 0) {
+                    ready.add(next);
+                }
+            }
+        }
+        if (ordered.size() == tableNames.size()) {
+            return new Group(ordered, false);
+        }
+        // 剩余的表处于环上或依赖环上的表，保持原顺序追加在后面
+        List<String> remaining = new ArrayList<>(tableNames);
+        remaining.removeAll(ordered);
+        ordered.addAll(remaining);
+        return new Group(Collections.unmodifiableList(ordered), true);
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.inspalgo.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 按 host:port 限制同一台 MySQL 上的并发连接数与并发 DDL 数，同一台服务器上的多个库共用限额
+ * <p>
+ * 许可按等待顺序公平分配；等待期间每秒检查一次取消标记，被中止的库不会一直等待许可。
+ * 同一线程内先获取连接许可再获取 DDL 许可，且持有 DDL 许可时不会再获取连接，不会出现互相等待
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 22:30 UTC+08:00
+ */
+public final class HostAdmission {
+    private final int maxConnections;
+    private final int maxDdl;
+    private final ConcurrentHashMap<String, Host> hosts = new ConcurrentHashMap<>();
+
+    private final class Host {
+        private final Semaphore connections = maxConnections > 0 ? new Semaphore(maxConnections, true) : null;
+        private final Semaphore ddl = maxDdl > 0 ? new Semaphore(maxDdl, true) : null;
+    }
+
+    /**
+     * @param maxConnections 每台服务器的最大并发连接数，不大于 0 时不限制
+     * @param maxDdl         每台服务器同时执行的最大 DDL 数，不大于 0 时不限制
+     */
+    public HostAdmission(int maxConnections, int maxDdl) {
+        this.maxConnections = maxConnections;
+        this.maxDdl = maxDdl;
+    }
+
+    /**
+     * @return 每台服务器的最大并发连接数，不大于 0 表示不限制
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * 获取一个连接许可，使用完毕后需调用 {@link #releaseConnection(String)}
+     *
+     * @param endpoint  host:port
+     * @param cancelled 等待期间的取消标记
+     * @return true-已获取；false-等待期间被取消
+     * @throws InterruptedException 等待时被中断
+     */
+    public boolean acquireConnection(String endpoint, BooleanSupplier cancelled) throws InterruptedException {
+        return acquire(host(endpoint).connections, cancelled);
+    }
+
+    public void releaseConnection(String endpoint) {
+        release(host(endpoint).connections);
+    }
+
+    /**
+     * 获取一个 DDL 许可，执行完毕后需调用 {@link #releaseDdl(String)}
+     *
+     * @param endpoint  host:port
+     * @param cancelled 等待期间的取消标记
+     * @return true-已获取；false-等待期间被取消
+     * @throws InterruptedException 等待时被中断
+     */
+    public boolean acquireDdl(String endpoint, BooleanSupplier cancelled) throws InterruptedException {
+        return acquire(host(endpoint).ddl, cancelled);
+    }
+
+    public void releaseDdl(String endpoint) {
+        release(host(endpoint).ddl);
+    }
+
+    private Host host(String endpoint) {
+        return hosts.computeIfAbsent(endpoint, key -> new Host());
+    }
+
+    private static boolean acquire(Semaphore semaphore, BooleanSupplier cancelled) throws InterruptedException {
+        if (semaphore == null) {
+            return true;
+        }
+        while (!semaphore.tryAcquire(1, TimeUnit.SECONDS)) {
+            if (cancelled.getAsBoolean()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void release(Semaphore semaphore) {
+        if (semaphore != null) {
+            semaphore.release();
+        }
+    }
+}
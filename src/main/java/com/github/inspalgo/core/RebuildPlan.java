@@ -0,0 +1,158 @@
+package com.github.inspalgo.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 以重建复制代替逐条 ALTER 的方案：按源表结构建新表，分批复制共有字段的数据，再改名替换原表
+ * <p>
+ * 复制期间写入原表的数据不会进入新表，只应在目标库没有写入时使用；
+ * 原表上的触发器会随改名留在旧表上并被一并删除，含有触发器的表不使用本方案
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 18:00 UTC+08:00
+ */
+public class RebuildPlan {
+    /**
+     * 分批复制时每批的行数
+     */
+    public static final int CHUNK_ROWS = 10_000;
+    /**
+     * MySQL 表名的最大长度
+     */
+    private static final int MAX_TABLE_NAME_LENGTH = 64;
+
+    private final String tableName;
+    private final String newTableName;
+    private final String oldTableName;
+    private final String createSql;
+    private final String copySql;
+    private final String chunkColumn;
+    private final String swapSql;
+    private final String dropSql;
+
+    private RebuildPlan(String tableName, String createSql, String copySql, String chunkColumn) {
+        this.tableName = tableName;
+        this.newTableName = "_" + tableName + "_new";
+        this.oldTableName = "_" + tableName + "_old";
+        this.createSql = "CREATE TABLE `" + newTableName + "`" + createSql;
+        this.copySql = "INSERT INTO `" + newTableName + "` " + copySql;
+        this.chunkColumn = chunkColumn;
+        this.swapSql = "RENAME TABLE `" + tableName + "` TO `" + oldTableName + "`, `" + newTableName + "` TO `"
+            + tableName + "`";
+        this.dropSql = "DROP TABLE `" + oldTableName + "`";
+    }
+
+    /**
+     * 生成重建复制方案
+     *
+     * @param sourceTable 源表
+     * @param targetTable 目标表
+     * @return 方案，表名过长或源表与目标表没有共有字段时返回 null
+     */
+    static RebuildPlan of(Table sourceTable, Table targetTable) {
+        String tableName = targetTable.getName();
+        if (tableName.length() + "__old".length() > MAX_TABLE_NAME_LENGTH) {
+            return null;
+        }
+
+        List<String> columnNames = new ArrayList<>();
+        for (String columnName : sourceTable.getAllColumnNames()) {
+            Column sourceColumn = sourceTable.getColumnByName(columnName);
+            // 生成列的值由表达式计算，不能写入
+            if (targetTable.getColumnByName(columnName) != null
+                && !sourceColumn.getDdl().toUpperCase(Locale.ROOT).contains(" GENERATED ALWAYS ")) {
+                columnNames.add("`" + columnName + "`");
+            }
+        }
+        if (columnNames.isEmpty()) {
+            return null;
+        }
+
+        String create = sourceTable.getCreateTable();
+        create = create.substring(("CREATE TABLE `" + sourceTable.getName() + "`").length());
+        // 保留目标表的自增值，避免复制后重新使用已删除行的 id
+        if (targetTable.getAutoIncrement() != null) {
+            create += " AUTO_INCREMENT=" + targetTable.getAutoIncrement();
+        }
+        String columns = String.join(",", columnNames);
+        String copy = "(" + columns + ") SELECT " + columns + " FROM `" + tableName + "`";
+        return new RebuildPlan(tableName, create, copy, chunkColumn(sourceTable, targetTable));
+    }
+
+    /**
+     * @return 源表与目标表相同的单列主键，没有时返回 null，此时整表一次复制
+     */
+    private static String chunkColumn(Table sourceTable, Table targetTable) {
+        String primaryKey = targetTable.getPrimaryKey();
+        if (primaryKey == null || !primaryKey.equals(sourceTable.getPrimaryKey())) {
+            return null;
+        }
+        String columns = primaryKey.substring(primaryKey.indexOf('(') + 1, primaryKey.lastIndexOf(')'));
+        if (columns.contains(",") || columns.contains("(")) {
+            return null;
+        }
+        return columns.trim().replace("`", "");
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getNewTableName() {
+        return newTableName;
+    }
+
+    public String getCopySql() {
+        return copySql;
+    }
+
+    /**
+     * @return 改名替换的语句，执行成功后新表已成为原表
+     */
+    public String getSwapSql() {
+        return swapSql;
+    }
+
+    /**
+     * @return 删除旧表的语句，失败时原表已被替换
+     */
+    public String getDropSql() {
+        return dropSql;
+    }
+
+    /**
+     * @return 分批复制所依据的主键字段，null 表示整表一次复制
+     */
+    public String getChunkColumn() {
+        return chunkColumn;
+    }
+
+    /**
+     * @return 按执行顺序排列的全部语句：建新表、复制数据、改名替换、删除旧表
+     */
+    public List<String> getDdlList() {
+        List<String> ddlList = new ArrayList<>(4);
+        ddlList.add(createSql);
+        ddlList.add(copySql);
+        ddlList.add(swapSql);
+        ddlList.add(dropSql);
+        return ddlList;
+    }
+
+    /**
+     * @return 失败后清理新表的语句
+     */
+    public String getCleanupSql() {
+        return "DROP TABLE IF EXISTS `" + newTableName + "`";
+    }
+
+    @Override
+    public String toString() {
+        return "RebuildPlan{" +
+            "tableName='" + tableName + '\'' +
+            ", chunkColumn='" + chunkColumn + '\'' +
+            '}';
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.inspalgo.core;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 每张表的结构保存在单独文件中的导出目录
+ * <ul>
+ *     <li>mydumper：{@code 库名.表名-schema.sql}，库、视图、触发器分别在 -schema-create.sql、-schema-view.sql、
+ *     -schema-triggers.sql 等文件中</li>
+ *     <li>MySQL Shell 的 dump 工具：{@code 库名@表名.sql}，视图的 .pre.sql、触发器的 .triggers.sql 以及
+ *     @.sql、库名.sql 等文件不含表结构</li>
+ * </ul>
+ * 文件可以是 gzip 或 zstd 压缩的，数据文件不会被读取
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 21:40 UTC+08:00
+ */
+final class SchemaDirectory {
+    private SchemaDirectory() {
+    }
+
+    /**
+     * @param directory 导出目录
+     * @return 目录中的表结构文件，按文件名排序
+     * @throws IOException 读取目录失败
+     */
+    static List<Path> schemaFiles(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SchemaDirectory::isSchemaFile)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    static boolean isSchemaFile(Path file) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - ".gz".length());
+        } else if (name.endsWith(".zst")) {
+            name = name.substring(0, name.length() - ".zst".length());
+        }
+        if (name.endsWith("-schema.sql")) {
+            return true;
+        }
+        // MySQL Shell 会对名称中的 @ 等字符编码，表结构文件名中只有一个 @
+        int at = name.indexOf('@');
+        return at > 0 && name.indexOf('@', at + 1) == -1 && name.endsWith(".sql") && !name.endsWith(".pre.sql")
+            && !name.endsWith(".post.sql") && !name.endsWith(".triggers.sql");
+    }
+
+    /**
+     * @param directory 导出目录
+     * @return 由表结构文件的数量、总大小与最晚修改时间组成的摘要
+     * @throws IOException 读取目录失败
+     */
+    static String digest(Path directory) throws IOException {
+        List<Path> files = schemaFiles(directory);
+        long size = 0;
+        long lastModified = 0;
+        for (Path file : files) {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            size += attributes.size();
+            lastModified = Math.max(lastModified, attributes.lastModifiedTime().toMillis());
+        }
+        return files.size() + ":" + size + ":" + lastModified;
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.inspalgo.core;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 表结构模型的驻留池：内容相同的字符串与字段定义在所有表、所有库之间只保留一份
+ * <p>
+ * 大量目标库的结构通常几乎相同，如 {@code `id` bigint NOT NULL AUTO_INCREMENT} 会在每个库的多数表中出现。
+ * 池中只持有弱引用，不再被任何表使用的定义会随 GC 回收，常驻监听模式下不会无限增长。
+ * 按哈希分段加锁，多个线程并行解析时互不阻塞
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 20:10 UTC+08:00
+ */
+final class SchemaInterner {
+    private static final int SEGMENTS = 32;
+
+    @SuppressWarnings("unchecked")
+    private static final Map<String, WeakReference<String>>[] STRINGS =
+        (Map<String, WeakReference<String>>[]) new Map<?, ?>[SEGMENTS];
+    /**
+     * 以字段的 ddl 为键，ddl 被字段本身引用，字段存活时键不会被回收
+     */
+    @SuppressWarnings("unchecked")
+    private static final Map<String, WeakReference<Column>>[] COLUMNS =
+        (Map<String, WeakReference<Column>>[]) new Map<?, ?>[SEGMENTS];
+
+    static {
+        for (int i = 0; i < SEGMENTS; i++) {
+            STRINGS[i] = new WeakHashMap<>();
+            COLUMNS[i] = new WeakHashMap<>();
+        }
+    }
+
+    private SchemaInterner() {
+    }
+
+    private static int segment(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (SEGMENTS - 1);
+    }
+
+    /**
+     * @param value 字符串，可以为 null
+     * @return 池中与之相等的字符串
+     */
+    static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        Map<String, WeakReference<String>> pool = STRINGS[segment(value)];
+        synchronized (pool) {
+            WeakReference<String> ref = pool.get(value);
+            String existing = ref == null ? null : ref.get();
+            if (existing != null) {
+                return existing;
+            }
+            pool.put(value, new WeakReference<>(value));
+            return value;
+        }
+    }
+
+    /**
+     * @param columnName 字段名
+     * @param ddl        字段定义，以反引号包裹的字段名开头
+     * @return 池中 ddl 相同的字段，不存在时解析后放入池中
+     */
+    static Column column(String columnName, String ddl) {
+        Map<String, WeakReference<Column>> pool = COLUMNS[segment(ddl)];
+        synchronized (pool) {
+            WeakReference<Column> ref = pool.get(ddl);
+            Column existing = ref == null ? null : ref.get();
+            if (existing != null) {
+                return existing;
+            }
+        }
+        // 解析放在锁外，并发解析同一定义时以先放入池的为准
+        // 解析出的属性取值集中，同样放入驻留池
+        Column column = new Column(intern(columnName), ddl, SchemaInterner::intern);
+        synchronized (pool) {
+            WeakReference<Column> ref = pool.get(ddl);
+            Column existing = ref == null ? null : ref.get();
+            if (existing != null) {
+                return existing;
+            }
+            pool.put(column.getDdl(), new WeakReference<>(column));
+            return column;
+        }
+    }
+}
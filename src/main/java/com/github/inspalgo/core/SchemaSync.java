@@ -11,51 +11,68 @@ public class SchemaSync {
     /**
      * 根据两张表的结构，生成可执行的 DDL 语句
      *
-     * @param sourceTable 源表
-     * @param targetTable 目标表
+     * @param sourceTable   源表
+     * @param targetTable   目标表
+     * @param serverVersion 目标库版本，形如 80033，未知时为 0，用于确定字符集的默认排序规则
      * @return 目标表待执行的 DDL 语句
      */
-    public static List<String> generateTableDdl(Table sourceTable, Table targetTable) {
+    public static List<String> generateTableDdl(Table sourceTable, Table targetTable, int serverVersion) {
         ArrayList<String> result = new ArrayList<>();
         String alterTable = "ALTER TABLE `" + targetTable.getName() + "` ";
 
+        // 外键最先删除，避免其依赖的字段与索引无法修改；添加放在最后，此时字段与索引都已就绪
+        List<ForeignKey> deleteForeignKeys = new ArrayList<>(targetTable.getForeignKeys());
+        deleteForeignKeys.removeAll(sourceTable.getForeignKeys());
+        for (ForeignKey foreignKey : deleteForeignKeys) {
+            result.add(alterTable + "DROP FOREIGN KEY `" + foreignKey.getName() + "`");
+        }
+
         // 表的属性比对，如引擎、字符集等，表属性要同步要先执行
         // 先排除表属性中的自增主键同步，因为值的大小根据各个库实际数据大小定，要创建自增主键，只需指定好自增字段即可
         String sourceCharset = sourceTable.getCharset();
         String targetCharset = targetTable.getCharset();
-        if (!sourceCharset.equalsIgnoreCase(targetCharset)) {
+        String sourceCollation = sourceTable.getCollation();
+        String targetCollation = targetTable.getCollation();
+        if (!ColumnParser.normalizeCharset(sourceCharset).equals(ColumnParser.normalizeCharset(targetCharset))) {
             result.add(alterTable + "CONVERT TO CHARACTER SET " + sourceCharset);
+            // CONVERT TO 之后目标表的字符型字段都将使用源表字符集的默认排序规则
+            targetCharset = sourceCharset;
+            targetCollation = null;
         }
 
-        List<String> modifyAttributes = sourceTable.getAttributes();
+        List<String> modifyAttributes = new ArrayList<>(sourceTable.getAttributes());
         modifyAttributes.removeAll(targetTable.getAttributes());
         if (!modifyAttributes.isEmpty()) {
             result.add(alterTable + String.join(",", modifyAttributes));
         }
 
         // 删除多余字段
-        ArrayList<String> deleteColumnNames = targetTable.getAllColumnNames();
+        List<String> deleteColumnNames = new ArrayList<>(targetTable.getAllColumnNames());
         deleteColumnNames.removeAll(sourceTable.getAllColumnNames());
         for (String columnName : deleteColumnNames) {
             result.add(alterTable + "DROP COLUMN `" + columnName + "`");
         }
 
         // 判断增加/修改字段，同时保持字段相对顺序同步
-        ArrayList<String> sourceColumnNames = sourceTable.getAllColumnNames();
+        List<String> sourceColumnNames = sourceTable.getAllColumnNames();
         List<Column> sourceColumns = sourceTable.getColumns();
-        ArrayList<String> targetColumnNames = targetTable.getAllColumnNames();
+        List<String> targetColumnNames = new ArrayList<>(targetTable.getAllColumnNames());
         // 要移除已删除字段，否则会导致字段顺序不同步
         targetColumnNames.removeAll(deleteColumnNames);
 
         String position = "FIRST";
         for (int i = 0, size = sourceColumnNames.size(); i < size; i++) {
             String sourceColumnName = sourceColumnNames.get(i);
-            String sourceDdl = sourceColumns.get(i).getDdl();
+            Column sourceColumn = sourceColumns.get(i);
+            String sourceDdl = sourceColumn.getDdl();
 
             if (targetColumnNames.contains(sourceColumnName)) {
                 // 字段位置不同步，需要注意只变动位置，要检测出最小化修改、避免影响多个字段位置修改
                 // 先判断字段属性是否相同，因为属性不同的话，位置可以一并修改，然后再判断位置是否相同
-                if (!sourceDdl.equals(targetTable.getColumnByName(sourceColumnName).getDdl())
+                // 按规范化后的属性比较，int(11) 与 int、引号包裹的数值默认值等仅写法不同的定义不会产生 DDL
+                Column targetColumn = targetTable.getColumnByName(sourceColumnName);
+                if (!sourceColumn.sameDefinition(targetColumn, sourceCharset, sourceCollation, targetCharset,
+                    targetCollation, serverVersion)
                     || i != targetColumnNames.indexOf(sourceColumnName)) {
                     result.add(alterTable + "MODIFY COLUMN " + sourceDdl + " " + position);
                     insertColumn(targetColumnNames, sourceColumnName, i);
@@ -81,21 +98,28 @@ public class SchemaSync {
         }
 
         // 索引同步
-        List<String> deleteIndexes = targetTable.getIndexes();
+        List<String> deleteIndexes = new ArrayList<>(targetTable.getIndexes());
         deleteIndexes.removeAll(sourceTable.getIndexes());
         for (String index : deleteIndexes) {
             result.add(alterTable + "DROP KEY " + index.substring(index.indexOf('`'), index.indexOf('(')).trim());
         }
-        List<String> addIndexes = sourceTable.getIndexes();
+        List<String> addIndexes = new ArrayList<>(sourceTable.getIndexes());
         addIndexes.removeAll(targetTable.getIndexes());
         for (String index : addIndexes) {
             result.add(alterTable + "ADD " + index);
         }
 
+        // 外键同步
+        List<ForeignKey> addForeignKeys = new ArrayList<>(sourceTable.getForeignKeys());
+        addForeignKeys.removeAll(targetTable.getForeignKeys());
+        for (ForeignKey foreignKey : addForeignKeys) {
+            result.add(alterTable + "ADD " + foreignKey.getDdl());
+        }
+
         return result;
     }
 
-    private static void insertColumn(ArrayList<String> columnNames, String newColumnName, int insertPosition) {
+    private static void insertColumn(List<String> columnNames, String newColumnName, int insertPosition) {
         columnNames.remove(newColumnName);
         columnNames.add(insertPosition, newColumnName);
     }
@@ -1,10 +1,16 @@
 package com.github.inspalgo.core;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
 /**
+ * 表结构。字段、索引、外键与表属性以数组保存，长度与实际数量一致；
+ * 字段定义与各字符串取值经 {@link SchemaInterner} 驻留，内容相同的定义在所有表之间共享。
+ * 访问方法返回只读视图而不复制，需要修改时由调用方自行复制
+ *
  * @author InspAlgo
  * @date 2021/1/7 20:05 UTC+08:00
  */
@@ -15,31 +21,44 @@ public class Table {
     private String primaryKey = null;
     private String autoIncrement = null;
     private String rowFormat = null;
-    private final List<Column> columns = new ArrayList<>();
-    private final List<String> indexes = new ArrayList<>();
-    private final List<String> attributes = new ArrayList<>();
+    private long dataLength = 0;
+    private long indexLength = 0;
+    private long tableRows = 0;
+    private Column[] columns = new Column[0];
+    private String[] indexes = new String[0];
+    private ForeignKey[] foreignKeys = new ForeignKey[0];
+    private String[] attributes = new String[0];
+
+    /**
+     * 解析时逐个追加，数组每次只扩大一格，不保留空余容量
+     */
+    private static <T> T[] append(T[] array, T element) {
+        T[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = element;
+        return result;
+    }
 
     public String getName() {
         return name;
     }
 
     public void setName(String name) {
-        this.name = name;
+        this.name = SchemaInterner.intern(name);
     }
 
     public List<Column> getColumns() {
-        return columns;
+        return Collections.unmodifiableList(Arrays.asList(columns));
     }
 
     public void addColumn(Column column) {
-        columns.add(column);
+        columns = append(columns, column);
     }
 
     public String getCreateTable() {
         StringBuilder sb = new StringBuilder();
         sb.append("CREATE TABLE `").append(name).append("` (");
-        for (int i = 0, size = columns.size(); i < size; i++) {
-            sb.append(" ").append(columns.get(i).getDdl());
+        for (int i = 0, size = columns.length; i < size; i++) {
+            sb.append(" ").append(columns[i].getDdl());
             if (i < size - 1) {
                 sb.append(",");
             }
@@ -50,6 +69,9 @@ public class Table {
         for (String index : indexes) {
             sb.append(", ").append(index);
         }
+        for (ForeignKey foreignKey : foreignKeys) {
+            sb.append(", ").append(foreignKey.getDdl());
+        }
         sb.append(" ) ENGINE=").append(engine).append(" CHARACTER SET=").append(charset)
           .append(" ").append(String.join(" ", attributes));
         if (rowFormat != null) {
@@ -58,10 +80,22 @@ public class Table {
         return sb.toString();
     }
 
-    public ArrayList<String> getAllColumnNames() {
-        ArrayList<String> result = new ArrayList<>(columns.size());
-        columns.forEach(c -> result.add(c.getColumnName()));
-        return result;
+    /**
+     * @return 按字段顺序排列的字段名只读视图
+     */
+    public List<String> getAllColumnNames() {
+        Column[] snapshot = columns;
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return snapshot[index].getColumnName();
+            }
+
+            @Override
+            public int size() {
+                return snapshot.length;
+            }
+        };
     }
 
     public Column getColumnByName(String columnName) {
@@ -74,13 +108,32 @@ public class Table {
     }
 
     public List<String> getIndexes() {
-        ArrayList<String> result = new ArrayList<>(indexes.size());
-        result.addAll(indexes);
-        return result;
+        return Collections.unmodifiableList(Arrays.asList(indexes));
     }
 
     public void addIndex(String index) {
-        indexes.add(index);
+        indexes = append(indexes, SchemaInterner.intern(index));
+    }
+
+    public List<ForeignKey> getForeignKeys() {
+        return Collections.unmodifiableList(Arrays.asList(foreignKeys));
+    }
+
+    public void addForeignKey(ForeignKey foreignKey) {
+        foreignKeys = append(foreignKeys, foreignKey);
+    }
+
+    /**
+     * @param name 约束名
+     * @return 外键，不存在时返回 null
+     */
+    public ForeignKey getForeignKeyByName(String name) {
+        for (ForeignKey foreignKey : foreignKeys) {
+            if (foreignKey.getName().equals(name)) {
+                return foreignKey;
+            }
+        }
+        return null;
     }
 
     public String getPrimaryKey() {
@@ -88,7 +141,7 @@ public class Table {
     }
 
     public void setPrimaryKey(String primaryKey) {
-        this.primaryKey = primaryKey;
+        this.primaryKey = SchemaInterner.intern(primaryKey);
     }
 
     public String getEngine() {
@@ -96,7 +149,7 @@ public class Table {
     }
 
     public void setEngine(String engine) {
-        this.engine = engine;
+        this.engine = SchemaInterner.intern(engine);
     }
 
     public String getAutoIncrement() {
@@ -112,7 +165,7 @@ public class Table {
     }
 
     public void setCharset(String charset) {
-        this.charset = charset;
+        this.charset = SchemaInterner.intern(charset);
     }
 
     public String getRowFormat() {
@@ -120,20 +173,55 @@ public class Table {
     }
 
     public void setRowFormat(String rowFormat) {
-        this.rowFormat = rowFormat.toUpperCase();
+        this.rowFormat = SchemaInterner.intern(rowFormat.toUpperCase());
+    }
+
+    public long getDataLength() {
+        return dataLength;
+    }
+
+    public void setDataLength(long dataLength) {
+        this.dataLength = dataLength;
+    }
+
+    public long getIndexLength() {
+        return indexLength;
+    }
+
+    public void setIndexLength(long indexLength) {
+        this.indexLength = indexLength;
+    }
+
+    public long getTableRows() {
+        return tableRows;
+    }
+
+    public void setTableRows(long tableRows) {
+        this.tableRows = tableRows;
     }
 
     public List<String> getAttributes() {
-        ArrayList<String> result = new ArrayList<>(attributes.size());
-        result.addAll(attributes);
-        return result;
+        return Collections.unmodifiableList(Arrays.asList(attributes));
+    }
+
+    /**
+     * @return 表属性中的默认排序规则，未指定时为 null
+     */
+    public String getCollation() {
+        for (String attribute : attributes) {
+            int equals = attribute.indexOf('=');
+            if (equals != -1 && attribute.substring(0, equals).trim().toUpperCase().endsWith("COLLATE")) {
+                return attribute.substring(equals + 1).trim();
+            }
+        }
+        return null;
     }
 
     public void addAttribute(String attribute) {
         if (attribute == null || attribute.isEmpty()) {
             return;
         }
-        attributes.add(attribute);
+        attributes = append(attributes, SchemaInterner.intern(attribute));
     }
 
     /**
@@ -183,9 +271,10 @@ public class Table {
             ", primaryKey='" + primaryKey + '\'' +
             ", autoIncrement='" + autoIncrement + '\'' +
             ", rowFormat='" + rowFormat + '\'' +
-            ", columns=" + columns +
-            ", indexes=" + indexes +
-            ", attributes=" + attributes +
+            ", columns=" + Arrays.toString(columns) +
+            ", indexes=" + Arrays.toString(indexes) +
+            ", foreignKeys=" + Arrays.toString(foreignKeys) +
+            ", attributes=" + Arrays.toString(attributes) +
             '}';
     }
 }
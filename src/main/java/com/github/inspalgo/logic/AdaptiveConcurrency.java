@@ -0,0 +1,195 @@
+package com.github.inspalgo.logic;
+
+import com.github.inspalgo.core.Database;
+import com.github.inspalgo.core.DdlExecution;
+import com.github.inspalgo.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按加性增、乘性减（AIMD）调整同时同步的目标数
+ * <p>
+ * 每个目标结束时根据其反馈调整：出现锁等待超时或死锁、DDL 失败比例过高、实际耗时与预计耗时之比超过
+ * 已观察到的最小比值的 {@link #LATENCY_TOLERANCE} 倍、或服务器的 Threads_running 超过阈值时并发减半，
+ * 否则增加：首次减半前每完成一个目标加 1，之后每完成约一个并发窗口的目标加 1。
+ * 减半后只有在减半之后开始的目标才能再次触发减半，避免同一波拥塞连续减半
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 23:10 UTC+08:00
+ */
+final class AdaptiveConcurrency {
+    /**
+     * 实际与预计耗时之比超过基线的倍数时视为拥塞
+     */
+    private static final double LATENCY_TOLERANCE = 2.0;
+    /**
+     * DDL 失败比例超过该值时视为拥塞
+     */
+    private static final double FAILURE_RATE_LIMIT = 0.2;
+
+    private final int maxConcurrency;
+    private final long maxThreadsRunning;
+    private final long start = System.nanoTime();
+    private double limit = 1;
+    private boolean slowStart = true;
+    private double baselineRatio = Double.MAX_VALUE;
+    private long startSequence = 0;
+    private long decreasedAtSequence = 0;
+    private final List<String> history = new ArrayList<>();
+
+    /**
+     * @param maxConcurrency    并发目标数的上限
+     * @param maxThreadsRunning 服务器 Threads_running 的阈值，不大于 0 时不探测服务器负载
+     */
+    AdaptiveConcurrency(int maxConcurrency, long maxThreadsRunning) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxThreadsRunning = maxThreadsRunning;
+        record();
+    }
+
+    /**
+     * @return 当前允许同时同步的目标数
+     */
+    int limit() {
+        return (int) limit;
+    }
+
+    long getMaxThreadsRunning() {
+        return maxThreadsRunning;
+    }
+
+    /**
+     * @return 开始一个目标时的序号，结束时传给 {@link #onComplete(String, long, Feedback)}
+     */
+    long nextSequence() {
+        return startSequence++;
+    }
+
+    /**
+     * 根据结束的目标调整并发
+     *
+     * @param name     目标名，用于日志
+     * @param sequence 目标开始时的序号
+     * @param feedback 目标的执行情况
+     */
+    void onComplete(String name, long sequence, Feedback feedback) {
+        int before = limit();
+        String congestion = feedback.congestion(this);
+        if (feedback.ratio() > 0) {
+            baselineRatio = Math.min(baselineRatio, feedback.ratio());
+        }
+        if (congestion == null) {
+            limit = Math.min(maxConcurrency, limit + (slowStart ? 1 : 1 / limit));
+            log(before, "`" + name + "` 正常完成");
+        } else if (sequence >= decreasedAtSequence) {
+            slowStart = false;
+            limit = Math.max(1, limit / 2);
+            decreasedAtSequence = startSequence;
+            log(before, "`" + name + "` " + congestion);
+        }
+    }
+
+    private void log(int before, String reason) {
+        if (limit() == before) {
+            return;
+        }
+        Log.COMMON.info("目标并发 {} -> {}，{}", before, limit(), reason);
+        record();
+    }
+
+    private void record() {
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        history.add(String.format(Locale.ROOT, "%.1fs=%d", elapsed / 1000.0, limit()));
+    }
+
+    /**
+     * @return 并发目标数随时间的变化，如 {@code 0.0s=1, 2.3s=2}
+     */
+    String history() {
+        return String.join(", ", history);
+    }
+
+    /**
+     * 单个目标的执行情况，需在目标的连接信息清除之前采集
+     */
+    static final class Feedback {
+        private final int statements;
+        private final int failures;
+        private final int lockTimeouts;
+        private final long actualNanos;
+        private final long estimatedNanos;
+        private final long threadsRunning;
+
+        private Feedback(int statements, int failures, int lockTimeouts, long actualNanos, long estimatedNanos,
+                         long threadsRunning) {
+            this.statements = statements;
+            this.failures = failures;
+            this.lockTimeouts = lockTimeouts;
+            this.actualNanos = actualNanos;
+            this.estimatedNanos = estimatedNanos;
+            this.threadsRunning = threadsRunning;
+        }
+
+        /**
+         * @param threadsRunning 目标所在服务器的 Threads_running，未探测时为 -1
+         */
+        static Feedback of(Database database, long threadsRunning) {
+            int statements = 0;
+            int failures = 0;
+            int lockTimeouts = 0;
+            long actualNanos = 0;
+            for (DdlExecution execution : database.getDdlExecutions()) {
+                statements++;
+                actualNanos += execution.getDurationNanos();
+                if (!execution.isSuccess()) {
+                    failures++;
+                    if (isLockTimeout(execution.getError())) {
+                        lockTimeouts++;
+                    }
+                }
+            }
+            return new Feedback(statements, failures, lockTimeouts, actualNanos,
+                statements == 0 ? 0 : database.getEstimatedNanos(), threadsRunning);
+        }
+
+        /**
+         * 未执行任何 DDL（如预览、结构一致、读取结构失败）的目标
+         */
+        static Feedback empty() {
+            return new Feedback(0, 0, 0, 0, 0, -1);
+        }
+
+        private static boolean isLockTimeout(String error) {
+            return error != null && (error.contains("Lock wait timeout") || error.contains("Deadlock found"));
+        }
+
+        double ratio() {
+            return statements == 0 || estimatedNanos <= 0 ? 0 : (double) actualNanos / estimatedNanos;
+        }
+
+        /**
+         * @return 拥塞原因，未拥塞时为 null
+         */
+        private String congestion(AdaptiveConcurrency controller) {
+            if (lockTimeouts > 0) {
+                return lockTimeouts + " 条 DDL 锁等待超时";
+            }
+            if (statements > 0 && (double) failures / statements > FAILURE_RATE_LIMIT) {
+                return failures + "/" + statements + " 条 DDL 失败";
+            }
+            if (controller.maxThreadsRunning > 0 && threadsRunning > controller.maxThreadsRunning) {
+                return "服务器 Threads_running=" + threadsRunning;
+            }
+            double ratio = ratio();
+            if (ratio > 0 && controller.baselineRatio != Double.MAX_VALUE
+                && ratio > controller.baselineRatio * LATENCY_TOLERANCE) {
+                return String.format(Locale.ROOT, "DDL 耗时为预计的 %.1f 倍，基线 %.1f 倍", ratio,
+                    controller.baselineRatio);
+            }
+            return null;
+        }
+    }
+}
@@ -1,16 +1,45 @@
 package com.github.inspalgo.logic;
 
 import com.github.inspalgo.core.ConnectMetaData;
+import com.github.inspalgo.core.ConnectionProvider;
 import com.github.inspalgo.core.Database;
+import com.github.inspalgo.core.DdlExecution;
+import com.github.inspalgo.core.HostAdmission;
 import com.github.inspalgo.core.Table;
+import com.github.inspalgo.util.FlightRecorder;
 import com.github.inspalgo.util.Log;
+import com.github.inspalgo.util.SyncJournal;
+import com.github.inspalgo.util.SyncMetrics;
+import com.github.inspalgo.util.SyncStats.Phase;
+import com.github.inspalgo.util.TableThreadFactory;
 import com.github.inspalgo.util.TableThreadPoolExecutor;
 
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @author InspAlgo
@@ -19,8 +48,65 @@ import java.util.concurrent.ThreadPoolExecutor;
 public class Dispatcher {
     private boolean preview = false;
     private boolean recreateTableOnError = false;
+    private boolean rebuildCopy = false;
+    private int applyThreads = 1;
+    private boolean foreignKeyChecks = false;
+    private int rehearsalThreads = 0;
     private Object source = null;
     private List<TargetMetaData> targetList = null;
+    private Path metricsFilePath = null;
+    private Path jfrFilePath = null;
+    private Path ddlReportFilePath = null;
+    private ConnectionProvider connectionProvider = ConnectionProvider.DRIVER_MANAGER;
+    private Path journalFilePath = null;
+    private boolean resume = false;
+    private SyncJournal journal = null;
+    private SyncJournal.State resumeState = null;
+    private final Set<Database> resumedTargets = ConcurrentHashMap.newKeySet();
+    private final SyncMetrics metrics = new SyncMetrics();
+    private long initTimeoutSeconds = 0;
+    private long syncTimeoutSeconds = 0;
+    private int stragglerRetries = 0;
+    /**
+     * 超过期限被中止的库
+     */
+    private final Map<Database, Timeout> timeouts = new ConcurrentHashMap<>();
+    private ScheduledExecutorService deadlineTimer = null;
+    private long leaseTimeoutSeconds = 60;
+    private long coordinatorTimeoutSeconds = 600;
+    private int maxConnectionsPerHost = 0;
+    private int maxDdlPerHost = 0;
+    /**
+     * 各库共用的按服务器并发许可，未限制时为 null
+     */
+    private HostAdmission admission = null;
+    private int adaptiveConcurrency = 0;
+    private long maxThreadsRunning = 0;
+    /**
+     * 本次运行的并发目标数控制，未开启时为 null
+     */
+    private AdaptiveConcurrency concurrency = null;
+    private final Map<Database, AdaptiveConcurrency.Feedback> feedback = new ConcurrentHashMap<>();
+    private long maxReplicaLagSeconds = 5;
+
+    /**
+     * 中止后仍未结束的库最多再等待的时间，之后不再等待
+     */
+    private static final long ABORT_GRACE_NANOS = TimeUnit.SECONDS.toNanos(10);
+    /**
+     * 中止后不再等待、工作线程仍未结束的目标，结束前不能清除源结构
+     */
+    private final List<Future<Database>> abandoned = new CopyOnWriteArrayList<>();
+
+    private static class Timeout {
+        private final String phase;
+        private final long abortedAt;
+
+        Timeout(String phase, long abortedAt) {
+            this.phase = phase;
+            this.abortedAt = abortedAt;
+        }
+    }
 
     public Dispatcher setPreview(boolean preview) {
         this.preview = preview;
@@ -32,6 +118,35 @@ public class Dispatcher {
         return this;
     }
 
+    public Dispatcher setRebuildCopy(boolean rebuildCopy) {
+        this.rebuildCopy = rebuildCopy;
+        return this;
+    }
+
+    /**
+     * @param applyThreads 每个目标按外键依赖分组后并行执行 DDL 的连接数
+     */
+    public Dispatcher setApplyThreads(int applyThreads) {
+        this.applyThreads = applyThreads;
+        return this;
+    }
+
+    /**
+     * @param foreignKeyChecks 执行 DDL 时是否保持外键检查开启
+     */
+    public Dispatcher setForeignKeyChecks(boolean foreignKeyChecks) {
+        this.foreignKeyChecks = foreignKeyChecks;
+        return this;
+    }
+
+    /**
+     * @param rehearsalThreads 执行前在临时库中并行演练 DDL 的连接数，不大于 0 时不演练
+     */
+    public Dispatcher setRehearsalThreads(int rehearsalThreads) {
+        this.rehearsalThreads = rehearsalThreads;
+        return this;
+    }
+
     public Dispatcher setSource(Object source) {
         this.source = source;
         return this;
@@ -42,124 +157,888 @@ public class Dispatcher {
         return this;
     }
 
+    public Dispatcher setMetricsFilePath(Path metricsFilePath) {
+        this.metricsFilePath = metricsFilePath;
+        return this;
+    }
+
+    public Dispatcher setJfrFilePath(Path jfrFilePath) {
+        this.jfrFilePath = jfrFilePath;
+        return this;
+    }
+
+    public Dispatcher setDdlReportFilePath(Path ddlReportFilePath) {
+        this.ddlReportFilePath = ddlReportFilePath;
+        return this;
+    }
+
+    public Dispatcher setConnectionProvider(ConnectionProvider connectionProvider) {
+        this.connectionProvider = connectionProvider;
+        return this;
+    }
+
+    /**
+     * @param journalFilePath 执行日志文件，null 表示不记录
+     */
+    public Dispatcher setJournalFilePath(Path journalFilePath) {
+        this.journalFilePath = journalFilePath;
+        return this;
+    }
+
+    /**
+     * @param resume 是否按执行日志跳过已完成的目标与表
+     */
+    public Dispatcher setResume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+
+    /**
+     * @param initTimeoutSeconds 源与每个目标读取结构的期限，不大于 0 时不限制
+     */
+    public Dispatcher setInitTimeoutSeconds(long initTimeoutSeconds) {
+        this.initTimeoutSeconds = initTimeoutSeconds;
+        return this;
+    }
+
+    /**
+     * @param syncTimeoutSeconds 每个目标比对、执行与输出 DDL 的期限，不大于 0 时不限制
+     */
+    public Dispatcher setSyncTimeoutSeconds(long syncTimeoutSeconds) {
+        this.syncTimeoutSeconds = syncTimeoutSeconds;
+        return this;
+    }
+
+    /**
+     * @param stragglerRetries 超时的目标在其余目标完成后重试的轮数
+     */
+    public Dispatcher setStragglerRetries(int stragglerRetries) {
+        this.stragglerRetries = stragglerRetries;
+        return this;
+    }
+
+    /**
+     * @param maxConnectionsPerHost 每台服务器的最大并发连接数，源与各目标共用，不大于 0 时不限制
+     */
+    public Dispatcher setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        resetAdmission();
+        return this;
+    }
+
+    /**
+     * @param maxDdlPerHost 每台服务器同时执行的最大 DDL 数，不大于 0 时不限制
+     */
+    public Dispatcher setMaxDdlPerHost(int maxDdlPerHost) {
+        this.maxDdlPerHost = maxDdlPerHost;
+        resetAdmission();
+        return this;
+    }
+
+    /**
+     * @param adaptiveConcurrency 按 AIMD 调整同时同步的目标数，从 1 开始，不超过该值；不大于 0 时不调整
+     */
+    public Dispatcher setAdaptiveConcurrency(int adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+        return this;
+    }
+
+    /**
+     * @param maxThreadsRunning 目标完成后探测其服务器的 Threads_running，超过该值时减少并发；不大于 0 时不探测
+     */
+    public Dispatcher setMaxThreadsRunning(long maxThreadsRunning) {
+        this.maxThreadsRunning = maxThreadsRunning;
+        return this;
+    }
+
+    /**
+     * @param maxReplicaLagSeconds 从库读取结构时允许的最大复制延迟
+     */
+    public Dispatcher setMaxReplicaLagSeconds(long maxReplicaLagSeconds) {
+        this.maxReplicaLagSeconds = maxReplicaLagSeconds;
+        return this;
+    }
+
+    /**
+     * @param leaseTimeoutSeconds 分布式模式下 worker 超过该时间没有心跳时，其领取的目标被其他进程回收
+     */
+    public Dispatcher setLeaseTimeoutSeconds(long leaseTimeoutSeconds) {
+        this.leaseTimeoutSeconds = leaseTimeoutSeconds;
+        return this;
+    }
+
+    /**
+     * @param coordinatorTimeoutSeconds 分布式模式下协调者超过该时间既没有看到 worker 心跳也没有新的结果时放弃等待
+     */
+    public Dispatcher setCoordinatorTimeoutSeconds(long coordinatorTimeoutSeconds) {
+        this.coordinatorTimeoutSeconds = coordinatorTimeoutSeconds;
+        return this;
+    }
+
+    private void resetAdmission() {
+        admission = maxConnectionsPerHost > 0 || maxDdlPerHost > 0
+            ? new HostAdmission(maxConnectionsPerHost, maxDdlPerHost) : null;
+    }
+
     public void schemaSync() throws InterruptedException {
         if (source == null || targetList == null || targetList.isEmpty()) {
             throw new IllegalArgumentException("参数为空");
         }
 
-        Database sourceDb = new Database();
+        Object recording = jfrFilePath == null ? null : FlightRecorder.startRecording(jfrFilePath);
+        long start = System.nanoTime();
+        Database sourceDb = newSourceDb();
         List<Database> targetDbs = new ArrayList<>(targetList.size());
+        openJournal(sourceDb);
 
         ThreadPoolExecutor executor = TableThreadPoolExecutor.make("Dispatcher", targetList.size() + 1);
+        concurrency = adaptiveConcurrency > 0 ? new AdaptiveConcurrency(adaptiveConcurrency, maxThreadsRunning) : null;
+        feedback.clear();
+        deadlineTimer = newTimer("Deadline");
         try {
-            CountDownLatch countDownLatch = new CountDownLatch(targetList.size() + 1);
-            initSourceDb(executor, sourceDb, countDownLatch);
-            initTargetDbList(executor, targetDbs, targetList, countDownLatch);
-            countDownLatch.await();
-            syncTargets(executor, sourceDb, targetDbs);
+            CountDownLatch sourceReady = new CountDownLatch(1);
+            initSourceDb(executor, sourceDb, sourceReady);
+            Map<Database, TargetMetaData> metaData = new HashMap<>();
+            for (TargetMetaData targetMetaData : targetList) {
+                Database targetDb = newTargetDb(targetMetaData);
+                if (targetDb == null) {
+                    continue;
+                }
+                metrics.register("target", targetDb.getStats());
+                targetDbs.add(targetDb);
+                metaData.put(targetDb, targetMetaData);
+            }
+            if (admission != null) {
+                Log.COMMON.info("每台服务器最多 {} 个连接、{} 条 DDL 同时执行",
+                    maxConnectionsPerHost > 0 ? maxConnectionsPerHost : "不限", maxDdlPerHost > 0 ? maxDdlPerHost : "不限");
+            }
+            List<Database> stragglers = syncTargets(executor, sourceDb, sourceReady, new ArrayList<>(targetDbs));
+            List<Database> unretried = new ArrayList<>();
+            for (int retry = 1; retry <= stragglerRetries && !stragglers.isEmpty(); retry++) {
+                Log.COMMON.info("第 {} 次重试超时的 {} 个目标", retry, stragglers.size());
+                List<Database> retryDbs = new ArrayList<>(stragglers.size());
+                for (Database straggler : stragglers) {
+                    // 服务器上中止的 DDL 仍在执行或回滚时重试会在元数据锁上等待或重复执行同一 DDL
+                    if (!straggler.awaitKilledQueries(ABORT_GRACE_NANOS)) {
+                        Log.COMMON.error("`{}` 中止的语句未确认结束，不重试", straggler.getStats().getName());
+                        unretried.add(straggler);
+                        continue;
+                    }
+                    Database retryDb = newTargetDb(metaData.get(straggler));
+                    if (retryDb == null) {
+                        continue;
+                    }
+                    metrics.register("retry", retryDb.getStats());
+                    targetDbs.add(retryDb);
+                    metaData.put(retryDb, metaData.get(straggler));
+                    retryDbs.add(retryDb);
+                }
+                // 超时而未结束的任务可能仍占用着原线程池的线程
+                ThreadPoolExecutor retryExecutor = TableThreadPoolExecutor.make("Dispatcher-Retry", retryDbs.size() + 1);
+                try {
+                    stragglers = syncTargets(retryExecutor, sourceDb, sourceReady, retryDbs);
+                } finally {
+                    retryExecutor.shutdownNow();
+                }
+            }
+            if (concurrency != null) {
+                Log.COMMON.info("目标并发变化: {}", concurrency.history());
+            }
+            unretried.addAll(stragglers);
+            for (Database straggler : unretried) {
+                Log.COMMON.error("`{}` {}超时，未完成同步", straggler.getStats().getName(),
+                    timeouts.get(straggler).phase);
+            }
         } catch (InterruptedException e) {
             executor.shutdownNow();
             throw e;
         } finally {
             executor.shutdownNow();
+            deadlineTimer.shutdownNow();
+            if (journal != null) {
+                journal.close();
+            }
+            destroySource(sourceDb);
+            long wallNanos = System.nanoTime() - start;
+            logStats(sourceDb, targetDbs, wallNanos);
+            reportSlowDdl(targetDbs);
+            if (metricsFilePath != null) {
+                metrics.writeOpenMetrics(metricsFilePath, wallNanos);
+            }
+            metrics.unregisterAll();
+            FlightRecorder.stopRecording(recording);
+        }
+    }
+
+    /**
+     * 分布式模式的协调者：读取一次源结构，将快照与每个目标发布到共享目录，回收超时租约并等待全部目标完成。
+     * 超过 coordinatorTimeoutSeconds 既没有存活的租约也没有新的结果时放弃等待，输出已有的结果
+     *
+     * @param directory 各 worker 共同挂载的目录
+     * @throws IOException 目录中已有任务或读写失败
+     * @throws IllegalStateException 放弃等待时仍有目标未执行
+     */
+    public void coordinate(Path directory) throws IOException, InterruptedException {
+        if (source == null || targetList == null || targetList.isEmpty()) {
+            throw new IllegalArgumentException("参数为空");
+        }
+        long start = System.nanoTime();
+        Database sourceDb = newSourceDb();
+        sourceDb.init();
+        if (!sourceDb.getErrors().isEmpty()) {
+            throw new IllegalArgumentException("源读取结构失败，未发布任务");
+        }
+        WorkQueue queue = new WorkQueue(directory);
+        queue.publish(sourceDb, targetList);
+        Log.COMMON.info("已发布源结构快照与 {} 个目标到 {}，等待 worker 执行", targetList.size(), directory);
+        sourceDb.destroyAllAttributes();
+
+        long leaseMillis = TimeUnit.SECONDS.toMillis(leaseTimeoutSeconds);
+        long idleNanos = TimeUnit.SECONDS.toNanos(coordinatorTimeoutSeconds);
+        long lastActive = System.nanoTime();
+        int done = 0;
+        while (done < targetList.size()) {
+            TimeUnit.SECONDS.sleep(1);
+            queue.reclaimExpired(leaseMillis);
+            int count = queue.resultCount();
+            if (count != done) {
+                done = count;
+                lastActive = System.nanoTime();
+                Log.COMMON.info("已完成 {}/{} 个目标", done, targetList.size());
+            } else if (queue.liveLeases(leaseMillis) > 0) {
+                lastActive = System.nanoTime();
+            } else if (System.nanoTime() - lastActive >= idleNanos) {
+                break;
+            }
+        }
+        int failed = 0;
+        for (Map.Entry<String, Properties> entry : queue.results().entrySet()) {
+            Properties result = entry.getValue();
+            if (!WorkQueue.STATUS_OK.equals(result.getProperty("status"))) {
+                failed++;
+                Log.COMMON.error("[{}] {} {} by {}: {}", entry.getKey(), result.getProperty("status"),
+                    result.getProperty("target"), result.getProperty("worker"), result.getProperty("error"));
+            } else {
+                Log.COMMON.info("[{}] {} by {}: {}", entry.getKey(), result.getProperty("status"),
+                    result.getProperty("worker"), result.getProperty("summary"));
+            }
+        }
+        Log.COMMON.info("Schema Sync Finished In {}ms，{} 个目标失败",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failed);
+        if (done < targetList.size()) {
+            throw new IllegalStateException(String.format("%d 秒内没有 worker 心跳或新的结果，%d 个目标未执行，放弃等待",
+                coordinatorTimeoutSeconds, targetList.size() - done));
+        }
+    }
+
+    /**
+     * 分布式模式的 worker：读取源结构快照，循环领取目标并同步，执行期间按租约时间的三分之一发送心跳，
+     * 全部目标都有结果后退出。共享目录中的目标不含密码，按 用户名@主机:端口/库名 从本进程的 targetList 中取得，
+     * 没有时使用环境变量 {@value WorkQueue#PASSWORD_ENV}
+     *
+     * @param directory 协调者发布任务的目录
+     * @throws IOException 读写共享目录失败
+     */
+    public void work(Path directory) throws IOException, InterruptedException {
+        WorkQueue queue = new WorkQueue(directory);
+        int total = queue.total();
+        if (total < 0) {
+            Log.COMMON.info("等待协调者在 {} 发布任务", directory);
+            while ((total = queue.total()) < 0) {
+                TimeUnit.SECONDS.sleep(1);
+            }
+        }
+        String workerId = WorkQueue.workerId();
+        Map<String, String> passwords = new HashMap<>();
+        if (targetList != null) {
+            for (TargetMetaData target : targetList) {
+                if (target.getTarget() instanceof ConnectMetaData) {
+                    ConnectMetaData connect = (ConnectMetaData) target.getTarget();
+                    passwords.put(WorkQueue.reference(connect), connect.getPassword());
+                }
+            }
+        }
+        String defaultPassword = System.getenv(WorkQueue.PASSWORD_ENV);
+        source = queue.getSnapshotPath();
+        Database sourceDb = newSourceDb();
+        sourceDb.init();
+        if (!sourceDb.getErrors().isEmpty()) {
+            throw new IllegalArgumentException("读取源结构快照失败");
+        }
+        Log.COMMON.info("worker {} 已读取源结构快照，共 {} 个目标", workerId, total);
+
+        long leaseMillis = TimeUnit.SECONDS.toMillis(leaseTimeoutSeconds);
+        CountDownLatch sourceReady = new CountDownLatch(0);
+        deadlineTimer = newTimer("Deadline");
+        ScheduledExecutorService heartbeatTimer = newTimer("Heartbeat");
+        ThreadPoolExecutor workerPool = TableThreadPoolExecutor.make("Worker", 1, 1);
+        int claimed = 0;
+        try {
+            while (true) {
+                WorkQueue.Claim claim = queue.claim(workerId);
+                if (claim == null) {
+                    if (queue.resultCount() >= total) {
+                        break;
+                    }
+                    queue.reclaimExpired(leaseMillis);
+                    TimeUnit.SECONDS.sleep(1);
+                    continue;
+                }
+                claimed++;
+                Properties result = new Properties();
+                result.setProperty("worker", workerId);
+                if (claim.getTarget().getTarget() instanceof ConnectMetaData) {
+                    ConnectMetaData connect = (ConnectMetaData) claim.getTarget().getTarget();
+                    String reference = WorkQueue.reference(connect);
+                    connect.setPassword(passwords.getOrDefault(reference, defaultPassword));
+                    if (connect.getPassword() == null) {
+                        Log.COMMON.error("目标 [{}] {} 没有密码，需在 -t 中指定或设置环境变量 {}", claim.getId(), reference,
+                            WorkQueue.PASSWORD_ENV);
+                        result.setProperty("status", WorkQueue.STATUS_FAILED);
+                        result.setProperty("target", reference);
+                        result.setProperty("error", "worker 没有该目标的密码");
+                        queue.complete(claim, result);
+                        continue;
+                    }
+                }
+                Database targetDb = newTargetDb(claim.getTarget());
+                if (targetDb == null) {
+                    result.setProperty("status", WorkQueue.STATUS_FAILED);
+                    result.setProperty("error", "目标类型错误");
+                    queue.complete(claim, result);
+                    continue;
+                }
+                result.setProperty("target", targetDb.getJournalKey());
+                Log.COMMON.info("领取目标 [{}] `{}`", claim.getId(), targetDb.getDbName());
+                ScheduledFuture<?> heartbeat = heartbeatTimer.scheduleAtFixedRate(() -> {
+                    if (!queue.heartbeat(claim)) {
+                        Log.COMMON.error("目标 [{}] 的租约已被回收，中止", claim.getId());
+                        targetDb.abort();
+                        throw new IllegalStateException("租约已失效");
+                    }
+                }, leaseMillis / 3, leaseMillis / 3, TimeUnit.MILLISECONDS);
+                Future<Database> future = workerPool.submit(() -> runTarget(sourceDb, targetDb, sourceReady));
+                try {
+                    if (!awaitTarget(future, targetDb)) {
+                        abandoned.add(future);
+                        // 仍占用着工作线程，补充线程供后续目标使用
+                        workerPool.setMaximumPoolSize(workerPool.getMaximumPoolSize() + 1);
+                        workerPool.setCorePoolSize(workerPool.getCorePoolSize() + 1);
+                    }
+                } finally {
+                    heartbeat.cancel(false);
+                }
+                List<String> errors = targetDb.getErrors();
+                if (timeouts.containsKey(targetDb)) {
+                    result.setProperty("status", WorkQueue.STATUS_TIMEOUT);
+                    result.setProperty("error", timeouts.get(targetDb).phase + "超时");
+                } else if (!errors.isEmpty()) {
+                    result.setProperty("status", WorkQueue.STATUS_FAILED);
+                    result.setProperty("error", errors.size() + " 个错误，首个: " + errors.get(0));
+                } else {
+                    result.setProperty("status", WorkQueue.STATUS_OK);
+                }
+                result.setProperty("summary", targetDb.getStats().summary());
+                Log.COMMON.info("Target Stats: {}", targetDb.getStats().summary());
+                if (!queue.complete(claim, result)) {
+                    Log.COMMON.warn("目标 [{}] 的租约已被回收，结果由重新领取的 worker 写入", claim.getId());
+                }
+            }
+        } finally {
+            workerPool.shutdownNow();
+            heartbeatTimer.shutdownNow();
+            deadlineTimer.shutdownNow();
+            destroySource(sourceDb);
+        }
+        Log.COMMON.info("worker {} 共执行 {} 个目标，全部目标已完成，退出", workerId, claimed);
+    }
+
+    /**
+     * 清除源结构。仍有不再等待的目标在运行时保留，避免其线程读取到已清除的源
+     */
+    private void destroySource(Database sourceDb) {
+        abandoned.removeIf(Future::isDone);
+        if (abandoned.isEmpty()) {
             sourceDb.destroyAllAttributes();
+        } else {
+            Log.COMMON.warn("{} 个中止的目标仍未结束，保留源结构", abandoned.size());
         }
     }
 
-    private void initSourceDb(ThreadPoolExecutor executor, Database sourceDb, CountDownLatch countDownLatch) {
+    /**
+     * 等待目标结束，中止后超过等待时间仍未结束时不再等待
+     *
+     * @return false 表示目标未结束
+     */
+    private boolean awaitTarget(Future<Database> future, Database targetDb) throws InterruptedException {
+        while (true) {
+            try {
+                future.get(1, TimeUnit.SECONDS);
+                return true;
+            } catch (ExecutionException e) {
+                Log.COMMON.error("", e.getCause());
+                return true;
+            } catch (TimeoutException e) {
+                Timeout timeout = timeouts.get(targetDb);
+                if (timeout != null && System.nanoTime() - timeout.abortedAt >= ABORT_GRACE_NANOS) {
+                    Log.COMMON.error("`{}` 中止后仍未结束，不再等待", targetDb.getStats().getName());
+                    return false;
+                }
+            }
+        }
+    }
+
+    private static ScheduledExecutorService newTimer(String name) {
+        TableThreadFactory threadFactory = new TableThreadFactory(name);
+        return Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = threadFactory.newThread(task);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 打开执行日志；续跑时先读取日志，源结构摘要与日志一致时才沿用其中的完成状态
+     */
+    private void openJournal(Database sourceDb) {
+        if (journalFilePath == null || preview) {
+            return;
+        }
+        String sourceDigest = sourceDb.schemaDigest();
+        if (sourceDigest == null) {
+            Log.COMMON.error("无法读取源结构摘要，不记录执行日志");
+            return;
+        }
+        try {
+            if (resume) {
+                SyncJournal.State state = SyncJournal.load(journalFilePath);
+                if (sourceDigest.equals(state.getSourceDigest())) {
+                    resumeState = state;
+                    Log.COMMON.info("按执行日志 [{}] 续跑", journalFilePath);
+                } else if (state.getSourceDigest() != null) {
+                    Log.COMMON.warn("源结构与执行日志 [{}] 记录的不一致，全部重新同步", journalFilePath);
+                }
+            }
+            journal = SyncJournal.open(journalFilePath, resume);
+            journal.source(sourceDigest);
+        } catch (IOException e) {
+            Log.COMMON.error("打开执行日志 [{}] 失败，不记录执行日志", journalFilePath, e);
+        }
+    }
+
+    /**
+     * 执行日志中该目标已完成且当前库结构摘要与完成时一致，则无需重新读取与比对
+     *
+     * @return 是否跳过该目标
+     */
+    private boolean resumeCompleted(Database targetDb) {
+        if (resumeState == null) {
+            return false;
+        }
+        String digest = resumeState.getTargetDigest(targetDb.getJournalKey());
+        if (digest == null) {
+            return false;
+        }
+        if (digest.equals(targetDb.schemaDigest())) {
+            Log.COMMON.info("`{}` 已在上次运行中完成，跳过", targetDb.getDbName());
+            return true;
+        }
+        Log.COMMON.info("`{}` 结构在上次完成后发生变化，重新同步", targetDb.getDbName());
+        return false;
+    }
+
+    private void reportSlowDdl(List<Database> targetDbs) {
+        List<DdlExecution> executions = new ArrayList<>();
+        targetDbs.forEach(targetDb -> executions.addAll(targetDb.getDdlExecutions()));
+        SlowDdlReport report = new SlowDdlReport(executions);
+        report.display();
+        if (ddlReportFilePath != null) {
+            report.writeJson(ddlReportFilePath);
+        }
+    }
+
+    private void logStats(Database sourceDb, List<Database> targetDbs, long wallNanos) {
+        Log.COMMON.info("Source Stats: {}", sourceDb.getStats().summary());
+        // 各目标的统计已在其完成时输出
+        long roundTripsSaved = 0;
+        for (Database targetDb : targetDbs) {
+            roundTripsSaved += targetDb.getStats().getRoundTripsSaved();
+        }
+        if (roundTripsSaved > 0) {
+            Log.COMMON.info("Multi-Statement Pipelining Saved {} Round Trips", roundTripsSaved);
+        }
+        Log.COMMON.info("Schema Sync Finished In {}ms", TimeUnit.NANOSECONDS.toMillis(wallNanos));
+    }
+
+    boolean isPreview() {
+        return preview;
+    }
+
+    Object getSource() {
+        return source;
+    }
+
+    List<TargetMetaData> getTargetList() {
+        return targetList;
+    }
+
+    /**
+     * 按源配置创建未初始化的源库
+     */
+    Database newSourceDb() {
+        Database sourceDb = new Database().setConnectionProvider(connectionProvider).setAdmission(admission);
         if (source instanceof ConnectMetaData) {
             sourceDb.setConnectMetaData((ConnectMetaData) source);
         } else if (source instanceof Path) {
             sourceDb.setSqlFilePath((Path) source);
         }
+        return sourceDb;
+    }
+
+    /**
+     * 按目标配置创建未初始化的目标库
+     *
+     * @return 目标类型错误时返回 null
+     */
+    Database newTargetDb(TargetMetaData targetMetaData) {
+        Database targetDb = new Database().setConnectionProvider(connectionProvider).setAdmission(admission)
+                                          .setRebuildCopy(rebuildCopy)
+                                          .setApplyThreads(applyThreads).setForeignKeyChecks(foreignKeyChecks);
+        switch (targetMetaData.getType()) {
+            case CONNECT:
+                targetDb.setConnectMetaData((ConnectMetaData) targetMetaData.getTarget())
+                        .setReplicas(targetMetaData.getReplicas(), maxReplicaLagSeconds);
+                break;
+            case FILE:
+                targetDb.setSqlFilePath((Path) targetMetaData.getTarget());
+                break;
+            default:
+                Log.COMMON.error("目标类型错误 {}，该目标同步跳过", targetMetaData.getTarget());
+                return null;
+        }
+        targetDb.setOutputDdlFilepath(targetMetaData.getOutputFilePath());
+        return targetDb;
+    }
+
+    private void initSourceDb(ThreadPoolExecutor executor, Database sourceDb, CountDownLatch sourceReady) {
+        metrics.register("source", sourceDb.getStats());
         executor.execute(() -> {
+            // 源超时后各目标不再等待源
+            ScheduledFuture<?> deadline = deadline(sourceDb, "读取结构", initTimeoutSeconds, sourceReady::countDown);
             try {
                 sourceDb.init();
             } catch (Exception e) {
                 Log.COMMON.error("Source Database Init Exception", e);
             } finally {
-                countDownLatch.countDown();
+                cancel(deadline);
+                sourceReady.countDown();
             }
         });
     }
 
-    private void initTargetDbList(ThreadPoolExecutor executor, List<Database> targetDbs,
-                                  List<TargetMetaData> targets, CountDownLatch countDownLatch) {
-        for (TargetMetaData targetMetaData : targets) {
-            Database targetDb = new Database();
-
-            switch (targetMetaData.getType()) {
-                case CONNECT:
-                    targetDb.setConnectMetaData((ConnectMetaData) targetMetaData.getTarget());
-                    break;
-                case FILE:
-                    targetDb.setSqlFilePath((Path) targetMetaData.getTarget());
-                    break;
-                default:
-                    Log.COMMON.error("目标类型错误 {}，该目标同步跳过", targetMetaData.getTarget());
-                    continue;
-            }
-            targetDb.setOutputDdlFilepath(targetMetaData.getOutputFilePath());
-
-            targetDbs.add(targetDb);
-
-            executor.execute(() -> {
+    /**
+     * 并行读取并同步一批目标，每个目标在源与自身读取完毕后立即开始同步，完成后立即输出统计，不等待其他目标。
+     * 限制了每台服务器的连接数时，每台服务器上同时进行的目标数不超过该限额，各服务器的目标轮流提交
+     *
+     * @return 超时被中止的目标
+     */
+    private List<Database> syncTargets(ThreadPoolExecutor executor, Database sourceDb, CountDownLatch sourceReady,
+                                       List<Database> targetDbs) throws InterruptedException {
+        CompletionService<Database> completion = new ExecutorCompletionService<>(executor);
+        // 目标结束后连接信息会被清除，提前记录所在的服务器
+        Map<String, HostLane> lanes = new LinkedHashMap<>();
+        Map<Database, HostLane> laneOf = new HashMap<>();
+        for (Database targetDb : targetDbs) {
+            HostLane lane = lanes.computeIfAbsent(laneKey(targetDb), key -> new HostLane(laneCapacity(key)));
+            lane.pending.add(targetDb);
+            laneOf.put(targetDb, lane);
+        }
+        Map<Future<Database>, Database> running = new HashMap<>();
+        Map<Database, Long> sequences = new HashMap<>();
+        submitTargets(completion, lanes, running, sequences, sourceDb, sourceReady);
+        Set<Database> remaining = new LinkedHashSet<>(targetDbs);
+        while (!remaining.isEmpty()) {
+            Future<Database> done = completion.poll(1, TimeUnit.SECONDS);
+            if (done != null) {
+                Database targetDb = running.remove(done);
                 try {
-                    targetDb.init();
-                } catch (Exception e) {
-                    Log.COMMON.error("Target Database [{}] Init Exception", targetDb.getDbName());
-                    Log.COMMON.error("", e);
-                } finally {
-                    countDownLatch.countDown();
+                    done.get();
+                } catch (ExecutionException e) {
+                    Log.COMMON.error("", e.getCause());
                 }
-            });
+                if (remaining.remove(targetDb)) {
+                    Log.COMMON.info("Target Stats: {}", targetDb.getStats().summary());
+                    laneOf.get(targetDb).running--;
+                    if (concurrency != null) {
+                        concurrency.onComplete(targetDb.getStats().getName(), sequences.get(targetDb),
+                            feedback.getOrDefault(targetDb, AdaptiveConcurrency.Feedback.empty()));
+                    }
+                }
+                submitTargets(completion, lanes, running, sequences, sourceDb, sourceReady);
+                continue;
+            }
+            // 驱动不响应中止等情况下，中止后仍未结束的目标不再等待
+            long now = System.nanoTime();
+            List<Database> expired = new ArrayList<>();
+            for (Database targetDb : remaining) {
+                Timeout timeout = timeouts.get(targetDb);
+                if (timeout != null && now - timeout.abortedAt >= ABORT_GRACE_NANOS) {
+                    expired.add(targetDb);
+                }
+            }
+            for (Database targetDb : expired) {
+                remaining.remove(targetDb);
+                running.forEach((future, db) -> {
+                    if (db == targetDb) {
+                        abandoned.add(future);
+                    }
+                });
+                boolean ended = targetDb.awaitKilledQueries(0);
+                Log.COMMON.error("`{}` 中止后仍未结束，不再等待{}", targetDb.getStats().getName(),
+                    ended ? "" : "，服务器上中止的语句仍在执行");
+                Log.COMMON.info("Target Stats: {}", targetDb.getStats().summary());
+                laneOf.get(targetDb).running--;
+            }
+            if (!expired.isEmpty()) {
+                // 不再等待的目标仍占用着工作线程，补充线程避免后续目标排队
+                executor.setMaximumPoolSize(executor.getMaximumPoolSize() + 1);
+                executor.setCorePoolSize(executor.getCorePoolSize() + 1);
+                submitTargets(completion, lanes, running, sequences, sourceDb, sourceReady);
+            }
+        }
+        List<Database> stragglers = new ArrayList<>();
+        for (Database targetDb : targetDbs) {
+            if (timeouts.containsKey(targetDb)) {
+                stragglers.add(targetDb);
+            }
         }
+        return stragglers;
     }
 
-    private void syncTargets(ThreadPoolExecutor executor, Database sourceDb, List<Database> targetDbs)
-        throws InterruptedException {
-        CountDownLatch countDownLatch = new CountDownLatch(targetDbs.size());
-
-        for (final Database targetDb : targetDbs) {
-            executor.execute(() -> {
-                // 要删除的旧表
-                ArrayList<String> deleteTableNames = targetDb.getAllTableNames();
-                deleteTableNames.removeAll(sourceDb.getAllTableNames());
-                targetDb.generateDeleteTablesDdlList(deleteTableNames);
+    /**
+     * 同一台服务器上等待与正在进行的目标
+     */
+    private static class HostLane {
+        private final int capacity;
+        private final Deque<Database> pending = new ArrayDeque<>();
+        private int running = 0;
 
-                // 要创建的新表
-                ArrayList<String> createTableNames = sourceDb.getAllTableNames();
-                createTableNames.removeAll(targetDb.getAllTableNames());
-                ArrayList<Table> createdTables = new ArrayList<>(createTableNames.size());
-                createTableNames.forEach(tableName -> createdTables.add(sourceDb.getTableByName(tableName)));
-                targetDb.generateAddTablesDdlList(createdTables);
-
-                // 可能要修改的表
-                ArrayList<String> modifyTableNames = sourceDb.getAllTableNames();
-                modifyTableNames.retainAll(targetDb.getAllTableNames());
-                targetDb.generateSyncSchemaDdlList(sourceDb, modifyTableNames);
+        HostLane(int capacity) {
+            this.capacity = capacity;
+        }
+    }
 
-                if (preview) {
-                    Log.PREVIEW.info("=== `{}` DDL Preview Start ===", targetDb.getDbName());
-                    targetDb.displayPreview();
-                    Log.PREVIEW.info("=== `{}` DDL Preview End ===", targetDb.getDbName());
-                } else {
-                    targetDb.deleteAndAddTables();
-                    targetDb.syncSchema(sourceDb, recreateTableOnError);
+    /**
+     * 按服务器轮流提交目标，每轮每台服务器最多提交一个，直到各服务器都达到限额、总数达到并发控制的限额
+     * 或没有等待的目标
+     */
+    private void submitTargets(CompletionService<Database> completion, Map<String, HostLane> lanes,
+                               Map<Future<Database>, Database> running, Map<Database, Long> sequences,
+                               Database sourceDb, CountDownLatch sourceReady) {
+        int active = 0;
+        for (HostLane lane : lanes.values()) {
+            active += lane.running;
+        }
+        boolean submitted = true;
+        while (submitted) {
+            submitted = false;
+            for (HostLane lane : lanes.values()) {
+                if (concurrency != null && active >= concurrency.limit()) {
+                    return;
+                }
+                if (lane.pending.isEmpty() || lane.running >= lane.capacity) {
+                    continue;
                 }
+                Database targetDb = lane.pending.poll();
+                lane.running++;
+                active++;
+                if (concurrency != null) {
+                    sequences.put(targetDb, concurrency.nextSequence());
+                }
+                running.put(completion.submit(() -> runTarget(sourceDb, targetDb, sourceReady)), targetDb);
+                submitted = true;
+            }
+        }
+    }
 
-                targetDb.outputDdlFile();
+    /**
+     * @return 目标所在服务器的 host:port，SQL 文件目标为 null
+     */
+    private static String laneKey(Database database) {
+        return database.getHost() == null ? null : database.getHost() + ":" + database.getPort();
+    }
 
-                targetDb.destroyAllAttributes();
-                countDownLatch.countDown();
-            });
+    private int laneCapacity(String laneKey) {
+        if (laneKey == null || admission == null || admission.getMaxConnections() <= 0) {
+            return Integer.MAX_VALUE;
         }
+        return admission.getMaxConnections();
+    }
 
+    /**
+     * 读取目标结构，等待源读取完毕后同步，两个阶段分别受期限限制
+     */
+    private Database runTarget(Database sourceDb, Database targetDb, CountDownLatch sourceReady) {
         try {
-            countDownLatch.await();
+            if (resumeCompleted(targetDb)) {
+                resumedTargets.add(targetDb);
+                return targetDb;
+            }
+            ScheduledFuture<?> deadline = deadline(targetDb, "读取结构", initTimeoutSeconds, null);
+            try {
+                targetDb.init();
+            } catch (Exception e) {
+                Log.COMMON.error("Target Database [{}] Init Exception", targetDb.getDbName());
+                Log.COMMON.error("", e);
+            } finally {
+                cancel(deadline);
+            }
+            sourceReady.await();
+            if (timeouts.containsKey(sourceDb)) {
+                Log.COMMON.error("`{}` 源读取结构超时，跳过同步", targetDb.getDbName());
+                return targetDb;
+            }
+            if (timeouts.containsKey(targetDb)) {
+                return targetDb;
+            }
+            deadline = deadline(targetDb, "同步", syncTimeoutSeconds, null);
+            try {
+                syncTarget(sourceDb, targetDb);
+            } finally {
+                cancel(deadline);
+            }
         } catch (InterruptedException e) {
-            executor.shutdownNow();
-            throw e;
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Log.COMMON.error("Target Database [{}] Sync Exception", targetDb.getDbName());
+            Log.COMMON.error("", e);
+        } finally {
+            if (concurrency != null) {
+                long threadsRunning = maxThreadsRunning > 0 ? targetDb.queryThreadsRunning() : -1;
+                feedback.put(targetDb, AdaptiveConcurrency.Feedback.of(targetDb, threadsRunning));
+            }
+            targetDb.destroyAllAttributes();
+        }
+        return targetDb;
+    }
+
+    /**
+     * 为一个阶段设置期限，到期时中止该库：设置取消标记并中止其打开的连接
+     *
+     * @param seconds   期限，不大于 0 时不限制
+     * @param onTimeout 中止后调用，可以为 null
+     * @return 阶段结束时需要取消的定时任务，不限制时为 null
+     */
+    private ScheduledFuture<?> deadline(Database database, String phase, long seconds, Runnable onTimeout) {
+        if (seconds <= 0) {
+            return null;
+        }
+        return deadlineTimer.schedule(() -> {
+            timeouts.put(database, new Timeout(phase, System.nanoTime()));
+            Log.COMMON.error("`{}` {}超过 {} 秒，中止", database.getDbName(), phase, seconds);
+            database.abort();
+            if (onTimeout != null) {
+                onTimeout.run();
+            }
+        }, seconds, TimeUnit.SECONDS);
+    }
+
+    private static void cancel(ScheduledFuture<?> deadline) {
+        if (deadline != null) {
+            deadline.cancel(false);
+        }
+    }
+
+    /**
+     * 比对源库与单个目标库的差异，预览或执行 DDL，并输出 DDL 文件。源读取结构有错误时不同步，
+     * 避免按不完整的源结构删除目标表
+     *
+     * @param sourceDb 已初始化的源库
+     * @param targetDb 已初始化的目标库
+     */
+    void syncTarget(Database sourceDb, Database targetDb) {
+        if (!sourceDb.getErrors().isEmpty()) {
+            Log.COMMON.error("`{}` 源读取结构失败，跳过同步", targetDb.getDbName());
+            return;
+        }
+        List<String> confirmed = Collections.emptyList();
+        if (resumeState != null) {
+            confirmed = targetDb.confirmJournaledTables(resumeState.getTables(targetDb.getJournalKey()));
+            if (!confirmed.isEmpty()) {
+                Log.COMMON.info("`{}` 跳过上次运行中已完成的 {} 张表", targetDb.getDbName(), confirmed.size());
+            }
+        }
+        planTarget(sourceDb, targetDb, confirmed);
+        if (!preview && targetDb.isIntrospectedFromReplica()) {
+            // 从库的结构可能落后于主库，执行前在主库上重新读取受影响的表并重新比对
+            Set<String> affected = targetDb.getPlannedTableNames();
+            if (!affected.isEmpty()) {
+                Log.COMMON.info("`{}` 在主库上重新读取 {} 张受影响的表", targetDb.getDbName(), affected.size());
+                targetDb.refreshTables(affected);
+                planTarget(sourceDb, targetDb, confirmed);
+            }
+        }
+
+        targetDb.openDdlOutput();
+        if (preview) {
+            Log.PREVIEW.info("=== `{}` DDL Preview Start ===", targetDb.getDbName());
+            targetDb.displayPreview();
+            if (targetDb.isDependencyApply()) {
+                targetDb.displayDependencyPreview(sourceDb);
+            }
+            Log.PREVIEW.info("=== `{}` DDL Preview End ===", targetDb.getDbName());
+        } else {
+            long applyStart = System.nanoTime();
+            targetDb.setJournal(journal);
+            if (rehearsalThreads > 0 && !targetDb.rehearse(sourceDb, rehearsalThreads, recreateTableOnError)) {
+                Log.COMMON.error("`{}` DDL 演练失败，不执行任何 DDL", targetDb.getDbName());
+            } else if (targetDb.isDependencyApply()) {
+                targetDb.applyByDependency(sourceDb, recreateTableOnError);
+            } else {
+                targetDb.deleteAndAddTables();
+                targetDb.syncSchema(sourceDb, recreateTableOnError);
+            }
+            targetDb.getStats().addPhaseNanos(Phase.APPLY, System.nanoTime() - applyStart);
+            // 只有在线目标会执行 DDL，SQL 文件目标每次都重新比对
+            if (journal != null && targetDb.checkConnectMetaData() && targetDb.getErrors().isEmpty()
+                && !targetDb.isCancelled()) {
+                String digest = targetDb.schemaDigest();
+                if (digest != null) {
+                    journal.target(targetDb.getJournalKey(), digest);
+                }
+            }
         }
+
+        long outputStart = System.nanoTime();
+        targetDb.outputDdlFile();
+        targetDb.getStats().addPhaseNanos(Phase.OUTPUT, System.nanoTime() - outputStart);
+    }
+
+    /**
+     * 比对源库与目标库，生成目标库的 DDL 计划
+     *
+     * @param skipped 续跑时已完成、不再比对的表
+     */
+    private void planTarget(Database sourceDb, Database targetDb, List<String> skipped) {
+        targetDb.resetDdlPlan();
+        long diffStart = System.nanoTime();
+        // 要删除的旧表
+        ArrayList<String> deleteTableNames = targetDb.getAllTableNames();
+        deleteTableNames.removeAll(sourceDb.getAllTableNames());
+        targetDb.generateDeleteTablesDdlList(deleteTableNames);
+
+        // 要创建的新表
+        ArrayList<String> createTableNames = sourceDb.getAllTableNames();
+        createTableNames.removeAll(targetDb.getAllTableNames());
+        ArrayList<Table> createdTables = new ArrayList<>(createTableNames.size());
+        createTableNames.forEach(tableName -> createdTables.add(sourceDb.getTableByName(tableName)));
+        targetDb.generateAddTablesDdlList(createdTables);
+
+        // 可能要修改的表
+        ArrayList<String> modifyTableNames = sourceDb.getAllTableNames();
+        modifyTableNames.retainAll(targetDb.getAllTableNames());
+        modifyTableNames.removeAll(skipped);
+        targetDb.generateSyncSchemaDdlList(sourceDb, modifyTableNames);
+        targetDb.getStats().addPhaseNanos(Phase.DIFF, System.nanoTime() - diffStart);
     }
 }
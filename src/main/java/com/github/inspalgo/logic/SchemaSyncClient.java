@@ -0,0 +1,209 @@
+package com.github.inspalgo.logic;
+
+import com.github.inspalgo.core.ConnectionProvider;
+import com.github.inspalgo.core.Database;
+import com.github.inspalgo.util.TableThreadPoolExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 供嵌入调用的异步同步接口，不会退出 JVM，可重复使用
+ * <pre>{@code
+ * try (SchemaSyncClient client = SchemaSyncClient.builder().setConnectionProvider(pool).build()) {
+ *     SyncRun run = client.sync(source, targets);
+ *     for (TargetResult result : run.allResults().join()) {
+ *         ...
+ *     }
+ * }
+ * }</pre>
+ * 源与目标的类型与命令行一致：在线方式为 {@link com.github.inspalgo.core.ConnectMetaData}，SQL 文件方式为 {@link java.nio.file.Path}
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 15:40 UTC+08:00
+ */
+public class SchemaSyncClient implements AutoCloseable {
+    private final Executor executor;
+    private final ThreadPoolExecutor ownedExecutor;
+    private final ConnectionProvider connectionProvider;
+    private final boolean preview;
+    private final boolean recreateTableOnError;
+    private final boolean rebuildCopy;
+    private final int applyThreads;
+    private final boolean foreignKeyChecks;
+
+    private SchemaSyncClient(Builder builder) {
+        if (builder.executor == null) {
+            ownedExecutor = TableThreadPoolExecutor.makeUnbounded("SchemaSync");
+            executor = ownedExecutor;
+        } else {
+            ownedExecutor = null;
+            executor = builder.executor;
+        }
+        connectionProvider = builder.connectionProvider;
+        preview = builder.preview;
+        recreateTableOnError = builder.recreateTableOnError;
+        rebuildCopy = builder.rebuildCopy;
+        applyThreads = builder.applyThreads;
+        foreignKeyChecks = builder.foreignKeyChecks;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Executor executor = null;
+        private ConnectionProvider connectionProvider = ConnectionProvider.DRIVER_MANAGER;
+        private boolean preview = false;
+        private boolean recreateTableOnError = false;
+        private boolean rebuildCopy = false;
+        private int applyThreads = 1;
+        private boolean foreignKeyChecks = false;
+
+        /**
+         * @param executor 读取结构与同步目标所用的线程池，不指定时由 client 自行创建（队列不限长度）并在 close 时关闭。
+         *                 传入的线程池拒绝任务时 {@link #sync} 会取消已提交的部分并抛出 {@link RejectedExecutionException}
+         */
+        public Builder setExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public Builder setConnectionProvider(ConnectionProvider connectionProvider) {
+            this.connectionProvider = connectionProvider;
+            return this;
+        }
+
+        public Builder setPreview(boolean preview) {
+            this.preview = preview;
+            return this;
+        }
+
+        public Builder setRecreateTableOnError(boolean recreateTableOnError) {
+            this.recreateTableOnError = recreateTableOnError;
+            return this;
+        }
+
+        /**
+         * @param rebuildCopy 是否允许在预计更快时以重建复制代替逐条 ALTER，复制期间原表的写入会丢失
+         */
+        public Builder setRebuildCopy(boolean rebuildCopy) {
+            this.rebuildCopy = rebuildCopy;
+            return this;
+        }
+
+        /**
+         * @param applyThreads 每个目标按外键依赖分组后并行执行 DDL 的连接数
+         */
+        public Builder setApplyThreads(int applyThreads) {
+            this.applyThreads = applyThreads;
+            return this;
+        }
+
+        /**
+         * @param foreignKeyChecks 执行 DDL 时是否保持外键检查开启，按外键依赖的拓扑顺序执行
+         */
+        public Builder setForeignKeyChecks(boolean foreignKeyChecks) {
+            this.foreignKeyChecks = foreignKeyChecks;
+            return this;
+        }
+
+        public SchemaSyncClient build() {
+            return new SchemaSyncClient(this);
+        }
+    }
+
+    /**
+     * 异步同步源到各个目标。源与各目标并行读取结构，每个目标在源与自身都读取完毕后立即开始同步
+     *
+     * @param source  源
+     * @param targets 目标列表
+     * @return 同步句柄
+     * @throws RejectedExecutionException 线程池拒绝任务，已提交的部分会被取消
+     */
+    public SyncRun sync(Object source, List<TargetMetaData> targets) {
+        if (source == null || targets == null || targets.isEmpty()) {
+            throw new IllegalArgumentException("参数为空");
+        }
+        Dispatcher dispatcher = new Dispatcher().setSource(source).setTargetList(targets).setPreview(preview)
+                                                .setRecreateTableOnError(recreateTableOnError)
+                                                .setRebuildCopy(rebuildCopy)
+                                                .setApplyThreads(applyThreads)
+                                                .setForeignKeyChecks(foreignKeyChecks)
+                                                .setConnectionProvider(connectionProvider);
+        long start = System.nanoTime();
+        List<Database> databases = new ArrayList<>(targets.size() + 1);
+        Database sourceDb = dispatcher.newSourceDb();
+        databases.add(sourceDb);
+        List<CompletableFuture<TargetResult>> results = new ArrayList<>(targets.size());
+        try {
+            CompletableFuture<Database> sourceFuture = init(sourceDb);
+            for (TargetMetaData target : targets) {
+                Database targetDb = dispatcher.newTargetDb(target);
+                if (targetDb == null) {
+                    results.add(CompletableFuture.completedFuture(new TargetResult(target, null, null,
+                        Collections.emptyList(), Collections.emptyList(),
+                        Collections.singletonList("目标类型错误 " + target.getTarget()), null, 0, false)));
+                    continue;
+                }
+                databases.add(targetDb);
+                CompletableFuture<TargetResult> result = sourceFuture.thenCombineAsync(init(targetDb),
+                    (src, tgt) -> syncTarget(dispatcher, target, src, tgt, start), executor);
+                // 取消单个目标的 future 时同时取消该目标的同步
+                result.whenComplete((ignore, e) -> {
+                    if (e instanceof CancellationException) {
+                        targetDb.cancel();
+                    }
+                });
+                results.add(result);
+            }
+        } catch (RejectedExecutionException e) {
+            databases.forEach(Database::cancel);
+            throw e;
+        }
+
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                         .whenComplete((ignore, e) -> sourceDb.destroyAllAttributes());
+        return new SyncRun(databases, results);
+    }
+
+    private CompletableFuture<Database> init(Database database) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!database.isCancelled()) {
+                database.init();
+            }
+            return database;
+        }, executor);
+    }
+
+    private static TargetResult syncTarget(Dispatcher dispatcher, TargetMetaData target, Database sourceDb,
+                                           Database targetDb, long start) {
+        if (targetDb.getErrors().isEmpty() && !targetDb.isCancelled()) {
+            dispatcher.syncTarget(sourceDb, targetDb);
+        }
+        List<String> errors = new ArrayList<>(sourceDb.getErrors());
+        errors.addAll(targetDb.getErrors());
+        TargetResult result = new TargetResult(target, targetDb.getDbName(), targetDb.getStats().getEndpoint(),
+            targetDb.getDdlPlan(), targetDb.getDdlExecutions(), errors, targetDb.getStats(),
+            System.nanoTime() - start, targetDb.isCancelled());
+        targetDb.destroyAllAttributes();
+        return result;
+    }
+
+    /**
+     * 关闭 client 自行创建的线程池，调用方传入的线程池不受影响
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.inspalgo.logic;
+
+import com.github.inspalgo.core.DdlExecution;
+import com.github.inspalgo.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 慢 DDL 报告：按耗时倒序输出每条已执行 DDL 的耗时、表数据量与重建吞吐
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 12:50 UTC+08:00
+ */
+public class SlowDdlReport {
+    /**
+     * 控制台最多展示的条数，完整列表见 JSON 文件
+     */
+    private static final int CONSOLE_LIMIT = 20;
+
+    private final List<DdlExecution> executions;
+
+    public SlowDdlReport(List<DdlExecution> executions) {
+        this.executions = new ArrayList<>(executions);
+        this.executions.sort(Comparator.comparingLong(DdlExecution::getDurationNanos).reversed());
+    }
+
+    public boolean isEmpty() {
+        return executions.isEmpty();
+    }
+
+    /**
+     * 在控制台输出耗时最长的若干条 DDL
+     */
+    public void display() {
+        if (executions.isEmpty()) {
+            return;
+        }
+        Log.PREVIEW.info("=== Slow DDL Report (Top {} of {}) ===", Math.min(CONSOLE_LIMIT, executions.size()),
+            executions.size());
+        Log.PREVIEW.info(String.format("%10s %12s %14s %12s %-7s %s",
+            "ms", "rows", "bytes", "bytes/s", "status", "statement"));
+        for (int i = 0, size = Math.min(CONSOLE_LIMIT, executions.size()); i < size; i++) {
+            DdlExecution e = executions.get(i);
+            Log.PREVIEW.info(String.format("%10d %12d %14d %12d %-7s `%s`.`%s` %s",
+                e.getDurationMillis(), e.getTableRows(), e.getDataLength(), e.getBytesPerSecond(),
+                e.isSuccess() ? "OK" : "FAILED", e.getDatabase(), e.getTable(), e.getDdl()));
+        }
+        Log.PREVIEW.info("=== Slow DDL Report End ===");
+    }
+
+    /**
+     * 以 JSON 格式写出完整报告
+     *
+     * @param path 输出路径
+     */
+    public void writeJson(Path path) {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writer.write("{\"statements\":[");
+            for (int i = 0, size = executions.size(); i < size; i++) {
+                DdlExecution e = executions.get(i);
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write("\n{\"database\":" + quote(e.getDatabase())
+                    + ",\"endpoint\":" + quote(e.getEndpoint())
+                    + ",\"table\":" + quote(e.getTable())
+                    + ",\"statement\":" + quote(e.getDdl())
+                    + ",\"durationMs\":" + e.getDurationMillis()
+                    + ",\"success\":" + e.isSuccess()
+                    + ",\"error\":" + quote(e.getError())
+                    + ",\"dataLength\":" + e.getDataLength()
+                    + ",\"tableRows\":" + e.getTableRows()
+                    + ",\"bytesPerSecond\":" + e.getBytesPerSecond() + "}");
+            }
+            writer.write("\n]}\n");
+        } catch (IOException e) {
+            Log.COMMON.error("写入慢 DDL 报告 [{}] 失败", path, e);
+        }
+    }
+
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0, size = value.length(); i < size; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
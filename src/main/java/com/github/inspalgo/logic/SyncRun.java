@@ -0,0 +1,59 @@
+package com.github.inspalgo.logic;
+
+import com.github.inspalgo.core.Database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 一次异步同步的句柄，可逐个获取目标结果，也可等待全部完成或取消
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 15:40 UTC+08:00
+ */
+public class SyncRun {
+    private final List<Database> databases;
+    private final List<CompletableFuture<TargetResult>> results;
+    private final CompletableFuture<List<TargetResult>> all;
+
+    SyncRun(List<Database> databases, List<CompletableFuture<TargetResult>> results) {
+        this.databases = databases;
+        this.results = Collections.unmodifiableList(results);
+        this.all = CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).thenApply(ignore -> {
+            List<TargetResult> list = new ArrayList<>(results.size());
+            results.forEach(result -> list.add(result.join()));
+            return list;
+        });
+        all.whenComplete((ignore, e) -> {
+            if (e instanceof CancellationException) {
+                cancel();
+            }
+        });
+    }
+
+    /**
+     * @return 与目标列表一一对应的结果，某个目标完成后即可获取，不必等待其他目标。
+     * 调用其中一个 future 的 {@link CompletableFuture#cancel(boolean)} 会取消该目标，之后无法再获取该目标的结果
+     */
+    public List<CompletableFuture<TargetResult>> getResults() {
+        return results;
+    }
+
+    /**
+     * @return 全部目标完成后的结果列表，取消它等同于 {@link #cancel()}
+     */
+    public CompletableFuture<List<TargetResult>> allResults() {
+        return all;
+    }
+
+    /**
+     * 取消同步：尚未开始的目标直接跳过，正在执行的目标执行完当前语句后停止，
+     * 对应结果的 {@link TargetResult#isCancelled()} 为 true
+     */
+    public void cancel() {
+        databases.forEach(Database::cancel);
+    }
+}
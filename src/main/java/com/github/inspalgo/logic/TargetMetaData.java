@@ -3,6 +3,8 @@ package com.github.inspalgo.logic;
 import com.github.inspalgo.core.ConnectMetaData;
 
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * @author me
@@ -12,6 +14,7 @@ public class TargetMetaData {
     private TargetType type;
     private Object target;
     private Path outputFilePath;
+    private List<String> replicas = Collections.emptyList();
 
     public enum TargetType {
         /**
@@ -40,6 +43,21 @@ public class TargetMetaData {
         return outputFilePath;
     }
 
+    /**
+     * @return 读取结构用的从库 host:port
+     */
+    public List<String> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * @param replicas 读取结构用的从库 host:port，只对在线目标有效
+     */
+    public TargetMetaData setReplicas(List<String> replicas) {
+        this.replicas = replicas == null ? Collections.emptyList() : replicas;
+        return this;
+    }
+
     public TargetMetaData(Object target, Path outputFilePath) {
         this.type = TargetType.NONE;
         this.target = target;
@@ -0,0 +1,103 @@
+package com.github.inspalgo.logic;
+
+import com.github.inspalgo.core.DdlExecution;
+import com.github.inspalgo.util.SyncStats;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个目标库的同步结果
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 15:40 UTC+08:00
+ */
+public class TargetResult {
+    private final TargetMetaData target;
+    private final String database;
+    private final String endpoint;
+    private final List<String> plan;
+    private final List<DdlExecution> executions;
+    private final List<String> errors;
+    private final SyncStats stats;
+    private final long durationNanos;
+    private final boolean cancelled;
+
+    public TargetResult(TargetMetaData target, String database, String endpoint, List<String> plan,
+                        List<DdlExecution> executions, List<String> errors, SyncStats stats, long durationNanos,
+                        boolean cancelled) {
+        this.target = target;
+        this.database = database;
+        this.endpoint = endpoint;
+        this.plan = Collections.unmodifiableList(plan);
+        this.executions = Collections.unmodifiableList(executions);
+        this.errors = Collections.unmodifiableList(errors);
+        this.stats = stats;
+        this.durationNanos = durationNanos;
+        this.cancelled = cancelled;
+    }
+
+    public TargetMetaData getTarget() {
+        return target;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return 按执行顺序排列的差异 DDL，预览模式下即为将要执行的语句
+     */
+    public List<String> getPlan() {
+        return plan;
+    }
+
+    /**
+     * @return 实际执行的每条 DDL 及其耗时与错误
+     */
+    public List<DdlExecution> getExecutions() {
+        return executions;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public SyncStats getStats() {
+        return stats;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public long getDurationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isSuccess() {
+        return !cancelled && errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "TargetResult{" +
+            "database='" + database + '\'' +
+            ", endpoint='" + endpoint + '\'' +
+            ", plan=" + plan.size() +
+            ", executions=" + executions.size() +
+            ", errors=" + errors +
+            ", durationMillis=" + getDurationMillis() +
+            ", cancelled=" + cancelled +
+            '}';
+    }
+}
@@ -0,0 +1,339 @@
+package com.github.inspalgo.logic;
+
+import com.github.inspalgo.core.BinlogDdlWatcher;
+import com.github.inspalgo.core.ConnectMetaData;
+import com.github.inspalgo.core.Database;
+import com.github.inspalgo.util.Log;
+import com.github.inspalgo.util.TableThreadPoolExecutor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 常驻监听模式：源库结构常驻内存，按固定间隔用结构摘要低成本地探测源与目标的变化，
+ * 有变化时才重新读取对应库并同步；可选在本机回环地址上开启 HTTP 控制端口。
+ * 开启 binlog 变更捕获后，源库改为从 binlog 中的 DDL 得到受影响的表，只重新读取这些表
+ * <ul>
+ *     <li>GET /status 查看运行状态</li>
+ *     <li>POST /sync 立即触发一轮检查</li>
+ * </ul>
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 14:10 UTC+08:00
+ */
+public class WatchDaemon {
+    private final Dispatcher dispatcher;
+    private final long intervalSeconds;
+    private final int controlPort;
+    private final boolean binlog;
+    private BinlogDdlWatcher binlogWatcher;
+    private final LinkedBlockingQueue<Boolean> triggers = new LinkedBlockingQueue<>();
+
+    private volatile Database sourceDb;
+    private volatile String sourceDigest;
+    /**
+     * binlog 模式下只重新读取受影响的表失败，下一轮需要完整重新读取源库
+     */
+    private volatile boolean sourceReloadPending = false;
+    private final List<TargetState> targetStates = new ArrayList<>();
+    private final AtomicLong cycles = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private volatile String state = "STARTING";
+    private volatile long lastCycleMillis = 0;
+    private volatile long lastCycleDurationMillis = 0;
+
+    private static class TargetState {
+        private final TargetMetaData metaData;
+        private volatile Database model;
+        private volatile String name;
+        private volatile String digest;
+        private volatile long lastSyncMillis = 0;
+        private volatile long lastSyncDurationMillis = 0;
+        private volatile String lastError;
+        /**
+         * 上一次同步失败或被取消，结构未变化时也要再次同步
+         */
+        private volatile boolean retryPending = false;
+
+        TargetState(TargetMetaData metaData) {
+            this.metaData = metaData;
+        }
+    }
+
+    public WatchDaemon(Dispatcher dispatcher, long intervalSeconds, int controlPort, boolean binlog) {
+        this.dispatcher = dispatcher;
+        this.intervalSeconds = intervalSeconds;
+        this.controlPort = controlPort;
+        this.binlog = binlog;
+        for (TargetMetaData targetMetaData : dispatcher.getTargetList()) {
+            targetStates.add(new TargetState(targetMetaData));
+        }
+    }
+
+    /**
+     * 阻塞运行，直到当前线程被中断
+     *
+     * @throws IOException 控制端口启动失败
+     */
+    public void run() throws IOException {
+        if (dispatcher.getSource() == null || targetStates.isEmpty()) {
+            throw new IllegalArgumentException("参数为空");
+        }
+        if (binlog && !(dispatcher.getSource() instanceof ConnectMetaData)) {
+            throw new IllegalArgumentException("binlog 变更捕获仅支持在线方式的源");
+        }
+        HttpServer server = controlPort > 0 ? startControlServer() : null;
+        ThreadPoolExecutor executor = TableThreadPoolExecutor.make("Watch", targetStates.size());
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                state = "SYNCING";
+                runCycle(executor);
+                state = "IDLE";
+                triggers.poll(intervalSeconds, TimeUnit.SECONDS);
+                triggers.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            state = "STOPPED";
+            executor.shutdownNow();
+            if (server != null) {
+                server.stop(0);
+            }
+        }
+    }
+
+    void runCycle(ThreadPoolExecutor executor) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        cycles.incrementAndGet();
+
+        boolean sourceChanged = refreshSource();
+        if (sourceDb == null) {
+            return;
+        }
+
+        CountDownLatch countDownLatch = new CountDownLatch(targetStates.size());
+        for (TargetState targetState : targetStates) {
+            executor.execute(() -> {
+                try {
+                    checkTarget(targetState, sourceChanged);
+                } catch (Exception e) {
+                    targetState.lastError = e.toString();
+                    Log.COMMON.error("Watch Target [{}] Exception", targetState.name, e);
+                } finally {
+                    countDownLatch.countDown();
+                }
+            });
+        }
+        countDownLatch.await();
+
+        lastCycleMillis = System.currentTimeMillis();
+        lastCycleDurationMillis = lastCycleMillis - start;
+    }
+
+    /**
+     * 源结构摘要变化时重新读取源库
+     *
+     * @return 源库是否发生了变化
+     */
+    private boolean refreshSource() {
+        if (binlog) {
+            return refreshSourceByBinlog();
+        }
+        Database probe = sourceDb != null ? sourceDb : dispatcher.newSourceDb();
+        String digest = probe.schemaDigest();
+        if (digest == null) {
+            // 源库不可用时保留上一次的源结构，不同步
+            return false;
+        }
+        if (sourceDb != null && digest.equals(sourceDigest)) {
+            return false;
+        }
+        return reloadSource(digest);
+    }
+
+    /**
+     * 从 binlog 读取自上次位点以来的 DDL，只重新读取受影响的表
+     *
+     * @return 源库是否发生了变化
+     */
+    private boolean refreshSourceByBinlog() {
+        if (binlogWatcher == null) {
+            BinlogDdlWatcher watcher = new BinlogDdlWatcher(dispatcher.newSourceDb());
+            // 先记录位点再读取结构，两者之间的变更会在下一轮被捕获
+            if (!watcher.start()) {
+                return false;
+            }
+            binlogWatcher = watcher;
+            return reloadSource(watcher.getLogFile() + ":" + watcher.getPosition());
+        }
+        Set<String> tables;
+        try {
+            tables = binlogWatcher.poll();
+        } catch (SQLException e) {
+            Log.COMMON.error("读取 binlog 失败", e);
+            return false;
+        }
+        String digest = binlogWatcher.getLogFile() + ":" + binlogWatcher.getPosition();
+        if (sourceDb == null || sourceReloadPending || tables.contains(BinlogDdlWatcher.ALL_TABLES)) {
+            sourceReloadPending = !reloadSource(digest);
+            return !sourceReloadPending;
+        }
+        sourceDigest = digest;
+        if (tables.isEmpty()) {
+            return false;
+        }
+        Log.COMMON.info("binlog 捕获到源库表结构变更: {}", tables);
+        int errors = sourceDb.getErrors().size();
+        sourceDb.refreshTables(tables);
+        if (sourceDb.getErrors().size() > errors) {
+            // 部分表可能已更新，整体不可信，且这些表的变更不会再出现在 binlog 中，下一轮完整重新读取
+            Log.COMMON.error("重新读取源库表 {} 失败，暂不同步，下一轮重新读取整个源库", tables);
+            sourceReloadPending = true;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean reloadSource(String digest) {
+        Database fresh = dispatcher.newSourceDb();
+        try {
+            fresh.init();
+        } catch (Exception e) {
+            Log.COMMON.error("Source Database Init Exception", e);
+            return false;
+        }
+        List<String> errors = fresh.getErrors();
+        if (!errors.isEmpty()) {
+            // 读取失败时结构不完整，据此同步会删除目标中缺少的表，保留上一次的源结构
+            Log.COMMON.error("源库结构读取失败，保留上一次的源结构，暂不同步: {}", errors);
+            return false;
+        }
+        Log.COMMON.info("源库 `{}` 结构已加载，摘要 {}", fresh.getDbName(), digest);
+        sourceDb = fresh;
+        sourceDigest = digest;
+        return true;
+    }
+
+    private void checkTarget(TargetState targetState, boolean sourceChanged) {
+        Database probe = targetState.model != null ? targetState.model : dispatcher.newTargetDb(targetState.metaData);
+        if (probe == null) {
+            return;
+        }
+        targetState.name = probe.getDbName();
+        String digest = probe.schemaDigest();
+        if (digest == null) {
+            targetState.lastError = "读取结构摘要失败";
+            return;
+        }
+        boolean targetChanged = !digest.equals(targetState.digest);
+        if (!sourceChanged && !targetChanged && !targetState.retryPending) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        Database model = targetState.model;
+        if (model == null || targetChanged) {
+            model = dispatcher.newTargetDb(targetState.metaData);
+            model.init();
+        }
+        dispatcher.syncTarget(sourceDb, model);
+        syncs.incrementAndGet();
+        targetState.lastSyncMillis = System.currentTimeMillis();
+        targetState.lastSyncDurationMillis = targetState.lastSyncMillis - start;
+
+        List<String> errors = model.getErrors();
+        if (model.isCancelled() || !errors.isEmpty()) {
+            // 目标可能只完成了一部分，保留上一次的摘要，下一轮重新读取目标并再次同步
+            targetState.lastError = model.isCancelled() ? "同步已取消" : String.join("; ", errors);
+            targetState.model = null;
+            targetState.retryPending = true;
+            Log.COMMON.error("`{}` 同步未完成，下一轮重试: {}", targetState.name, targetState.lastError);
+            return;
+        }
+        if (dispatcher.isPreview()) {
+            targetState.model = model;
+            targetState.digest = digest;
+        } else {
+            // 执行过 DDL 后内存中的目标结构已过期，下次需要时再重新读取
+            targetState.model = null;
+            targetState.digest = model.schemaDigest();
+        }
+        targetState.lastError = null;
+        targetState.retryPending = false;
+    }
+
+    private HttpServer startControlServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), controlPort), 0);
+        server.createContext("/status", exchange -> respond(exchange, 200, statusJson()));
+        server.createContext("/sync", exchange -> {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                respond(exchange, 405, "{\"error\":\"POST required\"}");
+                return;
+            }
+            triggers.offer(Boolean.TRUE);
+            respond(exchange, 202, "{\"triggered\":true}");
+        });
+        server.start();
+        Log.COMMON.info("控制端口已启动: http://{}:{}/status", InetAddress.getLoopbackAddress().getHostAddress(),
+            controlPort);
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String statusJson() {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"state\":").append(SlowDdlReport.quote(state))
+          .append(",\"cycles\":").append(cycles.get())
+          .append(",\"syncs\":").append(syncs.get())
+          .append(",\"lastCycleMillis\":").append(lastCycleMillis)
+          .append(",\"lastCycleDurationMillis\":").append(lastCycleDurationMillis)
+          .append(",\"sourceDigest\":").append(SlowDdlReport.quote(sourceDigest))
+          .append(",\"targets\":[");
+        for (int i = 0, size = targetStates.size(); i < size; i++) {
+            TargetState t = targetStates.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"name\":").append(SlowDdlReport.quote(t.name))
+              .append(",\"digest\":").append(SlowDdlReport.quote(t.digest))
+              .append(",\"lastSyncMillis\":").append(t.lastSyncMillis)
+              .append(",\"lastSyncDurationMillis\":").append(t.lastSyncDurationMillis)
+              .append(",\"lastError\":").append(SlowDdlReport.quote(t.lastError))
+              .append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    @Override
+    public String toString() {
+        return "WatchDaemon{" +
+            "intervalSeconds=" + intervalSeconds +
+            ", controlPort=" + controlPort +
+            ", state='" + state + '\'' +
+            ", cycles=" + cycles +
+            '}';
+    }
+}
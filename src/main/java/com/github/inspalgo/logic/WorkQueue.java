@@ -0,0 +1,386 @@
+package com.github.inspalgo.logic;
+
+import com.github.inspalgo.core.ConnectMetaData;
+import com.github.inspalgo.core.Database;
+import com.github.inspalgo.util.Log;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于共享目录的任务队列，协调者与各 worker 只需挂载同一个目录，不依赖其他服务
+ * <pre>
+ * dir/manifest.properties   任务总数，协调者最后写入，worker 看到后才开始
+ * dir/source.sql.zst        源结构快照，每表一条 CREATE TABLE
+ * dir/items/00001.target    待领取的目标
+ * dir/leases/00001.target@worker  已被 worker 领取，文件修改时间即心跳时间
+ * dir/results/00001.result  执行结果
+ * </pre>
+ * 领取、回收、完成都通过同一文件系统内的原子 rename 完成，同一时刻只有一个进程能成功；
+ * 心跳超过租约时间的目标由任意进程放回 items，原 worker 在下次心跳时发现租约已失效并中止。
+ * 回收时先将租约改为回收者独有的名字，再检查心跳，期间的心跳不会丢失；
+ * 完成时先将租约移入 results，移动成功才写入结果，租约已被回收时结果不会写入。
+ * 判断租约过期依赖各机器的时钟基本一致。
+ * 目标只以 用户名@主机:端口/库名 的形式写入目录，不写入密码，由 worker 从自己的 -t 或环境变量中取得
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 23:50 UTC+08:00
+ */
+final class WorkQueue {
+    private static final String MANIFEST = "manifest.properties";
+    private static final String SNAPSHOT = "source.sql.zst";
+    private static final String ITEM_SUFFIX = ".target";
+    private static final String RESULT_SUFFIX = ".result";
+    private static final char OWNER_SEPARATOR = '@';
+    /**
+     * 回收中的租约改名为 编号.target#回收者-序号，不含 OWNER_SEPARATOR，其他进程不会将其当作租约
+     */
+    private static final char RECLAIM_SEPARATOR = '#';
+    /**
+     * 租约正被回收时心跳与完成的重试间隔，回收只包含两次 rename 与一次读取修改时间
+     */
+    private static final long LEASE_RETRY_MILLIS = 200;
+
+    static final String STATUS_OK = "OK";
+    static final String STATUS_FAILED = "FAILED";
+    static final String STATUS_TIMEOUT = "TIMEOUT";
+    /**
+     * worker 的 -t 中没有对应目标时使用的密码
+     */
+    static final String PASSWORD_ENV = "MYSQL_SCHEMA_SYNC_PASSWORD";
+
+    private final Path directory;
+    private final Path items;
+    private final Path leases;
+    private final Path results;
+    private final AtomicLong reclaims = new AtomicLong();
+
+    /**
+     * 已领取的目标
+     */
+    static final class Claim {
+        private final String id;
+        private final Path lease;
+        private final TargetMetaData target;
+
+        private Claim(String id, Path lease, TargetMetaData target) {
+            this.id = id;
+            this.lease = lease;
+            this.target = target;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        TargetMetaData getTarget() {
+            return target;
+        }
+    }
+
+    WorkQueue(Path directory) {
+        this.directory = directory;
+        this.items = directory.resolve("items");
+        this.leases = directory.resolve("leases");
+        this.results = directory.resolve("results");
+    }
+
+    /**
+     * @return 本进程的 worker 标识，由主机名与进程号组成
+     */
+    static String workerId() {
+        // pid@hostname
+        return ManagementFactory.getRuntimeMXBean().getName().replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * @return 目标在共享目录中的标识，用户名@主机:端口/库名，不含密码
+     */
+    static String reference(ConnectMetaData connect) {
+        return connect.getUsername() + OWNER_SEPARATOR + connect.getHost() + ':' + connect.getPort() + '/'
+            + connect.getDatabase();
+    }
+
+    Path getSnapshotPath() {
+        return directory.resolve(SNAPSHOT);
+    }
+
+    /**
+     * 写入源结构快照与全部目标，最后写入 manifest
+     *
+     * @throws IOException 目录中已有任务或写入失败
+     */
+    void publish(Database sourceDb, List<TargetMetaData> targets) throws IOException {
+        if (Files.exists(directory.resolve(MANIFEST))) {
+            throw new FileAlreadyExistsException(directory.resolve(MANIFEST).toString(), null, "目录中已有任务");
+        }
+        Files.createDirectories(items);
+        Files.createDirectories(leases);
+        Files.createDirectories(results);
+        Path snapshot = directory.resolve(SNAPSHOT + ".tmp.zst");
+        sourceDb.writeSnapshot(snapshot);
+        Files.move(snapshot, getSnapshotPath(), StandardCopyOption.ATOMIC_MOVE);
+        for (int i = 0; i < targets.size(); i++) {
+            writeAtomically(items.resolve(String.format("%05d%s", i + 1, ITEM_SUFFIX)), toProperties(targets.get(i)));
+        }
+        Properties manifest = new Properties();
+        manifest.setProperty("total", String.valueOf(targets.size()));
+        writeAtomically(directory.resolve(MANIFEST), manifest);
+    }
+
+    /**
+     * @return 任务总数，协调者尚未发布完成时为 -1
+     */
+    int total() throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return -1;
+        }
+        return Integer.parseInt(read(manifest).getProperty("total"));
+    }
+
+    /**
+     * 按编号顺序领取一个待执行的目标
+     *
+     * @return 领取到的目标，没有待领取的目标时为 null
+     */
+    Claim claim(String workerId) throws IOException {
+        for (Path item : list(items, ITEM_SUFFIX)) {
+            String name = item.getFileName().toString();
+            Path lease = leases.resolve(name + OWNER_SEPARATOR + workerId);
+            try {
+                Files.move(item, lease, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                // 已被其他 worker 领取
+                continue;
+            }
+            Files.setLastModifiedTime(lease, FileTime.fromMillis(System.currentTimeMillis()));
+            String id = name.substring(0, name.length() - ITEM_SUFFIX.length());
+            return new Claim(id, lease, fromProperties(read(lease)));
+        }
+        return null;
+    }
+
+    /**
+     * @return false 表示租约已被回收
+     */
+    boolean heartbeat(Claim claim) {
+        try {
+            return withLease(() -> Files.setLastModifiedTime(claim.lease,
+                FileTime.fromMillis(System.currentTimeMillis())));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 将租约移入 results 后写入结果，移动成功即表示本 worker 仍持有租约，之后不会再被回收
+     *
+     * @return false 表示租约已被回收，结果未写入，由重新领取的 worker 写入
+     */
+    boolean complete(Claim claim, Properties result) throws IOException {
+        Path pending = results.resolve(claim.id + RESULT_SUFFIX + ".pending");
+        if (!withLease(() -> Files.move(claim.lease, pending, StandardCopyOption.ATOMIC_MOVE))) {
+            return false;
+        }
+        try (Writer writer = Files.newBufferedWriter(pending, StandardCharsets.UTF_8)) {
+            result.store(writer, null);
+        }
+        Files.move(pending, results.resolve(claim.id + RESULT_SUFFIX), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    @FunctionalInterface
+    private interface LeaseOperation {
+        void run() throws IOException;
+    }
+
+    /**
+     * 对租约执行操作，租约不存在时等待一次后重试，避免与检查后未回收的回收者冲突
+     *
+     * @return false 表示租约已被回收
+     */
+    private static boolean withLease(LeaseOperation operation) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                operation.run();
+                return true;
+            } catch (NoSuchFileException e) {
+                if (attempt > 0) {
+                    return false;
+                }
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(LEASE_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 将心跳超时的目标放回待领取队列
+     *
+     * @param leaseMillis 租约时长
+     * @return 回收的目标数
+     */
+    int reclaimExpired(long leaseMillis) throws IOException {
+        int reclaimed = 0;
+        for (Path lease : list(leases, null)) {
+            String name = lease.getFileName().toString();
+            int separator = name.indexOf(OWNER_SEPARATOR);
+            try {
+                if (separator == -1 || isLive(lease, leaseMillis)) {
+                    continue;
+                }
+                String id = name.substring(0, separator);
+                // 先改为本进程独有的名字，之后原 worker 的心跳与完成都会失败，不会再修改它
+                Path reclaiming = leases.resolve(id + RECLAIM_SEPARATOR + workerId() + '-'
+                    + reclaims.incrementAndGet());
+                Files.move(lease, reclaiming, StandardCopyOption.ATOMIC_MOVE);
+                if (isLive(reclaiming, leaseMillis)) {
+                    // 检查与改名之间有过心跳，租约仍然有效，改回原名，原 worker 的重试会成功
+                    Files.move(reclaiming, lease, StandardCopyOption.ATOMIC_MOVE);
+                    continue;
+                }
+                Files.move(reclaiming, items.resolve(id), StandardCopyOption.ATOMIC_MOVE);
+                Log.COMMON.warn("回收 {} 的超时租约 {}", name.substring(separator + 1), id);
+                reclaimed++;
+            } catch (NoSuchFileException ignore) {
+                // 已被其他进程回收或已完成
+            }
+        }
+        return reclaimed;
+    }
+
+    private static boolean isLive(Path lease, long leaseMillis) throws IOException {
+        return System.currentTimeMillis() - Files.getLastModifiedTime(lease).toMillis() < leaseMillis;
+    }
+
+    /**
+     * @return 已写入的结果，按目标编号排序
+     */
+    Map<String, Properties> results() throws IOException {
+        Map<String, Properties> map = new TreeMap<>();
+        for (Path result : list(results, RESULT_SUFFIX)) {
+            String name = result.getFileName().toString();
+            map.put(name.substring(0, name.length() - RESULT_SUFFIX.length()), read(result));
+        }
+        return map;
+    }
+
+    int resultCount() throws IOException {
+        return list(results, RESULT_SUFFIX).size();
+    }
+
+    /**
+     * @param leaseMillis 租约时长
+     * @return 心跳未超时的租约数，即正在执行的 worker 数
+     */
+    int liveLeases(long leaseMillis) throws IOException {
+        int live = 0;
+        for (Path lease : list(leases, null)) {
+            try {
+                if (isLive(lease, leaseMillis)) {
+                    live++;
+                }
+            } catch (NoSuchFileException ignore) {
+                // 已完成或已被回收
+            }
+        }
+        return live;
+    }
+
+    private static List<Path> list(Path dir, String suffix) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return Collections.emptyList();
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                if (suffix == null || file.getFileName().toString().endsWith(suffix)) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static Properties toProperties(TargetMetaData target) {
+        Properties properties = new Properties();
+        if (target.getTarget() instanceof ConnectMetaData) {
+            ConnectMetaData connect = (ConnectMetaData) target.getTarget();
+            properties.setProperty("username", connect.getUsername());
+            properties.setProperty("host", connect.getHost());
+            properties.setProperty("port", connect.getPort());
+            properties.setProperty("database", connect.getDatabase());
+            if (!target.getReplicas().isEmpty()) {
+                properties.setProperty("replicas", String.join(",", target.getReplicas()));
+            }
+        } else {
+            properties.setProperty("file", target.getTarget().toString());
+        }
+        if (target.getOutputFilePath() != null) {
+            properties.setProperty("output", target.getOutputFilePath().toString());
+        }
+        return properties;
+    }
+
+    private static TargetMetaData fromProperties(Properties properties) {
+        Path output = properties.getProperty("output") == null ? null : Paths.get(properties.getProperty("output"));
+        if (properties.getProperty("file") != null) {
+            return new TargetMetaData(Paths.get(properties.getProperty("file")), output);
+        }
+        ConnectMetaData connect = new ConnectMetaData();
+        connect.setType(ConnectMetaData.Type.MYSQL);
+        connect.setUsername(properties.getProperty("username"));
+        connect.setHost(properties.getProperty("host"));
+        connect.setPort(properties.getProperty("port"));
+        connect.setDatabase(properties.getProperty("database"));
+        String replicas = properties.getProperty("replicas");
+        return new TargetMetaData(connect, output)
+            .setReplicas(replicas == null ? null : Arrays.asList(replicas.split(",")));
+    }
+
+    private static Properties read(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    /**
+     * 先写临时文件再 rename，读者不会看到写了一半的文件
+     */
+    private static void writeAtomically(Path file, Properties properties) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
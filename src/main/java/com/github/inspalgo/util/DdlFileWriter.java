@@ -0,0 +1,186 @@
+package com.github.inspalgo.util;
+
+import io.airlift.compress.zstd.ZstdOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * DDL 输出文件的异步流式写入器
+ * <p>
+ * 调用方按执行顺序投递语句，由单独的写线程经缓冲写入 {@link FileChannel}，
+ * 有界队列保证写盘慢时调用方被阻塞而不是在内存中堆积；
+ * 文件名以 .gz 或 .zst 结尾时分别按 gzip、zstd 压缩；关闭时写出剩余数据并 fsync
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 13:20 UTC+08:00
+ */
+public class DdlFileWriter implements AutoCloseable {
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] TERMINATOR = ";\n".getBytes(StandardCharsets.UTF_8);
+    /**
+     * 结束标记，按引用比较
+     */
+    private static final String END = new String("");
+
+    private final Path path;
+    private final FileChannel channel;
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread thread;
+    private volatile IOException failure;
+    private boolean closed = false;
+
+    public enum Compression {
+        /**
+         * 不压缩
+         */
+        NONE,
+        /**
+         * gzip
+         */
+        GZIP,
+        /**
+         * zstd
+         */
+        ZSTD,
+        ;
+
+        public static Compression of(Path path) {
+            String fileName = path.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (fileName.endsWith(".gz")) {
+                return GZIP;
+            } else if (fileName.endsWith(".zst")) {
+                return ZSTD;
+            }
+            return NONE;
+        }
+    }
+
+    private DdlFileWriter(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        this.thread = new TableThreadFactory("DdlWriter").newThread(this::drain);
+        this.thread.setDaemon(true);
+    }
+
+    public static DdlFileWriter open(Path path) throws IOException {
+        DdlFileWriter writer = new DdlFileWriter(path);
+        writer.thread.start();
+        return writer;
+    }
+
+    /**
+     * 追加一条 DDL，写入时自动补上语句结束符
+     *
+     * @param ddl DDL 语句
+     * @throws IOException 写线程已失败或当前线程被中断
+     */
+    public void write(String ddl) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        try {
+            queue.put(ddl);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("写入 DDL 输出文件时被中断");
+        }
+    }
+
+    /**
+     * 写出剩余数据、结束压缩流并 fsync 后关闭文件
+     *
+     * @throws IOException 写入失败
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            thread.interrupt();
+            throw new InterruptedIOException("关闭 DDL 输出文件时被中断");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void drain() {
+        try {
+            try {
+                OutputStream out = openStream();
+                String ddl;
+                while ((ddl = queue.take()) != END) {
+                    out.write(ddl.getBytes(StandardCharsets.UTF_8));
+                    out.write(TERMINATOR);
+                }
+                out.close();
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        } catch (IOException e) {
+            failure = e;
+            Log.COMMON.error("写入 DDL 输出文件 [{}] 失败", path, e);
+            drainAfterFailure();
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("DDL 输出文件写线程被中断");
+        }
+    }
+
+    /**
+     * 写入失败后继续消费队列，避免调用方阻塞在已满的队列上
+     */
+    private void drainAfterFailure() {
+        try {
+            while (queue.take() != END) {
+                // 丢弃
+            }
+        } catch (InterruptedException ignore) {
+
+        }
+    }
+
+    private OutputStream openStream() throws IOException {
+        // 压缩流 close 时会关闭下层流，这里屏蔽 close，留给 force 之后再关闭 channel
+        OutputStream channelStream = new FilterOutputStream(Channels.newOutputStream(channel)) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        switch (Compression.of(path)) {
+            case GZIP:
+                return new BufferedOutputStream(new GZIPOutputStream(channelStream, BUFFER_SIZE), BUFFER_SIZE);
+            case ZSTD:
+                return new BufferedOutputStream(new ZstdOutputStream(channelStream), BUFFER_SIZE);
+            default:
+                return new BufferedOutputStream(channelStream, BUFFER_SIZE);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.github.inspalgo.util;
+
+import io.airlift.compress.zstd.ZstdInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * SQL 文件的读取流，按文件头识别 gzip 与 zstd 压缩并边读边解压，无需先解压到磁盘
+ * <p>
+ * 压缩文件由单独的线程读取，解压结果经有界队列按顺序交给解析线程，队列满时读取线程被阻塞。
+ * 能够不解压就确定边界的文件按边界切分后由线程池并行解压：多帧的 zstd 文件按帧切分，
+ * bgzip 生成的 gzip 文件（BGZF，每个成员的头部带有成员长度）按成员切分；
+ * 普通的 gzip 文件即使由多个成员组成，也只能解压后才知道成员边界，与单帧的 zstd 文件一样由读取线程顺序解压
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 21:10 UTC+08:00
+ */
+public class DumpInputStream extends InputStream {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    /**
+     * 并行解压时每个任务的压缩数据量，由相邻的若干成员或帧组成
+     */
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int ZSTD_MAGIC = 0xFD2FB528;
+    private static final int ZSTD_SKIPPABLE_MAGIC = 0x184D2A50;
+
+    private enum Format {
+        /**
+         * 未压缩
+         */
+        NONE,
+        /**
+         * gzip
+         */
+        GZIP,
+        /**
+         * 每个成员带有长度的 gzip
+         */
+        BGZF,
+        /**
+         * zstd
+         */
+        ZSTD,
+    }
+
+    /**
+     * 一段解压后的数据，length 为 -1 时表示结束
+     */
+    private static class Chunk {
+        private static final Chunk END = new Chunk(new byte[0], -1);
+
+        private final byte[] data;
+        private final int length;
+
+        Chunk(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ExecutorService decompressors;
+    private final BlockingQueue<Future<Chunk>> queue;
+    private final Thread reader;
+    private Chunk current = new Chunk(new byte[0], 0);
+    private int offset = 0;
+    private volatile boolean closed = false;
+
+    private DumpInputStream(Path path, FileChannel channel, Format format, boolean parallel) {
+        this.path = path;
+        this.channel = channel;
+        int threads = parallel ? Runtime.getRuntime().availableProcessors() : 1;
+        if (parallel) {
+            TableThreadFactory factory = new TableThreadFactory("DumpDecompress");
+            this.decompressors = Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = factory.newThread(task);
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.decompressors = null;
+        }
+        this.queue = new ArrayBlockingQueue<>(threads * 2);
+        this.reader = new TableThreadFactory("DumpReader").newThread(() -> read(format));
+        this.reader.setDaemon(true);
+    }
+
+    /**
+     * @param path SQL 文件，可以是 gzip 或 zstd 压缩的
+     * @return 解压后的内容，未压缩的文件直接返回文件流
+     * @throws IOException 打开或读取文件头失败
+     */
+    public static InputStream open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(18).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // 读满文件头或读到文件末尾
+            }
+            Format format = format(header);
+            if (format == Format.NONE) {
+                return Channels.newInputStream(channel);
+            }
+            boolean parallel = format == Format.BGZF
+                || (format == Format.ZSTD && zstdFrameEnd(channel, 0) < channel.size());
+            DumpInputStream in = new DumpInputStream(path, channel, format, parallel);
+            in.reader.start();
+            return in;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static Format format(ByteBuffer header) {
+        if (header.position() >= 4 && header.getInt(0) == ZSTD_MAGIC) {
+            return Format.ZSTD;
+        }
+        if (header.position() < 10 || (header.getShort(0) & 0xffff) != GZIP_MAGIC) {
+            return Format.NONE;
+        }
+        return isBgzfHeader(header) ? Format.BGZF : Format.GZIP;
+    }
+
+    /**
+     * BGZF 成员头部的扩展字段中，第一个子字段为 'B' 'C'，其值为成员长度减一
+     */
+    private static boolean isBgzfHeader(ByteBuffer header) {
+        return header.position() == 18 && (header.get(3) & 0x04) != 0 && header.get(12) == 'B'
+            && header.get(13) == 'C' && header.getShort(14) == 2;
+    }
+
+    @SuppressWarnings("fallthrough")
+    private void read(Format format) {
+        try {
+            switch (format) {
+                case BGZF:
+                case ZSTD:
+                    if (decompressors != null) {
+                        split(format);
+                        break;
+                    }
+                    // fallthrough
+                default:
+                    decompressSequentially(format);
+            }
+            queue.put(CompletableFuture.completedFuture(Chunk.END));
+        } catch (InterruptedException | InterruptedIOException e) {
+            // 已关闭
+        } catch (IOException | RuntimeException e) {
+            CompletableFuture<Chunk> failure = new CompletableFuture<>();
+            failure.completeExceptionally(e);
+            try {
+                queue.put(failure);
+            } catch (InterruptedException ignore) {
+
+            }
+        } finally {
+            if (decompressors != null) {
+                decompressors.shutdown();
+            }
+        }
+    }
+
+    /**
+     * 读取线程自己解压，与解析线程之间仍是流水线
+     */
+    private void decompressSequentially(Format format) throws IOException, InterruptedException {
+        InputStream compressed = Channels.newInputStream(channel);
+        try (InputStream in = format == Format.ZSTD ? new ZstdInputStream(compressed)
+            : new GZIPInputStream(compressed, BUFFER_SIZE)) {
+            while (!closed) {
+                byte[] data = new byte[BUFFER_SIZE];
+                int length = 0;
+                int read;
+                while (length < data.length && (read = in.read(data, length, data.length - length)) != -1) {
+                    length += read;
+                }
+                if (length > 0) {
+                    queue.put(CompletableFuture.completedFuture(new Chunk(data, length)));
+                }
+                if (length < data.length) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 按成员或帧的边界切分，交给线程池并行解压，按原顺序放入队列
+     */
+    private void split(Format format) throws IOException, InterruptedException {
+        long size = channel.size();
+        long position = 0;
+        while (position < size && !closed) {
+            if (format == Format.ZSTD && isZstdSkippableFrame(position)) {
+                // pzstd 等在帧前写入的可跳过帧，解压器不支持，不放入任务
+                position = zstdFrameEnd(channel, position);
+                continue;
+            }
+            long end = position;
+            while (end < size && end - position < CHUNK_SIZE
+                && (format != Format.ZSTD || !isZstdSkippableFrame(end))) {
+                end = format == Format.ZSTD ? zstdFrameEnd(channel, end) : bgzfMemberEnd(end);
+            }
+            byte[] compressed = new byte[(int) (end - position)];
+            readFully(channel, ByteBuffer.wrap(compressed), position);
+            queue.put(decompressors.submit(() -> decompress(format, compressed)));
+            position = end;
+        }
+    }
+
+    private long bgzfMemberEnd(long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(18).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, position);
+        if ((header.getShort(0) & 0xffff) != GZIP_MAGIC || !isBgzfHeader(header)) {
+            throw new IOException(path + " 在偏移 " + position + " 处不是 BGZF 成员");
+        }
+        return position + (header.getShort(16) & 0xffff) + 1;
+    }
+
+    private boolean isZstdSkippableFrame(long position) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, magic, position);
+        return (magic.getInt(0) & 0xFFFFFFF0) == ZSTD_SKIPPABLE_MAGIC;
+    }
+
+    /**
+     * 只读取帧头与各块的块头，跳过块内容，得到帧的结束位置
+     */
+    private static long zstdFrameEnd(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.limit(5);
+        readFully(channel, buffer, position);
+        int magic = buffer.getInt(0);
+        if ((magic & 0xFFFFFFF0) == ZSTD_SKIPPABLE_MAGIC) {
+            buffer.clear();
+            buffer.limit(4);
+            readFully(channel, buffer, position + 4);
+            return position + 8 + (buffer.getInt(0) & 0xFFFFFFFFL);
+        }
+        if (magic != ZSTD_MAGIC) {
+            throw new IOException("偏移 " + position + " 处不是 zstd 帧");
+        }
+        int descriptor = buffer.get(4) & 0xff;
+        boolean singleSegment = (descriptor & 0x20) != 0;
+        int contentSizeFlag = descriptor >>> 6;
+        long end = position + 5 + (singleSegment ? 0 : 1) + new int[]{0, 1, 2, 4}[descriptor & 0x03]
+            + (contentSizeFlag == 0 ? (singleSegment ? 1 : 0) : 1 << contentSizeFlag);
+        boolean last = false;
+        while (!last) {
+            buffer.clear();
+            buffer.limit(3);
+            readFully(channel, buffer, end);
+            int blockHeader = (buffer.get(0) & 0xff) | (buffer.get(1) & 0xff) << 8 | (buffer.get(2) & 0xff) << 16;
+            last = (blockHeader & 0x01) != 0;
+            int blockType = (blockHeader >>> 1) & 0x03;
+            // RLE 块的内容只有一个字节，块头中的大小是解压后的大小
+            end += 3 + (blockType == 1 ? 1 : blockHeader >>> 3);
+        }
+        // 帧末尾的校验和
+        return end + ((descriptor & 0x04) != 0 ? 4 : 0);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read == -1) {
+                throw new IOException("压缩文件不完整");
+            }
+        }
+    }
+
+    private static Chunk decompress(Format format, byte[] compressed) throws IOException {
+        InputStream source = new ByteArrayInputStream(compressed);
+        try (InputStream in = format == Format.ZSTD ? new ZstdInputStream(source) : new GZIPInputStream(source)) {
+            byte[] data = new byte[Math.max(compressed.length * 4, 4096)];
+            int length = 0;
+            int read;
+            while ((read = in.read(data, length, data.length - length)) != -1) {
+                length += read;
+                if (length == data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                }
+            }
+            return new Chunk(data, length);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (offset >= current.length) {
+            if (current == Chunk.END) {
+                return -1;
+            }
+            current = next();
+            offset = 0;
+        }
+        int count = Math.min(len, current.length - offset);
+        System.arraycopy(current.data, offset, b, off, count);
+        offset += count;
+        return count;
+    }
+
+    private Chunk next() throws IOException {
+        try {
+            return queue.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("读取 " + path + " 时被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException("解压 " + path + " 失败", cause);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        reader.interrupt();
+        if (decompressors != null) {
+            decompressors.shutdownNow();
+        }
+        channel.close();
+    }
+}
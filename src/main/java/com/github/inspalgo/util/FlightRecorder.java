@@ -0,0 +1,141 @@
+package com.github.inspalgo.util;
+
+import java.nio.file.Path;
+
+/**
+ * JFR 自定义事件入口
+ * <p>
+ * JDK 8u262 之前的运行时没有 jdk.jfr，此时所有方法退化为空操作；
+ * 具体的事件类只在 {@link JfrEvents} 中引用，只有 jdk.jfr 可用时才会被加载
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 11:40 UTC+08:00
+ */
+public class FlightRecorder {
+    private static final boolean AVAILABLE = detect();
+
+    private FlightRecorder() {
+    }
+
+    /**
+     * 事件跨度，创建时开始计时，{@link #commit()} 时结束并提交
+     */
+    public interface Span {
+        /**
+         * 设置读取/解析的字节数
+         *
+         * @param bytes 字节数
+         * @return this
+         */
+        Span bytes(long bytes);
+
+        /**
+         * 设置生成的语句数
+         *
+         * @param statements 语句数
+         * @return this
+         */
+        Span statements(int statements);
+
+        /**
+         * 设置执行是否成功
+         *
+         * @param success 是否成功
+         * @return this
+         */
+        Span success(boolean success);
+
+        /**
+         * 结束计时并提交事件
+         */
+        void commit();
+    }
+
+    private static final Span NOOP = new Span() {
+        @Override
+        public Span bytes(long bytes) {
+            return this;
+        }
+
+        @Override
+        public Span statements(int statements) {
+            return this;
+        }
+
+        @Override
+        public Span success(boolean success) {
+            return this;
+        }
+
+        @Override
+        public void commit() {
+        }
+    };
+
+    private static boolean detect() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * 在线读取单张表结构
+     */
+    public static Span introspectTable(String database, String table) {
+        return AVAILABLE ? JfrEvents.introspectTable(database, table) : NOOP;
+    }
+
+    /**
+     * 解析 SQL 文件中的单个 CREATE TABLE 语句块
+     */
+    public static Span parseDump(String database, String table) {
+        return AVAILABLE ? JfrEvents.parseDump(database, table) : NOOP;
+    }
+
+    /**
+     * 单表 {@code SchemaSync.generateTableDdl}
+     */
+    public static Span generateTableDdl(String database, String table) {
+        return AVAILABLE ? JfrEvents.generateTableDdl(database, table) : NOOP;
+    }
+
+    /**
+     * 执行 DDL 语句
+     */
+    public static Span executeDdl(String database, String table, String ddl) {
+        return AVAILABLE ? JfrEvents.executeDdl(database, table, ddl) : NOOP;
+    }
+
+    /**
+     * 开始一个 JFR 录制，结束时写入指定文件
+     *
+     * @param destination 录制文件路径
+     * @return 录制句柄，传给 {@link #stopRecording(Object)}；jdk.jfr 不可用时为 null
+     */
+    public static Object startRecording(Path destination) {
+        if (!AVAILABLE) {
+            Log.COMMON.warn("当前 JVM 不支持 JFR，忽略录制 [{}]", destination);
+            return null;
+        }
+        try {
+            return JfrEvents.startRecording(destination);
+        } catch (Exception e) {
+            Log.COMMON.error("JFR 录制启动失败", e);
+            return null;
+        }
+    }
+
+    public static void stopRecording(Object recording) {
+        if (recording == null) {
+            return;
+        }
+        try {
+            JfrEvents.stopRecording(recording);
+        } catch (Exception e) {
+            Log.COMMON.error("JFR 录制写出失败", e);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.github.inspalgo.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Locale;
+
+/**
+ * JFR 事件定义，只能经由 {@link FlightRecorder} 在 jdk.jfr 可用时访问
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 11:50 UTC+08:00
+ */
+class JfrEvents {
+    private static final String CATEGORY = "MySQL Schema Sync";
+
+    private JfrEvents() {
+    }
+
+    @Name("com.github.inspalgo.IntrospectTable")
+    @Label("Introspect Table")
+    @Category(CATEGORY)
+    static class IntrospectTableEvent extends Event {
+        @Label("Database")
+        String database;
+        @Label("Table")
+        String table;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("com.github.inspalgo.ParseDump")
+    @Label("Parse Dump Chunk")
+    @Category(CATEGORY)
+    static class ParseDumpEvent extends Event {
+        @Label("Database")
+        String database;
+        @Label("Table")
+        String table;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("com.github.inspalgo.GenerateTableDdl")
+    @Label("Generate Table DDL")
+    @Category(CATEGORY)
+    static class GenerateTableDdlEvent extends Event {
+        @Label("Database")
+        String database;
+        @Label("Table")
+        String table;
+        @Label("Statements")
+        int statements;
+    }
+
+    @Name("com.github.inspalgo.ExecuteDdl")
+    @Label("Execute DDL")
+    @Category(CATEGORY)
+    static class ExecuteDdlEvent extends Event {
+        @Label("Database")
+        String database;
+        @Label("Table")
+        String table;
+        @Label("Statement")
+        String statement;
+        @Label("Algorithm")
+        String algorithm;
+        @Label("Success")
+        boolean success;
+    }
+
+    private static class EventSpan implements FlightRecorder.Span {
+        private final Event event;
+
+        EventSpan(Event event) {
+            this.event = event;
+            event.begin();
+        }
+
+        @Override
+        public FlightRecorder.Span bytes(long bytes) {
+            if (event instanceof IntrospectTableEvent) {
+                ((IntrospectTableEvent) event).bytes = bytes;
+            } else if (event instanceof ParseDumpEvent) {
+                ((ParseDumpEvent) event).bytes = bytes;
+            }
+            return this;
+        }
+
+        @Override
+        public FlightRecorder.Span statements(int statements) {
+            if (event instanceof GenerateTableDdlEvent) {
+                ((GenerateTableDdlEvent) event).statements = statements;
+            }
+            return this;
+        }
+
+        @Override
+        public FlightRecorder.Span success(boolean success) {
+            if (event instanceof ExecuteDdlEvent) {
+                ((ExecuteDdlEvent) event).success = success;
+            }
+            return this;
+        }
+
+        @Override
+        public void commit() {
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        }
+    }
+
+    static FlightRecorder.Span introspectTable(String database, String table) {
+        IntrospectTableEvent event = new IntrospectTableEvent();
+        event.database = database;
+        event.table = table;
+        return new EventSpan(event);
+    }
+
+    static FlightRecorder.Span parseDump(String database, String table) {
+        ParseDumpEvent event = new ParseDumpEvent();
+        event.database = database;
+        event.table = table;
+        return new EventSpan(event);
+    }
+
+    static FlightRecorder.Span generateTableDdl(String database, String table) {
+        GenerateTableDdlEvent event = new GenerateTableDdlEvent();
+        event.database = database;
+        event.table = table;
+        return new EventSpan(event);
+    }
+
+    static FlightRecorder.Span executeDdl(String database, String table, String ddl) {
+        ExecuteDdlEvent event = new ExecuteDdlEvent();
+        event.database = database;
+        event.table = table;
+        event.statement = ddl;
+        event.algorithm = algorithmOf(ddl);
+        return new EventSpan(event);
+    }
+
+    /**
+     * 从 DDL 中取出显式指定的 ALGORITHM，未指定时由 MySQL 自行选择，记为 DEFAULT
+     */
+    private static String algorithmOf(String ddl) {
+        String upper = ddl.toUpperCase(Locale.ROOT);
+        int index = upper.indexOf("ALGORITHM");
+        if (index == -1) {
+            return "DEFAULT";
+        }
+        int start = upper.indexOf('=', index) + 1;
+        while (start < upper.length() && upper.charAt(start) == ' ') {
+            start++;
+        }
+        int end = start;
+        while (end < upper.length() && Character.isLetter(upper.charAt(end))) {
+            end++;
+        }
+        return start < end ? upper.substring(start, end) : "DEFAULT";
+    }
+
+    static Object startRecording(Path destination) throws IOException, ParseException {
+        Recording recording = new Recording(Configuration.getConfiguration("default"));
+        recording.setName("mysql-schema-sync");
+        recording.enable(IntrospectTableEvent.class);
+        recording.enable(ParseDumpEvent.class);
+        recording.enable(GenerateTableDdlEvent.class);
+        recording.enable(ExecuteDdlEvent.class);
+        recording.setDestination(destination);
+        recording.start();
+        return recording;
+    }
+
+    static void stopRecording(Object handle) {
+        Recording recording = (Recording) handle;
+        recording.stop();
+        recording.close();
+    }
+}
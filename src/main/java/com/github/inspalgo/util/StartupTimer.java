@@ -0,0 +1,35 @@
+package com.github.inspalgo.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 记录从进程启动到第一次访问数据库（发出第一条查询或开始读取 SQL 文件）的耗时，
+ * 用于比较普通 jar、AppCDS 与 native-image 的启动开销。不输出日志，只在指定 --metrics-file 时写入统计文件
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 16:10 UTC+08:00
+ */
+public class StartupTimer {
+    private static final AtomicLong TIME_TO_FIRST_QUERY_MILLIS = new AtomicLong(-1);
+
+    private StartupTimer() {
+    }
+
+    /**
+     * 标记第一次访问数据库，只有第一次调用生效
+     */
+    public static void firstQuery() {
+        if (TIME_TO_FIRST_QUERY_MILLIS.get() >= 0) {
+            return;
+        }
+        TIME_TO_FIRST_QUERY_MILLIS.compareAndSet(-1, ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    /**
+     * @return 启动到第一次访问数据库的毫秒数，尚未访问时返回 -1
+     */
+    public static long getTimeToFirstQueryMillis() {
+        return TIME_TO_FIRST_QUERY_MILLIS.get();
+    }
+}
@@ -0,0 +1,213 @@
+package com.github.inspalgo.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 对 JDBC {@link Connection} 做统计代理，记录发出的查询数、网络往返次数与读取的结果字节数
+ * <p>
+ * Connector/J 对 DDL 的批量执行仍是逐条发送，所以 executeBatch 按批内语句数计算往返次数
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 10:35 UTC+08:00
+ */
+public class StatsConnection {
+    /**
+     * 移动游标的方法，之后读取的是另一行
+     */
+    private static final Set<String> CURSOR_METHODS = new HashSet<>(Arrays.asList("next", "previous", "first",
+        "last", "absolute", "relative", "beforeFirst", "afterLast"));
+
+    private StatsConnection() {
+    }
+
+    public static Connection wrap(Connection connection, SyncStats stats) {
+        return wrap(connection, stats, null);
+    }
+
+    /**
+     * @param onClose 连接关闭后调用，可以为 null
+     */
+    public static Connection wrap(Connection connection, SyncStats stats, Runnable onClose) {
+        return (Connection) Proxy.newProxyInstance(StatsConnection.class.getClassLoader(),
+            new Class<?>[]{Connection.class}, new ConnectionHandler(connection, stats, onClose));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+        private final SyncStats stats;
+        private final AtomicReference<Runnable> onClose;
+
+        ConnectionHandler(Connection connection, SyncStats stats, Runnable onClose) {
+            this.connection = connection;
+            this.stats = stats;
+            this.onClose = new AtomicReference<>(onClose);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                try {
+                    return StatsConnection.invoke(connection, method, args);
+                } finally {
+                    // 重复 close 或 close 失败时只调用一次
+                    Runnable closed = onClose.getAndSet(null);
+                    if (closed != null) {
+                        closed.run();
+                    }
+                }
+            }
+            Object result = StatsConnection.invoke(connection, method, args);
+            switch (name) {
+                case "createStatement":
+                    return wrapStatement(Statement.class, (Statement) result);
+                case "prepareStatement":
+                    return wrapStatement(PreparedStatement.class, (Statement) result);
+                case "prepareCall":
+                    return wrapStatement(CallableStatement.class, (Statement) result);
+                case "commit":
+                case "rollback":
+                case "setAutoCommit":
+                    stats.addRoundTrips(1);
+                    return result;
+                default:
+                    return result;
+            }
+        }
+
+        private Object wrapStatement(Class<? extends Statement> type, Statement statement) {
+            return Proxy.newProxyInstance(StatsConnection.class.getClassLoader(), new Class<?>[]{type},
+                new StatementHandler(statement, stats));
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final SyncStats stats;
+        private int batchSize = 0;
+
+        StatementHandler(Statement statement, SyncStats stats) {
+            this.statement = statement;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "executeQuery":
+                    StartupTimer.firstQuery();
+                    stats.addQueries(1);
+                    stats.addRoundTrips(1);
+                    return wrapResultSet((ResultSet) StatsConnection.invoke(statement, method, args));
+                case "getResultSet":
+                    return wrapResultSet((ResultSet) StatsConnection.invoke(statement, method, args));
+                case "execute":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                    StartupTimer.firstQuery();
+                    stats.addQueries(1);
+                    stats.addRoundTrips(1);
+                    return StatsConnection.invoke(statement, method, args);
+                case "addBatch":
+                    batchSize++;
+                    return StatsConnection.invoke(statement, method, args);
+                case "clearBatch":
+                    batchSize = 0;
+                    return StatsConnection.invoke(statement, method, args);
+                case "executeBatch":
+                case "executeLargeBatch":
+                    stats.addQueries(batchSize);
+                    stats.addRoundTrips(batchSize);
+                    try {
+                        return StatsConnection.invoke(statement, method, args);
+                    } finally {
+                        batchSize = 0;
+                    }
+                default:
+                    return StatsConnection.invoke(statement, method, args);
+            }
+        }
+
+        private Object wrapResultSet(ResultSet resultSet) {
+            if (resultSet == null) {
+                return null;
+            }
+            return Proxy.newProxyInstance(StatsConnection.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                new ResultSetHandler(resultSet, stats));
+        }
+    }
+
+    /**
+     * 按 UTF-8 编码后的字节数统计读取的字符串与字节数组，同一行的同一列只统计一次
+     */
+    private static class ResultSetHandler implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final SyncStats stats;
+        private final BitSet counted = new BitSet();
+
+        ResultSetHandler(ResultSet resultSet, SyncStats stats) {
+            this.resultSet = resultSet;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = StatsConnection.invoke(resultSet, method, args);
+            String name = method.getName();
+            if (CURSOR_METHODS.contains(name)) {
+                counted.clear();
+            } else if (name.startsWith("get") && args != null && args.length > 0
+                && (result instanceof String || result instanceof byte[])) {
+                int column = args[0] instanceof Integer ? (Integer) args[0] : resultSet.findColumn((String) args[0]);
+                if (!counted.get(column)) {
+                    counted.set(column);
+                    stats.addBytesRead(result instanceof String ? utf8Length((String) result)
+                        : ((byte[]) result).length);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * @return 字符串按 UTF-8 编码的字节数，不实际编码
+     */
+    static long utf8Length(String value) {
+        long length = 0;
+        for (int i = 0, size = value.length(); i < size; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < size && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,287 @@
+package com.github.inspalgo.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 同步执行日志：只追加写入的文本文件，记录执行成功的语句、完成的表与完成的目标，用于中断后续跑
+ * <p>
+ * 每行一条记录，字段以制表符分隔。写入由单独的线程完成，每次把队列中积累的记录一起写出后 fsync 一次，
+ * 调用方不等待落盘；进程异常退出时最多丢失最后一批记录，续跑时这部分工作会被重新比对
+ * <ul>
+ *     <li>SOURCE 源结构摘要，每次运行开始时写入</li>
+ *     <li>STMT 目标、表、执行成功的语句</li>
+ *     <li>TABLE 目标、表、完成后的表结构摘要</li>
+ *     <li>TARGET 目标、完成后的库结构摘要</li>
+ * </ul>
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 18:40 UTC+08:00
+ */
+public class SyncJournal implements AutoCloseable {
+    private static final String SOURCE = "SOURCE";
+    private static final String STATEMENT = "STMT";
+    private static final String TABLE = "TABLE";
+    private static final String TARGET = "TARGET";
+    /**
+     * 结束标记，按引用比较
+     */
+    private static final String END = new String("");
+
+    private final Path path;
+    private final FileChannel channel;
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean failed = false;
+    private boolean closed = false;
+
+    /**
+     * 从日志中读出的已完成状态
+     */
+    public static class State {
+        private String sourceDigest;
+        private final Map<String, String> targets = new HashMap<>();
+        private final Map<String, Map<String, String>> tables = new HashMap<>();
+
+        private void reset(String sourceDigest) {
+            this.sourceDigest = sourceDigest;
+            targets.clear();
+            tables.clear();
+        }
+
+        /**
+         * @return 源结构摘要，日志为空时为 null
+         */
+        public String getSourceDigest() {
+            return sourceDigest;
+        }
+
+        /**
+         * @param target 目标标识
+         * @return 目标完成时的库结构摘要，未完成时为 null
+         */
+        public String getTargetDigest(String target) {
+            return targets.get(target);
+        }
+
+        /**
+         * @param target 目标标识
+         * @return 已完成的表及其完成时的表结构摘要
+         */
+        public Map<String, String> getTables(String target) {
+            return tables.getOrDefault(target, Collections.emptyMap());
+        }
+    }
+
+    private SyncJournal(Path path, boolean append) throws IOException {
+        this.path = path;
+        this.channel = append
+            ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+            : FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        this.thread = new TableThreadFactory("Journal").newThread(this::drain);
+        this.thread.setDaemon(true);
+        if (append) {
+            terminateLastLine();
+        }
+    }
+
+    /**
+     * 上次运行在写一行的中途退出时，先补上换行，避免新记录接在半行之后
+     */
+    private void terminateLastLine() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return;
+        }
+        ByteBuffer last = ByteBuffer.allocate(1);
+        try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+            reader.read(last, size - 1);
+        }
+        if (last.get(0) != '\n') {
+            channel.write(ByteBuffer.wrap(new byte[]{'\n'}));
+        }
+    }
+
+    /**
+     * @param path   日志文件
+     * @param append true-追加到已有日志之后，用于续跑；false-清空后重新开始
+     */
+    public static SyncJournal open(Path path, boolean append) throws IOException {
+        SyncJournal journal = new SyncJournal(path, append);
+        journal.thread.start();
+        return journal;
+    }
+
+    /**
+     * 读取日志。源结构摘要变化后的记录才有效，之前的记录被丢弃；末尾未写完整的行被忽略
+     *
+     * @param path 日志文件
+     * @return 已完成状态，文件不存在时为空
+     * @throws IOException 读取失败
+     */
+    public static State load(Path path) throws IOException {
+        State state = new State();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (SOURCE.equals(fields[0]) && fields.length == 3) {
+                    String digest = unescape(fields[1]);
+                    if (!digest.equals(state.sourceDigest)) {
+                        state.reset(digest);
+                    }
+                } else if (TABLE.equals(fields[0]) && fields.length == 5) {
+                    state.tables.computeIfAbsent(unescape(fields[1]), k -> new HashMap<>())
+                                .put(unescape(fields[2]), unescape(fields[3]));
+                } else if (TARGET.equals(fields[0]) && fields.length == 4) {
+                    state.targets.put(unescape(fields[1]), unescape(fields[2]));
+                }
+            }
+        } catch (NoSuchFileException ignore) {
+            // 首次运行，尚无日志
+        }
+        return state;
+    }
+
+    public void source(String digest) {
+        append(SOURCE, digest);
+    }
+
+    public void statement(String target, String table, String ddl) {
+        append(STATEMENT, target, table, ddl);
+    }
+
+    public void table(String target, String table, String digest) {
+        append(TABLE, target, table, digest);
+    }
+
+    public void target(String target, String digest) {
+        append(TARGET, target, digest);
+    }
+
+    /**
+     * 每条记录以一个空字段结尾，读取时据此识别末尾写了一半的行
+     */
+    private void append(String type, String... fields) {
+        if (failed || closed) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder(64).append(type);
+        for (String field : fields) {
+            sb.append('\t').append(escape(field));
+        }
+        queue.add(sb.append("\t\n").toString());
+    }
+
+    /**
+     * 写出剩余记录并 fsync 后关闭文件
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(END);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            thread.interrupt();
+        }
+    }
+
+    private void drain() {
+        List<String> batch = new ArrayList<>();
+        try {
+            try {
+                boolean end = false;
+                while (!end) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch);
+                    StringBuilder sb = new StringBuilder();
+                    for (String line : batch) {
+                        if (line == END) {
+                            end = true;
+                            break;
+                        }
+                        sb.append(line);
+                    }
+                    batch.clear();
+                    ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(false);
+                }
+            } finally {
+                channel.close();
+            }
+        } catch (IOException e) {
+            failed = true;
+            queue.clear();
+            Log.COMMON.error("写入同步日志 [{}] 失败，之后的进度不再记录", path, e);
+        } catch (InterruptedException e) {
+            failed = true;
+        }
+    }
+
+    private static String escape(String field) {
+        if (field == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(field.length());
+        for (int i = 0, size = field.length(); i < size; i++) {
+            char c = field.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String field) {
+        if (field.indexOf('\\') == -1) {
+            return field;
+        }
+        StringBuilder sb = new StringBuilder(field.length());
+        for (int i = 0, size = field.length(); i < size; i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 1 < size) {
+                char next = field.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.inspalgo.util;
+
+import com.github.inspalgo.util.SyncStats.Phase;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 同步统计的对外暴露：运行期间以 JMX MBean 注册，结束时可输出 Prometheus/OpenMetrics 文本文件
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 11:10 UTC+08:00
+ */
+public class SyncMetrics {
+    private static final String DOMAIN = "com.github.inspalgo.schemasync";
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+
+    private final List<ObjectName> registered = new ArrayList<>();
+    private final List<String> roles = new ArrayList<>();
+    private final List<SyncStats> statsList = new ArrayList<>();
+
+    /**
+     * 注册一个数据库的统计数据
+     *
+     * @param role  source 或 target
+     * @param stats 统计数据
+     */
+    public synchronized void register(String role, SyncStats stats) {
+        roles.add(role);
+        statsList.add(stats);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=SyncStats,role=" + role
+                + ",id=" + NEXT_ID.getAndIncrement() + ",name=" + ObjectName.quote(String.valueOf(stats.getName())));
+            server.registerMBean(stats, objectName);
+            registered.add(objectName);
+        } catch (Exception e) {
+            Log.COMMON.warn("JMX 注册统计数据失败: {}", e.toString());
+        }
+    }
+
+    /**
+     * 注销本次运行注册的全部 MBean
+     */
+    public synchronized void unregisterAll() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : registered) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (Exception ignore) {
+
+            }
+        }
+        registered.clear();
+    }
+
+    /**
+     * 以 OpenMetrics 文本格式输出统计数据，先写临时文件再原子替换，避免被采集到半个文件
+     *
+     * @param path      输出路径
+     * @param wallNanos 本次运行的总耗时
+     */
+    public synchronized void writeOpenMetrics(Path path, long wallNanos) {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            writer.write("# TYPE mysql_schema_sync_run_seconds gauge\n");
+            writer.write("mysql_schema_sync_run_seconds " + seconds(wallNanos) + "\n");
+            long firstQueryMillis = StartupTimer.getTimeToFirstQueryMillis();
+            if (firstQueryMillis >= 0) {
+                writer.write("# TYPE mysql_schema_sync_time_to_first_query_seconds gauge\n");
+                writer.write("mysql_schema_sync_time_to_first_query_seconds "
+                    + seconds(TimeUnit.MILLISECONDS.toNanos(firstQueryMillis)) + "\n");
+            }
+
+            writer.write("# TYPE mysql_schema_sync_phase_seconds gauge\n");
+            for (int i = 0; i < statsList.size(); i++) {
+                SyncStats stats = statsList.get(i);
+                for (Phase phase : Phase.values()) {
+                    writer.write("mysql_schema_sync_phase_seconds{" + labels(i)
+                        + ",phase=\"" + phase.name().toLowerCase(Locale.ROOT) + "\"} "
+                        + seconds(stats.getPhaseNanos(phase)) + "\n");
+                }
+            }
+
+            writeCounter(writer, "queries", i -> statsList.get(i).getQueries());
+            writeCounter(writer, "round_trips", i -> statsList.get(i).getRoundTrips());
+            writeCounter(writer, "round_trips_saved", i -> statsList.get(i).getRoundTripsSaved());
+            writeCounter(writer, "bytes_read", i -> statsList.get(i).getBytesRead());
+            writeCounter(writer, "tables_diffed", i -> statsList.get(i).getTablesDiffed());
+            writeCounter(writer, "statements_executed", i -> statsList.get(i).getStatementsExecuted());
+            writeCounter(writer, "failures", i -> statsList.get(i).getFailures());
+            writer.write("# TYPE mysql_schema_sync_ddl_permit_wait_seconds gauge\n");
+            for (int i = 0; i < statsList.size(); i++) {
+                writer.write("mysql_schema_sync_ddl_permit_wait_seconds{" + labels(i) + "} "
+                    + seconds(statsList.get(i).getDdlPermitWaitNanos()) + "\n");
+            }
+            writer.write("# EOF\n");
+        } catch (IOException e) {
+            Log.COMMON.error("写入统计文件 [{}] 失败", path, e);
+            return;
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Log.COMMON.error("写入统计文件 [{}] 失败", path, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Value {
+        long get(int index);
+    }
+
+    private void writeCounter(BufferedWriter writer, String name, Value value) throws IOException {
+        String metric = "mysql_schema_sync_" + name;
+        writer.write("# TYPE " + metric + " counter\n");
+        for (int i = 0; i < statsList.size(); i++) {
+            writer.write(metric + "_total{" + labels(i) + "} " + value.get(i) + "\n");
+        }
+    }
+
+    private String labels(int index) {
+        SyncStats stats = statsList.get(index);
+        return "role=\"" + roles.get(index) + "\",db=\"" + escape(stats.getName())
+            + "\",endpoint=\"" + escape(stats.getEndpoint()) + "\"";
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e9);
+    }
+}
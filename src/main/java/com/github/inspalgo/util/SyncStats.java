@@ -0,0 +1,228 @@
+package com.github.inspalgo.util;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个数据库（源或目标）同步过程中的统计数据，各阶段耗时、查询次数、网络往返次数等
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 10:20 UTC+08:00
+ */
+public class SyncStats implements SyncStatsMXBean {
+    /**
+     * 同步阶段
+     */
+    public enum Phase {
+        /**
+         * 建立 JDBC 连接
+         */
+        CONNECT,
+        /**
+         * 在线读取 information_schema 与 SHOW CREATE TABLE
+         */
+        INTROSPECT,
+        /**
+         * 解析 CREATE TABLE 语句
+         */
+        PARSE,
+        /**
+         * 比对差异并生成 DDL
+         */
+        DIFF,
+        /**
+         * 执行 DDL
+         */
+        APPLY,
+        /**
+         * 输出 DDL 文件
+         */
+        OUTPUT,
+    }
+
+    private volatile String name;
+    private volatile String endpoint;
+    private final EnumMap<Phase, AtomicLong> phaseNanos = new EnumMap<>(Phase.class);
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong roundTrips = new AtomicLong();
+    private final AtomicLong roundTripsSaved = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong tablesDiffed = new AtomicLong();
+    private final AtomicLong statementsExecuted = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong ddlPermitWaitNanos = new AtomicLong();
+
+    public SyncStats() {
+        for (Phase phase : Phase.values()) {
+            phaseNanos.put(phase, new AtomicLong());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public void addPhaseNanos(Phase phase, long nanos) {
+        phaseNanos.get(phase).addAndGet(nanos);
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos.get(phase).get();
+    }
+
+    @Override
+    public long getConnectMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getPhaseNanos(Phase.CONNECT));
+    }
+
+    @Override
+    public long getIntrospectMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getPhaseNanos(Phase.INTROSPECT));
+    }
+
+    @Override
+    public long getParseMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getPhaseNanos(Phase.PARSE));
+    }
+
+    @Override
+    public long getDiffMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getPhaseNanos(Phase.DIFF));
+    }
+
+    @Override
+    public long getApplyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getPhaseNanos(Phase.APPLY));
+    }
+
+    @Override
+    public long getOutputMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getPhaseNanos(Phase.OUTPUT));
+    }
+
+    public void addQueries(long delta) {
+        queries.addAndGet(delta);
+    }
+
+    @Override
+    public long getQueries() {
+        return queries.get();
+    }
+
+    public void addRoundTrips(long delta) {
+        roundTrips.addAndGet(delta);
+    }
+
+    @Override
+    public long getRoundTrips() {
+        return roundTrips.get();
+    }
+
+    /**
+     * @param delta 多条语句合并为一个多语句包发送而省去的往返次数
+     */
+    public void addRoundTripsSaved(long delta) {
+        roundTripsSaved.addAndGet(delta);
+    }
+
+    @Override
+    public long getRoundTripsSaved() {
+        return roundTripsSaved.get();
+    }
+
+    public void addBytesRead(long delta) {
+        bytesRead.addAndGet(delta);
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public void addTablesDiffed(long delta) {
+        tablesDiffed.addAndGet(delta);
+    }
+
+    @Override
+    public long getTablesDiffed() {
+        return tablesDiffed.get();
+    }
+
+    public void addStatementsExecuted(long delta) {
+        statementsExecuted.addAndGet(delta);
+    }
+
+    @Override
+    public long getStatementsExecuted() {
+        return statementsExecuted.get();
+    }
+
+    public void addFailures(long delta) {
+        failures.addAndGet(delta);
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * @param nanos 执行 DDL 前等待服务器 DDL 许可的时间，不计入语句的耗时
+     */
+    public void addDdlPermitWaitNanos(long nanos) {
+        ddlPermitWaitNanos.addAndGet(nanos);
+    }
+
+    public long getDdlPermitWaitNanos() {
+        return ddlPermitWaitNanos.get();
+    }
+
+    @Override
+    public long getDdlPermitWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getDdlPermitWaitNanos());
+    }
+
+    /**
+     * 单行统计摘要，用于日志输出
+     *
+     * @return 统计摘要
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder(160);
+        sb.append('`').append(name).append('`');
+        for (Phase phase : Phase.values()) {
+            sb.append(' ').append(phase.name().toLowerCase(Locale.ROOT)).append('=')
+              .append(TimeUnit.NANOSECONDS.toMillis(getPhaseNanos(phase))).append("ms");
+        }
+        sb.append(" queries=").append(getQueries())
+          .append(" roundTrips=").append(getRoundTrips())
+          .append(" roundTripsSaved=").append(getRoundTripsSaved())
+          .append(" bytesRead=").append(getBytesRead())
+          .append(" tablesDiffed=").append(getTablesDiffed())
+          .append(" statements=").append(getStatementsExecuted())
+          .append(" failures=").append(getFailures())
+          .append(" ddlPermitWait=").append(getDdlPermitWaitMillis()).append("ms");
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "SyncStats{" + summary() + '}';
+    }
+}
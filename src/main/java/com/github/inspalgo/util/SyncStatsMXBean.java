@@ -0,0 +1,41 @@
+package com.github.inspalgo.util;
+
+/**
+ * {@link SyncStats} 的 JMX 视图，同步运行期间注册到平台 MBeanServer
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 11:05 UTC+08:00
+ */
+public interface SyncStatsMXBean {
+    String getName();
+
+    String getEndpoint();
+
+    long getConnectMillis();
+
+    long getIntrospectMillis();
+
+    long getParseMillis();
+
+    long getDiffMillis();
+
+    long getApplyMillis();
+
+    long getOutputMillis();
+
+    long getQueries();
+
+    long getRoundTrips();
+
+    long getRoundTripsSaved();
+
+    long getBytesRead();
+
+    long getTablesDiffed();
+
+    long getStatementsExecuted();
+
+    long getFailures();
+
+    long getDdlPermitWaitMillis();
+}
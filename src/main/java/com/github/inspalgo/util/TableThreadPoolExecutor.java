@@ -1,6 +1,7 @@
 package com.github.inspalgo.util;
 
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -16,6 +17,25 @@ public class TableThreadPoolExecutor {
             new ThreadPoolExecutor.AbortPolicy());
     }
 
+    /**
+     * @param poolSize 固定的线程数
+     */
+    public static ThreadPoolExecutor make(String name, int poolSize, int blockingQueueCapacity) {
+        return new ThreadPoolExecutor(poolSize, poolSize, 2L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(blockingQueueCapacity), new TableThreadFactory(name),
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 队列不限长度，提交不会被拒绝，空闲的线程超时后退出
+     */
+    public static ThreadPoolExecutor makeUnbounded(String name) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(getMaxPoolSize(), getMaxPoolSize(), 2L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new TableThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private static int getCorePoolSize() {
         int corePoolSize = Runtime.getRuntime().availableProcessors() / 4;
         return corePoolSize <= 0 ? 1 : corePoolSize;
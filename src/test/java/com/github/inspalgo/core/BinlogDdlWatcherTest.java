@@ -0,0 +1,130 @@
+package com.github.inspalgo.core;
+
+import com.github.inspalgo.fake.FakeMysql;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 读取真实 binlog 的用例需要 mysqld：设置环境变量 SCHEMA_SYNC_TEST_MYSQL=username:password@host:port 后运行，
+ * 账号需要建库与 REPLICATION CLIENT/SLAVE 权限，未设置时跳过
+ *
+ * @author InspAlgo
+ * @date 2026/10/20 16:00 UTC+08:00
+ */
+class BinlogDdlWatcherTest {
+    private static final String MYSQL = "SCHEMA_SYNC_TEST_MYSQL";
+    private static final String SCHEMA = "schema_sync_binlog_test";
+    private static final String ENDPOINT = "10.0.0.1:3306";
+
+    @Test
+    void parsesAffectedTables() {
+        assertEquals(Arrays.asList("a", "b"), BinlogDdlWatcher.affectedTables("use `app`; DROP TABLE IF EXISTS a, `b`", "app"));
+        assertEquals(Arrays.asList("t", "t2"), BinlogDdlWatcher.affectedTables("ALTER TABLE app.t RENAME TO app.t2", "app"));
+        assertEquals(Collections.singletonList("t"), BinlogDdlWatcher.affectedTables("use `app`; CREATE INDEX i ON t (c)", "app"));
+        assertEquals(Collections.singletonList(BinlogDdlWatcher.ALL_TABLES),
+            BinlogDdlWatcher.affectedTables("DROP DATABASE `app`", "app"));
+        assertTrue(BinlogDdlWatcher.affectedTables("use `app`; INSERT INTO t VALUES (1)", "app").isEmpty());
+        assertTrue(BinlogDdlWatcher.affectedTables("use `other`; ALTER TABLE t ADD c int", "app").isEmpty());
+    }
+
+    @Test
+    void skipsBacklogOverLimitWithoutReadingEvents() throws Exception {
+        FakeMysql mysql = new FakeMysql();
+        mysql.schema(ENDPOINT, "app");
+        FakeMysql.Binlog binlog = mysql.binlog(ENDPOINT);
+        ConnectMetaData connectMetaData = connectMetaData("root:root@" + ENDPOINT);
+        connectMetaData.setDatabase("app");
+        BinlogDdlWatcher watcher = new BinlogDdlWatcher(new Database().setConnectionProvider(mysql)
+                                                                      .setConnectMetaData(connectMetaData))
+            .setMaxPollBytes(10_000);
+        assertTrue(watcher.start());
+
+        binlog.event("Query", "use `app`; ALTER TABLE `t` ADD COLUMN `c` int", 100);
+        rows(binlog, 50);
+        binlog.rotate().event("Query", "use `app`; DROP TABLE `u`", 100);
+        assertEquals(new HashSet<>(Arrays.asList("t", "u")), watcher.poll());
+        assertEquals(52, binlog.getEventsRead());
+
+        // 积压 20000 字节，超过上限，不读取事件
+        rows(binlog, 199);
+        binlog.event("Query", "use `app`; ALTER TABLE `v` ADD COLUMN `c` int", 100);
+        assertEquals(Collections.singleton(BinlogDdlWatcher.ALL_TABLES), watcher.poll());
+        assertEquals(52, binlog.getEventsRead());
+
+        binlog.event("Query", "use `app`; ALTER TABLE `w` ADD COLUMN `c` int", 100);
+        assertEquals(Collections.singleton("w"), watcher.poll());
+        assertEquals(53, binlog.getEventsRead());
+
+        // 记录的文件已被清理
+        binlog.rotate().purge().event("Query", "use `app`; ALTER TABLE `x` ADD COLUMN `c` int", 100);
+        assertEquals(Collections.singleton(BinlogDdlWatcher.ALL_TABLES), watcher.poll());
+        assertTrue(watcher.poll().isEmpty());
+    }
+
+    private static void rows(FakeMysql.Binlog binlog, int events) {
+        for (int i = 0; i < events; i++) {
+            binlog.event("Write_rows", "table_id: 108 flags: STMT_END_F", 100);
+        }
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = MYSQL, matches = ".+@.+")
+    void readsDdlAndSkipsLargeBacklog() throws Exception {
+        ConnectMetaData connectMetaData = connectMetaData(System.getenv(MYSQL));
+        try (Connection connection = DriverManager.getConnection("jdbc:mysql://" + connectMetaData.getHost() + ":"
+                + connectMetaData.getPort() + "/?useSSL=false&allowPublicKeyRetrieval=true",
+            connectMetaData.getUsername(), connectMetaData.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS `" + SCHEMA + "`");
+            statement.execute("CREATE DATABASE `" + SCHEMA + "`");
+            statement.execute("USE `" + SCHEMA + "`");
+            try {
+                BinlogDdlWatcher watcher = new BinlogDdlWatcher(new Database().setConnectMetaData(connectMetaData));
+                assertTrue(watcher.start());
+
+                statement.execute("CREATE TABLE `t` (`id` bigint NOT NULL, `v` varchar(64), PRIMARY KEY (`id`))");
+                for (int i = 0; i < 200; i++) {
+                    statement.execute("INSERT INTO `t` VALUES (" + i + ", REPEAT('x', 64))");
+                }
+                statement.execute("ALTER TABLE `t` ADD COLUMN `c` int");
+                assertEquals(Collections.singleton("t"), watcher.poll());
+                assertTrue(watcher.poll().isEmpty());
+
+                // 积压超过上限时不逐条读取，跳到末尾并要求整库重新读取
+                for (int i = 200; i < 400; i++) {
+                    statement.execute("INSERT INTO `t` VALUES (" + i + ", REPEAT('x', 64), 0)");
+                }
+                Set<String> tables = watcher.setMaxPollBytes(1024).poll();
+                assertEquals(Collections.singleton(BinlogDdlWatcher.ALL_TABLES), tables);
+                assertTrue(watcher.poll().isEmpty());
+            } finally {
+                statement.execute("DROP DATABASE IF EXISTS `" + SCHEMA + "`");
+            }
+        }
+    }
+
+    private static ConnectMetaData connectMetaData(String value) {
+        int at = value.lastIndexOf('@');
+        int colon = value.indexOf(':');
+        int portColon = value.lastIndexOf(':');
+        ConnectMetaData connectMetaData = new ConnectMetaData();
+        connectMetaData.setType(ConnectMetaData.Type.MYSQL);
+        connectMetaData.setUsername(value.substring(0, colon));
+        connectMetaData.setPassword(value.substring(colon + 1, at));
+        connectMetaData.setHost(value.substring(at + 1, portColon));
+        connectMetaData.setPort(value.substring(portColon + 1));
+        connectMetaData.setDatabase(SCHEMA);
+        return connectMetaData;
+    }
+}
@@ -0,0 +1,288 @@
+package com.github.inspalgo.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 与改为单遍扫描之前按行解析的实现（{@link #legacyParse}）对比解析结果
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 21:30 UTC+08:00
+ */
+class CreateTableParserTest {
+    private static final String HEADER = "-- MySQL dump 10.13  Distrib 8.0.33, for Linux (x86_64)\n"
+        + "/*!40101 SET @OLD_CHARACTER_SET_CLIENT=@@CHARACTER_SET_CLIENT */;\n"
+        + "/*!50503 SET NAMES utf8mb4 */;\n"
+        + "/*!40014 SET @OLD_FOREIGN_KEY_CHECKS=@@FOREIGN_KEY_CHECKS, FOREIGN_KEY_CHECKS=0 */;\n\n";
+    private static final String USER = "DROP TABLE IF EXISTS `user`;\n"
+        + "/*!40101 SET @saved_cs_client     = @@character_set_client */;\n"
+        + "/*!50503 SET character_set_client = utf8mb4 */;\n"
+        + "CREATE TABLE `user` (\n"
+        + "  `id` bigint unsigned NOT NULL AUTO_INCREMENT COMMENT '主键',\n"
+        + "  `name` varchar(64) COLLATE utf8mb4_bin NOT NULL DEFAULT '',\n"
+        + "  `score` decimal(10,2) DEFAULT NULL,\n"
+        + "  `created_at` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,\n"
+        + "  PRIMARY KEY (`id`),\n"
+        + "  UNIQUE KEY `uk_name` (`name`),\n"
+        + "  KEY `idx_score_created` (`score`,`created_at`) USING BTREE,\n"
+        + "  FULLTEXT KEY `ft_name` (`name`)\n"
+        + ") ENGINE=InnoDB AUTO_INCREMENT=42 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci ROW_FORMAT=DYNAMIC;\n"
+        + "/*!40101 SET character_set_client = @saved_cs_client */;\n\n";
+    private static final String ORDER = "CREATE TABLE `order` (\n"
+        + "  `id` bigint NOT NULL,\n"
+        + "  `user_id` bigint unsigned NOT NULL,\n"
+        + "  PRIMARY KEY (`id`),\n"
+        + "  KEY `fk_user` (`user_id`),\n"
+        + "  CONSTRAINT `fk_user` FOREIGN KEY (`user_id`) REFERENCES `user` (`id`) ON DELETE CASCADE\n"
+        + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='订单';\n\n";
+    /**
+     * 数据中的分号、引号、反引号与 CREATE TABLE 都不应影响语句切分
+     */
+    private static final String DATA = "LOCK TABLES `user` WRITE;\n"
+        + "INSERT INTO `user` VALUES (1,'a;b','x'),(2,'CREATE TABLE `fake` (','it\\'s ; `q`'),"
+        + "(3,'-- no comment','/* nor this'),(4,'\"','#');\n"
+        + "UNLOCK TABLES;\n\n";
+
+    @Test
+    void matchesLegacyParserOnDump() throws IOException {
+        String dump = HEADER + USER + DATA + ORDER;
+        List<Table> tables = parseFile(dump, Integer.MAX_VALUE);
+        assertEquals(describe(legacyParse(dump)), describe(tables));
+        assertEquals(2, tables.size());
+        assertEquals("订单", tables.get(1).getAttributes().stream().filter(a -> a.startsWith("COMMENT"))
+                                        .map(a -> a.substring("COMMENT='".length(), a.length() - 1))
+                                        .findFirst().orElse(null));
+        assertEquals("fk_user", tables.get(1).getForeignKeys().get(0).getName());
+    }
+
+    @Test
+    void reparsesStatementsCrossingBufferEnd() throws IOException {
+        StringBuilder dump = new StringBuilder(HEADER);
+        StringBuilder row = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            row.append(i == 0 ? "" : ",").append("(").append(i).append(",'v;").append(i).append("`')");
+        }
+        for (int t = 0; t < 60; t++) {
+            dump.append(USER.replace("`user`", "`user_" + t + "`"))
+                .append("INSERT INTO `user_").append(t).append("` VALUES ").append(row).append(";\n");
+        }
+        // 单条语句超过 64KB 读取缓冲区
+        dump.append("CREATE TABLE `wide` (\n");
+        for (int c = 0; c < 2000; c++) {
+            dump.append("  `column_").append(c).append("` varchar(255) NOT NULL DEFAULT '',\n");
+        }
+        dump.append("  PRIMARY KEY (`column_0`)\n) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;\n");
+        String sql = dump.toString();
+        assertTrue(sql.length() > 4 * 64 * 1024);
+
+        String expected = describe(legacyParse(sql));
+        assertEquals(61, legacyParse(sql).size());
+        assertEquals(expected, describe(parseFile(sql, Integer.MAX_VALUE)));
+        // 每次只读入少量字节，语句在各个位置被截断后重新解析
+        assertEquals(expected, describe(parseFile(sql, 997)));
+        assertEquals(describe(legacyParse(HEADER + USER + DATA + ORDER)),
+            describe(parseFile(HEADER + USER + DATA + ORDER, 1)));
+    }
+
+    @Test
+    void skipsCommentsInsideDefinition() throws IOException {
+        String commented = "CREATE /* 注释 */ TABLE `user` ( -- 行注释 ;\n"
+            + "  `id` bigint unsigned NOT NULL /* 块注释; */ AUTO_INCREMENT COMMENT '主键', # 井号注释 (\n"
+            + "  `name`   varchar(64) COLLATE utf8mb4_bin\tNOT NULL DEFAULT '',\n"
+            + "  `score` decimal(10,2) DEFAULT NULL,\n"
+            + "  `created_at` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,\n"
+            + "  PRIMARY KEY (`id`), UNIQUE KEY `uk_name` (`name`),\n"
+            + "  KEY `idx_score_created` (`score`,`created_at`) USING BTREE,\n"
+            + "  FULLTEXT KEY `ft_name` (`name`)\n"
+            + ") /* 表属性 */ ENGINE=InnoDB AUTO_INCREMENT=42 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci "
+            + "ROW_FORMAT=DYNAMIC;\n";
+        assertEquals(describe(legacyParse(USER)), describe(parseFile(commented, Integer.MAX_VALUE)));
+        assertEquals(describe(legacyParse(USER)), describe(parseFile(commented, 1)));
+    }
+
+    @Test
+    void keepsQuotedSemicolonsAndEscapes() throws IOException {
+        String sql = "CREATE TABLE `a``b` (\n"
+            + "  `x``y` varchar(8) NOT NULL DEFAULT ';' COMMENT 'it''s; \\'quoted\\' -- not a comment',\n"
+            + "  `z` enum('a;b','c)d','e,f') DEFAULT NULL,\n"
+            + "  KEY `i``dx` (`x``y`)\n"
+            + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='t; (x)';\n"
+            + "CREATE TABLE `next` (\n  `id` int NOT NULL\n) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;\n";
+        for (int chunk : new int[]{Integer.MAX_VALUE, 1}) {
+            List<Table> tables = parseFile(sql, chunk);
+            assertEquals(2, tables.size());
+            Table table = tables.get(0);
+            assertEquals("a`b", table.getName());
+            assertEquals("x`y", table.getColumns().get(0).getColumnName());
+            assertEquals("`x``y` varchar(8) NOT NULL DEFAULT ';' COMMENT 'it''s; \\'quoted\\' -- not a comment'",
+                table.getColumns().get(0).getDdl());
+            assertEquals("`z` enum('a;b','c)d','e,f') DEFAULT NULL", table.getColumns().get(1).getDdl());
+            assertEquals("[KEY `i``dx` (`x``y`) USING BTREE]", table.getIndexes().toString());
+            assertEquals("[COMMENT='t; (x)']", table.getAttributes().toString());
+            assertEquals("next", tables.get(1).getName());
+        }
+    }
+
+    @Test
+    void ignoresVersionedComments() throws IOException {
+        String sql = HEADER
+            + "/*!50001 CREATE TABLE `view_placeholder` (`id` int) ENGINE=MyISAM */;\n"
+            + "/*!50001 CREATE VIEW `v` AS select 1 AS `id` */;\n"
+            + ORDER.replace(";\n\n", " /*!50100 PARTITION BY HASH (`id`) PARTITIONS 4 */;\n")
+            + "/*!40103 SET TIME_ZONE=@OLD_TIME_ZONE */;\n";
+        List<Table> tables = parseFile(sql, Integer.MAX_VALUE);
+        assertEquals(describe(legacyParse(ORDER)), describe(tables));
+        assertEquals(describe(tables), describe(parseFile(sql, 1)));
+    }
+
+    @Test
+    void skipsCreateTablespace() throws IOException {
+        String tablespace = "CREATE TABLESPACE `ts1` ADD DATAFILE 'ts1.ibd' ENGINE=InnoDB;\n";
+        assertFalse(CreateTableParser.parse(tablespace, new Table()));
+        String sql = tablespace + "CREATE TABLE IF NOT EXISTS `app`.`user` (\n" + USER.substring(USER.indexOf("  `id`"))
+            + "CREATE TABLESPACE ts2 ADD DATAFILE 'ts2;.ibd';\n" + ORDER;
+        List<Table> tables = parseFile(sql, Integer.MAX_VALUE);
+        assertEquals(describe(legacyParse(USER + ORDER)), describe(tables));
+        assertEquals(describe(tables), describe(parseFile(sql, 1)));
+    }
+
+    @Test
+    void parsesShowCreateTable() {
+        String showCreateTable = USER.substring(USER.indexOf("CREATE TABLE"), USER.indexOf(";\n/*!40101 SET character"));
+        Table table = new Table();
+        assertTrue(CreateTableParser.parse(showCreateTable, table));
+        assertEquals(describe(legacyParse(USER)), describe(Collections.singletonList(table)));
+    }
+
+    /**
+     * @param chunk 每次 read 最多返回的字节数
+     */
+    private static List<Table> parseFile(String sql, int chunk) throws IOException {
+        List<Table> tables = new ArrayList<>();
+        InputStream in = new FilterInputStream(new ByteArrayInputStream(sql.getBytes(StandardCharsets.UTF_8))) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+
+            @Override
+            public int available() {
+                return 0;
+            }
+        };
+        CreateTableParser.forEachCreateTable(in, "app", (table, parsed) -> {
+            assertTrue(parsed, table.getName());
+            tables.add(table);
+        });
+        return tables;
+    }
+
+    private static String describe(List<Table> tables) {
+        return tables.stream().map(table -> table.getName() + "\n"
+            + table.getColumns().stream().map(c -> c.getColumnName() + " -> " + c.getDdl())
+                   .collect(Collectors.joining("\n")) + "\n"
+            + "PRIMARY " + table.getPrimaryKey() + "\n"
+            + "INDEXES " + table.getIndexes() + "\n"
+            + "FOREIGN " + table.getForeignKeys().stream().map(ForeignKey::getDdl).collect(Collectors.toList()) + "\n"
+            + "ENGINE=" + table.getEngine() + " AUTO_INCREMENT=" + table.getAutoIncrement() + " CHARSET="
+            + table.getCharset() + " ROW_FORMAT=" + table.getRowFormat() + " " + table.getAttributes())
+                     .collect(Collectors.joining("\n\n"));
+    }
+
+    /**
+     * 单遍扫描之前按 SHOW CREATE TABLE 行布局解析 SQL 文件的实现，只能处理每项一行、不含注释的语句
+     */
+    private static List<Table> legacyParse(String sql) {
+        List<Table> tables = new ArrayList<>();
+        Table table = null;
+        for (String line : sql.split("\n")) {
+            line = line.trim();
+            if (table == null && line.startsWith("CREATE TABLE")) {
+                table = new Table();
+                table.setName(line.substring(line.contains("`.`") ? line.indexOf("`.`") + 3 : line.indexOf('`') + 1,
+                    line.lastIndexOf('`')));
+            } else if (table != null && line.startsWith("`")) {
+                table.addColumn(Column.of(line.substring(1, line.indexOf('`', 1)), removeLastComma(line)));
+            } else if (table != null && line.startsWith("PRIMARY KEY")) {
+                table.setPrimaryKey(legacyIndex(line));
+            } else if (table != null && line.startsWith("CONSTRAINT") && line.contains("FOREIGN KEY")) {
+                table.addForeignKey(ForeignKey.parse(removeLastComma(line)));
+            } else if (table != null && line.startsWith(")")) {
+                legacyAttributes(table, line);
+                tables.add(table);
+                table = null;
+            } else if (table != null && (line.contains("KEY") || line.contains("INDEX"))) {
+                table.addIndex(legacyIndex(line));
+            }
+        }
+        return tables;
+    }
+
+    private static String removeLastComma(String ddl) {
+        return ddl.endsWith(",") ? ddl.substring(0, ddl.length() - 1) : ddl;
+    }
+
+    private static String legacyIndex(String ddl) {
+        ddl = removeLastComma(ddl);
+        return ddl.contains("USING") ? ddl : ddl + " USING BTREE";
+    }
+
+    private static void legacyAttributes(Table table, String ddl) {
+        StringBuilder key = new StringBuilder();
+        StringBuilder value = new StringBuilder();
+        boolean skip = true;
+        for (int i = 0, size = ddl.length(); i < size; i++) {
+            char c = ddl.charAt(i);
+            if (skip && (c == ')' || c == ' ')) {
+                continue;
+            }
+            skip = false;
+            if (c == '=') {
+                while (key.charAt(key.length() - 1) == ' ') {
+                    key.deleteCharAt(key.length() - 1);
+                }
+                while (i + 1 < size && ddl.charAt(i + 1) == ' ') {
+                    i++;
+                }
+                for (int k = i + 1; k < size; k++) {
+                    c = ddl.charAt(k);
+                    if (c == ' ' || c == ';') {
+                        i = k;
+                        break;
+                    }
+                    value.append(c);
+                }
+                String k = key.toString();
+                if (k.contains("ENGINE")) {
+                    table.setEngine(value.toString());
+                } else if (k.contains("AUTO_INCREMENT")) {
+                    table.setAutoIncrement(value.toString());
+                } else if (k.contains("ROW_FORMAT")) {
+                    table.setRowFormat(value.toString());
+                } else if (k.contains("DEFAULT CHARSET") || k.contains("CHARACTER SET")) {
+                    table.setCharset(value.toString());
+                } else {
+                    table.addAttribute(k + "=" + value);
+                }
+                key.setLength(0);
+                value.setLength(0);
+                skip = true;
+                continue;
+            }
+            key.append(c);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.inspalgo.core;
+
+import com.github.inspalgo.fake.FakeMysql;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author InspAlgo
+ * @date 2026/10/20 17:00 UTC+08:00
+ */
+class DatabaseTest {
+    private static final String SOURCE = "10.0.0.1:3306";
+    private static final String TARGET = "10.0.0.2:3306";
+    private static final String SOURCE_COLUMNS = "`a` bigint DEFAULT NULL,\n  `b` bigint DEFAULT NULL";
+    private static final String TARGET_COLUMNS = "`a` int DEFAULT NULL,\n  `b` int DEFAULT NULL";
+
+    private Database sourceDb;
+
+    @Test
+    void cancelledAlterDoesNotRecreateTable() {
+        FakeMysql mysql = new FakeMysql();
+        FakeMysql.Schema target = mysql.schema(TARGET, "app");
+        Database targetDb = plan(mysql, false);
+        mysql.failOn(sql -> {
+            if (sql.startsWith("ALTER TABLE `t`")) {
+                targetDb.cancel();
+                return true;
+            }
+            return false;
+        });
+        targetDb.syncSchema(sourceDb, true);
+
+        List<String> executed = target.getExecuted();
+        assertEquals(1, executed.stream().filter(sql -> sql.startsWith("ALTER TABLE `t`")).count(), executed.toString());
+        assertTrue(executed.stream().noneMatch(sql -> sql.startsWith("DROP") || sql.startsWith("CREATE")),
+            executed.toString());
+    }
+
+    @Test
+    void cancelledRebuildDropsShadowTable() {
+        FakeMysql mysql = new FakeMysql();
+        FakeMysql.Schema target = mysql.schema(TARGET, "app");
+        Database targetDb = plan(mysql, true);
+        assertTrue(targetDb.getDdlPlan().get(0).startsWith("CREATE TABLE `_t_new`"), targetDb.getDdlPlan().toString());
+        mysql.failOn(sql -> {
+            if (sql.startsWith("INSERT INTO `_t_new`")) {
+                targetDb.cancel();
+                return true;
+            }
+            return false;
+        });
+        targetDb.syncSchema(sourceDb, true);
+
+        List<String> executed = target.getExecuted();
+        assertTrue(executed.contains("DROP TABLE IF EXISTS `_t_new`"), executed.toString());
+        assertTrue(executed.stream().noneMatch(sql -> sql.startsWith("RENAME") || sql.contains("EXISTS `t`")),
+            executed.toString());
+        assertEquals(Collections.singleton("t"), target.getTables().keySet());
+        assertTrue(targetDb.getErrors().isEmpty(), targetDb.getErrors().toString());
+    }
+
+    @Test
+    void ddlPermitWaitIsNotStatementDuration() throws Exception {
+        FakeMysql mysql = new FakeMysql();
+        Database targetDb = plan(mysql, false);
+        HostAdmission admission = new HostAdmission(0, 1);
+        targetDb.setAdmission(admission);
+        // 另一个目标占用着该服务器唯一的 DDL 许可
+        assertTrue(admission.acquireDdl(TARGET, () -> false));
+        Thread holder = new Thread(() -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(500));
+            admission.releaseDdl(TARGET);
+        });
+        holder.start();
+        targetDb.syncSchema(sourceDb, false);
+        holder.join();
+
+        List<DdlExecution> executions = targetDb.getDdlExecutions();
+        assertEquals(2, executions.size(), executions.toString());
+        for (DdlExecution execution : executions) {
+            assertTrue(execution.isSuccess(), execution.getError());
+            assertTrue(execution.getDurationNanos() < TimeUnit.MILLISECONDS.toNanos(250), execution.toString());
+        }
+        assertTrue(targetDb.getStats().getDdlPermitWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(400),
+            targetDb.getStats().summary());
+    }
+
+    @Test
+    void tableWithTriggersIsNotRebuilt() {
+        FakeMysql mysql = new FakeMysql();
+        mysql.schema(TARGET, "app").trigger("t");
+        Database targetDb = plan(mysql, true);
+
+        // 重建复制预计更快，但改名后删除旧表会删掉触发器，只能逐条 ALTER
+        List<String> ddlPlan = targetDb.getDdlPlan();
+        assertTrue(ddlPlan.stream().allMatch(sql -> sql.startsWith("ALTER TABLE `t`")), ddlPlan.toString());
+    }
+
+    /**
+     * 源表与目标表两个字段类型不同，目标表较大时选择重建复制
+     */
+    private Database plan(FakeMysql mysql, boolean rebuild) {
+        mysql.schema(SOURCE, "app").table(createTable(SOURCE_COLUMNS));
+        mysql.schema(TARGET, "app").dataLength(rebuild ? 1L << 30 : 16384).table(createTable(TARGET_COLUMNS));
+        sourceDb = database(mysql, SOURCE);
+        Database targetDb = database(mysql, TARGET).setRebuildCopy(rebuild);
+        sourceDb.init();
+        targetDb.init();
+        targetDb.generateSyncSchemaDdlList(sourceDb, Collections.singletonList("t"));
+        return targetDb;
+    }
+
+    private static Database database(FakeMysql mysql, String endpoint) {
+        ConnectMetaData connectMetaData = new ConnectMetaData();
+        connectMetaData.setType(ConnectMetaData.Type.MYSQL);
+        connectMetaData.setUsername("root");
+        connectMetaData.setPassword("root");
+        connectMetaData.setHost(endpoint.substring(0, endpoint.indexOf(':')));
+        connectMetaData.setPort(endpoint.substring(endpoint.indexOf(':') + 1));
+        connectMetaData.setDatabase("app");
+        return new Database().setConnectionProvider(mysql).setConnectMetaData(connectMetaData);
+    }
+
+    private static String createTable(String columns) {
+        return "CREATE TABLE `t` (\n  `id` bigint NOT NULL,\n  " + columns
+            + ",\n  PRIMARY KEY (`id`)\n) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.inspalgo.core;
+
+import com.github.inspalgo.fake.FakeMysql;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 表名按字母顺序与依赖顺序相反，排序正确才能通过
+ *
+ * @author InspAlgo
+ * @date 2026/10/19 22:10 UTC+08:00
+ */
+class ForeignKeyGraphTest {
+    private static final String SOURCE = "10.0.0.1:3306";
+    private static final String TARGET = "10.0.0.2:3306";
+
+    private final FakeMysql mysql = new FakeMysql();
+    private Database sourceDb;
+    private Database targetDb;
+
+    @Test
+    void dropsChildBeforeParent() {
+        FakeMysql.Schema target = mysql.schema(TARGET, "app");
+        target.table(table("a_parent", null)).table(table("b_child", "a_parent"));
+        init();
+        targetDb.generateDeleteTablesDdlList(Arrays.asList("a_parent", "b_child"));
+
+        List<ForeignKeyGraph.Group> groups = targetDb.dependencyGroups(sourceDb);
+        assertEquals(1, groups.size(), groups.toString());
+        assertEquals(Arrays.asList("b_child", "a_parent"), groups.get(0).getTableNames());
+        assertFalse(groups.get(0).isCyclic());
+    }
+
+    @Test
+    void createsParentBeforeChild() {
+        mysql.schema(SOURCE, "app").table(table("a_child", "b_parent")).table(table("b_parent", null))
+             .table(table("c_alone", null));
+        init();
+        targetDb.generateAddTablesDdlList(new ArrayList<>(sourceDb.getTableMap().values()));
+
+        List<ForeignKeyGraph.Group> groups = targetDb.dependencyGroups(sourceDb);
+        assertEquals(2, groups.size(), groups.toString());
+        assertEquals(Arrays.asList("b_parent", "a_child"), groups.get(0).getTableNames());
+        assertEquals(Collections.singletonList("c_alone"), groups.get(1).getTableNames());
+    }
+
+    @Test
+    void altersChildDroppingForeignKeyBeforeDroppingParent() {
+        mysql.schema(SOURCE, "app").table(table("b_child", null));
+        mysql.schema(TARGET, "app").table(table("a_parent", null)).table(table("b_child", "a_parent"));
+        init();
+        targetDb.generateDeleteTablesDdlList(Collections.singletonList("a_parent"));
+        targetDb.generateSyncSchemaDdlList(sourceDb, Collections.singletonList("b_child"));
+
+        List<ForeignKeyGraph.Group> groups = targetDb.dependencyGroups(sourceDb);
+        assertEquals(1, groups.size(), groups.toString());
+        assertEquals(Arrays.asList("b_child", "a_parent"), groups.get(0).getTableNames());
+    }
+
+    @Test
+    void cyclicGroupDisablesForeignKeyChecks() {
+        mysql.schema(SOURCE, "app").table(table("a", "b")).table(table("b", "a")).table(table("c", null));
+        FakeMysql.Schema target = mysql.schema(TARGET, "app");
+        init();
+        targetDb.setForeignKeyChecks(true);
+        targetDb.generateAddTablesDdlList(new ArrayList<>(sourceDb.getTableMap().values()));
+
+        List<ForeignKeyGraph.Group> groups = targetDb.dependencyGroups(sourceDb);
+        assertEquals(2, groups.size(), groups.toString());
+        assertEquals(Arrays.asList("a", "b"), groups.get(0).getTableNames());
+        assertTrue(groups.get(0).isCyclic());
+        assertFalse(groups.get(1).isCyclic());
+
+        targetDb.applyByDependency(sourceDb, false);
+        List<String> executed = target.getExecuted().stream()
+                                      .filter(sql -> sql.startsWith("SET FOREIGN_KEY_CHECKS") || sql.startsWith("CREATE"))
+                                      .collect(Collectors.toList());
+        // 只有循环依赖的组在建表前关闭外键检查
+        int disabled = executed.indexOf("SET FOREIGN_KEY_CHECKS = 0");
+        assertTrue(disabled >= 0, executed.toString());
+        assertTrue(executed.get(disabled + 1).startsWith("CREATE TABLE `a`"), executed.toString());
+        assertTrue(executed.get(disabled + 2).startsWith("CREATE TABLE `b`"), executed.toString());
+        assertEquals(1, executed.stream().filter(sql -> sql.equals("SET FOREIGN_KEY_CHECKS = 0")).count(),
+            executed.toString());
+        assertTrue(targetDb.getErrors().isEmpty(), targetDb.getErrors().toString());
+    }
+
+    private void init() {
+        mysql.schema(SOURCE, "app");
+        mysql.schema(TARGET, "app");
+        sourceDb = database(SOURCE);
+        targetDb = database(TARGET);
+        sourceDb.init();
+        targetDb.init();
+    }
+
+    private Database database(String endpoint) {
+        ConnectMetaData connectMetaData = new ConnectMetaData();
+        connectMetaData.setType(ConnectMetaData.Type.MYSQL);
+        connectMetaData.setUsername("root");
+        connectMetaData.setPassword("root");
+        connectMetaData.setHost(endpoint.substring(0, endpoint.indexOf(':')));
+        connectMetaData.setPort(endpoint.substring(endpoint.indexOf(':') + 1));
+        connectMetaData.setDatabase("app");
+        return new Database().setConnectionProvider(mysql).setConnectMetaData(connectMetaData);
+    }
+
+    /**
+     * @param parent 外键引用的表，为 null 时没有外键
+     */
+    private static String table(String name, String parent) {
+        return "CREATE TABLE `" + name + "` (\n  `id` bigint NOT NULL,\n  `parent_id` bigint DEFAULT NULL,\n"
+            + "  PRIMARY KEY (`id`)" + (parent == null ? "" : ",\n  KEY `fk_" + name + "` (`parent_id`),\n"
+            + "  CONSTRAINT `fk_" + name + "` FOREIGN KEY (`parent_id`) REFERENCES `" + parent + "` (`id`)")
+            + "\n) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+    }
+}
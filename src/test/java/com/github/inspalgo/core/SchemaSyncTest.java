@@ -0,0 +1,64 @@
+package com.github.inspalgo.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author InspAlgo
+ * @date 2026/10/20 15:00 UTC+08:00
+ */
+class SchemaSyncTest {
+    private static final int MYSQL_57 = 50744;
+    private static final int MYSQL_80 = 80033;
+
+    @Test
+    void columnsInheritTableCollation() {
+        Table source = table("`name` varchar(64) DEFAULT NULL", "DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_bin");
+        Table target = table("`name` varchar(64) DEFAULT NULL", "DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci");
+        List<String> ddl = SchemaSync.generateTableDdl(source, target, MYSQL_80);
+        assertTrue(ddl.contains("ALTER TABLE `t` COLLATE=utf8mb4_bin"), ddl.toString());
+        assertTrue(ddl.stream().anyMatch(sql -> sql.startsWith("ALTER TABLE `t` MODIFY COLUMN `name`")), ddl.toString());
+
+        // 字段显式写出的排序规则与另一侧表的排序规则相同
+        target = table("`name` varchar(64) COLLATE utf8mb4_bin DEFAULT NULL",
+            "DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci");
+        ddl = SchemaSync.generateTableDdl(source, target, MYSQL_80);
+        assertEquals(1, ddl.size(), ddl.toString());
+    }
+
+    @Test
+    void columnsWithoutCollationUseServerDefault() {
+        Table source = table("`name` varchar(64) COLLATE utf8mb4_general_ci DEFAULT NULL", "DEFAULT CHARSET=utf8mb4");
+        Table target = table("`name` varchar(64) DEFAULT NULL", "DEFAULT CHARSET=utf8mb4");
+        assertTrue(SchemaSync.generateTableDdl(source, target, MYSQL_57).isEmpty());
+        List<String> ddl = SchemaSync.generateTableDdl(source, target, MYSQL_80);
+        assertEquals(1, ddl.size(), ddl.toString());
+        assertTrue(ddl.get(0).startsWith("ALTER TABLE `t` MODIFY COLUMN `name`"), ddl.get(0));
+
+        // 字段只写了字符集时使用该字符集的默认排序规则，而不是表的排序规则
+        source = table("`name` varchar(64) CHARACTER SET utf8mb4 DEFAULT NULL",
+            "DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_bin");
+        target = table("`name` varchar(64) COLLATE utf8mb4_0900_ai_ci DEFAULT NULL",
+            "DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_bin");
+        assertTrue(SchemaSync.generateTableDdl(source, target, MYSQL_80).isEmpty());
+    }
+
+    @Test
+    void boolIsTinyintOne() {
+        Column bool = Column.of("flag", "`flag` bool NOT NULL");
+        assertTrue(bool.sameDefinition(Column.of("flag", "`flag` tinyint(1) NOT NULL"), null, null, null, null, 0));
+        assertFalse(bool.sameDefinition(Column.of("flag", "`flag` tinyint NOT NULL"), null, null, null, null, 0));
+    }
+
+    private static Table table(String column, String options) {
+        Table table = new Table();
+        assertTrue(CreateTableParser.parse("CREATE TABLE `t` (\n  `id` bigint NOT NULL,\n  " + column
+            + ",\n  PRIMARY KEY (`id`)\n) ENGINE=InnoDB " + options, table));
+        return table;
+    }
+}
@@ -0,0 +1,703 @@
+package com.github.inspalgo.fake;
+
+import com.github.inspalgo.core.ConnectionProvider;
+import com.mysql.cj.MysqlConnection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 进程内的 MySQL 替身，以 {@link ConnectionProvider} 的形式注入，不需要真实的 MySQL 与网络
+ * <p>
+ * 按库提供 information_schema.TABLES 与 SHOW CREATE TABLE 的结果，执行的语句按顺序记录，
+ * CREATE/DROP TABLE 与 CREATE/DROP DATABASE 会修改内存中的结构，其余 DDL 只记录。
+ * 每次网络往返（建立连接、执行语句、commit、rollback、setAutoCommit）前等待配置的延迟，并按库计数，
+ * 计数口径与 {@link com.github.inspalgo.util.StatsConnection} 一致。
+ * 以 {@code ;\n} 分隔的多语句包与 Connector/J 一样遇错即停：第一条失败时 execute 抛出，
+ * 之后的语句失败时在 getMoreResults 取到该结果时抛出。
+ * 每个 endpoint 有一份 binlog，支持 SHOW BINARY LOG STATUS、SHOW BINARY LOGS 与 SHOW BINLOG EVENTS。
+ * 连接可解包为 {@link MysqlConnection} 取得连接 id，支持 KILL QUERY 与按 id 查询 information_schema.PROCESSLIST
+ *
+ * @author InspAlgo
+ * @date 2026/10/20 10:00 UTC+08:00
+ */
+public class FakeMysql implements ConnectionProvider {
+    private static final Pattern URL = Pattern.compile("jdbc:mysql://([^/]+)/([^?]*).*");
+    private static final Pattern IDENTIFIER = Pattern.compile("`([^`]+)`");
+
+    private static final Pattern BINLOG_EVENTS = Pattern.compile(
+        "SHOW BINLOG EVENTS IN '([^']+)' FROM (\\d+) LIMIT (\\d+)", Pattern.CASE_INSENSITIVE);
+
+    private final Map<String, Schema> schemas = new ConcurrentHashMap<>();
+    private final Map<String, Binlog> binlogs = new ConcurrentHashMap<>();
+    private volatile long latencyNanos = 0;
+    private volatile Predicate<String> failOn = sql -> false;
+    private volatile Predicate<String> hangOn = sql -> false;
+    private volatile boolean killable = true;
+    private volatile boolean eagerResults = false;
+    private final AtomicLong nextConnectionId = new AtomicLong();
+    private final Map<Long, FakeConnection> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 一个库的结构与收到的请求
+     */
+    public static final class Schema {
+        private final Map<String, String> tables = new ConcurrentSkipListMap<>();
+        private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicLong connections = new AtomicLong();
+        private final AtomicLong queries = new AtomicLong();
+        private final AtomicLong roundTrips = new AtomicLong();
+        private volatile long dataLength = 16384;
+        private final Set<String> triggerTables = ConcurrentHashMap.newKeySet();
+
+        public Schema table(String createTable) {
+            tables.put(tableName(createTable), createTable);
+            return this;
+        }
+
+        /**
+         * @param tableName 在 information_schema.TRIGGERS 中含有触发器的表
+         */
+        public Schema trigger(String tableName) {
+            triggerTables.add(tableName);
+            return this;
+        }
+
+        /**
+         * @param dataLength information_schema.TABLES 中每张表的 DATA_LENGTH，影响 DDL 耗时估算
+         */
+        public Schema dataLength(long dataLength) {
+            this.dataLength = dataLength;
+            return this;
+        }
+
+        public Map<String, String> getTables() {
+            return tables;
+        }
+
+        /**
+         * @return 按执行顺序记录的非查询语句，多语句包按单条语句记录
+         */
+        public List<String> getExecuted() {
+            synchronized (executed) {
+                return new ArrayList<>(executed);
+            }
+        }
+
+        public long getConnections() {
+            return connections.get();
+        }
+
+        public long getQueries() {
+            return queries.get();
+        }
+
+        public long getRoundTrips() {
+            return roundTrips.get();
+        }
+    }
+
+    /**
+     * 一台服务器的 binlog，事件只记录类型、内容与占用的字节数
+     */
+    public static final class Binlog {
+        private final Map<String, Long> files = new LinkedHashMap<>();
+        private final List<Object[]> events = new ArrayList<>();
+        private String current;
+        private final AtomicLong eventsRead = new AtomicLong();
+
+        Binlog() {
+            rotate();
+        }
+
+        /**
+         * @param type  事件类型，如 Query、Write_rows
+         * @param info  事件内容
+         * @param bytes 事件占用的字节数
+         */
+        public synchronized Binlog event(String type, String info, long bytes) {
+            long pos = files.get(current);
+            events.add(new Object[]{current, pos, type, 1L, pos + bytes, info});
+            files.put(current, pos + bytes);
+            return this;
+        }
+
+        public synchronized Binlog rotate() {
+            current = String.format("binlog.%06d", files.size() + 1);
+            files.put(current, 4L);
+            return this;
+        }
+
+        /**
+         * 清理当前文件之前的全部文件
+         */
+        public synchronized Binlog purge() {
+            files.keySet().removeIf(file -> !file.equals(current));
+            return this;
+        }
+
+        /**
+         * @return SHOW BINLOG EVENTS 返回的事件总数
+         */
+        public long getEventsRead() {
+            return eventsRead.get();
+        }
+
+        synchronized List<Object[]> events(String file, long from, int limit) throws SQLException {
+            if (!files.containsKey(file)) {
+                throw new SQLException("Could not find target log during relay log initialization");
+            }
+            List<Object[]> result = new ArrayList<>();
+            for (Object[] event : events) {
+                if (event[0].equals(file) && (Long) event[1] >= from && result.size() < limit) {
+                    result.add(event);
+                }
+            }
+            eventsRead.addAndGet(result.size());
+            return result;
+        }
+    }
+
+    /**
+     * @param endpoint host:port
+     * @return 该服务器的 binlog，不存在时创建
+     */
+    public Binlog binlog(String endpoint) {
+        return binlogs.computeIfAbsent(endpoint, key -> new Binlog());
+    }
+
+    /**
+     * @param endpoint host:port
+     * @param database 库名
+     * @return 库，不存在时创建
+     */
+    public Schema schema(String endpoint, String database) {
+        return schemas.computeIfAbsent(endpoint + "/" + database, key -> new Schema());
+    }
+
+    /**
+     * @param latency 每次网络往返的延迟
+     */
+    public FakeMysql latency(long latency, TimeUnit unit) {
+        this.latencyNanos = unit.toNanos(latency);
+        return this;
+    }
+
+    /**
+     * @param failOn 返回 true 的语句（包括查询）执行失败
+     */
+    public FakeMysql failOn(Predicate<String> failOn) {
+        this.failOn = failOn;
+        return this;
+    }
+
+    /**
+     * 返回 true 的语句一直执行，直到被 KILL QUERY 终止；在本地中止连接时客户端以异常返回，
+     * 服务器上的语句继续执行
+     *
+     * @param killable false 表示 KILL QUERY 不能终止，模拟长时间回滚
+     */
+    public FakeMysql hang(Predicate<String> hangOn, boolean killable) {
+        this.hangOn = hangOn;
+        this.killable = killable;
+        return this;
+    }
+
+    /**
+     * 与 Connector/J 一致，多语句包在 execute 中执行全部语句并读取全部结果，任一语句失败都由 execute 抛出
+     */
+    public FakeMysql eagerResults(boolean eagerResults) {
+        this.eagerResults = eagerResults;
+        return this;
+    }
+
+    @Override
+    public Connection getConnection(String jdbcUrl, String username, String password) throws SQLException {
+        Matcher matcher = URL.matcher(jdbcUrl);
+        if (!matcher.matches()) {
+            throw new SQLException("Unsupported URL " + jdbcUrl);
+        }
+        String endpoint = matcher.group(1);
+        if (!schemas.containsKey(endpoint + "/" + matcher.group(2))) {
+            throw new SQLSyntaxErrorException("Unknown database '" + matcher.group(2) + "'");
+        }
+        FakeConnection connection = new FakeConnection(nextConnectionId.incrementAndGet(), endpoint,
+            matcher.group(2), jdbcUrl.contains("allowMultiQueries=true"));
+        sessions.put(connection.id, connection);
+        connection.schema().connections.incrementAndGet();
+        connection.roundTrip();
+        return (Connection) Proxy.newProxyInstance(FakeMysql.class.getClassLoader(),
+            new Class<?>[]{Connection.class, MysqlConnection.class}, connection);
+    }
+
+    private static String identifier(String sql) {
+        Matcher matcher = IDENTIFIER.matcher(sql);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * @return TABLE 之后的第一个表名，`db`.`t` 取 t
+     */
+    private static String tableName(String sql) {
+        int start = sql.toUpperCase().indexOf("TABLE");
+        Matcher matcher = IDENTIFIER.matcher(sql);
+        String name = null;
+        if (matcher.find(Math.max(start, 0))) {
+            name = matcher.group(1);
+            int end = matcher.end();
+            if (end < sql.length() && sql.charAt(end) == '.' && matcher.find(end)) {
+                name = matcher.group(1);
+            }
+        }
+        return name;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(FakeMysql.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return proxy.getClass().getSimpleName();
+            default:
+                break;
+        }
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private final class FakeConnection implements InvocationHandler {
+        private final long id;
+        private final String endpoint;
+        private final boolean multiQueries;
+        private volatile String database;
+        private volatile boolean closed = false;
+        /**
+         * 服务器上正在执行被挂起的语句
+         */
+        private volatile boolean running = false;
+        private volatile boolean killed = false;
+        private final Map<String, Object> variables = new ConcurrentHashMap<>();
+
+        FakeConnection(long id, String endpoint, String database, boolean multiQueries) {
+            this.id = id;
+            this.endpoint = endpoint;
+            this.database = database;
+            this.multiQueries = multiQueries;
+        }
+
+        Schema schema() {
+            return schema(database);
+        }
+
+        Schema schema(String name) {
+            return schemas.get(endpoint + "/" + name);
+        }
+
+        void roundTrip() {
+            schema().roundTrips.incrementAndGet();
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "createStatement":
+                    return proxy(PreparedStatement.class, new FakeStatement(this, null));
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class, new FakeStatement(this, (String) args[0]));
+                case "setAutoCommit":
+                case "commit":
+                case "rollback":
+                    roundTrip();
+                    return null;
+                case "getAutoCommit":
+                    return true;
+                case "getMetaData":
+                    return proxy(DatabaseMetaData.class, (p, m, a) ->
+                        "getDatabaseProductVersion".equals(m.getName()) ? "8.0.33" : defaultValue(p, m, a));
+                case "close":
+                case "abort":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "isValid":
+                    return !closed;
+                case "getId":
+                    return id;
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                case "unwrap":
+                    return proxy;
+                default:
+                    return defaultValue(proxy, method, args);
+            }
+        }
+
+        /**
+         * 执行一条语句，查询返回结果集，其余返回 null
+         */
+        ResultSet run(String sql, Map<Integer, Object> parameters) throws SQLException {
+            if (closed) {
+                throw new SQLException("No operations allowed after connection closed.");
+            }
+            String trimmed = sql.trim();
+            String upper = trimmed.toUpperCase();
+            boolean query = upper.startsWith("SELECT") || upper.startsWith("SHOW");
+            if (!query) {
+                schema().executed.add(trimmed);
+            }
+            if (failOn.test(trimmed)) {
+                throw new SQLException("Fake failure: " + trimmed);
+            }
+            if (hangOn.test(trimmed)) {
+                hang();
+            }
+            if (query) {
+                return query(trimmed, upper, parameters);
+            }
+            if (upper.startsWith("SET @")) {
+                int equals = trimmed.indexOf('=');
+                variables.put(trimmed.substring(4, equals).trim().toLowerCase(),
+                    Long.parseLong(trimmed.substring(equals + 1).trim()));
+            } else if (upper.startsWith("USE ")) {
+                String name = identifier(trimmed);
+                if (schema(name) == null) {
+                    throw new SQLSyntaxErrorException("Unknown database '" + name + "'");
+                }
+                database = name;
+            } else if (upper.startsWith("CREATE DATABASE")) {
+                schemas.putIfAbsent(endpoint + "/" + identifier(trimmed), new Schema());
+            } else if (upper.startsWith("DROP DATABASE")) {
+                schemas.remove(endpoint + "/" + identifier(trimmed));
+            } else if (upper.startsWith("CREATE TABLE")) {
+                if (schema().tables.putIfAbsent(tableName(trimmed), trimmed) != null) {
+                    throw new SQLSyntaxErrorException("Table '" + tableName(trimmed) + "' already exists");
+                }
+            } else if (upper.startsWith("KILL QUERY")) {
+                FakeConnection session = sessions.get(Long.parseLong(trimmed.substring(10).trim()));
+                if (session == null) {
+                    throw new SQLException("Unknown thread id: " + trimmed.substring(10).trim());
+                }
+                if (killable) {
+                    session.killed = true;
+                    session.running = false;
+                }
+            } else if (upper.startsWith("DROP TABLE")) {
+                if (schema().tables.remove(tableName(trimmed)) == null && !upper.startsWith("DROP TABLE IF EXISTS")) {
+                    throw new SQLSyntaxErrorException("Unknown table '" + tableName(trimmed) + "'");
+                }
+            }
+            return null;
+        }
+
+        private void hang() throws SQLException {
+            running = true;
+            killed = false;
+            while (true) {
+                if (killed) {
+                    throw new SQLException("Query execution was interrupted");
+                }
+                if (closed) {
+                    throw new SQLException("Communications link failure");
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }
+
+        private ResultSet query(String sql, String upper, Map<Integer, Object> parameters) throws SQLException {
+            List<String> columns;
+            List<Object[]> rows = new ArrayList<>();
+            if (upper.startsWith("SELECT @")) {
+                String name = sql.substring(7).trim().toLowerCase();
+                columns = Collections.singletonList(name);
+                rows.add(new Object[]{variables.get(name)});
+            } else if (upper.startsWith("SHOW CREATE TABLE")) {
+                Matcher matcher = IDENTIFIER.matcher(sql);
+                List<String> names = new ArrayList<>(2);
+                while (matcher.find()) {
+                    names.add(matcher.group(1));
+                }
+                Schema schema = names.size() > 1 ? schema(names.get(0)) : schema();
+                String tableName = names.get(names.size() - 1);
+                String createTable = schema == null ? null : schema.tables.get(tableName);
+                if (createTable == null) {
+                    throw new SQLSyntaxErrorException("Table '" + tableName + "' doesn't exist");
+                }
+                columns = Arrays.asList("Table", "Create Table");
+                rows.add(new Object[]{tableName, createTable});
+            } else if (upper.contains("FROM INFORMATION_SCHEMA.COLUMNS")) {
+                // 结构摘要：按建表语句求和，任何表的变化都会改变摘要
+                Schema schema = schema(String.valueOf(parameters.get(1)));
+                columns = Arrays.asList("COUNT", "DIGEST");
+                for (int i = 0; i < 3; i++) {
+                    rows.add(new Object[]{schema == null ? 0L : (long) schema.tables.size(),
+                        schema == null ? 0L : (long) schema.tables.hashCode()});
+                }
+            } else if (upper.contains("FROM INFORMATION_SCHEMA.TABLES")) {
+                Schema schema = schema(String.valueOf(parameters.get(1)));
+                List<Object> names = new ArrayList<>();
+                for (int i = 2; parameters.containsKey(i); i++) {
+                    names.add(parameters.get(i));
+                }
+                columns = upper.startsWith("SELECT TABLE_NAME FROM") ? Collections.singletonList("TABLE_NAME")
+                    : Arrays.asList("TABLE_NAME", "ROW_FORMAT", "DATA_LENGTH", "INDEX_LENGTH", "TABLE_ROWS");
+                if (schema != null) {
+                    for (String tableName : schema.tables.keySet()) {
+                        if (names.isEmpty() || names.contains(tableName)) {
+                            rows.add(columns.size() == 1 ? new Object[]{tableName}
+                                : new Object[]{tableName, "Dynamic", schema.dataLength, 0L, 0L});
+                        }
+                    }
+                }
+            } else if (upper.startsWith("SHOW BINARY LOG STATUS")) {
+                Binlog binlog = binlog(endpoint);
+                columns = Arrays.asList("File", "Position");
+                synchronized (binlog) {
+                    rows.add(new Object[]{binlog.current, binlog.files.get(binlog.current)});
+                }
+            } else if (upper.startsWith("SHOW BINARY LOGS")) {
+                Binlog binlog = binlog(endpoint);
+                columns = Arrays.asList("Log_name", "File_size");
+                synchronized (binlog) {
+                    binlog.files.forEach((file, size) -> rows.add(new Object[]{file, size}));
+                }
+            } else if (upper.startsWith("SHOW BINLOG EVENTS")) {
+                Matcher matcher = BINLOG_EVENTS.matcher(sql);
+                if (!matcher.matches()) {
+                    throw new SQLSyntaxErrorException("Unsupported " + sql);
+                }
+                columns = Arrays.asList("Log_name", "Pos", "Event_type", "Server_id", "End_log_pos", "Info");
+                rows.addAll(binlog(endpoint).events(matcher.group(1), Long.parseLong(matcher.group(2)),
+                    Integer.parseInt(matcher.group(3))));
+            } else if (upper.contains("INFORMATION_SCHEMA.PROCESSLIST")) {
+                columns = Collections.singletonList("ID");
+                for (int i = 1; parameters.containsKey(i); i++) {
+                    FakeConnection session = sessions.get(((Number) parameters.get(i)).longValue());
+                    if (session != null && session.running) {
+                        rows.add(new Object[]{session.id});
+                    }
+                }
+            } else if (upper.contains("INFORMATION_SCHEMA.TRIGGERS")) {
+                Schema schema = schema(String.valueOf(parameters.get(1)));
+                columns = Collections.singletonList("EVENT_OBJECT_TABLE");
+                if (schema != null) {
+                    for (String tableName : schema.triggerTables) {
+                        rows.add(new Object[]{tableName});
+                    }
+                }
+            } else if (upper.contains("INFORMATION_SCHEMA.SCHEMATA")) {
+                columns = Arrays.asList("DEFAULT_CHARACTER_SET_NAME", "DEFAULT_COLLATION_NAME");
+                rows.add(new Object[]{"utf8mb4", "utf8mb4_0900_ai_ci"});
+            } else {
+                columns = Collections.emptyList();
+            }
+            return proxy(ResultSet.class, new FakeResultSet(columns, rows));
+        }
+    }
+
+    private final class FakeStatement implements InvocationHandler {
+        private final FakeConnection connection;
+        private final String preparedSql;
+        private final Map<Integer, Object> parameters = new HashMap<>();
+        /**
+         * 多语句包中尚未执行的语句
+         */
+        private List<String> pending = Collections.emptyList();
+        /**
+         * eagerResults 时已执行的语句中尚未取出的结果
+         */
+        private List<ResultSet> results;
+        private boolean hasResult = false;
+        private ResultSet resultSet;
+
+        FakeStatement(FakeConnection connection, String preparedSql) {
+            this.connection = connection;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            switch (method.getName()) {
+                case "setString":
+                case "setObject":
+                case "setLong":
+                case "setInt":
+                    parameters.put((Integer) args[0], args[1]);
+                    return null;
+                case "executeQuery":
+                    count();
+                    resultSet = connection.run(sql, parameters);
+                    return resultSet;
+                case "execute":
+                    count();
+                    List<String> statements = connection.multiQueries
+                        ? new ArrayList<>(Arrays.asList(sql.split(";\n"))) : Collections.singletonList(sql);
+                    if (eagerResults) {
+                        // 先执行全部语句，getMoreResults 只取缓存的结果
+                        results = new ArrayList<>();
+                        for (String statement : statements) {
+                            results.add(connection.run(statement, parameters));
+                        }
+                        return nextResult();
+                    }
+                    pending = statements.subList(1, statements.size());
+                    resultSet = connection.run(statements.get(0), parameters);
+                    hasResult = resultSet == null;
+                    return resultSet != null;
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                    count();
+                    connection.run(sql, parameters);
+                    return method.getReturnType() == long.class ? (Object) 0L : (Object) 0;
+                case "getMoreResults":
+                    hasResult = false;
+                    if (results != null) {
+                        return !results.isEmpty() && nextResult();
+                    }
+                    if (pending.isEmpty()) {
+                        return false;
+                    }
+                    String next = pending.get(0);
+                    pending = pending.subList(1, pending.size());
+                    resultSet = connection.run(next, parameters);
+                    hasResult = resultSet == null;
+                    return resultSet != null;
+                case "getUpdateCount":
+                    return hasResult ? 0 : -1;
+                case "getResultSet":
+                    return resultSet;
+                case "getConnection":
+                    return null;
+                case "close":
+                    return null;
+                default:
+                    return defaultValue(proxy, method, args);
+            }
+        }
+
+        private boolean nextResult() {
+            resultSet = results.remove(0);
+            hasResult = resultSet == null;
+            return resultSet != null;
+        }
+
+        private void count() {
+            results = null;
+            connection.schema().queries.incrementAndGet();
+            connection.roundTrip();
+        }
+    }
+
+    private static final class FakeResultSet implements InvocationHandler {
+        private final List<String> columns;
+        private final List<Object[]> rows;
+        private int row = -1;
+        private boolean wasNull = false;
+
+        FakeResultSet(List<String> columns, List<Object[]> rows) {
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    return ++row < rows.size();
+                case "getString":
+                    Object value = value(args[0]);
+                    return value == null ? null : value.toString();
+                case "getObject":
+                    return value(args[0]);
+                case "getLong":
+                    Object number = value(args[0]);
+                    return number == null ? 0L : ((Number) number).longValue();
+                case "wasNull":
+                    return wasNull;
+                case "findColumn":
+                    return index(args[0]) + 1;
+                case "getMetaData":
+                    return proxy(ResultSetMetaData.class, (p, m, a) -> {
+                        switch (m.getName()) {
+                            case "getColumnCount":
+                                return columns.size();
+                            case "getColumnLabel":
+                            case "getColumnName":
+                                return columns.get((Integer) a[0] - 1);
+                            default:
+                                return defaultValue(p, m, a);
+                        }
+                    });
+                case "close":
+                    return null;
+                default:
+                    return defaultValue(proxy, method, args);
+            }
+        }
+
+        private int index(Object column) throws SQLException {
+            if (column instanceof Integer) {
+                return (Integer) column - 1;
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).equalsIgnoreCase((String) column)) {
+                    return i;
+                }
+            }
+            throw new SQLException("Column '" + column + "' not found.");
+        }
+
+        private Object value(Object column) throws SQLException {
+            if (row < 0 || row >= rows.size()) {
+                throw new SQLException("Illegal operation on empty result set.");
+            }
+            Object value = rows.get(row)[index(column)];
+            wasNull = value == null;
+            return value;
+        }
+    }
+}
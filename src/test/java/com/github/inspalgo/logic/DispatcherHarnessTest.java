@@ -0,0 +1,299 @@
+package com.github.inspalgo.logic;
+
+import com.github.inspalgo.core.ConnectMetaData;
+import com.github.inspalgo.fake.FakeMysql;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 在进程内的 MySQL 替身上端到端运行 {@link Dispatcher#schemaSync()}，每次往返注入固定延迟，
+ * 核对各库发出的查询数、往返次数与各阶段耗时，发现读取结构与执行 DDL 中按表数增长的额外往返
+ *
+ * @author InspAlgo
+ * @date 2026/10/20 10:30 UTC+08:00
+ */
+class DispatcherHarnessTest {
+    private static final String SOURCE = "10.0.0.1:3306";
+    private static final String DRIFTED = "10.0.0.2:3306";
+    private static final String IN_SYNC = "10.0.0.3:3306";
+    private static final long LATENCY_MILLIS = 2;
+    private static final Pattern METRIC = Pattern.compile(
+        "mysql_schema_sync_(\\w+?)(?:_total)?\\{role=\"(\\w+)\",db=\"[^\"]*\",endpoint=\"([^\"]*)\"(?:,phase=\"(\\w+)\")?} (\\S+)");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void reportsQueriesRoundTripsAndPhasesPerDatabase() throws Exception {
+        int tables = 20;
+        FakeMysql mysql = new FakeMysql().latency(LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+        FakeMysql.Schema source = mysql.schema(SOURCE, "app");
+        FakeMysql.Schema drifted = mysql.schema(DRIFTED, "app");
+        FakeMysql.Schema inSync = mysql.schema(IN_SYNC, "app");
+        for (int i = 0; i < tables; i++) {
+            source.table(createTable("t" + i, "`name` varchar(64) DEFAULT NULL"));
+            inSync.table(createTable("t" + i, "`name` varchar(64) DEFAULT NULL"));
+            if (i < 15) {
+                // 前 5 张表缺少 name 列，后 5 张表不存在
+                drifted.table(createTable("t" + i, i < 5 ? null : "`name` varchar(64) DEFAULT NULL"));
+            }
+        }
+        drifted.table(createTable("legacy", null));
+
+        Map<String, Map<String, Double>> metrics = sync(mysql, DRIFTED, IN_SYNC);
+        report(mysql, metrics, SOURCE, DRIFTED, IN_SYNC);
+
+        // 读取结构：一次 information_schema.TABLES，每张表一次 SHOW CREATE TABLE
+        assertEquals(1 + tables, source.getQueries());
+        assertEquals(1 + tables, inSync.getQueries());
+        for (String endpoint : Arrays.asList(SOURCE, DRIFTED, IN_SYNC)) {
+            FakeMysql.Schema schema = mysql.schema(endpoint, "app");
+            assertEquals(schema.getQueries(), metrics.get(endpoint).get("queries"), 0, endpoint);
+            assertEquals(schema.getRoundTrips(), metrics.get(endpoint).get("round_trips"), 0, endpoint);
+            assertTrue(metrics.get(endpoint).get("introspect") > 0, endpoint);
+        }
+
+        List<String> ddl = ddl(drifted.getExecuted());
+        assertEquals(1 + 5 + 5, ddl.size(), ddl.toString());
+        assertTrue(ddl.contains("DROP TABLE `legacy`"), ddl.toString());
+        assertEquals(5, ddl.stream().filter(sql -> sql.startsWith("CREATE TABLE")).count());
+        assertEquals(5, ddl.stream().filter(sql -> sql.startsWith("ALTER TABLE")).count());
+        assertTrue(ddl(inSync.getExecuted()).isEmpty());
+        assertEquals(ddl.size(), metrics.get(DRIFTED).get("statements_executed"), 0);
+        // 执行 DDL 的额外开销与表数无关：每条 DDL 一次往返，加上事务与会话设置
+        long introspection = 1 + 15 + 1;
+        assertTrue(drifted.getQueries() - introspection - ddl.size() <= 4, String.valueOf(drifted.getQueries()));
+    }
+
+    @Test
+    void introspectionQueriesGrowByOnePerTable() throws Exception {
+        long small = introspectionQueries(5);
+        long large = introspectionQueries(40);
+        assertEquals(35, large - small, "读取结构时每张表的查询数发生了变化");
+    }
+
+    @Test
+    void skipsTargetsWhenSourceIntrospectionFails() throws Exception {
+        FakeMysql mysql = new FakeMysql();
+        FakeMysql.Schema source = mysql.schema(SOURCE, "app");
+        FakeMysql.Schema target = mysql.schema(DRIFTED, "app");
+        source.table(createTable("t0", null)).table(createTable("t1", null)).table(createTable("broken", null));
+        target.table(createTable("t0", null)).table(createTable("legacy", null));
+        // 只有源库会读取 broken 表
+        mysql.failOn(sql -> sql.equals("SHOW CREATE TABLE `broken`"));
+
+        sync(mysql, DRIFTED);
+        assertTrue(ddl(target.getExecuted()).isEmpty(), target.getExecuted().toString());
+    }
+
+    @Test
+    void locatesPipelinedFailureFromResultSequence() throws Exception {
+        FakeMysql mysql = new FakeMysql();
+        FakeMysql.Schema source = mysql.schema(SOURCE, "app");
+        FakeMysql.Schema target = mysql.schema(DRIFTED, "app");
+        for (int i = 0; i < 10; i++) {
+            source.table(createTable("t" + i, null));
+        }
+        AtomicInteger existenceChecks = new AtomicInteger();
+        mysql.failOn(sql -> {
+            if (sql.startsWith("SELECT TABLE_NAME FROM information_schema.TABLES")) {
+                existenceChecks.incrementAndGet();
+            }
+            return sql.startsWith("CREATE TABLE `t5`");
+        });
+        Path jfrFile = tempDir.resolve("sync.jfr");
+        List<TargetMetaData> targetList = Collections.singletonList(new TargetMetaData(connect(DRIFTED), null));
+        new Dispatcher().setSource(connect(SOURCE)).setTargetList(targetList).setConnectionProvider(mysql)
+                        .setJfrFilePath(jfrFile).schemaSync();
+
+        assertEquals(0, existenceChecks.get());
+        List<String> created = ddl(target.getExecuted());
+        assertEquals(10, created.size(), created.toString());
+        assertEquals(9, target.getTables().size(), target.getTables().toString());
+        assertFalse(target.getTables().containsKey("t5"));
+
+        // 每条语句一个 ExecuteDdl 事件，只有 t5 失败
+        Map<String, Boolean> events = new HashMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(jfrFile)) {
+            if ("com.github.inspalgo.ExecuteDdl".equals(event.getEventType().getName())) {
+                assertNull(events.put(event.getString("table"), event.getBoolean("success")));
+            }
+        }
+        assertEquals(10, events.size(), events.toString());
+        events.forEach((table, success) -> assertEquals(!"t5".equals(table), success, table));
+    }
+
+    @Test
+    void locatesPipelinedFailureWhenDriverReadsAllResults() throws Exception {
+        FakeMysql mysql = new FakeMysql().eagerResults(true);
+        FakeMysql.Schema source = mysql.schema(SOURCE, "app");
+        FakeMysql.Schema target = mysql.schema(DRIFTED, "app");
+        for (int i = 0; i < 10; i++) {
+            source.table(createTable("t" + i, null));
+        }
+        // 包发出后 t5 才出现在目标库，CREATE TABLE `t5` 因表已存在而失败，按表是否存在推断不出失败位置
+        mysql.failOn(sql -> {
+            if (sql.startsWith("CREATE TABLE `t0`")) {
+                target.table(createTable("t5", "`extra` int DEFAULT NULL"));
+            }
+            return false;
+        });
+        List<TargetMetaData> targetList = Collections.singletonList(new TargetMetaData(connect(DRIFTED), null));
+        new Dispatcher().setSource(connect(SOURCE)).setTargetList(targetList).setConnectionProvider(mysql)
+                        .schemaSync();
+
+        List<String> created = ddl(target.getExecuted());
+        assertEquals(10, created.size(), created.toString());
+        assertEquals(10, target.getTables().size(), target.getTables().toString());
+        for (int i = 6; i < 10; i++) {
+            assertTrue(target.getTables().containsKey("t" + i), "t" + i);
+        }
+    }
+
+    @Test
+    void killsTimedOutDdlBeforeRetry() throws Exception {
+        FakeMysql mysql = new FakeMysql();
+        FakeMysql.Schema target = timedOutAlter(mysql, true);
+        List<String> executed = ddl(target.getExecuted());
+        List<String> alters = new ArrayList<>();
+        int kill = -1;
+        for (int i = 0; i < executed.size(); i++) {
+            if (executed.get(i).startsWith("ALTER TABLE `t0`")) {
+                alters.add(executed.get(i));
+            } else if (executed.get(i).startsWith("KILL QUERY")) {
+                kill = i;
+            }
+        }
+        assertEquals(2, alters.size(), executed.toString());
+        assertTrue(kill > executed.indexOf(alters.get(0)) && kill < executed.lastIndexOf(alters.get(1)),
+            executed.toString());
+    }
+
+    @Test
+    void skipsRetryWhileKilledDdlStillRuns() throws Exception {
+        FakeMysql mysql = new FakeMysql();
+        FakeMysql.Schema target = timedOutAlter(mysql, false);
+        List<String> executed = ddl(target.getExecuted());
+        assertEquals(1, executed.stream().filter(sql -> sql.startsWith("ALTER TABLE `t0`")).count(),
+            executed.toString());
+        assertTrue(executed.stream().anyMatch(sql -> sql.startsWith("KILL QUERY")), executed.toString());
+    }
+
+    /**
+     * 第一次执行 ALTER 时挂起，同步超时 1 秒，重试 1 次
+     */
+    private FakeMysql.Schema timedOutAlter(FakeMysql mysql, boolean killable) throws Exception {
+        FakeMysql.Schema source = mysql.schema(SOURCE, "app");
+        FakeMysql.Schema target = mysql.schema(DRIFTED, "app");
+        source.table(createTable("t0", "`name` varchar(64) DEFAULT NULL"));
+        target.table(createTable("t0", null));
+        AtomicInteger alters = new AtomicInteger();
+        mysql.hang(sql -> sql.startsWith("ALTER TABLE `t0`") && alters.incrementAndGet() == 1, killable);
+        List<TargetMetaData> targetList = Collections.singletonList(new TargetMetaData(connect(DRIFTED), null));
+        new Dispatcher().setSource(connect(SOURCE)).setTargetList(targetList).setConnectionProvider(mysql)
+                        .setSyncTimeoutSeconds(1).setStragglerRetries(1).schemaSync();
+        return target;
+    }
+
+    private long introspectionQueries(int tables) throws Exception {
+        FakeMysql mysql = new FakeMysql();
+        FakeMysql.Schema source = mysql.schema(SOURCE, "app");
+        FakeMysql.Schema target = mysql.schema(IN_SYNC, "app");
+        for (int i = 0; i < tables; i++) {
+            source.table(createTable("t" + i, null));
+            target.table(createTable("t" + i, null));
+        }
+        sync(mysql, IN_SYNC);
+        return source.getQueries();
+    }
+
+    private Map<String, Map<String, Double>> sync(FakeMysql mysql, String... targets) throws Exception {
+        List<TargetMetaData> targetList = new ArrayList<>(targets.length);
+        for (String target : targets) {
+            targetList.add(new TargetMetaData(connect(target), null));
+        }
+        Path metricsFile = tempDir.resolve("metrics-" + System.nanoTime() + ".prom");
+        new Dispatcher().setSource(connect(SOURCE)).setTargetList(targetList).setConnectionProvider(mysql)
+                        .setMetricsFilePath(metricsFile).schemaSync();
+        return readMetrics(metricsFile);
+    }
+
+    private static ConnectMetaData connect(String endpoint) {
+        ConnectMetaData connectMetaData = new ConnectMetaData();
+        connectMetaData.setType(ConnectMetaData.Type.MYSQL);
+        connectMetaData.setUsername("root");
+        connectMetaData.setPassword("root");
+        connectMetaData.setHost(endpoint.substring(0, endpoint.indexOf(':')));
+        connectMetaData.setPort(endpoint.substring(endpoint.indexOf(':') + 1));
+        connectMetaData.setDatabase("app");
+        return connectMetaData;
+    }
+
+    private static String createTable(String name, String extraColumn) {
+        return "CREATE TABLE `" + name + "` (\n  `id` bigint NOT NULL AUTO_INCREMENT,\n"
+            + (extraColumn == null ? "" : "  " + extraColumn + ",\n")
+            + "  PRIMARY KEY (`id`)\n) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci";
+    }
+
+    private static List<String> ddl(List<String> executed) {
+        List<String> ddl = new ArrayList<>();
+        for (String sql : executed) {
+            if (!sql.startsWith("SET ")) {
+                ddl.add(sql);
+            }
+        }
+        return ddl;
+    }
+
+    /**
+     * @return endpoint -> 指标名（阶段耗时以阶段名为键，单位秒）-> 值
+     */
+    private static Map<String, Map<String, Double>> readMetrics(Path file) throws IOException {
+        Map<String, Map<String, Double>> metrics = new HashMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            Matcher matcher = METRIC.matcher(line);
+            if (matcher.matches()) {
+                String name = matcher.group(4) == null ? matcher.group(1) : matcher.group(4);
+                metrics.computeIfAbsent(matcher.group(3), key -> new HashMap<>())
+                       .merge(name, Double.parseDouble(matcher.group(5)), Double::sum);
+            }
+        }
+        return metrics;
+    }
+
+    private static void report(FakeMysql mysql, Map<String, Map<String, Double>> metrics, String... endpoints) {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "%-16s %8s %8s %10s %10s %10s %10s%n",
+            "endpoint", "queries", "trips", "connect", "introspect", "diff", "apply"));
+        for (String endpoint : endpoints) {
+            FakeMysql.Schema schema = mysql.schema(endpoint, "app");
+            Map<String, Double> values = metrics.get(endpoint);
+            sb.append(String.format(Locale.ROOT, "%-16s %8d %8d %9.3fs %9.3fs %9.3fs %9.3fs%n", endpoint,
+                schema.getQueries(), schema.getRoundTrips(), values.get("connect"), values.get("introspect"),
+                values.get("diff"), values.get("apply")));
+        }
+        System.out.print(sb);
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.inspalgo.logic;
+
+import com.github.inspalgo.core.ConnectMetaData;
+import com.github.inspalgo.core.ConnectionProvider;
+import com.github.inspalgo.fake.FakeMysql;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * @author InspAlgo
+ * @date 2026/10/20 14:30 UTC+08:00
+ */
+class DistributedTest {
+    private static final String SOURCE = "10.0.0.1:3306";
+    private static final String KNOWN = "10.0.0.2:3306";
+    private static final String UNKNOWN = "10.0.0.3:3306";
+    private static final String PASSWORD = "s3cret-pw";
+    private static final String CREATE_TABLE = "CREATE TABLE `t` (\n  `id` bigint NOT NULL AUTO_INCREMENT,\n"
+        + "  PRIMARY KEY (`id`)\n) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sharedDirectoryHoldsNoPasswords() throws Exception {
+        assumeTrue(System.getenv(WorkQueue.PASSWORD_ENV) == null);
+        FakeMysql mysql = new FakeMysql();
+        mysql.schema(SOURCE, "app").table(CREATE_TABLE);
+        FakeMysql.Schema known = mysql.schema(KNOWN, "app");
+        FakeMysql.Schema unknown = mysql.schema(UNKNOWN, "app");
+        Set<String> passwords = ConcurrentHashMap.newKeySet();
+        ConnectionProvider provider = (jdbcUrl, username, password) -> {
+            passwords.add(password);
+            return mysql.getConnection(jdbcUrl, username, password);
+        };
+
+        List<TargetMetaData> targets = Arrays.asList(new TargetMetaData(connect(KNOWN, PASSWORD), null),
+            new TargetMetaData(connect(UNKNOWN, PASSWORD), null));
+        CompletableFuture<Void> coordinator = CompletableFuture.runAsync(() -> {
+            try {
+                new Dispatcher().setSource(connect(SOURCE, "root")).setTargetList(targets)
+                                .setConnectionProvider(mysql).coordinate(directory);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (!Files.exists(directory.resolve("manifest.properties"))) {
+            if (coordinator.isDone()) {
+                coordinator.join();
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            // 待领取的目标文件中不含密码
+            files.filter(Files::isRegularFile).filter(file -> !file.toString().endsWith(".zst")).forEach(file -> {
+                try {
+                    assertFalse(new String(Files.readAllBytes(file), "UTF-8").contains(PASSWORD), file.toString());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        // worker 只知道其中一个目标的密码
+        new Dispatcher().setConnectionProvider(provider)
+                        .setTargetList(Collections.singletonList(new TargetMetaData(connect(KNOWN, PASSWORD), null)))
+                        .work(directory);
+        coordinator.get(30, TimeUnit.SECONDS);
+
+        assertEquals(Collections.singleton(PASSWORD), passwords);
+        assertTrue(known.getExecuted().stream().anyMatch(sql -> sql.startsWith("CREATE TABLE `t`")),
+            known.getExecuted().toString());
+        assertEquals(0, unknown.getConnections());
+        Map<String, Properties> results = new WorkQueue(directory).results();
+        assertEquals(WorkQueue.STATUS_OK, results.get("00001").getProperty("status"));
+        assertEquals(WorkQueue.STATUS_FAILED, results.get("00002").getProperty("status"));
+    }
+
+    @Test
+    @Timeout(30)
+    void coordinatorGivesUpWithoutWorkers() {
+        FakeMysql mysql = new FakeMysql();
+        mysql.schema(SOURCE, "app").table(CREATE_TABLE);
+        mysql.schema(KNOWN, "app");
+        Dispatcher dispatcher = new Dispatcher().setSource(connect(SOURCE, "root")).setConnectionProvider(mysql)
+                                                .setTargetList(Collections.singletonList(
+                                                    new TargetMetaData(connect(KNOWN, PASSWORD), null)))
+                                                .setCoordinatorTimeoutSeconds(1);
+        assertThrows(IllegalStateException.class, () -> dispatcher.coordinate(directory));
+    }
+
+    private static ConnectMetaData connect(String endpoint, String password) {
+        ConnectMetaData connectMetaData = new ConnectMetaData();
+        connectMetaData.setType(ConnectMetaData.Type.MYSQL);
+        connectMetaData.setUsername("root");
+        connectMetaData.setPassword(password);
+        connectMetaData.setHost(endpoint.substring(0, endpoint.indexOf(':')));
+        connectMetaData.setPort(endpoint.substring(endpoint.indexOf(':') + 1));
+        connectMetaData.setDatabase("app");
+        return connectMetaData;
+    }
+}
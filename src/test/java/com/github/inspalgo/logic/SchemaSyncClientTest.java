@@ -0,0 +1,113 @@
+package com.github.inspalgo.logic;
+
+import com.github.inspalgo.core.ConnectMetaData;
+import com.github.inspalgo.fake.FakeMysql;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author InspAlgo
+ * @date 2026/10/20 14:00 UTC+08:00
+ */
+class SchemaSyncClientTest {
+    private static final String SOURCE = "10.0.0.1:3306";
+    private static final String TARGET = "10.0.0.2:3306";
+    private static final String OTHER = "10.0.0.3:3306";
+
+    @Test
+    void cancellingResultFutureCancelsTarget() throws Exception {
+        FakeMysql mysql = fixture().latency(20, TimeUnit.MILLISECONDS);
+        // 单线程：取消时目标还在队列中等待读取结构
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        try (SchemaSyncClient client = SchemaSyncClient.builder().setExecutor(executor)
+                                                       .setConnectionProvider(mysql).build()) {
+            SyncRun run = client.sync(connect(SOURCE), targets(TARGET, OTHER));
+            CompletableFuture<TargetResult> cancelled = run.getResults().get(0);
+            assertTrue(cancelled.cancel(true));
+            TargetResult other = run.getResults().get(1).join();
+            assertTrue(other.getErrors().isEmpty(), other.getErrors().toString());
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(0, mysql.schema(TARGET, "app").getConnections());
+        assertEquals(1, mysql.schema(OTHER, "app").getExecuted().stream()
+                             .filter(sql -> sql.startsWith("CREATE TABLE")).count());
+    }
+
+    @Test
+    void rejectedSubmissionCancelsSubmittedTargets() throws Exception {
+        FakeMysql mysql = fixture().latency(20, TimeUnit.MILLISECONDS);
+        ExecutorService pool = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        // 拒绝第二个目标读取结构的任务，第一个目标随后提交的同步不应执行
+        AtomicInteger submitted = new AtomicInteger();
+        Executor executor = command -> {
+            if (submitted.incrementAndGet() == 3) {
+                throw new RejectedExecutionException("queue full");
+            }
+            pool.execute(command);
+        };
+        try (SchemaSyncClient client = SchemaSyncClient.builder().setExecutor(executor)
+                                                       .setConnectionProvider(mysql).build()) {
+            assertThrows(RejectedExecutionException.class, () -> client.sync(connect(SOURCE), targets(TARGET, OTHER)));
+            // 等待已读取完结构的第一个目标提交同步
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (submitted.get() < 4 && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            assertEquals(4, submitted.get());
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        for (String endpoint : Arrays.asList(TARGET, OTHER)) {
+            assertTrue(mysql.schema(endpoint, "app").getExecuted().isEmpty(), endpoint);
+        }
+    }
+
+    private static FakeMysql fixture() {
+        FakeMysql mysql = new FakeMysql();
+        mysql.schema(SOURCE, "app").table(createTable("t0")).table(createTable("t1"));
+        mysql.schema(TARGET, "app").table(createTable("t0"));
+        mysql.schema(OTHER, "app").table(createTable("t0"));
+        return mysql;
+    }
+
+    private static List<TargetMetaData> targets(String... endpoints) {
+        List<TargetMetaData> targets = new ArrayList<>(endpoints.length);
+        for (String endpoint : endpoints) {
+            targets.add(new TargetMetaData(connect(endpoint), null));
+        }
+        return targets;
+    }
+
+    private static ConnectMetaData connect(String endpoint) {
+        ConnectMetaData connectMetaData = new ConnectMetaData();
+        connectMetaData.setType(ConnectMetaData.Type.MYSQL);
+        connectMetaData.setUsername("root");
+        connectMetaData.setPassword("root");
+        connectMetaData.setHost(endpoint.substring(0, endpoint.indexOf(':')));
+        connectMetaData.setPort(endpoint.substring(endpoint.indexOf(':') + 1));
+        connectMetaData.setDatabase("app");
+        return connectMetaData;
+    }
+
+    private static String createTable(String name) {
+        return "CREATE TABLE `" + name + "` (\n  `id` bigint NOT NULL,\n  PRIMARY KEY (`id`)\n) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.inspalgo.logic;
+
+import com.github.inspalgo.core.ConnectMetaData;
+import com.github.inspalgo.fake.FakeMysql;
+import com.github.inspalgo.util.TableThreadPoolExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author InspAlgo
+ * @date 2026/10/20 11:30 UTC+08:00
+ */
+class WatchDaemonTest {
+    private static final String SOURCE = "10.0.0.1:3306";
+    private static final String TARGET = "10.0.0.2:3306";
+
+    @Test
+    void keepsPreviousSourceWhenReloadFails() throws Exception {
+        FakeMysql mysql = new FakeMysql();
+        FakeMysql.Schema source = mysql.schema(SOURCE, "app");
+        FakeMysql.Schema target = mysql.schema(TARGET, "app");
+        for (String table : new String[]{"t0", "t1", "t2"}) {
+            source.table(createTable(table));
+            target.table(createTable(table));
+        }
+        Dispatcher dispatcher = new Dispatcher().setSource(connect(SOURCE)).setConnectionProvider(mysql)
+                                                .setTargetList(Collections.singletonList(
+                                                    new TargetMetaData(connect(TARGET), null)));
+        WatchDaemon daemon = new WatchDaemon(dispatcher, 1, 0, false);
+        ThreadPoolExecutor executor = TableThreadPoolExecutor.make("Watch", 1);
+        try {
+            daemon.runCycle(executor);
+            assertTrue(target.getExecuted().isEmpty(), target.getExecuted().toString());
+
+            // 源库变化后读取中途失败，只读到部分表
+            source.table(createTable("t3"));
+            mysql.failOn(sql -> sql.equals("SHOW CREATE TABLE `t1`"));
+            daemon.runCycle(executor);
+            assertTrue(target.getExecuted().isEmpty(), target.getExecuted().toString());
+
+            mysql.failOn(sql -> false);
+            daemon.runCycle(executor);
+            List<String> executed = target.getExecuted();
+            assertTrue(executed.stream().noneMatch(sql -> sql.startsWith("DROP")), executed.toString());
+            assertEquals(1, executed.stream().filter(sql -> sql.startsWith("CREATE TABLE `t3`")).count(),
+                executed.toString());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void retriesFailedSyncWithoutNewChanges() throws Exception {
+        FakeMysql mysql = new FakeMysql();
+        FakeMysql.Schema source = mysql.schema(SOURCE, "app");
+        FakeMysql.Schema target = mysql.schema(TARGET, "app");
+        source.table(createTable("t0"));
+        target.table(createTable("t0"));
+        Dispatcher dispatcher = new Dispatcher().setSource(connect(SOURCE)).setConnectionProvider(mysql)
+                                                .setTargetList(Collections.singletonList(
+                                                    new TargetMetaData(connect(TARGET), null)));
+        WatchDaemon daemon = new WatchDaemon(dispatcher, 1, 0, false);
+        ThreadPoolExecutor executor = TableThreadPoolExecutor.make("Watch", 1);
+        try {
+            daemon.runCycle(executor);
+            source.table(createTable("t1"));
+            mysql.failOn(sql -> sql.startsWith("CREATE TABLE `t1`"));
+            daemon.runCycle(executor);
+            assertFalse(target.getTables().containsKey("t1"));
+
+            // 源库与目标库都没有新的变化，上一轮失败的同步仍要重试
+            mysql.failOn(sql -> false);
+            daemon.runCycle(executor);
+            List<String> executed = target.getExecuted();
+            assertEquals(2, executed.stream().filter(sql -> sql.startsWith("CREATE TABLE `t1`")).count(),
+                executed.toString());
+            assertTrue(target.getTables().containsKey("t1"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ConnectMetaData connect(String endpoint) {
+        ConnectMetaData connectMetaData = new ConnectMetaData();
+        connectMetaData.setType(ConnectMetaData.Type.MYSQL);
+        connectMetaData.setUsername("root");
+        connectMetaData.setPassword("root");
+        connectMetaData.setHost(endpoint.substring(0, endpoint.indexOf(':')));
+        connectMetaData.setPort(endpoint.substring(endpoint.indexOf(':') + 1));
+        connectMetaData.setDatabase("app");
+        return connectMetaData;
+    }
+
+    private static String createTable(String name) {
+        return "CREATE TABLE `" + name + "` (\n  `id` bigint NOT NULL,\n  PRIMARY KEY (`id`)\n) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+    }
+}
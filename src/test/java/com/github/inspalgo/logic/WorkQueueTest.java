@@ -0,0 +1,111 @@
+package com.github.inspalgo.logic;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author InspAlgo
+ * @date 2026/10/19 16:20 UTC+08:00
+ */
+class WorkQueueTest {
+    private static final long LEASE_MILLIS = 10_000;
+
+    @TempDir
+    Path directory;
+
+    private WorkQueue queue;
+
+    @BeforeEach
+    void publish() throws Exception {
+        Files.createDirectories(directory.resolve("leases"));
+        Files.createDirectories(directory.resolve("results"));
+        Files.createDirectories(directory.resolve("items"));
+        Properties item = new Properties();
+        item.setProperty("file", directory.resolve("target.sql").toString());
+        try (Writer writer = Files.newBufferedWriter(directory.resolve("items/00001.target"), StandardCharsets.UTF_8)) {
+            item.store(writer, null);
+        }
+        queue = new WorkQueue(directory);
+    }
+
+    @Test
+    void reclaimedLeaseCannotComplete() throws Exception {
+        WorkQueue.Claim claim = queue.claim("w1");
+        assertNotNull(claim);
+        expire(lease());
+
+        assertEquals(1, queue.reclaimExpired(LEASE_MILLIS));
+        assertFalse(queue.heartbeat(claim));
+        assertFalse(queue.complete(claim, result()));
+        assertEquals(0, queue.resultCount());
+        assertTrue(Files.exists(directory.resolve("items/00001.target")));
+    }
+
+    @Test
+    void freshLeaseIsKeptAndCompletes() throws Exception {
+        WorkQueue.Claim claim = queue.claim("w1");
+        assertEquals(0, queue.reclaimExpired(LEASE_MILLIS));
+        assertTrue(queue.complete(claim, result()));
+
+        assertEquals("OK", queue.results().get("00001").getProperty("status"));
+        assertEquals(0, queue.reclaimExpired(0));
+        try (Stream<Path> leases = Files.list(directory.resolve("leases"))) {
+            assertEquals(0, leases.count());
+        }
+    }
+
+    @Test
+    void heartbeatSurvivesAbortedReclaim() throws Exception {
+        WorkQueue.Claim claim = queue.claim("w1");
+        Path lease = lease();
+        // 回收者改名后发现心跳仍有效，再改回原名
+        Path reclaiming = directory.resolve("leases/00001.target#other-1");
+        Files.move(lease, reclaiming, StandardCopyOption.ATOMIC_MOVE);
+        CompletableFuture<Void> restore = CompletableFuture.runAsync(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(50);
+                Files.move(reclaiming, lease, StandardCopyOption.ATOMIC_MOVE);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertTrue(queue.heartbeat(claim));
+        restore.get(5, TimeUnit.SECONDS);
+        assertTrue(queue.complete(claim, result()));
+        assertEquals(1, queue.resultCount());
+    }
+
+    private Path lease() throws Exception {
+        try (Stream<Path> leases = Files.list(directory.resolve("leases"))) {
+            return leases.findFirst().orElseThrow(IllegalStateException::new);
+        }
+    }
+
+    private static void expire(Path lease) throws Exception {
+        Files.setLastModifiedTime(lease, FileTime.fromMillis(System.currentTimeMillis() - 2 * LEASE_MILLIS));
+    }
+
+    private static Properties result() {
+        Properties result = new Properties();
+        result.setProperty("status", WorkQueue.STATUS_OK);
+        return result;
+    }
+}
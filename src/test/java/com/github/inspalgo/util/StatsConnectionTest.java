@@ -0,0 +1,47 @@
+package com.github.inspalgo.util;
+
+import com.github.inspalgo.fake.FakeMysql;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author InspAlgo
+ * @date 2026/10/20 11:00 UTC+08:00
+ */
+class StatsConnectionTest {
+    private static final String CREATE_TABLE = "CREATE TABLE `t` (`id` int COMMENT '编号 😀')";
+
+    @Test
+    void countsUtf8BytesOncePerColumnAndRow() throws Exception {
+        FakeMysql mysql = new FakeMysql();
+        mysql.schema("127.0.0.1:3306", "app").table(CREATE_TABLE);
+        SyncStats stats = new SyncStats();
+        try (Connection connection = StatsConnection.wrap(
+            mysql.getConnection("jdbc:mysql://127.0.0.1:3306/app", "root", "root"), stats);
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SHOW CREATE TABLE `t`")) {
+            resultSet.next();
+            resultSet.getString(2);
+            resultSet.getString(2);
+            resultSet.getString("Create Table");
+            resultSet.getString(1);
+        }
+        long expected = CREATE_TABLE.getBytes(StandardCharsets.UTF_8).length + "t".length();
+        assertEquals(expected, stats.getBytesRead());
+        assertEquals(1, stats.getQueries());
+        assertEquals(1, stats.getRoundTrips());
+    }
+
+    @Test
+    void utf8LengthMatchesEncoder() {
+        for (String value : new String[]{"", "abc", "é", "编号", "😀"}) {
+            assertEquals(value.getBytes(StandardCharsets.UTF_8).length, StatsConnection.utf8Length(value), value);
+        }
+    }
+}